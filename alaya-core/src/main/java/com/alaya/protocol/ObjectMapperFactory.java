@@ -1,7 +1,9 @@
 package com.alaya.protocol;
 
+import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.Response;
 import com.alaya.protocol.deserializer.RawResponseDeserializer;
+import com.alaya.protocol.serializer.RequestSerializer;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
@@ -18,9 +20,11 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 public class ObjectMapperFactory {
 
     private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper RAW_RESPONSE_OBJECT_MAPPER = new ObjectMapper();
 
     static {
         configureObjectMapper(DEFAULT_OBJECT_MAPPER, false);
+        configureObjectMapper(RAW_RESPONSE_OBJECT_MAPPER, true);
     }
 
     public static ObjectMapper getObjectMapper() {
@@ -32,7 +36,7 @@ public class ObjectMapperFactory {
             return DEFAULT_OBJECT_MAPPER;
         }
 
-        return configureObjectMapper(new ObjectMapper(), true);
+        return RAW_RESPONSE_OBJECT_MAPPER;
     }
 
     public static ObjectReader getObjectReader() {
@@ -41,8 +45,9 @@ public class ObjectMapperFactory {
 
     private static ObjectMapper configureObjectMapper(
             ObjectMapper objectMapper, boolean shouldIncludeRawResponses) {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(Request.class, new RequestSerializer());
         if (shouldIncludeRawResponses) {
-            SimpleModule module = new SimpleModule();
             module.setDeserializerModifier(new BeanDeserializerModifier() {
                 @Override
                 public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config,
@@ -55,9 +60,8 @@ public class ObjectMapperFactory {
                     return deserializer;
                 }
             });
-
-            objectMapper.registerModule(module);
         }
+        objectMapper.registerModule(module);
 
         objectMapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
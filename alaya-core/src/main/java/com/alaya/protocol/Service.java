@@ -2,11 +2,37 @@ package com.alaya.protocol;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
 
+import com.alaya.protocol.cache.CachePolicy;
+import com.alaya.protocol.cache.ResponseCache;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
 import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.deserializer.RawResponseDeserializer;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+import com.alaya.protocol.interceptor.Exchange;
+import com.alaya.protocol.interceptor.Interceptors;
+import com.alaya.protocol.interceptor.ServiceInterceptor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.alaya.utils.Async;
@@ -16,35 +42,542 @@ import com.alaya.utils.Async;
  */
 public abstract class Service implements Web3jService {
 
+    /**
+     * The methods coalesced by {@link #setCoalesceReads(boolean)}, those without side effects
+     * whose result only depends on their params and the state of the chain.
+     */
+    public static final Set<String> COALESCED_METHODS = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList(
+                    "web3_clientVersion",
+                    "net_version",
+                    "net_listening",
+                    "net_peerCount",
+                    "platon_protocolVersion",
+                    "platon_syncing",
+                    "platon_gasPrice",
+                    "platon_blockNumber",
+                    "platon_getBalance",
+                    "platon_getStorageAt",
+                    "platon_getTransactionCount",
+                    "platon_getBlockTransactionCountByHash",
+                    "platon_getBlockTransactionCountByNumber",
+                    "platon_getCode",
+                    "platon_call",
+                    "platon_estimateGas",
+                    "platon_getBlockByHash",
+                    "platon_getBlockByNumber",
+                    "platon_getTransactionByHash",
+                    "platon_getTransactionByBlockHashAndIndex",
+                    "platon_getTransactionByBlockNumberAndIndex",
+                    "platon_getTransactionReceipt",
+                    "platon_getLogs")));
+
     protected final ObjectMapper objectMapper;
 
+    private final boolean includeRawResponses;
+
+    // Calls in flight keyed by method, params and response type, only used when coalescing
+    private final ConcurrentMap<String, CompletableFuture<Response>> inFlightReads =
+            new ConcurrentHashMap<String, CompletableFuture<Response>>();
+
+    private volatile boolean coalesceReads;
+    private volatile CachePolicy cachePolicy;
+
+    // Copied on write, so that sending a request only reads the field
+    private volatile ServiceInterceptor[] interceptors = new ServiceInterceptor[0];
+
     public Service(boolean includeRawResponses) {
         objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        this.includeRawResponses = includeRawResponses;
     }
 
     protected abstract InputStream performIO(String payload) throws IOException;
 
+    /**
+     * Share the responses of identical reads.
+     *
+     * <p>When enabled, a request for a read only method with the same params as one already in
+     * flight isn't sent, its caller receives the response of the request in flight. Coalesced
+     * callers are handed the same response object, so it must not be modified.
+     * Disabled by default.
+     *
+     * @param coalesceReads whether identical reads in flight should be coalesced
+     * @see #COALESCED_METHODS
+     */
+    public void setCoalesceReads(boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    /**
+     * Cache the responses which can't change anymore, blocks, transactions and receipts.
+     *
+     * <p>Blocks requested by hash are cached right away. Blocks requested by number,
+     * transactions and receipts are cached once their block has the given number of
+     * confirmations. Cached responses are returned without a request to the node, and are
+     * parsed again for every caller. Batches aren't cached.
+     *
+     * @param responseCache the cache to store the responses in, or null to stop caching
+     * @param confirmations the number of blocks to wait for before caching a result
+     * @see CachePolicy
+     */
+    public void setResponseCache(ResponseCache responseCache, int confirmations) {
+        this.cachePolicy = responseCache != null
+                ? new CachePolicy(responseCache, confirmations) : null;
+    }
+
+    /**
+     * Add an interceptor, called after those already added for every request sent.
+     *
+     * @param interceptor the interceptor
+     * @see ServiceInterceptor
+     */
+    public synchronized void addInterceptor(ServiceInterceptor interceptor) {
+        ServiceInterceptor[] interceptors =
+                Arrays.copyOf(this.interceptors, this.interceptors.length + 1);
+        interceptors[interceptors.length - 1] = interceptor;
+        this.interceptors = interceptors;
+    }
+
+    public synchronized void removeInterceptor(ServiceInterceptor interceptor) {
+        List<ServiceInterceptor> interceptors =
+                new ArrayList<ServiceInterceptor>(Arrays.asList(this.interceptors));
+        interceptors.remove(interceptor);
+        this.interceptors = interceptors.toArray(new ServiceInterceptor[interceptors.size()]);
+    }
+
+    /**
+     * Perform the IO of a request without blocking the caller.
+     *
+     * <p>The default implementation runs {@link #performIO(String)} on a pooled thread,
+     * transports able to wait for the response without holding a thread should override it.
+     *
+     * @param payload the serialized request
+     * @return a future completed with the response body
+     */
+    protected CompletableFuture<InputStream> performIOAsync(final String payload) {
+        return Async.run(new Callable<InputStream>() {
+            @Override
+            public InputStream call() throws Exception {
+                return performIO(payload);
+            }
+        });
+    }
+
+    /**
+     * Perform the IO of a request serialized to UTF-8.
+     *
+     * <p>Requests are serialized straight to bytes. The default implementation decodes them for
+     * {@link #performIO(String)}, transports able to send the bytes as they are should
+     * override it.
+     *
+     * @param payload the serialized request
+     * @return the response body
+     * @throws IOException if the request can't be performed
+     */
+    protected InputStream performIO(byte[] payload) throws IOException {
+        return performIO(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Perform the IO of a request serialized to UTF-8 without blocking the caller.
+     *
+     * @param payload the serialized request
+     * @return a future completed with the response body
+     * @see #performIO(byte[])
+     */
+    protected CompletableFuture<InputStream> performIOAsync(byte[] payload) {
+        return performIOAsync(new String(payload, StandardCharsets.UTF_8));
+    }
+
     @Override
     public <T extends Response> T send(
             Request request, Class<T> responseType) throws IOException {
-        String payload = objectMapper.writeValueAsString(request);
+        String key = coalescingKey(request, responseType);
+        if (key == null) {
+            return sendRequest(request, responseType);
+        }
+
+        CompletableFuture<Response> call = new CompletableFuture<Response>();
+        CompletableFuture<Response> inFlight = inFlightReads.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return responseType.cast(await(inFlight));
+        }
+
+        try {
+            T response = sendRequest(request, responseType);
+            call.complete(response);
+            return response;
+        } catch (Throwable e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightReads.remove(key, call);
+        }
+    }
+
+    private <T extends Response> T sendRequest(
+            Request request, Class<T> responseType) throws IOException {
+        CachePolicy cachePolicy = this.cachePolicy;
+        String cacheKey = cachePolicy != null ? cachePolicy.key(request) : null;
+        if (cacheKey != null) {
+            byte[] cached = cachePolicy.getCache().get(cacheKey);
+            if (cached != null) {
+                return readCachedResponse(request, cached, responseType);
+            }
+        }
+
+        Exchange exchange = Interceptors.beforeSerialize(interceptors, request);
+        T response;
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(request);
+
+            InputStream result =
+                    Interceptors.afterIO(exchange, payload.length, performIO(payload));
+            response = readResponse(request, cachePolicy, cacheKey, result, responseType);
+        } catch (IOException | RuntimeException e) {
+            Interceptors.afterDeserialize(exchange, null, e);
+            throw e;
+        }
+        Interceptors.afterDeserialize(exchange, response, null);
+        return response;
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request jsonRpc20Request, final Class<T> responseType) {
+        final String key;
+        try {
+            key = coalescingKey(jsonRpc20Request, responseType);
+        } catch (JsonProcessingException e) {
+            CompletableFuture<T> response = new CompletableFuture<T>();
+            response.completeExceptionally(e);
+            return response;
+        }
+        if (key == null) {
+            return sendRequestAsync(jsonRpc20Request, responseType);
+        }
+
+        final CompletableFuture<Response> call = new CompletableFuture<Response>();
+        CompletableFuture<Response> inFlight = inFlightReads.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return follow(inFlight, responseType);
+        }
+
+        sendRequestAsync(jsonRpc20Request, responseType).whenComplete(
+                new BiConsumer<T, Throwable>() {
+                    @Override
+                    public void accept(T response, Throwable error) {
+                        inFlightReads.remove(key, call);
+                        if (error != null) {
+                            call.completeExceptionally(error);
+                        } else {
+                            call.complete(response);
+                        }
+                    }
+                });
+        return follow(call, responseType);
+    }
+
+    private <T extends Response> CompletableFuture<T> sendRequestAsync(
+            final Request jsonRpc20Request, final Class<T> responseType) {
+        final CompletableFuture<T> response = new CompletableFuture<T>();
+        final CachePolicy cachePolicy = this.cachePolicy;
+        final String cacheKey;
+        final byte[] payload;
+        final Exchange exchange;
+        try {
+            cacheKey = cachePolicy != null ? cachePolicy.key(jsonRpc20Request) : null;
+            if (cacheKey != null) {
+                byte[] cached = cachePolicy.getCache().get(cacheKey);
+                if (cached != null) {
+                    response.complete(
+                            readCachedResponse(jsonRpc20Request, cached, responseType));
+                    return response;
+                }
+            }
+        } catch (IOException e) {
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        exchange = Interceptors.beforeSerialize(interceptors, jsonRpc20Request);
+        try {
+            payload = objectMapper.writeValueAsBytes(jsonRpc20Request);
+        } catch (JsonProcessingException e) {
+            Interceptors.afterDeserialize(exchange, null, e);
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        performIOAsync(payload).whenComplete(new BiConsumer<InputStream, Throwable>() {
+            @Override
+            public void accept(InputStream result, Throwable error) {
+                if (error != null) {
+                    Interceptors.afterDeserialize(exchange, null, error);
+                    response.completeExceptionally(error);
+                    return;
+                }
+                T value;
+                try {
+                    value = readResponse(jsonRpc20Request, cachePolicy, cacheKey,
+                            Interceptors.afterIO(exchange, payload.length, result),
+                            responseType);
+                } catch (Throwable e) {
+                    Interceptors.afterDeserialize(exchange, null, e);
+                    response.completeExceptionally(e);
+                    return;
+                }
+                Interceptors.afterDeserialize(exchange, value, null);
+                response.complete(value);
+            }
+        });
+        return response;
+    }
 
-        InputStream result = performIO(payload);
-        if (result != null) {
+    /**
+     * Identify a request for coalescing.
+     *
+     * @return the key shared by identical requests, or null if the request is not coalesced
+     */
+    private String coalescingKey(Request request, Class<?> responseType)
+            throws JsonProcessingException {
+        if (!coalesceReads || !COALESCED_METHODS.contains(request.getMethod())) {
+            return null;
+        }
+        return request.getMethod() + objectMapper.writeValueAsString(request.getParams())
+                + responseType.getName();
+    }
+
+    private static Response await(CompletableFuture<Response> call) throws IOException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for coalesced request");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Give a caller its own future of a shared call, so that cancelling it doesn't affect the
+     * other callers.
+     */
+    private static <T extends Response> CompletableFuture<T> follow(
+            CompletableFuture<Response> call, final Class<T> responseType) {
+        final CompletableFuture<T> response = new CompletableFuture<T>();
+        call.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(Response result, Throwable error) {
+                if (error != null) {
+                    response.completeExceptionally(error);
+                } else {
+                    response.complete(responseType.cast(result));
+                }
+            }
+        });
+        return response;
+    }
+
+    private <T extends Response> T readResponse(
+            Request request, CachePolicy cachePolicy, String cacheKey,
+            InputStream result, Class<T> responseType) throws IOException {
+        if (cachePolicy == null || result == null) {
+            return readResponse(result, responseType);
+        } else if (cacheKey == null) {
+            T response = readResponse(result, responseType);
+            cachePolicy.observe(request, response);
+            return response;
+        }
+
+        // the body is kept as it was received to be cached
+        byte[] content = readContent(result);
+        T response = parseResponse(content, responseType);
+        cachePolicy.observe(request, response);
+        if (cachePolicy.isCacheable(request, response)) {
+            cachePolicy.getCache().put(cacheKey, content);
+        } else if (cachePolicy.shouldRefreshHead(request, response)) {
+            // the response might be cacheable once the head is known, next time it's requested
+            sendAsync(new Request<String, PlatonBlockNumber>(
+                    "platon_blockNumber",
+                    Collections.<String>emptyList(),
+                    this,
+                    PlatonBlockNumber.class), PlatonBlockNumber.class);
+        }
+        return response;
+    }
+
+    private <T extends Response> T readCachedResponse(
+            Request request, byte[] cached, Class<T> responseType) throws IOException {
+        T response = parseResponse(cached, responseType);
+        response.setId(request.getId());
+        return response;
+    }
+
+    private <T extends Response> T readResponse(
+            InputStream result, Class<T> responseType) throws IOException {
+        if (result == null) {
+            return null;
+        } else if (includeRawResponses) {
+            return parseResponse(readContent(result), responseType);
+        } else {
             return objectMapper.readValue(result, responseType);
+        }
+    }
+
+    private <T extends Response> T parseResponse(
+            byte[] content, Class<T> responseType) throws IOException {
+        if (includeRawResponses) {
+            // parsed straight from the bytes the raw response is then sliced from
+            return objectMapper.readerFor(responseType)
+                    .withAttribute(RawResponseDeserializer.RAW_CONTENT, content)
+                    .readValue(content);
         } else {
-            return null;
+            return objectMapper.readValue(content, responseType);
+        }
+    }
+
+    /**
+     * Read a response body in full. Transports hand over bodies they have already buffered,
+     * so the size they report as available is normally the size of the whole body.
+     */
+    private static byte[] readContent(InputStream input) throws IOException {
+        try {
+            byte[] content = new byte[Math.max(input.available(), 256)];
+            int length = 0;
+            int read;
+            while ((read = input.read(content, length, content.length - length)) != -1) {
+                length += read;
+                if (length == content.length) {
+                    int next = input.read();
+                    if (next == -1) {
+                        break;
+                    }
+                    content = Arrays.copyOf(content, content.length * 2);
+                    content[length++] = (byte) next;
+                }
+            }
+            return length == content.length ? content : Arrays.copyOf(content, length);
+        } finally {
+            input.close();
         }
     }
 
     @Override
-    public <T extends Response> Future<T> sendAsync(
-            final Request jsonRpc20Request, final Class<T> responseType) {
-        return Async.run(new Callable<T>() {
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return new BatchResponse(requests, Collections.<Response<?>>emptyList());
+        }
+
+        Exchange[] exchanges = Interceptors.beforeSerialize(interceptors, requests);
+        BatchResponse response;
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(requests);
+
+            InputStream result =
+                    Interceptors.afterIO(exchanges, payload.length, performIO(payload));
+            response = readBatchResponse(requests, result);
+        } catch (IOException | RuntimeException e) {
+            Interceptors.afterDeserialize(exchanges, null, e);
+            throw e;
+        }
+        Interceptors.afterDeserialize(exchanges, response, null);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        final CompletableFuture<BatchResponse> response = new CompletableFuture<BatchResponse>();
+        final List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            response.complete(
+                    new BatchResponse(requests, Collections.<Response<?>>emptyList()));
+            return response;
+        }
+
+        final Exchange[] exchanges = Interceptors.beforeSerialize(interceptors, requests);
+        final byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(requests);
+        } catch (JsonProcessingException e) {
+            Interceptors.afterDeserialize(exchanges, null, e);
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        performIOAsync(payload).whenComplete(new BiConsumer<InputStream, Throwable>() {
             @Override
-            public T call() throws Exception {
-                return Service.this.send(jsonRpc20Request, responseType);
+            public void accept(InputStream result, Throwable error) {
+                if (error != null) {
+                    Interceptors.afterDeserialize(exchanges, null, error);
+                    response.completeExceptionally(error);
+                    return;
+                }
+                BatchResponse value;
+                try {
+                    value = readBatchResponse(requests,
+                            Interceptors.afterIO(exchanges, payload.length, result));
+                } catch (Throwable e) {
+                    Interceptors.afterDeserialize(exchanges, null, e);
+                    response.completeExceptionally(e);
+                    return;
+                }
+                Interceptors.afterDeserialize(exchanges, value, null);
+                response.complete(value);
             }
         });
+        return response;
+    }
+
+    private BatchResponse readBatchResponse(
+            List<Request<?, ? extends Response<?>>> requests, InputStream result)
+            throws IOException {
+        if (result == null) {
+            return null;
+        }
+        return parseBatchResponse(requests, objectMapper.readTree(result));
+    }
+
+    /**
+     * Demultiplex a batch response. Nodes are free to answer the elements of a batch in any
+     * order, so responses are matched to their requests by id rather than by position.
+     */
+    protected BatchResponse parseBatchResponse(
+            List<Request<?, ? extends Response<?>>> requests, JsonNode root) throws IOException {
+        if (!root.isArray()) {
+            // a node that can't process the batch as a whole answers with a single error object
+            throw new ClientConnectionException("Invalid batch response received: " + root);
+        }
+
+        Map<Long, JsonNode> nodesById = new HashMap<Long, JsonNode>(root.size() * 2);
+        for (JsonNode node : root) {
+            nodesById.put(node.path("id").asLong(), node);
+        }
+
+        List<Response<?>> responses = new ArrayList<Response<?>>(requests.size());
+        for (Request<?, ? extends Response<?>> request : requests) {
+            JsonNode node = nodesById.get(request.getId());
+            if (node == null) {
+                throw new IOException("No response received for request with id "
+                        + request.getId() + " (" + request.getMethod() + ")");
+            }
+
+            Response<?> response = objectMapper.treeToValue(node, request.getResponseType());
+            if (includeRawResponses) {
+                response.setRawResponse(node.toString());
+            }
+            responses.add(response);
+        }
+        return new BatchResponse(requests, responses);
     }
 }
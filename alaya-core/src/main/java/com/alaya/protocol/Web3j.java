@@ -1,11 +1,12 @@
 package com.alaya.protocol;
 
+import com.alaya.protocol.core.Batcher;
 import com.alaya.protocol.core.Platon;
 import com.alaya.protocol.rx.Web3jRx;
 
 /**
  * JSON-RPC Request object building factory.
  */
-public interface Web3j extends Platon, Web3jRx {
+public interface Web3j extends Platon, Web3jRx, Batcher {
 
 }
@@ -1,18 +1,133 @@
 package com.alaya.protocol;
 
 import java.io.IOException;
-import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
 import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.Response;
+import com.alaya.protocol.websocket.events.Notification;
+import rx.Observable;
+
+import com.alaya.utils.Async;
 
 /**
  * Services API.
+ *
+ * <p>Every method but {@link #send} has a default implementation, so that a service only
+ * needs to implement the methods it supports.
  */
 public interface Web3jService {
     <T extends Response> T send(
             Request request, Class<T> responseType) throws IOException;
 
-    <T extends Response> Future<T> sendAsync(
-            Request request, Class<T> responseType);
+    /**
+     * Send a request without waiting for the response.
+     *
+     * <p>The default implementation runs {@link #send(Request, Class)} on a pooled thread.
+     *
+     * @param request the request to send
+     * @param responseType the type of the response
+     * @param <T> the response type
+     * @return a future completed with the response, or exceptionally if the request failed
+     */
+    default <T extends Response> CompletableFuture<T> sendAsync(
+            final Request request, final Class<T> responseType) {
+        return Async.run(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return send(request, responseType);
+            }
+        });
+    }
+
+    /**
+     * Send all requests of a batch to the node in a single round trip.
+     *
+     * <p>The default implementation sends the requests one after the other.
+     *
+     * @param batchRequest the batch to send
+     * @return the responses, in the same order as the requests of the batch
+     * @throws IOException if the batch could not be sent or a response is missing
+     */
+    default BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        List<Response<?>> responses = new ArrayList<Response<?>>(requests.size());
+        for (Request<?, ? extends Response<?>> request : requests) {
+            responses.add(send(request, request.getResponseType()));
+        }
+        return new BatchResponse(requests, responses);
+    }
+
+    /**
+     * Send all requests of a batch to the node without waiting for the responses.
+     *
+     * <p>The default implementation sends the requests on their own with
+     * {@link #sendAsync(Request, Class)}.
+     *
+     * @param batchRequest the batch to send
+     * @return a future completed with the responses, or exceptionally if a request failed
+     */
+    default CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        final List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        final List<CompletableFuture<? extends Response<?>>> responses =
+                new ArrayList<CompletableFuture<? extends Response<?>>>(requests.size());
+        for (Request<?, ? extends Response<?>> request : requests) {
+            responses.add(sendAsync(request, request.getResponseType()));
+        }
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0]))
+                .thenApply(new Function<Void, BatchResponse>() {
+                    @Override
+                    public BatchResponse apply(Void completed) {
+                        List<Response<?>> results = new ArrayList<Response<?>>(responses.size());
+                        for (CompletableFuture<? extends Response<?>> response : responses) {
+                            results.add(response.join());
+                        }
+                        return new BatchResponse(requests, results);
+                    }
+                });
+    }
+
+    /**
+     * Subscribe to a stream of notifications pushed by the node. The subscription is
+     * established when the returned Observable is subscribed to, and cancelled on the node via
+     * the given unsubscribe method when it is unsubscribed from.
+     *
+     * @param request the subscribe request, i.e. platon_subscribe
+     * @param unsubscribeMethod the method used to cancel the subscription
+     * @param responseType the type of the notifications
+     * @param <T> the notification type
+     * @return an Observable emitting the notifications of this subscription
+     * @throws UnsupportedOperationException if this service cannot receive notifications,
+     *                                       which is the default
+     */
+    default <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        throw new UnsupportedOperationException(String.format(
+                "Service %s does not support subscriptions",
+                this.getClass().getSimpleName()));
+    }
+
+    /**
+     * Whether this service supports push subscriptions via
+     * {@link #subscribe(Request, String, Class)}, false by default.
+     *
+     * @return true if notifications can be received
+     */
+    default boolean supportsSubscriptions() {
+        return false;
+    }
+
+    /**
+     * Release the resources held by this service, i.e. connections. Does nothing by default.
+     *
+     * @throws IOException if the service could not be closed cleanly
+     */
+    default void close() throws IOException {
+    }
 }
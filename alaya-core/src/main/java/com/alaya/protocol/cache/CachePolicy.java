@@ -0,0 +1,149 @@
+package com.alaya.protocol.cache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGetTransactionReceipt;
+import com.alaya.protocol.core.methods.response.PlatonTransaction;
+import com.alaya.utils.Numeric;
+
+/**
+ * Decides which responses can be cached, those which can't change anymore.
+ *
+ * <p>A block fetched by hash never changes. A block fetched by number, or a transaction or
+ * receipt fetched by hash, may still be replaced by a reorganisation until its block is
+ * buried under a number of confirmations. The head of the chain is learnt from the responses
+ * of platon_blockNumber and the blocks passing through the service.
+ */
+public class CachePolicy {
+
+    private static final long HEAD_REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final ResponseCache cache;
+    private final int confirmations;
+
+    private final AtomicLong head = new AtomicLong(-1);
+    private final AtomicLong lastHeadRefresh =
+            new AtomicLong(System.nanoTime() - HEAD_REFRESH_INTERVAL);
+
+    /**
+     * Create a policy.
+     *
+     * @param cache the cache storing the responses
+     * @param confirmations the number of blocks on top of the block of a result before it is
+     *                      cached, 0 to cache results as soon as they are mined
+     */
+    public CachePolicy(ResponseCache cache, int confirmations) {
+        this.cache = cache;
+        this.confirmations = confirmations;
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * The key the response of a request is cached under.
+     *
+     * @param request the request
+     * @return the key, or null if the response of the request can't be cached
+     * @throws JsonProcessingException if the params of the request can't be serialized
+     */
+    public String key(Request<?, ?> request) throws JsonProcessingException {
+        String method = request.getMethod();
+        if ("platon_getBlockByNumber".equals(method)) {
+            // only blocks at a given height, not the latest or pending one
+            List<?> params = request.getParams();
+            if (params.isEmpty() || !(params.get(0) instanceof String)
+                    || !Numeric.containsHexPrefix((String) params.get(0))) {
+                return null;
+            }
+        } else if (!"platon_getBlockByHash".equals(method)
+                && !"platon_getTransactionByHash".equals(method)
+                && !"platon_getTransactionReceipt".equals(method)) {
+            return null;
+        }
+        return method + objectMapper.writeValueAsString(request.getParams());
+    }
+
+    /**
+     * Learn the head of the chain from a response.
+     */
+    public void observe(Request<?, ?> request, Response<?> response) {
+        if (response.hasError() || response.getResult() == null) {
+            return;
+        }
+        if (response instanceof PlatonBlockNumber) {
+            advanceHead(((PlatonBlockNumber) response).getBlockNumber().longValue());
+        } else if (response instanceof PlatonBlock) {
+            // the chain is at least as long as any block seen
+            advanceHead(blockNumber(response));
+        }
+    }
+
+    /**
+     * Whether the response of a request with a cache key can be cached.
+     */
+    public boolean isCacheable(Request<?, ?> request, Response<?> response) {
+        if (response.hasError() || response.getResult() == null) {
+            return false;
+        }
+        if ("platon_getBlockByHash".equals(request.getMethod())) {
+            return true;
+        }
+        long blockNumber = blockNumber(response);
+        return blockNumber >= 0 && blockNumber + confirmations <= head.get();
+    }
+
+    /**
+     * Whether the head should be refreshed to tell if a response can be cached. Returns true
+     * at most once per second, the caller is expected to refresh it.
+     */
+    public boolean shouldRefreshHead(Request<?, ?> request, Response<?> response) {
+        if (response.hasError() || response.getResult() == null) {
+            return false;
+        }
+        long blockNumber = blockNumber(response);
+        if (blockNumber < 0 || blockNumber + confirmations <= head.get()) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long last = lastHeadRefresh.get();
+        return now - last >= HEAD_REFRESH_INTERVAL && lastHeadRefresh.compareAndSet(last, now);
+    }
+
+    /**
+     * The number of the block a result belongs to, or -1 if it isn't mined yet.
+     */
+    private static long blockNumber(Response<?> response) {
+        String blockNumber = null;
+        if (response instanceof PlatonBlock) {
+            blockNumber = ((PlatonBlock) response).getBlock().getNumberRaw();
+        } else if (response instanceof PlatonTransaction) {
+            blockNumber = ((PlatonTransaction) response).getTransaction().getBlockNumberRaw();
+        } else if (response instanceof PlatonGetTransactionReceipt) {
+            blockNumber = ((PlatonGetTransactionReceipt) response)
+                    .getTransactionReceipt().getBlockNumberRaw();
+        }
+        return blockNumber != null ? Numeric.decodeQuantity(blockNumber).longValue() : -1;
+    }
+
+    private void advanceHead(long blockNumber) {
+        long current;
+        do {
+            current = head.get();
+        } while (blockNumber > current && !head.compareAndSet(current, blockNumber));
+    }
+}
@@ -0,0 +1,94 @@
+package com.alaya.protocol.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ResponseCache} bounded by the number of bytes it holds, evicting the least recently
+ * used responses first.
+ */
+public class LruResponseCache implements ResponseCache {
+
+    private final long maxWeight;
+    private final LinkedHashMap<String, byte[]> responses =
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxWeight the number of bytes the cached responses and their keys may take up
+     */
+    public LruResponseCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public synchronized byte[] get(String key) {
+        byte[] response = responses.get(key);
+        if (response == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return response;
+    }
+
+    @Override
+    public synchronized void put(String key, byte[] response) {
+        long entryWeight = weigh(key, response);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+
+        byte[] previous = responses.put(key, response);
+        if (previous != null) {
+            weight -= weigh(key, previous);
+        }
+        weight += entryWeight;
+
+        Iterator<Map.Entry<String, byte[]>> eldest = responses.entrySet().iterator();
+        while (weight > maxWeight) {
+            Map.Entry<String, byte[]> entry = eldest.next();
+            eldest.remove();
+            weight -= weigh(entry.getKey(), entry.getValue());
+            evictionCount++;
+        }
+    }
+
+    private static long weigh(String key, byte[] response) {
+        return 2L * key.length() + response.length;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int getSize() {
+        return responses.size();
+    }
+
+    /**
+     * The number of bytes taken up by the cached responses and their keys.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+}
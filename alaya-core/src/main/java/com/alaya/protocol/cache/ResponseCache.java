@@ -0,0 +1,28 @@
+package com.alaya.protocol.cache;
+
+/**
+ * Storage for the responses cached by a {@link com.alaya.protocol.Service}.
+ *
+ * <p>Entries are the response bodies as received from the node, keyed by method and params.
+ * Implementations are free to drop entries at any time and must be thread safe.
+ *
+ * @see com.alaya.protocol.Service#setResponseCache(ResponseCache, int)
+ */
+public interface ResponseCache {
+
+    /**
+     * Look up a response.
+     *
+     * @param key the method and params of the request
+     * @return the response body, or null if it isn't cached
+     */
+    byte[] get(String key);
+
+    /**
+     * Store a response.
+     *
+     * @param key the method and params of the request
+     * @param response the response body, it must not be modified once stored
+     */
+    void put(String key, byte[] response);
+}
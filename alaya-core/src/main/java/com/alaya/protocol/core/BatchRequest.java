@@ -0,0 +1,47 @@
+package com.alaya.protocol.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.alaya.protocol.Web3jService;
+
+/**
+ * A JSON-RPC batch, sent to the node as a single JSON array in one round trip.
+ *
+ * <p>Requests are created via the usual {@link com.alaya.protocol.Web3j} factory methods and
+ * added to the batch, the responses are matched back to their requests by id.
+ */
+public class BatchRequest {
+
+    private final Web3jService web3jService;
+    private final List<Request<?, ? extends Response<?>>> requests =
+            new ArrayList<Request<?, ? extends Response<?>>>();
+
+    public BatchRequest(Web3jService web3jService) {
+        this.web3jService = web3jService;
+    }
+
+    public BatchRequest add(Request<?, ? extends Response<?>> request) {
+        requests.add(request);
+        return this;
+    }
+
+    public List<Request<?, ? extends Response<?>>> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    public BatchResponse send() throws IOException {
+        return web3jService.sendBatch(this);
+    }
+
+    public CompletableFuture<BatchResponse> sendAsync() {
+        return web3jService.sendBatchAsync(this);
+    }
+}
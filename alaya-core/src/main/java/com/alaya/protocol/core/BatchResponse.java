@@ -0,0 +1,39 @@
+package com.alaya.protocol.core;
+
+import java.util.List;
+
+/**
+ * The responses to a {@link BatchRequest}, in the same order as the requests of the batch.
+ */
+public class BatchResponse {
+
+    private final List<Request<?, ? extends Response<?>>> requests;
+    private final List<? extends Response<?>> responses;
+
+    public BatchResponse(
+            List<Request<?, ? extends Response<?>>> requests,
+            List<? extends Response<?>> responses) {
+        this.requests = requests;
+        this.responses = responses;
+    }
+
+    public List<Request<?, ? extends Response<?>>> getRequests() {
+        return requests;
+    }
+
+    public List<? extends Response<?>> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Get the response to the request at the given position of the batch.
+     *
+     * @param index position of the request within the batch
+     * @param responseType the expected response type of that request
+     * @param <T> the response type
+     * @return the typed response
+     */
+    public <T extends Response<?>> T getResponse(int index, Class<T> responseType) {
+        return responseType.cast(responses.get(index));
+    }
+}
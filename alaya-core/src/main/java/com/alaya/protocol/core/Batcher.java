@@ -0,0 +1,14 @@
+package com.alaya.protocol.core;
+
+/**
+ * Factory for JSON-RPC batches.
+ */
+public interface Batcher {
+
+    /**
+     * Create a new, empty batch bound to this client's service.
+     *
+     * @return a batch that requests can be added to
+     */
+    BatchRequest newBatch();
+}
@@ -1,6 +1,7 @@
 package com.alaya.protocol.core;
 
 import com.alaya.protocol.core.methods.request.ShhFilter;
+import com.alaya.protocol.rx.BlockEvent;
 import com.alaya.protocol.rx.JsonRpc2_0Rx;
 import com.alaya.utils.Numeric;
 import com.alaya.protocol.Web3j;
@@ -49,11 +50,15 @@ import com.alaya.protocol.core.methods.response.ShhUninstallFilter;
 import com.alaya.protocol.core.methods.response.ShhVersion;
 import com.alaya.protocol.core.methods.response.Web3ClientVersion;
 import com.alaya.protocol.core.methods.response.Web3Sha3;
+import com.alaya.protocol.websocket.events.LogNotification;
+import com.alaya.protocol.websocket.events.NewHeadsNotification;
+import com.alaya.protocol.websocket.events.PendingTransactionNotification;
 import com.alaya.utils.Async;
 
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 
 import rx.Observable;
@@ -77,7 +82,7 @@ public class JsonRpc2_0Web3j implements Web3j {
             Web3jService web3jService, long pollingInterval,
             ScheduledExecutorService scheduledExecutorService) {
         this.web3jService = web3jService;
-        this.web3jRx = new JsonRpc2_0Rx(this, scheduledExecutorService);
+        this.web3jRx = new JsonRpc2_0Rx(this, web3jService, scheduledExecutorService);
         this.blockTime = pollingInterval;
     }
 
@@ -601,6 +606,21 @@ public class JsonRpc2_0Web3j implements Web3j {
                 fullTransactionObjects, ascending);
     }
 
+    @Override
+    public Observable<PlatonBlock> replayBlocksObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
+            boolean fullTransactionObjects, int batchSize, int concurrency) {
+        return web3jRx.replayBlocksObservable(startBlock, endBlock,
+                fullTransactionObjects, batchSize, concurrency);
+    }
+
+    @Override
+    public Observable<Log> replayLogsObservable(
+            com.alaya.protocol.core.methods.request.PlatonFilter ethFilter,
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock) {
+        return web3jRx.replayLogsObservable(ethFilter, startBlock, endBlock);
+    }
+
     @Override
     public Observable<com.alaya.protocol.core.methods.response.Transaction>
     replayTransactionsObservable(
@@ -635,6 +655,20 @@ public class JsonRpc2_0Web3j implements Web3j {
                 startBlock, fullTransactionObjects, blockTime);
     }
 
+    @Override
+    public Observable<BlockEvent> blockEventObservable(
+            boolean fullTransactionObjects, int confirmations) {
+        return web3jRx.blockEventObservable(fullTransactionObjects, confirmations, blockTime);
+    }
+
+    @Override
+    public Observable<BlockEvent> catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects,
+            int confirmations) {
+        return web3jRx.catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+                startBlock, fullTransactionObjects, confirmations, blockTime);
+    }
+
     @Override
     public Observable<com.alaya.protocol.core.methods.response.Transaction>
     catchUpToLatestAndSubscribeToNewTransactionsObservable(
@@ -643,6 +677,34 @@ public class JsonRpc2_0Web3j implements Web3j {
                 startBlock, blockTime);
     }
 
+    @Override
+    public Observable<Log> catchUpToLatestLogsObservable(
+            com.alaya.protocol.core.methods.request.PlatonFilter ethFilter,
+            DefaultBlockParameter startBlock) {
+        return web3jRx.catchUpToLatestLogsObservable(ethFilter, startBlock, blockTime);
+    }
+
+    @Override
+    public Observable<NewHeadsNotification> newHeadsNotifications() {
+        return web3jRx.newHeadsNotifications();
+    }
+
+    @Override
+    public Observable<LogNotification> logsNotifications(
+            List<String> addresses, List<String> topics) {
+        return web3jRx.logsNotifications(addresses, topics);
+    }
+
+    @Override
+    public Observable<PendingTransactionNotification> newPendingTransactionsNotifications() {
+        return web3jRx.newPendingTransactionsNotifications();
+    }
+
+    @Override
+    public BatchRequest newBatch() {
+        return new BatchRequest(web3jService);
+    }
+
     @Override
     public Request<?, PlatonEvidences> platonEvidences() {
         return new Request<>(
@@ -1,10 +1,9 @@
 package com.alaya.protocol.core;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import rx.Observable;
-import rx.Subscriber;
 
 import com.alaya.utils.Async;
 
@@ -17,10 +16,24 @@ public class RemoteCall<T> {
 
     private Callable<T> callable;
 
+    private Callable<CompletableFuture<T>> asyncCallable;
+
     public RemoteCall(Callable<T> callable) {
         this.callable = callable;
     }
 
+    /**
+     * Create a call that can also be performed without blocking a thread while waiting for
+     * the node.
+     *
+     * @param callable performs the call synchronously
+     * @param asyncCallable starts the call, returning a future completed with its result
+     */
+    public RemoteCall(Callable<T> callable, Callable<CompletableFuture<T>> asyncCallable) {
+        this.callable = callable;
+        this.asyncCallable = asyncCallable;
+    }
+
     /**
      * Perform request synchronously.
      *
@@ -34,9 +47,22 @@ public class RemoteCall<T> {
     /**
      * Perform request asynchronously with a future.
      *
+     * <p>Calls created without an asynchronous implementation run the synchronous one on a
+     * pooled thread.
+     *
      * @return a future containing our function
      */
-    public Future<T> sendAsync() {
+    public CompletableFuture<T> sendAsync() {
+        if (asyncCallable != null) {
+            try {
+                return asyncCallable.call();
+            } catch (Exception e) {
+                CompletableFuture<T> result = new CompletableFuture<T>();
+                result.completeExceptionally(e);
+                return result;
+            }
+        }
+
         return Async.run(new Callable<T>() {
             @Override
             public T call() throws Exception {
@@ -48,21 +74,16 @@ public class RemoteCall<T> {
     /**
      * Provide an observable to emit result from our function.
      *
+     * <p>The result is only emitted once requested by the subscriber.
+     *
      * @return an observable
      */
     public Observable<T> observable() {
-        return Observable.create(
-                new Observable.OnSubscribe<T>() {
-                    @Override
-                    public void call(Subscriber<? super T> subscriber) {
-                        try {
-                            subscriber.onNext(RemoteCall.this.send());
-                            subscriber.onCompleted();
-                        } catch (Exception e) {
-                            subscriber.onError(e);
-                        }
-                    }
-                }
-        );
+        return Observable.fromCallable(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return RemoteCall.this.send();
+            }
+        });
     }
 }
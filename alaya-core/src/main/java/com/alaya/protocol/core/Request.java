@@ -3,9 +3,10 @@ package com.alaya.protocol.core;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import rx.Observable;
 
 import com.alaya.protocol.Web3jService;
@@ -68,12 +69,17 @@ public class Request<S, T extends Response> {
         this.id = id;
     }
 
+    @JsonIgnore
+    public Class<T> getResponseType() {
+        return responseType;
+    }
+
     public T send() throws IOException {
         return web3jService.send(this, responseType);
     }
 
-    public Future<T> sendAsync() {
-        return  web3jService.sendAsync(this, responseType);
+    public CompletableFuture<T> sendAsync() {
+        return web3jService.sendAsync(this, responseType);
     }
 
     public Observable<T> observable() {
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.alaya.protocol.core.methods.response.PlatonFilter;
 import com.alaya.protocol.core.methods.response.PlatonLog;
@@ -31,8 +32,12 @@ public abstract class Filter<T> {
     final Callback<T> callback;
 
     private volatile BigInteger filterId;
+    // set when the filter must be installed again at its next poll
+    private final AtomicBoolean reinstallRequested = new AtomicBoolean();
 
+    // Guarded by this
     private ScheduledFuture<?> schedule;
+    private boolean cancelled;
 
     public Filter(Web3j web3j, Callback<T> callback) {
         this.web3j = web3j;
@@ -72,22 +77,40 @@ public abstract class Filter<T> {
             caller. However, the user would then be required to recreate subscriptions manually
             which isn't ideal given the aforementioned issues.
             */
-            schedule = scheduledExecutorService.scheduleAtFixedRate(
+            schedulePoll(scheduledExecutorService, ethFilter, new PollingInterval(blockTime), 0);
+        } catch (IOException e) {
+            throwException(e);
+        }
+    }
+
+    /**
+     * Schedule the next poll, each poll scheduling the one after it at an interval adapted to
+     * the changes received.
+     */
+    private void schedulePoll(
+            final ScheduledExecutorService scheduledExecutorService,
+            final PlatonFilter ethFilter, final PollingInterval pollingInterval, long delay) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            schedule = scheduledExecutorService.schedule(
                     new Runnable() {
                         @Override
                         public void run() {
+                            int changes = 0;
                             try {
-                                Filter.this.pollFilter(ethFilter);
+                                changes = Filter.this.pollFilter(ethFilter);
                             } catch (Throwable e) {
-                                // All exceptions must be caught, otherwise our job terminates without
-                                // any notification
+                                // All exceptions must be caught, otherwise our job terminates
+                                // without any notification
                                 log.error("Error sending request", e);
                             }
+                            schedulePoll(scheduledExecutorService, ethFilter, pollingInterval,
+                                    pollingInterval.next(changes, System.currentTimeMillis()));
                         }
                     },
-                    0, blockTime, TimeUnit.MILLISECONDS);
-        } catch (IOException e) {
-            throwException(e);
+                    delay, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -108,26 +131,126 @@ public abstract class Filter<T> {
         }
     }
 
-    private void pollFilter(PlatonFilter ethFilter) {
+    /**
+     * Poll the filter for changes.
+     *
+     * @return the number of changes, as counted by {@link #countChanges}
+     */
+    private int pollFilter(PlatonFilter ethFilter) {
         PlatonLog ethLog = null;
         try {
+            if (reinstallRequested.compareAndSet(true, false)) {
+                return replace();
+            }
             ethLog = web3j.platonGetFilterChanges(filterId).send();
+            if (ethLog.hasError() && isFilterNotFound(ethLog.getError())) {
+                log.warn("Filter with id '" + filterId + "' not found, installing it again");
+                reinstall();
+                return 0;
+            }
         } catch (IOException e) {
             throwException(e);
         }
         if (ethLog.hasError()) {
             throwException(ethLog.getError());
-        } else {
+        }
+        List<PlatonLog.LogResult> logResults = ethLog.getLogs();
+        process(logResults);
+        return logResults == null ? 0 : countChanges(logResults);
+    }
+
+    /**
+     * Install the filter again once the node no longer knows it, as happens when the node is
+     * restarted or drops a filter it considers idle, then recover what was missed meanwhile.
+     */
+    private void reinstall() throws IOException {
+        PlatonFilter ethFilter = sendRequest();
+        if (ethFilter.hasError()) {
+            throwException(ethFilter.getError());
+        }
+
+        boolean stale;
+        synchronized (this) {
+            filterId = ethFilter.getFilterId();
+            stale = cancelled;
+        }
+        if (stale) {
+            // cancelled while installing, the new filter isn't needed anymore
+            web3j.platonUninstallFilter(ethFilter.getFilterId()).send();
+            return;
+        }
+        recover();
+    }
+
+    /**
+     * Install the filter again in place of the one installed, once the request installing it
+     * has changed. The changes the filter replaced has collected are delivered first, so only
+     * the blocks mined since need to be recovered.
+     *
+     * @return the number of changes delivered
+     */
+    private int replace() throws IOException {
+        BigInteger replaced = filterId;
+        int changes = 0;
+        PlatonLog ethLog = web3j.platonGetFilterChanges(replaced).send();
+        if (ethLog.hasError()) {
+            // recovered as any filter lost
+            log.warn("Failed to poll filter with id '" + replaced + "' before replacing it: "
+                    + ethLog.getError().getMessage());
+        } else if (ethLog.getLogs() != null) {
             process(ethLog.getLogs());
+            changes = countChanges(ethLog.getLogs());
+            drained();
         }
+        reinstall();
+        web3j.platonUninstallFilter(replaced).send();
+        return changes;
+    }
+
+    /**
+     * Install the filter again at its next poll, in place of the one installed, then recover
+     * what was missed meanwhile. Used once the request installing the filter has changed.
+     */
+    void requestReinstall() {
+        reinstallRequested.set(true);
+    }
+
+    /**
+     * Called once the changes of a filter about to be replaced are delivered, which were
+     * collected up to this poll. Nothing is done by default.
+     */
+    void drained() {
+    }
+
+    static boolean isFilterNotFound(Response.Error error) {
+        return error != null && error.getMessage() != null
+                && error.getMessage().toLowerCase().contains("filter not found");
     }
 
     abstract PlatonFilter sendRequest() throws IOException;
 
+    /**
+     * Deliver the changes missed between the loss of the filter and its re-installation.
+     * Nothing is recovered by default.
+     */
+    void recover() throws IOException {
+    }
+
     abstract void process(List<PlatonLog.LogResult> logResults);
 
+    /**
+     * Count the changes returned by a poll, which set the pace of polling. Every result counts
+     * by default, such as a block of a block filter.
+     */
+    int countChanges(List<PlatonLog.LogResult> logResults) {
+        return logResults.size();
+    }
+
     public void cancel() {
-        schedule.cancel(false);
+        synchronized (this) {
+            cancelled = true;
+            schedule.cancel(false);
+        }
 
         try {
             PlatonUninstallFilter ethUninstallFilter = web3j.platonUninstallFilter(filterId).send();
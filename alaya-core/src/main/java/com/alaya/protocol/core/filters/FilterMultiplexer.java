@@ -0,0 +1,379 @@
+package com.alaya.protocol.core.filters;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+
+/**
+ * Shares filters installed on the node between callbacks.
+ *
+ * <p>All block callbacks are served by a single block filter, and all log callbacks by a single
+ * log filter. A filter is installed with its first callback, and polled at the interval given
+ * by that callback, until its last callback is removed. Installing and uninstalling filters
+ * takes requests to the node, which are sent without holding up the callbacks of other filters
+ * being added or removed meanwhile.
+ *
+ * <p>The log filter is installed with the union of the criteria of its callbacks: any of their
+ * addresses, and at each topic position any of their topics, or any topic at all if one of
+ * them allows any. Each log received is matched against the criteria of every callback, which
+ * only receives the logs a filter of its own would have reported, from the blocks after the
+ * head when it was added. A callback whose criteria aren't covered yet widens the criteria,
+ * and the log filter is installed again with them at its next poll, recovering the logs of
+ * the blocks in between. The criteria aren't narrowed as callbacks are removed.
+ *
+ * <p>Log filters starting from a past block aren't shared, since the historic logs are only
+ * delivered once the filter is installed. They should be run as a {@link LogFilter} of their
+ * own.
+ */
+public class FilterMultiplexer {
+
+    private static final Logger log = LoggerFactory.getLogger(FilterMultiplexer.class);
+
+    private static final String BLOCK_FILTER = "block";
+    private static final String LOG_FILTER = "log";
+
+    private final Web3j web3j;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    // Guarded by this
+    private final Map<String, SharedFilter<?>> filters = new HashMap<String, SharedFilter<?>>();
+    // Guarded by this, the criteria the log filter is installed with
+    private PlatonFilter logCriteria;
+
+    public FilterMultiplexer(Web3j web3j, ScheduledExecutorService scheduledExecutorService) {
+        this.web3j = web3j;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    public void addBlockCallback(Callback<String> callback, long pollingInterval) {
+        SharedFilter<String> created = new SharedFilter<String>();
+        SharedFilter<String> sharedFilter = share(BLOCK_FILTER, created, callback);
+        if (sharedFilter == created) {
+            install(BLOCK_FILTER, created, new BlockFilter(web3j, created), pollingInterval);
+        } else {
+            sharedFilter.awaitInstalled();
+        }
+    }
+
+    public void removeBlockCallback(Callback<String> callback) {
+        remove(BLOCK_FILTER, callback);
+    }
+
+    /**
+     * Add a callback for the logs of new blocks matching a filter.
+     *
+     * @param ethFilter the filter, which must not start from a past block
+     * @param callback the callback
+     * @param pollingInterval the interval the filter is polled at, if it isn't installed yet
+     */
+    public void addLogCallback(
+            PlatonFilter ethFilter, Callback<Log> callback, long pollingInterval) {
+        LogSubscription subscription = new LogSubscription(
+                keyOf(ethFilter), new LogMatcher(ethFilter), callback, blockNumber());
+        SharedFilter<Log> created = new SharedFilter<Log>();
+        SharedFilter<Log> sharedFilter;
+        PlatonFilter criteria;
+        boolean widened;
+        synchronized (this) {
+            sharedFilter = share(LOG_FILTER, created, subscription);
+            criteria = merge(sharedFilter == created ? null : logCriteria, ethFilter);
+            widened = sharedFilter != created && !keyOf(criteria).equals(keyOf(logCriteria));
+            logCriteria = criteria;
+        }
+
+        if (sharedFilter == created) {
+            install(LOG_FILTER, created, new LogFilter(web3j, created, criteria),
+                    pollingInterval);
+        } else {
+            Filter<Log> filter = sharedFilter.awaitInstalled();
+            if (widened) {
+                synchronized (this) {
+                    // the criteria may have been widened further meanwhile, the latest are set
+                    if (filters.get(LOG_FILTER) == sharedFilter) {
+                        ((LogFilter) filter).setCriteria(logCriteria, subscription.fromBlock);
+                    }
+                }
+            }
+        }
+    }
+
+    public void removeLogCallback(PlatonFilter ethFilter, Callback<Log> callback) {
+        remove(LOG_FILTER, new LogSubscription(keyOf(ethFilter), null, callback, null));
+    }
+
+    /**
+     * The number of filters currently installed or being installed.
+     */
+    public synchronized int getFilterCount() {
+        return filters.size();
+    }
+
+    /**
+     * Add a callback to the filter shared under a key.
+     *
+     * @param created the filter to share if there is none yet, for the caller to install
+     * @return the filter the callback was added to
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized <T> SharedFilter<T> share(
+            String key, SharedFilter<T> created, Callback<T> callback) {
+        SharedFilter<T> sharedFilter = (SharedFilter<T>) filters.get(key);
+        if (sharedFilter == null) {
+            sharedFilter = created;
+            filters.put(key, sharedFilter);
+        }
+        // added ahead of installing the filter, to receive the logs it starts with
+        sharedFilter.callbacks.add(callback);
+        return sharedFilter;
+    }
+
+    private <T> void install(
+            String key, SharedFilter<T> sharedFilter, Filter<T> filter, long pollingInterval) {
+        try {
+            filter.run(scheduledExecutorService, pollingInterval);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (filters.remove(key, sharedFilter) && LOG_FILTER.equals(key)) {
+                    logCriteria = null;
+                }
+            }
+            sharedFilter.installed.completeExceptionally(e);
+            throw e;
+        }
+        sharedFilter.installed.complete(filter);
+    }
+
+    /**
+     * Remove a callback, the filter is uninstalled along with the last one.
+     */
+    private void remove(String key, Callback<?> callback) {
+        SharedFilter<?> sharedFilter;
+        synchronized (this) {
+            sharedFilter = filters.get(key);
+            if (sharedFilter == null || !sharedFilter.callbacks.remove(callback)
+                    || !sharedFilter.callbacks.isEmpty()) {
+                return;
+            }
+            filters.remove(key);
+            if (LOG_FILTER.equals(key)) {
+                logCriteria = null;
+            }
+        }
+        sharedFilter.uninstall();
+    }
+
+    private String keyOf(PlatonFilter ethFilter) {
+        try {
+            // filters with the same criteria serialize the same
+            return objectMapper.writeValueAsString(ethFilter);
+        } catch (JsonProcessingException e) {
+            throw new FilterException("Invalid filter", e);
+        }
+    }
+
+    private BigInteger blockNumber() {
+        try {
+            PlatonBlockNumber blockNumber = web3j.platonBlockNumber().send();
+            if (blockNumber.hasError()) {
+                throw new FilterException(
+                        "Invalid request: " + blockNumber.getError().getMessage());
+            }
+            return blockNumber.getBlockNumber();
+        } catch (IOException e) {
+            throw new FilterException("Error sending request", e);
+        }
+    }
+
+    /**
+     * The criteria matching every log either of two criteria match. New addresses and topics
+     * are appended to those merged already, so merging criteria covered already gives the same
+     * criteria back. The blocks of the criteria aren't kept, the filter reports new blocks.
+     *
+     * @param merged the criteria merged so far, or null if there are none yet
+     * @param ethFilter the criteria to add
+     */
+    static PlatonFilter merge(PlatonFilter merged, PlatonFilter ethFilter) {
+        List<String> addresses = null;
+        if (merged == null) {
+            addresses = addressesOf(ethFilter);
+        } else if (addressesOf(merged) != null && addressesOf(ethFilter) != null) {
+            addresses = new ArrayList<String>(merged.getAddress());
+            Set<String> known = new HashSet<String>();
+            for (String address : addresses) {
+                known.add(LogMatcher.normalizeAddress(address));
+            }
+            for (String address : ethFilter.getAddress()) {
+                if (known.add(LogMatcher.normalizeAddress(address))) {
+                    addresses.add(address);
+                }
+            }
+        }
+
+        List<List<String>> topics = LogMatcher.topics(ethFilter);
+        if (merged != null) {
+            List<List<String>> mergedTopics = LogMatcher.topics(merged);
+            List<List<String>> union = new ArrayList<List<String>>();
+            for (int i = 0; i < Math.max(mergedTopics.size(), topics.size()); i++) {
+                // a position past the topics of criteria matches any topic
+                List<String> values = i < mergedTopics.size() ? mergedTopics.get(i) : null;
+                List<String> added = i < topics.size() ? topics.get(i) : null;
+                if (values == null || added == null) {
+                    union.add(null);
+                    continue;
+                }
+                values = new ArrayList<String>(values);
+                Set<String> known = new HashSet<String>();
+                for (String value : values) {
+                    known.add(value.toLowerCase());
+                }
+                for (String value : added) {
+                    if (known.add(value.toLowerCase())) {
+                        values.add(value);
+                    }
+                }
+                union.add(values);
+            }
+            topics = union;
+        }
+        while (!topics.isEmpty() && topics.get(topics.size() - 1) == null) {
+            topics.remove(topics.size() - 1);
+        }
+
+        PlatonFilter result = new PlatonFilter(null, null, addresses);
+        for (List<String> values : topics) {
+            if (values == null) {
+                result.addNullTopic();
+            } else if (values.size() == 1) {
+                result.addSingleTopic(values.get(0));
+            } else {
+                result.addOptionalTopics(values.toArray(new String[values.size()]));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> addressesOf(PlatonFilter ethFilter) {
+        List<String> addresses = ethFilter.getAddress();
+        return addresses == null || addresses.isEmpty() ? null : addresses;
+    }
+
+    /**
+     * A filter handing its events to every callback sharing it.
+     */
+    private static class SharedFilter<T> implements Callback<T> {
+
+        private final List<Callback<T>> callbacks = new CopyOnWriteArrayList<Callback<T>>();
+        // completed by the caller installing the filter
+        private final CompletableFuture<Filter<T>> installed =
+                new CompletableFuture<Filter<T>>();
+
+        /**
+         * Wait for the filter to be installed by the caller that added the first callback.
+         *
+         * @return the filter installed
+         * @throws FilterException if it couldn't be installed
+         */
+        Filter<T> awaitInstalled() {
+            try {
+                return installed.join();
+            } catch (CompletionException e) {
+                throw new FilterException("Failed to install filter", e.getCause());
+            }
+        }
+
+        /**
+         * Uninstall the filter, once it's installed if it's still being installed.
+         */
+        void uninstall() {
+            Filter<T> filter;
+            try {
+                filter = installed.join();
+            } catch (CompletionException e) {
+                // it was never installed
+                return;
+            }
+            filter.cancel();
+        }
+
+        @Override
+        public void onEvent(T value) {
+            for (Callback<T> callback : callbacks) {
+                try {
+                    callback.onEvent(value);
+                } catch (RuntimeException e) {
+                    // one failing callback must not keep the event from the others
+                    log.error("Error handling filter event", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A log callback, handed the logs matching its own criteria.
+     */
+    private static class LogSubscription implements Callback<Log> {
+
+        private final String key;
+        private final LogMatcher matcher;
+        private final Callback<Log> callback;
+        // the first block whose logs are handed to the callback
+        private final BigInteger fromBlock;
+
+        LogSubscription(
+                String key, LogMatcher matcher, Callback<Log> callback, BigInteger head) {
+            this.key = key;
+            this.matcher = matcher;
+            this.callback = callback;
+            this.fromBlock = head == null ? null : head.add(BigInteger.ONE);
+        }
+
+        @Override
+        public void onEvent(Log log) {
+            if (fromBlock != null && log.getBlockNumberRaw() != null
+                    && log.getBlockNumber().compareTo(fromBlock) < 0) {
+                return;
+            }
+            if (matcher.matches(log)) {
+                callback.onEvent(log);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LogSubscription)) {
+                return false;
+            }
+            LogSubscription other = (LogSubscription) o;
+            return key.equals(other.key) && callback.equals(other.callback);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + callback.hashCode();
+        }
+    }
+}
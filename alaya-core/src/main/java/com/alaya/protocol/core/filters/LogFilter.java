@@ -2,40 +2,110 @@ package com.alaya.protocol.core.filters;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
 import com.alaya.protocol.core.methods.request.PlatonFilter;
 import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
 import com.alaya.protocol.core.methods.response.PlatonLog;
 import com.alaya.protocol.Web3j;
 import com.alaya.protocol.core.Request;
+import com.alaya.protocol.rx.LogBackfill;
 
 /**
  * Log filter handler.
  */
 public class LogFilter extends Filter<Log> {
 
-    private final PlatonFilter ethFilter;
+    private volatile PlatonFilter ethFilter;
+    // fetches the logs missed while the filter was lost
+    private final LogBackfill backfill;
+
+    // The first block whose logs may not have been delivered yet, and the last block
+    // recovered after the filter was lost
+    private volatile BigInteger nextBlock;
+    private volatile BigInteger recoveredTo;
+
+    // Guarded by this
+    // The first block the logs of criteria set since the filter was installed are needed from,
+    // and the criteria the filter was installed with, null if the criteria haven't changed
+    private BigInteger widenedFrom;
+    private PlatonFilter replacedCriteria;
+    // The criteria of the filter installed last, and the same as above taken over by it for
+    // its recovery
+    private PlatonFilter installedCriteria;
+    private BigInteger installedFrom;
+    private LogMatcher installedOver;
 
     public LogFilter(
             Web3j web3j, Callback<Log> callback,
             PlatonFilter ethFilter) {
         super(web3j, callback);
         this.ethFilter = ethFilter;
+        this.backfill = new LogBackfill(web3j);
     }
 
 
     @Override
     com.alaya.protocol.core.methods.response.PlatonFilter sendRequest() throws IOException {
+        if (nextBlock == null) {
+            // the filter reports the logs of the blocks after the current head
+            nextBlock = blockNumber().add(BigInteger.ONE);
+        }
+        PlatonFilter ethFilter;
+        synchronized (this) {
+            ethFilter = this.ethFilter;
+            installedCriteria = ethFilter;
+            installedFrom = widenedFrom;
+            installedOver = replacedCriteria == null ? null : new LogMatcher(replacedCriteria);
+            widenedFrom = null;
+            replacedCriteria = null;
+        }
         return web3j.platonNewFilter(ethFilter).send();
     }
 
+    /**
+     * Change the criteria of the filter. It's installed again with them at its next poll, the
+     * logs of the new criteria being recovered from a block given.
+     *
+     * @param ethFilter the new criteria, matching every log the current ones match
+     * @param fromBlock the first block the logs of the new criteria are needed from, every
+     *                  block before it being mined already
+     */
+    synchronized void setCriteria(PlatonFilter ethFilter, BigInteger fromBlock) {
+        if (replacedCriteria == null) {
+            replacedCriteria = this.ethFilter;
+        }
+        widenedFrom = widenedFrom == null ? fromBlock : widenedFrom.min(fromBlock);
+        this.ethFilter = ethFilter;
+        requestReinstall();
+    }
+
+    /**
+     * The filter replaced has reported the logs of every block mined before its criteria
+     * changed, recovery doesn't need to go back further for them.
+     */
+    @Override
+    void drained() {
+        BigInteger widenedFrom;
+        synchronized (this) {
+            widenedFrom = this.widenedFrom;
+        }
+        if (widenedFrom != null && widenedFrom.compareTo(nextBlock) > 0) {
+            nextBlock = widenedFrom;
+        }
+    }
+
     @Override
     void process(List<PlatonLog.LogResult> logResults) {
+        BigInteger recovered = recoveredTo;
         for (PlatonLog.LogResult logResult : logResults) {
             if (logResult instanceof PlatonLog.LogObject) {
-                Log log = ((PlatonLog.LogObject) logResult).get();
-                callback.onEvent(log);
+                deliver(((PlatonLog.LogObject) logResult).get(), recovered);
             } else {
                 throw new FilterException(
                         "Unexpected result type: " + logResult.get() + " required LogObject");
@@ -43,6 +113,103 @@ public class LogFilter extends Filter<Log> {
         }
     }
 
+    /**
+     * Hand a log to the callback, unless its block was recovered already.
+     */
+    private void deliver(Log log, BigInteger recovered) {
+        if (log.getBlockNumberRaw() == null) {
+            callback.onEvent(log);
+            return;
+        }
+        BigInteger blockNumber = log.getBlockNumber();
+        if (recovered != null && !log.isRemoved() && blockNumber.compareTo(recovered) <= 0) {
+            // reported by the new filter, but recovered already
+            return;
+        }
+        callback.onEvent(log);
+        if (blockNumber.compareTo(nextBlock) >= 0) {
+            nextBlock = blockNumber.add(BigInteger.ONE);
+        }
+    }
+
+    /**
+     * Count the blocks the logs belong to, the pace of polling following the blocks.
+     */
+    @Override
+    int countChanges(List<PlatonLog.LogResult> logResults) {
+        Set<String> blocks = new HashSet<String>();
+        for (PlatonLog.LogResult logResult : logResults) {
+            if (logResult instanceof PlatonLog.LogObject) {
+                blocks.add(((PlatonLog.LogObject) logResult).getBlockNumberRaw());
+            }
+        }
+        return blocks.isEmpty() ? logResults.size() : blocks.size();
+    }
+
+    /**
+     * Fetch the logs of the blocks mined while the filter wasn't installed, up to the head
+     * read once the new filter is installed, so no block falls between the two.
+     *
+     * <p>The head is only read here, polls cost a single request. Recovery starts after the
+     * last block a log was delivered for, which is far behind for a quiet filter, so the logs
+     * are fetched in chunks of blocks small enough for the node to answer. A filter replaced
+     * with wider criteria has reported the blocks mined before, recovery only goes back as far
+     * as the logs of the new criteria are needed, skipping the logs reported already.
+     */
+    @Override
+    void recover() throws IOException {
+        PlatonFilter ethFilter;
+        BigInteger widenedFrom;
+        LogMatcher reported;
+        synchronized (this) {
+            ethFilter = installedCriteria;
+            widenedFrom = installedFrom;
+            reported = installedOver;
+            installedFrom = null;
+            installedOver = null;
+        }
+        BigInteger head = blockNumber();
+        BigInteger undelivered = nextBlock;
+        BigInteger from = widenedFrom == null ? undelivered : undelivered.min(widenedFrom);
+        BigInteger to = head;
+        DefaultBlockParameter toBlock = ethFilter.getToBlock();
+        if (toBlock instanceof DefaultBlockParameterNumber) {
+            to = to.min(((DefaultBlockParameterNumber) toBlock).getBlockNumber());
+        }
+        if (from.compareTo(to) <= 0) {
+            BigInteger recovered = recoveredTo;
+            try {
+                for (Log log : backfill.observable(ethFilter, from, to).toBlocking()
+                        .toIterable()) {
+                    if (reported != null && log.getBlockNumberRaw() != null
+                            && log.getBlockNumber().compareTo(undelivered) < 0
+                            && reported.matches(log)) {
+                        // reported by the filter replaced
+                        continue;
+                    }
+                    deliver(log, recovered);
+                }
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        if (head.compareTo(nextBlock) >= 0) {
+            nextBlock = head.add(BigInteger.ONE);
+        }
+        recoveredTo = nextBlock.subtract(BigInteger.ONE);
+    }
+
+    private BigInteger blockNumber() throws IOException {
+        PlatonBlockNumber blockNumber = web3j.platonBlockNumber().send();
+        if (blockNumber.hasError()) {
+            throwException(blockNumber.getError());
+        }
+        return blockNumber.getBlockNumber();
+    }
+
     @Override
     protected Request<?, PlatonLog> getFilterLogs(BigInteger filterId) {
         return web3j.platonGetFilterLogs(filterId);
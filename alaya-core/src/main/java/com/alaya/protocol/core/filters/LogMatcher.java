@@ -0,0 +1,130 @@
+package com.alaya.protocol.core.filters;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.alaya.crypto.addressconvert.bech32.Bech32Util;
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.methods.request.Filter;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.utils.Numeric;
+
+/**
+ * Tells whether a log matches the criteria of a filter, as the node would, so the logs of a
+ * filter installed with broader criteria can be handed to the callbacks they match.
+ *
+ * <p>A log matches if it comes from one of the addresses of the filter, if any are given, and
+ * carries at every position one of the topics given there, if any. A log of a block after the
+ * last block of the filter, if given as a number, doesn't match. The block the filter starts
+ * from isn't checked.
+ */
+class LogMatcher {
+
+    // null if any address matches
+    private final Set<String> addresses;
+    // the topics allowed at each position, null if any topic matches there
+    private final List<Set<String>> topics = new ArrayList<Set<String>>();
+    private final BigInteger toBlock;
+
+    LogMatcher(PlatonFilter ethFilter) {
+        List<String> addresses = ethFilter.getAddress();
+        if (addresses == null || addresses.isEmpty()) {
+            this.addresses = null;
+        } else {
+            this.addresses = new HashSet<String>();
+            for (String address : addresses) {
+                this.addresses.add(normalizeAddress(address));
+            }
+        }
+
+        for (List<String> values : topics(ethFilter)) {
+            if (values == null) {
+                topics.add(null);
+            } else {
+                Set<String> allowed = new HashSet<String>();
+                for (String value : values) {
+                    allowed.add(value.toLowerCase());
+                }
+                topics.add(allowed);
+            }
+        }
+
+        DefaultBlockParameter toBlock = ethFilter.getToBlock();
+        this.toBlock = toBlock instanceof DefaultBlockParameterNumber
+                ? ((DefaultBlockParameterNumber) toBlock).getBlockNumber() : null;
+    }
+
+    boolean matches(Log log) {
+        if (addresses != null
+                && (log.getAddress() == null
+                        || !addresses.contains(normalizeAddress(log.getAddress())))) {
+            return false;
+        }
+
+        List<String> logTopics = log.getTopics();
+        for (int i = 0; i < topics.size(); i++) {
+            Set<String> allowed = topics.get(i);
+            if (allowed == null) {
+                continue;
+            }
+            if (logTopics == null || logTopics.size() <= i || logTopics.get(i) == null
+                    || !allowed.contains(logTopics.get(i).toLowerCase())) {
+                return false;
+            }
+        }
+
+        return toBlock == null || log.getBlockNumberRaw() == null
+                || log.getBlockNumber().compareTo(toBlock) <= 0;
+    }
+
+    /**
+     * The topics allowed at each position of a filter, null at the positions allowing any.
+     */
+    static List<List<String>> topics(PlatonFilter ethFilter) {
+        List<List<String>> topics = new ArrayList<List<String>>();
+        for (Filter.FilterTopic<?> topic : ethFilter.getTopics()) {
+            topics.add(values(topic));
+        }
+        return topics;
+    }
+
+    /**
+     * The topics allowed at a position of a filter.
+     *
+     * @return the topics, or null if any topic is allowed
+     */
+    static List<String> values(Filter.FilterTopic<?> topic) {
+        List<String> values = new ArrayList<String>();
+        if (topic instanceof Filter.SingleTopic) {
+            values.add(((Filter.SingleTopic) topic).getValue());
+        } else if (topic instanceof Filter.ListTopic) {
+            for (Filter.SingleTopic option : ((Filter.ListTopic) topic).getValue()) {
+                values.add(option.getValue());
+            }
+        }
+        return values.isEmpty() || values.contains(null) ? null : values;
+    }
+
+    static byte[] addressBytes(String address) {
+        if (Numeric.containsHexPrefix(address)) {
+            return Numeric.hexStringToByteArray(address);
+        }
+        return Bech32Util.addressDecode(address);
+    }
+
+    /**
+     * An address the same whether given in hex or bech32, or as is if it's neither.
+     */
+    static String normalizeAddress(String address) {
+        try {
+            return Numeric.toHexString(addressBytes(address));
+        } catch (RuntimeException e) {
+            return address.toLowerCase();
+        }
+    }
+}
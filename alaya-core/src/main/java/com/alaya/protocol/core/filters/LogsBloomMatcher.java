@@ -0,0 +1,113 @@
+package com.alaya.protocol.core.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alaya.crypto.Hash;
+import com.alaya.protocol.core.methods.request.Filter;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.utils.Numeric;
+
+/**
+ * Tells from the logs bloom of a block whether it may contain logs matching a filter, so only
+ * the logs of these blocks need to be requested.
+ *
+ * <p>Every address and topic of a log sets 3 of the 2048 bits of the bloom, taken from the
+ * keccak-256 hash of its bytes. A block may contain a matching log if the bits of one of the
+ * addresses and, at every position, of one of the topics are all set. False positives are
+ * possible, false negatives aren't. The bits are computed once, when the matcher is created,
+ * and checked straight against the hex string of the bloom.
+ */
+public class LogsBloomMatcher {
+
+    private static final int BLOOM_HEX_LENGTH = 2 + 2 * 256;
+
+    // Every condition must hold, a condition holds if one of its items is in the bloom. Each
+    // bit of an item is the index of the hex digit holding it, shifted left by 4, or'ed with
+    // the mask of the bit within that digit
+    private final List<int[][]> conditions = new ArrayList<int[][]>();
+
+    public LogsBloomMatcher(PlatonFilter ethFilter) {
+        List<String> addresses = ethFilter.getAddress();
+        if (addresses != null && !addresses.isEmpty()) {
+            int[][] items = new int[addresses.size()][];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = bits(LogMatcher.addressBytes(addresses.get(i)));
+            }
+            conditions.add(items);
+        }
+
+        for (Filter.FilterTopic<?> topic : ethFilter.getTopics()) {
+            List<String> values = LogMatcher.values(topic);
+            if (values == null) {
+                // any topic matches at this position
+                continue;
+            }
+
+            int[][] items = new int[values.size()][];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = bits(Numeric.hexStringToByteArray(values.get(i)));
+            }
+            conditions.add(items);
+        }
+    }
+
+    /**
+     * Whether a block may contain matching logs, true if it doesn't carry a bloom.
+     */
+    public boolean matches(PlatonBlock.Block block) {
+        return matches(block.getLogsBloom());
+    }
+
+    /**
+     * Whether a logs bloom may contain matching logs, true if it isn't a valid bloom.
+     *
+     * @param logsBloom the hex encoded bloom, with its 0x prefix
+     */
+    public boolean matches(String logsBloom) {
+        if (logsBloom == null || logsBloom.length() != BLOOM_HEX_LENGTH) {
+            return true;
+        }
+        for (int[][] items : conditions) {
+            if (!containsAny(logsBloom, items)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAny(String logsBloom, int[][] items) {
+        for (int[] item : items) {
+            if (contains(logsBloom, item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String logsBloom, int[] item) {
+        for (int bit : item) {
+            int digit = Character.digit(logsBloom.charAt(bit >>> 4), 16);
+            if (digit < 0 || (digit & bit & 0xf) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The bits an item sets in a bloom, as positions in its hex string.
+     */
+    static int[] bits(byte[] item) {
+        byte[] hash = Hash.sha3(item);
+        int[] bits = new int[3];
+        for (int i = 0; i < bits.length; i++) {
+            // the bloom is a big endian number, the bit is counted from its end
+            int bit = ((hash[2 * i] & 0xff) << 8 | hash[2 * i + 1] & 0xff) & 2047;
+            int digit = 2 + 2 * (255 - bit / 8) + (bit % 8 < 4 ? 1 : 0);
+            bits[i] = digit << 4 | 1 << (bit % 4);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,63 @@
+package com.alaya.protocol.core.filters;
+
+/**
+ * Decides when a filter is polled next, from the intervals at which its changes arrive.
+ *
+ * <p>The interval between changes is estimated from the changes themselves: the time since
+ * the last poll returning changes, divided by the number of changes the poll returned. Polls
+ * returning several changes each make the interval shorter, and polls returning none make it
+ * longer, whatever it started from.
+ *
+ * <p>After a poll returning changes, the next one is scheduled after the average interval
+ * between changes, around when the next block is expected. An empty poll shortly after that
+ * means the block is late, it is polled again soon. Otherwise the filter is idle, and the
+ * interval doubles with every empty poll up to a maximum.
+ */
+final class PollingInterval {
+
+    // weight of the latest interval in the average
+    private static final double ALPHA = 0.25;
+
+    private final long min;
+    private final long max;
+
+    private double average;
+    private long delay;
+    // the time of the last poll returning changes
+    private long lastChange = -1;
+
+    /**
+     * Create an interval.
+     *
+     * @param initial the interval in milliseconds until changes are seen, such as the block time
+     */
+    PollingInterval(long initial) {
+        this.min = Math.max(initial / 10, 1);
+        this.max = Math.max(initial * 8, 1);
+        this.average = Math.max(initial, 1);
+        this.delay = (long) average;
+    }
+
+    /**
+     * The delay until the next poll.
+     *
+     * @param changes the number of changes returned by the poll just made
+     * @param now the current time in milliseconds
+     * @return the delay in milliseconds
+     */
+    synchronized long next(int changes, long now) {
+        if (changes > 0) {
+            if (lastChange >= 0) {
+                average += ALPHA * ((double) (now - lastChange) / changes - average);
+            }
+            lastChange = now;
+            delay = (long) average;
+        } else if (lastChange >= 0 && now - lastChange < 2 * average) {
+            delay = (long) (average / 4);
+        } else {
+            delay = delay * 2;
+        }
+        delay = Math.min(Math.max(delay, min), max);
+        return delay;
+    }
+}
@@ -24,6 +24,11 @@ public class Log {
     private String type;
     private List<String> topics;
 
+    // Quantities are decoded on first use
+    private transient BigInteger decodedLogIndex;
+    private transient BigInteger decodedTransactionIndex;
+    private transient BigInteger decodedBlockNumber;
+
     public Log() {
     }
 
@@ -51,7 +56,10 @@ public class Log {
     }
 
     public BigInteger getLogIndex() {
-        return convert(logIndex);
+        if (decodedLogIndex == null) {
+            decodedLogIndex = convert(logIndex);
+        }
+        return decodedLogIndex;
     }
 
     public String getLogIndexRaw() {
@@ -60,10 +68,14 @@ public class Log {
 
     public void setLogIndex(String logIndex) {
         this.logIndex = logIndex;
+        this.decodedLogIndex = null;
     }
 
     public BigInteger getTransactionIndex() {
-        return convert(transactionIndex);
+        if (decodedTransactionIndex == null) {
+            decodedTransactionIndex = convert(transactionIndex);
+        }
+        return decodedTransactionIndex;
     }
 
     public String getTransactionIndexRaw() {
@@ -72,6 +84,7 @@ public class Log {
 
     public void setTransactionIndex(String transactionIndex) {
         this.transactionIndex = transactionIndex;
+        this.decodedTransactionIndex = null;
     }
 
     public String getTransactionHash() {
@@ -91,7 +104,10 @@ public class Log {
     }
 
     public BigInteger getBlockNumber() {
-        return convert(blockNumber);
+        if (decodedBlockNumber == null) {
+            decodedBlockNumber = convert(blockNumber);
+        }
+        return decodedBlockNumber;
     }
 
     public String getBlockNumberRaw() {
@@ -100,6 +116,7 @@ public class Log {
 
     public void setBlockNumber(String blockNumber) {
         this.blockNumber = blockNumber;
+        this.decodedBlockNumber = null;
     }
 
     public String getAddress() {
@@ -2,8 +2,6 @@ package com.alaya.protocol.core.methods.response;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import com.alaya.utils.Numeric;
@@ -11,10 +9,8 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import com.alaya.protocol.ObjectMapperFactory;
 import com.alaya.protocol.core.Response;
 
 /**
@@ -65,6 +61,14 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
         private List<String> uncles;
         private List<String> sealFields;
 
+        // Quantities are decoded on first use
+        private transient BigInteger decodedNumber;
+        private transient BigInteger decodedNonce;
+        private transient BigInteger decodedSize;
+        private transient BigInteger decodedGasLimit;
+        private transient BigInteger decodedGasUsed;
+        private transient BigInteger decodedTimestamp;
+
         public Block() {
         }
 
@@ -98,7 +102,10 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
         }
 
         public BigInteger getNumber() {
-            return Numeric.decodeQuantity(number);
+            if (decodedNumber == null) {
+                decodedNumber = Numeric.decodeQuantity(number);
+            }
+            return decodedNumber;
         }
 
         public String getNumberRaw() {
@@ -107,6 +114,7 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setNumber(String number) {
             this.number = number;
+            this.decodedNumber = null;
         }
 
         public String getHash() {
@@ -126,7 +134,10 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
         }
 
         public BigInteger getNonce() {
-            return Numeric.decodeQuantity(nonce);
+            if (decodedNonce == null) {
+                decodedNonce = Numeric.decodeQuantity(nonce);
+            }
+            return decodedNonce;
         }
 
         public String getNonceRaw() {
@@ -135,6 +146,7 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setNonce(String nonce) {
             this.nonce = nonce;
+            this.decodedNonce = null;
         }
 
         public String getSha3Uncles() {
@@ -210,7 +222,10 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
         }
 
         public BigInteger getSize() {
-            return Numeric.decodeQuantity(size);
+            if (decodedSize == null) {
+                decodedSize = Numeric.decodeQuantity(size);
+            }
+            return decodedSize;
         }
 
         public String getSizeRaw() {
@@ -219,10 +234,14 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setSize(String size) {
             this.size = size;
+            this.decodedSize = null;
         }
 
         public BigInteger getGasLimit() {
-            return Numeric.decodeQuantity(gasLimit);
+            if (decodedGasLimit == null) {
+                decodedGasLimit = Numeric.decodeQuantity(gasLimit);
+            }
+            return decodedGasLimit;
         }
 
         public String getGasLimitRaw() {
@@ -231,10 +250,14 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setGasLimit(String gasLimit) {
             this.gasLimit = gasLimit;
+            this.decodedGasLimit = null;
         }
 
         public BigInteger getGasUsed() {
-            return Numeric.decodeQuantity(gasUsed);
+            if (decodedGasUsed == null) {
+                decodedGasUsed = Numeric.decodeQuantity(gasUsed);
+            }
+            return decodedGasUsed;
         }
 
         public String getGasUsedRaw() {
@@ -243,10 +266,14 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setGasUsed(String gasUsed) {
             this.gasUsed = gasUsed;
+            this.decodedGasUsed = null;
         }
 
         public BigInteger getTimestamp() {
-            return Numeric.decodeQuantity(timestamp);
+            if (decodedTimestamp == null) {
+                decodedTimestamp = Numeric.decodeQuantity(timestamp);
+            }
+            return decodedTimestamp;
         }
 
         public String getTimestampRaw() {
@@ -255,6 +282,7 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
 
         public void setTimestamp(String timestamp) {
             this.timestamp = timestamp;
+            this.decodedTimestamp = null;
         }
 
         public List<TransactionResult> getTransactions() {
@@ -476,46 +504,22 @@ public class PlatonBlock extends Response<PlatonBlock.Block> {
     public static class ResultTransactionDeserialiser
             extends JsonDeserializer<List<TransactionResult>> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public List<TransactionResult> deserialize(
                 JsonParser jsonParser,
                 DeserializationContext deserializationContext) throws IOException {
-
-            List<TransactionResult> transactionResults = new ArrayList<TransactionResult>();
-            JsonToken nextToken = jsonParser.nextToken();
-
-            if (nextToken == JsonToken.START_OBJECT) {
-                Iterator<TransactionObject> transactionObjectIterator =
-                        objectReader.readValues(jsonParser, TransactionObject.class);
-                while (transactionObjectIterator.hasNext()) {
-                    transactionResults.add(transactionObjectIterator.next());
-                }
-            } else if (nextToken == JsonToken.VALUE_STRING) {
-                jsonParser.getValueAsString();
-
-                Iterator<TransactionHash> transactionHashIterator =
-                        objectReader.readValues(jsonParser, TransactionHash.class);
-                while (transactionHashIterator.hasNext()) {
-                    transactionResults.add(transactionHashIterator.next());
-                }
-            }
-
-            return transactionResults;
+            return StreamingReader.readTransactionResults(jsonParser);
         }
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<Block> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public Block deserialize(
                 JsonParser jsonParser,
                 DeserializationContext deserializationContext) throws IOException {
             if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, Block.class);
+                return StreamingReader.readBlock(jsonParser);
             } else {
                 return null;  // null is wrapped by Optional in above getter
             }
@@ -6,9 +6,8 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import com.alaya.protocol.ObjectMapperFactory;
 import com.alaya.protocol.core.Response;
 
 /**
@@ -16,20 +15,24 @@ import com.alaya.protocol.core.Response;
  */
 public class PlatonGetTransactionReceipt extends Response<TransactionReceipt> {
 
+    @Override
+    @JsonDeserialize(using = ResponseDeserialiser.class)
+    public void setResult(TransactionReceipt result) {
+        super.setResult(result);
+    }
+
     public TransactionReceipt getTransactionReceipt() {
         return getResult();
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<TransactionReceipt> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public TransactionReceipt deserialize(
                 JsonParser jsonParser,
                 DeserializationContext deserializationContext) throws IOException {
             if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, TransactionReceipt.class);
+                return StreamingReader.readTransactionReceipt(jsonParser);
             } else {
                 return null;  // null is wrapped by Optional in above getter
             }
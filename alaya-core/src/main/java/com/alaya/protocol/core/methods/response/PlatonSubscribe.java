@@ -0,0 +1,12 @@
+package com.alaya.protocol.core.methods.response;
+
+import com.alaya.protocol.core.Response;
+
+/**
+ * platon_subscribe.
+ */
+public class PlatonSubscribe extends Response<String> {
+    public String getSubscriptionId() {
+        return getResult();
+    }
+}
@@ -6,9 +6,8 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import com.alaya.protocol.ObjectMapperFactory;
 import com.alaya.protocol.core.Response;
 
 /**
@@ -27,20 +26,24 @@ import com.alaya.protocol.core.Response;
  */
 public class PlatonTransaction extends Response<Transaction> {
 
+    @Override
+    @JsonDeserialize(using = ResponseDeserialiser.class)
+    public void setResult(Transaction result) {
+        super.setResult(result);
+    }
+
     public Transaction getTransaction() {
         return getResult();
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<Transaction> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public Transaction deserialize(
                 JsonParser jsonParser,
                 DeserializationContext deserializationContext) throws IOException {
             if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, Transaction.class);
+                return StreamingReader.readTransaction(jsonParser, new Transaction());
             } else {
                 return null;  // null is wrapped by Optional in above getter
             }
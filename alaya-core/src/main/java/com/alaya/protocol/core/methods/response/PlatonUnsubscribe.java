@@ -0,0 +1,12 @@
+package com.alaya.protocol.core.methods.response;
+
+import com.alaya.protocol.core.Response;
+
+/**
+ * platon_unsubscribe.
+ */
+public class PlatonUnsubscribe extends Response<Boolean> {
+    public boolean isUnsubscribed() {
+        return getResult();
+    }
+}
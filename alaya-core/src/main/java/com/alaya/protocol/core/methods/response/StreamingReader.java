@@ -0,0 +1,368 @@
+package com.alaya.protocol.core.methods.response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Reads blocks, transactions, receipts and logs straight off the parser.
+ *
+ * <p>These make up the bulk of what is received when ingesting blocks, reading them by hand
+ * avoids the reflection and intermediate buffering of bean binding. Each method expects the
+ * parser to be positioned on the first token of the value it reads, and leaves it on the last.
+ * Unknown members are skipped.
+ */
+final class StreamingReader {
+
+    private StreamingReader() {
+    }
+
+    static PlatonBlock.Block readBlock(JsonParser parser) throws IOException {
+        PlatonBlock.Block block = new PlatonBlock.Block();
+        while (nextField(parser)) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "number":
+                    block.setNumber(readText(parser));
+                    break;
+                case "hash":
+                    block.setHash(readText(parser));
+                    break;
+                case "parentHash":
+                    block.setParentHash(readText(parser));
+                    break;
+                case "nonce":
+                    block.setNonce(readText(parser));
+                    break;
+                case "sha3Uncles":
+                    block.setSha3Uncles(readText(parser));
+                    break;
+                case "logsBloom":
+                    block.setLogsBloom(readText(parser));
+                    break;
+                case "transactionsRoot":
+                    block.setTransactionsRoot(readText(parser));
+                    break;
+                case "stateRoot":
+                    block.setStateRoot(readText(parser));
+                    break;
+                case "receiptsRoot":
+                    block.setReceiptsRoot(readText(parser));
+                    break;
+                case "author":
+                    block.setAuthor(readText(parser));
+                    break;
+                case "miner":
+                    block.setMiner(readText(parser));
+                    break;
+                case "mixHash":
+                    block.setMixHash(readText(parser));
+                    break;
+                case "extraData":
+                    block.setExtraData(readText(parser));
+                    break;
+                case "size":
+                    block.setSize(readText(parser));
+                    break;
+                case "gasLimit":
+                    block.setGasLimit(readText(parser));
+                    break;
+                case "gasUsed":
+                    block.setGasUsed(readText(parser));
+                    break;
+                case "timestamp":
+                    block.setTimestamp(readText(parser));
+                    break;
+                case "transactions":
+                    block.setTransactions(readTransactionResults(parser));
+                    break;
+                case "uncles":
+                    block.setUncles(readTexts(parser));
+                    break;
+                case "sealFields":
+                    block.setSealFields(readTexts(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Read the transactions of a block, either their hashes or the transactions themselves.
+     */
+    static List<PlatonBlock.TransactionResult> readTransactionResults(JsonParser parser)
+            throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+
+        List<PlatonBlock.TransactionResult> transactions =
+                new ArrayList<PlatonBlock.TransactionResult>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                transactions.add(readTransaction(parser, new PlatonBlock.TransactionObject()));
+            } else if (token == JsonToken.VALUE_STRING) {
+                transactions.add(new PlatonBlock.TransactionHash(parser.getText()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return transactions;
+    }
+
+    static <T extends Transaction> T readTransaction(JsonParser parser, T transaction)
+            throws IOException {
+        while (nextField(parser)) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "hash":
+                    transaction.setHash(readText(parser));
+                    break;
+                case "nonce":
+                    transaction.setNonce(readText(parser));
+                    break;
+                case "blockHash":
+                    transaction.setBlockHash(readText(parser));
+                    break;
+                case "blockNumber":
+                    transaction.setBlockNumber(readText(parser));
+                    break;
+                case "transactionIndex":
+                    transaction.setTransactionIndex(readText(parser));
+                    break;
+                case "from":
+                    transaction.setFrom(readText(parser));
+                    break;
+                case "to":
+                    transaction.setTo(readText(parser));
+                    break;
+                case "value":
+                    transaction.setValue(readText(parser));
+                    break;
+                case "gasPrice":
+                    transaction.setGasPrice(readText(parser));
+                    break;
+                case "gas":
+                    transaction.setGas(readText(parser));
+                    break;
+                case "input":
+                    transaction.setInput(readText(parser));
+                    break;
+                case "creates":
+                    transaction.setCreates(readText(parser));
+                    break;
+                case "publicKey":
+                    transaction.setPublicKey(readText(parser));
+                    break;
+                case "raw":
+                    transaction.setRaw(readText(parser));
+                    break;
+                case "r":
+                    transaction.setR(readText(parser));
+                    break;
+                case "s":
+                    transaction.setS(readText(parser));
+                    break;
+                case "v":
+                    // a hex string or a number, depending on the node
+                    if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                        transaction.setV(parser.getText());
+                    } else if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                        transaction.setV(parser.getIntValue());
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return transaction;
+    }
+
+    static TransactionReceipt readTransactionReceipt(JsonParser parser) throws IOException {
+        TransactionReceipt receipt = new TransactionReceipt();
+        while (nextField(parser)) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "transactionHash":
+                    receipt.setTransactionHash(readText(parser));
+                    break;
+                case "transactionIndex":
+                    receipt.setTransactionIndex(readText(parser));
+                    break;
+                case "blockHash":
+                    receipt.setBlockHash(readText(parser));
+                    break;
+                case "blockNumber":
+                    receipt.setBlockNumber(readText(parser));
+                    break;
+                case "cumulativeGasUsed":
+                    receipt.setCumulativeGasUsed(readText(parser));
+                    break;
+                case "gasUsed":
+                    receipt.setGasUsed(readText(parser));
+                    break;
+                case "contractAddress":
+                    receipt.setContractAddress(readText(parser));
+                    break;
+                case "root":
+                    receipt.setRoot(readText(parser));
+                    break;
+                case "status":
+                    receipt.setStatus(readText(parser));
+                    break;
+                case "from":
+                    receipt.setFrom(readText(parser));
+                    break;
+                case "to":
+                    receipt.setTo(readText(parser));
+                    break;
+                case "logs":
+                    receipt.setLogs(readLogs(parser));
+                    break;
+                case "logsBloom":
+                    receipt.setLogsBloom(readText(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return receipt;
+    }
+
+    /**
+     * Read the result of a log filter, either hashes or logs.
+     */
+    static List<PlatonLog.LogResult> readLogResults(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+
+        List<PlatonLog.LogResult> logs = new ArrayList<PlatonLog.LogResult>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                logs.add(readLog(parser, new PlatonLog.LogObject()));
+            } else if (token == JsonToken.VALUE_STRING) {
+                logs.add(new PlatonLog.Hash(parser.getText()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return logs;
+    }
+
+    private static List<Log> readLogs(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+
+        List<Log> logs = new ArrayList<Log>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser, JsonToken.START_OBJECT);
+            logs.add(readLog(parser, new Log()));
+        }
+        return logs;
+    }
+
+    static <T extends Log> T readLog(JsonParser parser, T log) throws IOException {
+        while (nextField(parser)) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "removed":
+                    log.setRemoved(parser.getValueAsBoolean());
+                    break;
+                case "logIndex":
+                    log.setLogIndex(readText(parser));
+                    break;
+                case "transactionIndex":
+                    log.setTransactionIndex(readText(parser));
+                    break;
+                case "transactionHash":
+                    log.setTransactionHash(readText(parser));
+                    break;
+                case "blockHash":
+                    log.setBlockHash(readText(parser));
+                    break;
+                case "blockNumber":
+                    log.setBlockNumber(readText(parser));
+                    break;
+                case "address":
+                    log.setAddress(readText(parser));
+                    break;
+                case "data":
+                    log.setData(readText(parser));
+                    break;
+                case "type":
+                    log.setType(readText(parser));
+                    break;
+                case "topics":
+                    log.setTopics(readTexts(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Advance to the next member of the current object.
+     *
+     * @return false once the end of the object is reached
+     */
+    private static boolean nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            return true;
+        } else if (token == JsonToken.END_OBJECT) {
+            return false;
+        }
+        throw JsonMappingException.from(parser, "Unexpected token " + token + " in object");
+    }
+
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        throw JsonMappingException.from(parser, "Expected a string but found " + token);
+    }
+
+    private static List<String> readTexts(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+
+        List<String> texts = new ArrayList<String>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            texts.add(readText(parser));
+        }
+        return texts;
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        if (parser.getCurrentToken() != expected) {
+            throw JsonMappingException.from(parser,
+                    "Expected " + expected + " but found " + parser.getCurrentToken());
+        }
+    }
+}
@@ -26,6 +26,14 @@ public class Transaction {
     private String s;
     private int v;  // see https://github.com/web3j/web3j/issues/44
 
+    // Quantities are decoded on first use
+    private transient BigInteger decodedNonce;
+    private transient BigInteger decodedBlockNumber;
+    private transient BigInteger decodedTransactionIndex;
+    private transient BigInteger decodedValue;
+    private transient BigInteger decodedGasPrice;
+    private transient BigInteger decodedGas;
+
     public Transaction() {
     }
 
@@ -61,7 +69,10 @@ public class Transaction {
     }
 
     public BigInteger getNonce() {
-        return Numeric.decodeQuantity(nonce);
+        if (decodedNonce == null) {
+            decodedNonce = Numeric.decodeQuantity(nonce);
+        }
+        return decodedNonce;
     }
 
     public String getNonceRaw() {
@@ -70,6 +81,7 @@ public class Transaction {
 
     public void setNonce(String nonce) {
         this.nonce = nonce;
+        this.decodedNonce = null;
     }
 
     public String getBlockHash() {
@@ -81,7 +93,10 @@ public class Transaction {
     }
 
     public BigInteger getBlockNumber() {
-        return Numeric.decodeQuantity(blockNumber);
+        if (decodedBlockNumber == null) {
+            decodedBlockNumber = Numeric.decodeQuantity(blockNumber);
+        }
+        return decodedBlockNumber;
     }
 
     public String getBlockNumberRaw() {
@@ -90,10 +105,14 @@ public class Transaction {
 
     public void setBlockNumber(String blockNumber) {
         this.blockNumber = blockNumber;
+        this.decodedBlockNumber = null;
     }
 
     public BigInteger getTransactionIndex() {
-        return Numeric.decodeQuantity(transactionIndex);
+        if (decodedTransactionIndex == null) {
+            decodedTransactionIndex = Numeric.decodeQuantity(transactionIndex);
+        }
+        return decodedTransactionIndex;
     }
 
     public String getTransactionIndexRaw() {
@@ -102,6 +121,7 @@ public class Transaction {
 
     public void setTransactionIndex(String transactionIndex) {
         this.transactionIndex = transactionIndex;
+        this.decodedTransactionIndex = null;
     }
 
     public String getFrom() {
@@ -121,7 +141,10 @@ public class Transaction {
     }
 
     public BigInteger getValue() {
-        return Numeric.decodeQuantity(value);
+        if (decodedValue == null) {
+            decodedValue = Numeric.decodeQuantity(value);
+        }
+        return decodedValue;
     }
 
     public String getValueRaw() {
@@ -130,10 +153,14 @@ public class Transaction {
 
     public void setValue(String value) {
         this.value = value;
+        this.decodedValue = null;
     }
 
     public BigInteger getGasPrice() {
-        return Numeric.decodeQuantity(gasPrice);
+        if (decodedGasPrice == null) {
+            decodedGasPrice = Numeric.decodeQuantity(gasPrice);
+        }
+        return decodedGasPrice;
     }
 
     public String getGasPriceRaw() {
@@ -142,10 +169,14 @@ public class Transaction {
 
     public void setGasPrice(String gasPrice) {
         this.gasPrice = gasPrice;
+        this.decodedGasPrice = null;
     }
 
     public BigInteger getGas() {
-        return Numeric.decodeQuantity(gas);
+        if (decodedGas == null) {
+            decodedGas = Numeric.decodeQuantity(gas);
+        }
+        return decodedGas;
     }
 
     public String getGasRaw() {
@@ -154,6 +185,7 @@ public class Transaction {
 
     public void setGas(String gas) {
         this.gas = gas;
+        this.decodedGas = null;
     }
 
     public String getInput() {
@@ -26,6 +26,12 @@ public class TransactionReceipt {
     private List<Log> logs;
     private String logsBloom;
 
+    // Quantities are decoded on first use
+    private transient BigInteger decodedTransactionIndex;
+    private transient BigInteger decodedBlockNumber;
+    private transient BigInteger decodedCumulativeGasUsed;
+    private transient BigInteger decodedGasUsed;
+
     public TransactionReceipt() {
     }
 
@@ -57,7 +63,10 @@ public class TransactionReceipt {
     }
 
     public BigInteger getTransactionIndex() {
-        return Numeric.decodeQuantity(transactionIndex);
+        if (decodedTransactionIndex == null) {
+            decodedTransactionIndex = Numeric.decodeQuantity(transactionIndex);
+        }
+        return decodedTransactionIndex;
     }
 
     public String getTransactionIndexRaw() {
@@ -66,6 +75,7 @@ public class TransactionReceipt {
 
     public void setTransactionIndex(String transactionIndex) {
         this.transactionIndex = transactionIndex;
+        this.decodedTransactionIndex = null;
     }
 
     public String getBlockHash() {
@@ -77,7 +87,10 @@ public class TransactionReceipt {
     }
 
     public BigInteger getBlockNumber() {
-        return Numeric.decodeQuantity(blockNumber);
+        if (decodedBlockNumber == null) {
+            decodedBlockNumber = Numeric.decodeQuantity(blockNumber);
+        }
+        return decodedBlockNumber;
     }
 
     public String getBlockNumberRaw() {
@@ -86,10 +99,14 @@ public class TransactionReceipt {
 
     public void setBlockNumber(String blockNumber) {
         this.blockNumber = blockNumber;
+        this.decodedBlockNumber = null;
     }
 
     public BigInteger getCumulativeGasUsed() {
-        return Numeric.decodeQuantity(cumulativeGasUsed);
+        if (decodedCumulativeGasUsed == null) {
+            decodedCumulativeGasUsed = Numeric.decodeQuantity(cumulativeGasUsed);
+        }
+        return decodedCumulativeGasUsed;
     }
 
     public String getCumulativeGasUsedRaw() {
@@ -98,10 +115,14 @@ public class TransactionReceipt {
 
     public void setCumulativeGasUsed(String cumulativeGasUsed) {
         this.cumulativeGasUsed = cumulativeGasUsed;
+        this.decodedCumulativeGasUsed = null;
     }
 
     public BigInteger getGasUsed() {
-        return Numeric.decodeQuantity(gasUsed);
+        if (decodedGasUsed == null) {
+            decodedGasUsed = Numeric.decodeQuantity(gasUsed);
+        }
+        return decodedGasUsed;
     }
 
     public String getGasUsedRaw() {
@@ -110,6 +131,7 @@ public class TransactionReceipt {
 
     public void setGasUsed(String gasUsed) {
         this.gasUsed = gasUsed;
+        this.decodedGasUsed = null;
     }
 
     public String getContractAddress() {
@@ -1,8 +1,7 @@
 package com.alaya.protocol.deserializer;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -15,10 +14,19 @@ import com.alaya.protocol.core.Response;
 
 /**
  * A jackson deserializer that sets the rawResponse variable of Response objects.
+ *
+ * <p>The raw response is sliced from the bytes being parsed, which must be supplied as the
+ * {@link #RAW_CONTENT} attribute of the reader. Responses read from anything else, such as a
+ * tree, get an empty raw response.
  */
 public class RawResponseDeserializer
         extends StdDeserializer<Response> implements ResolvableDeserializer {
 
+    /**
+     * Reader attribute holding the {@code byte[]} a response is being parsed from.
+     */
+    public static final Object RAW_CONTENT = RawResponseDeserializer.class.getName() + ".content";
+
     private final JsonDeserializer<?> defaultDeserializer;
 
     public RawResponseDeserializer(JsonDeserializer<?> defaultDeserializer) {
@@ -28,9 +36,12 @@ public class RawResponseDeserializer
 
     @Override
     public Response deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        long start = jp.getTokenLocation().getByteOffset();
         Response deserializedResponse = (Response) defaultDeserializer.deserialize(jp, ctxt);
+        long end = jp.getCurrentLocation().getByteOffset();
 
-        deserializedResponse.setRawResponse(getRawResponse(jp));
+        deserializedResponse.setRawResponse(
+                getRawResponse((byte[]) ctxt.getAttribute(RAW_CONTENT), start, end));
         return deserializedResponse;
     }
 
@@ -41,19 +52,11 @@ public class RawResponseDeserializer
         ((ResolvableDeserializer) defaultDeserializer).resolve(ctxt);
     }
 
-    private String getRawResponse(JsonParser jp) throws IOException {
-        final InputStream inputSource = (InputStream) jp.getInputSource();
-
-        if (inputSource == null) {
+    private String getRawResponse(byte[] content, long start, long end) {
+        if (content == null || start < 0 || end > content.length) {
             return "";
         }
 
-        inputSource.reset();
-
-        return streamToString(inputSource);
-    }
-
-    private String streamToString(InputStream input) throws IOException {
-        return new Scanner(input, "UTF-8").useDelimiter("\\Z").next();
+        return new String(content, (int) start, (int) (end - start), StandardCharsets.UTF_8);
     }
 }
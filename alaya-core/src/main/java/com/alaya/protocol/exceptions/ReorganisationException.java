@@ -0,0 +1,12 @@
+package com.alaya.protocol.exceptions;
+
+import java.io.IOException;
+
+/**
+ * A reorganisation of the chain reaches further back than the blocks still tracked.
+ */
+public class ReorganisationException extends IOException {
+    public ReorganisationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.alaya.protocol.exceptions;
+
+import java.io.IOException;
+
+/**
+ * A request was not sent, because the client is already sending as many as the node can take.
+ */
+public class RequestRejectedException extends IOException {
+    public RequestRejectedException(String message) {
+        super(message);
+    }
+}
@@ -1,19 +1,26 @@
 package com.alaya.protocol.http;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.alaya.protocol.exceptions.ClientConnectionException;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
-import okio.Buffer;
 import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,8 +82,21 @@ public class HttpService extends Service {
         this(DEFAULT_URL);
     }
 
+    /**
+     * Start building a service with a client tuned for the node.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
     private static OkHttpClient createOkHttpClient() {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        // asynchronous requests are queued by the dispatcher, which by default only runs 5 per
+        // host at a time, all requests of this client go to the same node
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher);
         configureLogging(builder);
         return builder.build();
     }
@@ -97,17 +117,65 @@ public class HttpService extends Service {
 
     @Override
     protected InputStream performIO(String request) throws IOException {
+        return performIO(RequestBody.create(JSON_MEDIA_TYPE, request));
+    }
+
+    @Override
+    protected InputStream performIO(byte[] request) throws IOException {
+        return performIO(RequestBody.create(JSON_MEDIA_TYPE, request));
+    }
+
+    private InputStream performIO(RequestBody requestBody) throws IOException {
+        okhttp3.Response response = httpClient.newCall(buildRequest(requestBody)).execute();
+        return processResponse(response);
+    }
+
+    @Override
+    protected CompletableFuture<InputStream> performIOAsync(String request) {
+        return performIOAsync(RequestBody.create(JSON_MEDIA_TYPE, request));
+    }
+
+    @Override
+    protected CompletableFuture<InputStream> performIOAsync(byte[] request) {
+        return performIOAsync(RequestBody.create(JSON_MEDIA_TYPE, request));
+    }
 
-        RequestBody requestBody = RequestBody.create(JSON_MEDIA_TYPE, request);
+    /**
+     * Enqueue the request on the client's dispatcher, no thread is held while waiting for the
+     * node to respond.
+     */
+    private CompletableFuture<InputStream> performIOAsync(RequestBody requestBody) {
+        final CompletableFuture<InputStream> result = new CompletableFuture<InputStream>();
+        httpClient.newCall(buildRequest(requestBody)).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) {
+                try {
+                    result.complete(processResponse(response));
+                } catch (IOException | RuntimeException e) {
+                    response.close();
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    private okhttp3.Request buildRequest(RequestBody requestBody) {
         Headers headers = buildHeaders();
 
-        okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+        return new okhttp3.Request.Builder()
                 .url(url)
                 .headers(headers)
                 .post(requestBody)
                 .build();
+    }
 
-        okhttp3.Response response = httpClient.newCall(httpRequest).execute();
+    private InputStream processResponse(okhttp3.Response response) throws IOException {
         if (response.isSuccessful()) {
             ResponseBody responseBody = response.body();
             if (responseBody != null) {
@@ -122,32 +190,20 @@ public class HttpService extends Service {
     }
 
     private InputStream buildInputStream(ResponseBody responseBody) throws IOException {
-        InputStream inputStream = responseBody.byteStream();
-
         if (includeRawResponse) {
-            // we have to buffer the entire input payload, so that after processing
-            // it can be re-read and used to populate the rawResponse field.
-
+            // buffer the entire body so it can be read in one exactly sized copy, which is
+            // parsed and sliced for the rawResponse field without being read a second time
             BufferedSource source = responseBody.source();
-            source.request(Long.MAX_VALUE); // Buffer the entire body
-            Buffer buffer = source.buffer();
+            source.request(Long.MAX_VALUE);
 
-            long size = buffer.size();
+            long size = source.buffer().size();
             if (size > Integer.MAX_VALUE) {
                 throw new UnsupportedOperationException(
                         "Non-integer input buffer size specified: " + size);
             }
-
-            int bufferSize = (int) size;
-            BufferedInputStream bufferedinputStream =
-                    new BufferedInputStream(inputStream, bufferSize);
-
-            bufferedinputStream.mark(inputStream.available());
-            return bufferedinputStream;
-
-        } else {
-            return inputStream;
         }
+
+        return responseBody.byteStream();
     }
 
     private Headers buildHeaders() {
@@ -165,4 +221,133 @@ public class HttpService extends Service {
     public HashMap<String, String> getHeaders() {
         return headers;
     }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Builds a {@link HttpService} and its client.
+     *
+     * <p>The defaults suit many concurrent requests to a single node: up to 256 requests run
+     * at once, all of them to the node's host, and up to 32 idle connections are kept alive
+     * for 5 minutes so that bursts don't pay for new connections.
+     */
+    public static class Builder {
+
+        private String url = DEFAULT_URL;
+        private boolean includeRawResponses;
+        private final Map<String, String> headers = new HashMap<String, String>();
+
+        private int maxIdleConnections = 32;
+        private long keepAliveDuration = TimeUnit.MINUTES.toMillis(5);
+        private int maxRequests = 256;
+        private int maxRequestsPerHost = 256;
+        private boolean http2;
+        private boolean compression = true;
+        private long connectTimeout = TimeUnit.SECONDS.toMillis(10);
+        private long readTimeout = TimeUnit.SECONDS.toMillis(30);
+        private long writeTimeout = TimeUnit.SECONDS.toMillis(30);
+
+        Builder() {
+        }
+
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder includeRawResponses(boolean includeRawResponses) {
+            this.includeRawResponses = includeRawResponses;
+            return this;
+        }
+
+        public Builder header(String key, String value) {
+            headers.put(key, value);
+            return this;
+        }
+
+        /**
+         * Set the number of idle connections kept open, and for how long.
+         */
+        public Builder connectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveDuration = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * Set the number of asynchronous requests run at once, further ones are queued by
+         * the client.
+         *
+         * @param maxRequests the number of requests run at once
+         * @param maxRequestsPerHost the number of requests run at once to the same host
+         * @return this builder
+         */
+        public Builder maxRequests(int maxRequests, int maxRequestsPerHost) {
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Offer HTTP/2 to the node, multiplexing requests over a single connection. It is
+         * negotiated during the TLS handshake, so it only applies to https URLs.
+         */
+        public Builder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Ask the node for gzip compressed responses, which the client transparently
+         * decompresses. Enabled by default, disabling it saves CPU on fast local links.
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        public HttpService build() {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(
+                            maxIdleConnections, keepAliveDuration, TimeUnit.MILLISECONDS))
+                    .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                    .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+                    .protocols(http2
+                            ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                            : Collections.singletonList(Protocol.HTTP_1_1));
+            configureLogging(builder);
+
+            HttpService httpService =
+                    new HttpService(url, builder.build(), includeRawResponses);
+            httpService.addHeaders(headers);
+            if (!compression) {
+                // the client only asks for gzip when no encoding is requested
+                httpService.addHeader("Accept-Encoding", "identity");
+            }
+            return httpService;
+        }
+    }
 }
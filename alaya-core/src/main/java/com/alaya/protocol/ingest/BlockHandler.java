@@ -0,0 +1,20 @@
+package com.alaya.protocol.ingest;
+
+import com.alaya.protocol.rx.BlockEvent;
+
+/**
+ * Processes the block events of a {@link BlockIngester}.
+ *
+ * <p>An event may be handled again after a restart if its checkpoint wasn't saved yet,
+ * handling it must be idempotent.
+ */
+public interface BlockHandler {
+
+    /**
+     * Process an event. The event is only checkpointed once this returns.
+     *
+     * @param event the event
+     * @throws Exception if the event couldn't be processed, which stops the ingestion
+     */
+    void handle(BlockEvent event) throws Exception;
+}
@@ -0,0 +1,215 @@
+package com.alaya.protocol.ingest;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.exceptions.ReorganisationException;
+import com.alaya.protocol.rx.BlockEvent;
+
+/**
+ * Feeds the blocks of the chain to a {@link BlockHandler}, resuming where it left off after a
+ * restart.
+ *
+ * <p>The last block processed is saved to a {@link CheckpointStore} once handled, and the
+ * ingestion resumes from the block after it. Events handled since the last checkpoint are
+ * handled again after a crash, delivery is at least once. Blocks are only ingested once
+ * buried under a number of confirmations, a reorganisation of blocks already ingested is
+ * delivered as rollback events.
+ *
+ * <p>If the checkpointed block was reorganised out of the chain while the ingestion was
+ * stopped, the ingester walks back from it by parent hash to the block it shares with the
+ * chain. It delivers a rollback event for every block of the abandoned branch, from the
+ * checkpointed block down, and resumes after the shared block. This also undoes a branch the
+ * handler was fed but never checkpointed, such as the rollbacks of a reorganisation handled
+ * just before a crash.
+ */
+public class BlockIngester {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockIngester.class);
+
+    private final Web3j web3j;
+    private final CheckpointStore checkpointStore;
+    private final boolean fullTransactionObjects;
+    private final int confirmations;
+    private final int checkpointInterval;
+
+    public BlockIngester(Web3j web3j, CheckpointStore checkpointStore, int confirmations) {
+        this(web3j, checkpointStore, true, confirmations, 1);
+    }
+
+    /**
+     * Create an ingester.
+     *
+     * @param web3j the client the blocks are requested with
+     * @param checkpointStore the store of the checkpoint
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *                               transaction hashes
+     * @param confirmations the number of blocks on top of a block before it is ingested
+     * @param checkpointInterval the number of events handled between checkpoints, the last
+     *                           event handled is always checkpointed once the ingestion stops
+     */
+    public BlockIngester(
+            Web3j web3j, CheckpointStore checkpointStore, boolean fullTransactionObjects,
+            int confirmations, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.web3j = web3j;
+        this.checkpointStore = checkpointStore;
+        this.fullTransactionObjects = fullTransactionObjects;
+        this.confirmations = confirmations;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Create an Observable that ingests the chain on subscription, starting after the
+     * checkpoint if there is one.
+     *
+     * @param startBlock the block to start from when there is no checkpoint yet
+     * @param blockHandler the handler of the events
+     * @return Observable to emit every event once handled, failing if the handler fails
+     */
+    public Observable<BlockEvent> ingest(
+            final DefaultBlockParameter startBlock, final BlockHandler blockHandler) {
+        return Observable.defer(new Func0<Observable<BlockEvent>>() {
+            @Override
+            public Observable<BlockEvent> call() {
+                DefaultBlockParameter resumeBlock;
+                List<BlockEvent> rollbacks;
+                try {
+                    Checkpoint checkpoint = checkpointStore.load();
+                    if (checkpoint == null) {
+                        resumeBlock = startBlock;
+                        rollbacks = Collections.emptyList();
+                    } else {
+                        rollbacks = rollbacks(checkpoint);
+                        // after the last block the checkpoint shares with the chain
+                        resumeBlock = new DefaultBlockParameterNumber(checkpoint.getBlockNumber()
+                                .subtract(BigInteger.valueOf(rollbacks.size() - 1)));
+                    }
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+
+                final Session session = new Session();
+                return Observable.from(rollbacks)
+                        .concatWith(web3j.catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+                                resumeBlock, fullTransactionObjects, confirmations))
+                        .concatMap(new Func1<BlockEvent, Observable<BlockEvent>>() {
+                            @Override
+                            public Observable<BlockEvent> call(BlockEvent event) {
+                                try {
+                                    blockHandler.handle(event);
+                                    session.handled(event);
+                                } catch (Exception e) {
+                                    return Observable.error(e);
+                                }
+                                return Observable.just(event);
+                            }
+                        })
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                session.flush();
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * The rollbacks of the checkpointed block and of its ancestors that are no longer part of
+     * the chain, none if the checkpointed block still is.
+     *
+     * @throws ReorganisationException if a block of the abandoned branch is unknown to the
+     *                                 node, or the branch shares no block with the chain
+     */
+    private List<BlockEvent> rollbacks(Checkpoint checkpoint) throws IOException {
+        List<BlockEvent> rollbacks = new ArrayList<BlockEvent>();
+        BigInteger number = checkpoint.getBlockNumber();
+        String hash = checkpoint.getBlockHash();
+        while (!hash.equals(canonicalHash(number))) {
+            if (number.signum() == 0) {
+                throw new ReorganisationException("Checkpointed block " + checkpoint
+                        + " shares no block with the chain");
+            }
+            PlatonBlock.Block block = web3j.platonGetBlockByHash(hash, fullTransactionObjects)
+                    .send().getBlock();
+            if (block == null) {
+                throw new ReorganisationException("Checkpointed block " + checkpoint
+                        + " is no longer part of the chain, and block " + hash
+                        + " of its branch is unknown to the node");
+            }
+            rollbacks.add(new BlockEvent(BlockEvent.Type.ROLLBACK, block));
+            number = number.subtract(BigInteger.ONE);
+            hash = block.getParentHash();
+        }
+        if (!rollbacks.isEmpty()) {
+            log.warn("Checkpointed block {} is no longer part of the chain, rolling back {} "
+                    + "blocks", checkpoint, rollbacks.size());
+        }
+        return rollbacks;
+    }
+
+    /**
+     * The hash of the block of the chain with a number, null if the chain is shorter.
+     */
+    private String canonicalHash(BigInteger number) throws IOException {
+        PlatonBlock.Block block = web3j.platonGetBlockByNumber(
+                new DefaultBlockParameterNumber(number), false).send().getBlock();
+        return block == null ? null : block.getHash();
+    }
+
+    /**
+     * The checkpoint state of a single ingestion.
+     */
+    private class Session {
+
+        private Checkpoint pending;
+        private int pendingCount;
+
+        synchronized void handled(BlockEvent event) throws IOException {
+            PlatonBlock.Block block = event.getBlock();
+            if (event.isRollback()) {
+                // the chain now ends with the parent of the block rolled back
+                pending = new Checkpoint(
+                        block.getNumber().subtract(BigInteger.ONE), block.getParentHash());
+            } else {
+                pending = new Checkpoint(block.getNumber(), block.getHash());
+            }
+            if (++pendingCount >= checkpointInterval) {
+                save();
+            }
+        }
+
+        synchronized void flush() {
+            try {
+                save();
+            } catch (IOException e) {
+                log.error("Error saving checkpoint " + pending, e);
+            }
+        }
+
+        private void save() throws IOException {
+            if (pending != null) {
+                checkpointStore.save(pending);
+                pending = null;
+                pendingCount = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.alaya.protocol.ingest;
+
+import java.math.BigInteger;
+
+/**
+ * The last block fully processed by a {@link BlockIngester}.
+ */
+public class Checkpoint {
+
+    private final BigInteger blockNumber;
+    private final String blockHash;
+
+    public Checkpoint(BigInteger blockNumber, String blockHash) {
+        this.blockNumber = blockNumber;
+        this.blockHash = blockHash;
+    }
+
+    public BigInteger getBlockNumber() {
+        return blockNumber;
+    }
+
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Checkpoint)) {
+            return false;
+        }
+
+        Checkpoint that = (Checkpoint) o;
+        return blockNumber.equals(that.blockNumber) && blockHash.equals(that.blockHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * blockNumber.hashCode() + blockHash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return blockNumber + " " + blockHash;
+    }
+}
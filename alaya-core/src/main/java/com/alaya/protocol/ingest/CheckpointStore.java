@@ -0,0 +1,26 @@
+package com.alaya.protocol.ingest;
+
+import java.io.IOException;
+
+/**
+ * Persists the checkpoint of a {@link BlockIngester} across restarts.
+ */
+public interface CheckpointStore {
+
+    /**
+     * Load the checkpoint last saved.
+     *
+     * @return the checkpoint, or null if none was saved yet
+     * @throws IOException if the checkpoint couldn't be read
+     */
+    Checkpoint load() throws IOException;
+
+    /**
+     * Save a checkpoint, replacing the one saved before. The checkpoint must be durable once
+     * this returns.
+     *
+     * @param checkpoint the checkpoint
+     * @throws IOException if the checkpoint couldn't be written
+     */
+    void save(Checkpoint checkpoint) throws IOException;
+}
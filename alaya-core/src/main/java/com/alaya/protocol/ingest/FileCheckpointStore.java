@@ -0,0 +1,82 @@
+package com.alaya.protocol.ingest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps the checkpoint in a local file, holding the block number and hash on a single line.
+ *
+ * <p>A checkpoint is written to a temporary file next to the checkpoint file and synced to
+ * disk, then renamed over the checkpoint file. A crash leaves either the previous or the new
+ * checkpoint behind, never a partial one.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    private final File file;
+    private final File temporaryFile;
+
+    public FileCheckpointStore(File file) {
+        this.file = file.getAbsoluteFile();
+        this.temporaryFile = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+    }
+
+    @Override
+    public Checkpoint load() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        String content = new String(read(file), StandardCharsets.UTF_8).trim();
+
+        String[] fields = content.split(" ");
+        if (fields.length != 2) {
+            throw new IOException("Invalid checkpoint in " + file + ": " + content);
+        }
+        try {
+            return new Checkpoint(new BigInteger(fields[0]), fields[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint in " + file + ": " + content, e);
+        }
+    }
+
+    @Override
+    public synchronized void save(Checkpoint checkpoint) throws IOException {
+        byte[] content = (checkpoint.getBlockNumber() + " " + checkpoint.getBlockHash() + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+        FileOutputStream output = new FileOutputStream(temporaryFile);
+        try {
+            output.write(content);
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+        // replaces the checkpoint file in a single step
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + temporaryFile + " to " + file);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
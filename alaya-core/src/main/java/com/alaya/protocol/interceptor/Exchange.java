@@ -0,0 +1,56 @@
+package com.alaya.protocol.interceptor;
+
+import com.alaya.protocol.core.Request;
+
+/**
+ * A request sent by a {@link com.alaya.protocol.Service} and what is known of it so far.
+ */
+public final class Exchange {
+
+    final ServiceInterceptor[] interceptors;
+
+    private final Request<?, ?> request;
+    private final long startNanos;
+
+    private int requestLength = -1;
+    private long responseLength;
+
+    Exchange(ServiceInterceptor[] interceptors, Request<?, ?> request) {
+        this.interceptors = interceptors;
+        this.request = request;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Request<?, ?> getRequest() {
+        return request;
+    }
+
+    /**
+     * The value of {@link System#nanoTime()} when the exchange started.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * The length of the serialized request in bytes, or -1 if it isn't serialized yet.
+     */
+    public int getRequestLength() {
+        return requestLength;
+    }
+
+    /**
+     * The number of bytes of the response body read so far.
+     */
+    public long getResponseLength() {
+        return responseLength;
+    }
+
+    void setRequestLength(int requestLength) {
+        this.requestLength = requestLength;
+    }
+
+    void setResponseLength(long responseLength) {
+        this.responseLength = responseLength;
+    }
+}
@@ -0,0 +1,196 @@
+package com.alaya.protocol.interceptor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+
+/**
+ * Runs the interceptors of a service through the steps of an exchange.
+ *
+ * <p>Every step accepts a null exchange, which is what {@link #beforeSerialize} returns when
+ * there are no interceptors, so that a service without interceptors pays for nothing but a
+ * null check.
+ *
+ * <p>The requests of a batch are intercepted as one exchange each, sharing the bytes of the
+ * batch evenly between them.
+ */
+public final class Interceptors {
+
+    private Interceptors() {
+    }
+
+    /**
+     * Start an exchange.
+     *
+     * @param interceptors the interceptors, called in order
+     * @param request the request about to be serialized
+     * @return the exchange, or null if there are no interceptors
+     */
+    public static Exchange beforeSerialize(
+            ServiceInterceptor[] interceptors, Request<?, ?> request) {
+        if (interceptors.length == 0) {
+            return null;
+        }
+        Exchange exchange = new Exchange(interceptors, request);
+        for (ServiceInterceptor interceptor : interceptors) {
+            interceptor.beforeSerialize(exchange);
+        }
+        return exchange;
+    }
+
+    /**
+     * Start the exchanges of the requests of a batch.
+     *
+     * @param interceptors the interceptors, called in order
+     * @param requests the requests of the batch about to be serialized
+     * @return the exchanges, in the order of the requests, or null if there are no interceptors
+     */
+    public static Exchange[] beforeSerialize(
+            ServiceInterceptor[] interceptors, List<? extends Request<?, ?>> requests) {
+        if (interceptors.length == 0) {
+            return null;
+        }
+        Exchange[] exchanges = new Exchange[requests.size()];
+        for (int i = 0; i < exchanges.length; i++) {
+            exchanges[i] = beforeSerialize(interceptors, requests.get(i));
+        }
+        return exchanges;
+    }
+
+    /**
+     * Record that the response body of an exchange has been received.
+     *
+     * @param exchange the exchange, or null
+     * @param requestLength the length of the serialized request in bytes
+     * @param result the response body
+     * @return the response body to read, which counts the bytes read from it
+     */
+    public static InputStream afterIO(Exchange exchange, int requestLength, InputStream result) {
+        if (exchange == null) {
+            return result;
+        }
+        exchange.setRequestLength(requestLength);
+        for (ServiceInterceptor interceptor : exchange.interceptors) {
+            interceptor.afterIO(exchange);
+        }
+        return result != null ? new CountingInputStream(result, exchange) : null;
+    }
+
+    /**
+     * Record that the response body of a batch has been received.
+     *
+     * @param exchanges the exchanges of the requests of the batch, or null
+     * @param requestLength the length of the serialized batch in bytes
+     * @param result the response body
+     * @return the response body to read, which shares the bytes read from it between the
+     *         exchanges
+     */
+    public static InputStream afterIO(
+            Exchange[] exchanges, int requestLength, InputStream result) {
+        if (exchanges == null) {
+            return result;
+        }
+        for (int i = 0; i < exchanges.length; i++) {
+            exchanges[i].setRequestLength((int) share(requestLength, i, exchanges.length));
+            for (ServiceInterceptor interceptor : exchanges[i].interceptors) {
+                interceptor.afterIO(exchanges[i]);
+            }
+        }
+        return result != null ? new CountingInputStream(result, exchanges) : null;
+    }
+
+    /**
+     * End an exchange.
+     *
+     * @param exchange the exchange, or null
+     * @param response the response, or null if the request failed
+     * @param error what made the request fail, or null if it succeeded
+     */
+    public static void afterDeserialize(
+            Exchange exchange, Response<?> response, Throwable error) {
+        if (exchange == null) {
+            return;
+        }
+        for (ServiceInterceptor interceptor : exchange.interceptors) {
+            interceptor.afterDeserialize(exchange, response, error);
+        }
+    }
+
+    /**
+     * End the exchanges of the requests of a batch.
+     *
+     * @param exchanges the exchanges of the requests of the batch, or null
+     * @param response the response to the batch, or null if the batch failed
+     * @param error what made the batch fail, or null if it succeeded
+     */
+    public static void afterDeserialize(
+            Exchange[] exchanges, BatchResponse response, Throwable error) {
+        if (exchanges == null) {
+            return;
+        }
+        for (int i = 0; i < exchanges.length; i++) {
+            afterDeserialize(exchanges[i],
+                    response != null ? response.getResponses().get(i) : null, error);
+        }
+    }
+
+    /**
+     * The part of a number of bytes that falls to one of several exchanges.
+     */
+    private static long share(long length, int index, int count) {
+        return length / count + (index < length % count ? 1 : 0);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final Exchange[] exchanges;
+        private long length;
+
+        CountingInputStream(InputStream in, Exchange... exchanges) {
+            super(in);
+            this.exchanges = exchanges;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long read) {
+            length += read;
+            for (int i = 0; i < exchanges.length; i++) {
+                exchanges[i].setResponseLength(share(length, i, exchanges.length));
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.alaya.protocol.interceptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What {@link MetricsInterceptor} recorded of the requests for one JSON-RPC method.
+ *
+ * <p>Latencies are counted in buckets of powers of two microseconds, so percentiles are
+ * accurate to within a factor of two, and recording one costs a single atomic increment.
+ */
+public class MethodMetrics {
+
+    // Bucket i counts latencies under 2^i microseconds, the last one everything above
+    private static final int BUCKETS = 32;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final ConcurrentMap<Integer, LongAdder> errorCodes =
+            new ConcurrentHashMap<Integer, LongAdder>();
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void completed(long latencyNanos, long requestLength, long responseLength) {
+        inFlight.decrementAndGet();
+        count.increment();
+        totalLatency.add(latencyNanos);
+        requestBytes.add(requestLength);
+        responseBytes.add(responseLength);
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        latencies.incrementAndGet(bucket);
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    void error(int code) {
+        LongAdder errors = errorCodes.get(code);
+        if (errors == null) {
+            LongAdder created = new LongAdder();
+            errors = errorCodes.putIfAbsent(code, created);
+            if (errors == null) {
+                errors = created;
+            }
+        }
+        errors.increment();
+    }
+
+    /**
+     * The number of completed requests, whether they succeeded or not.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * The number of requests which failed without a response, because of the transport or a
+     * response which couldn't be read.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * The number of responses holding a JSON-RPC error, by error code.
+     */
+    public Map<Integer, Long> getErrorCounts() {
+        Map<Integer, Long> counts = new HashMap<Integer, Long>();
+        for (Map.Entry<Integer, LongAdder> entry : errorCodes.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The total number of bytes of the serialized requests.
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * The total number of bytes read from response bodies.
+     */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * The average latency of the completed requests in nanoseconds, 0 if there are none.
+     */
+    public long getMeanLatency() {
+        long count = getCount();
+        return count > 0 ? totalLatency.sum() / count : 0;
+    }
+
+    /**
+     * An upper bound of the latency under which the given fraction of requests completed.
+     *
+     * @param quantile the fraction of requests, from 0 to 1, 0.99 for the 99th percentile
+     * @return the latency in nanoseconds, 0 if no request completed
+     */
+    public long getLatencyPercentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencies.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(1L << i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,75 @@
+package com.alaya.protocol.interceptor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alaya.protocol.core.Response;
+
+/**
+ * Records the latency, payload sizes, errors and requests in flight of every JSON-RPC method.
+ *
+ * <pre>
+ * MetricsInterceptor metrics = new MetricsInterceptor();
+ * httpService.addInterceptor(metrics);
+ * ...
+ * MethodMetrics calls = metrics.getMetrics("platon_call");
+ * long p99 = calls.getLatencyPercentile(0.99);
+ * </pre>
+ */
+public class MetricsInterceptor implements ServiceInterceptor {
+
+    private final ConcurrentMap<String, MethodMetrics> metrics =
+            new ConcurrentHashMap<String, MethodMetrics>();
+
+    /**
+     * The metrics of a method, or null if it hasn't been requested yet.
+     */
+    public MethodMetrics getMetrics(String method) {
+        return metrics.get(method);
+    }
+
+    /**
+     * The metrics of every method requested so far.
+     */
+    public Map<String, MethodMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    @Override
+    public void beforeSerialize(Exchange exchange) {
+        metricsOf(exchange).started();
+    }
+
+    @Override
+    public void afterIO(Exchange exchange) {
+    }
+
+    @Override
+    public void afterDeserialize(Exchange exchange, Response<?> response, Throwable error) {
+        MethodMetrics methodMetrics = metricsOf(exchange);
+        methodMetrics.completed(
+                System.nanoTime() - exchange.getStartNanos(),
+                Math.max(exchange.getRequestLength(), 0),
+                exchange.getResponseLength());
+        if (error != null || response == null) {
+            methodMetrics.failed();
+        } else if (response.hasError()) {
+            methodMetrics.error(response.getError().getCode());
+        }
+    }
+
+    private MethodMetrics metricsOf(Exchange exchange) {
+        String method = exchange.getRequest().getMethod();
+        MethodMetrics methodMetrics = metrics.get(method);
+        if (methodMetrics == null) {
+            MethodMetrics created = new MethodMetrics();
+            methodMetrics = metrics.putIfAbsent(method, created);
+            if (methodMetrics == null) {
+                methodMetrics = created;
+            }
+        }
+        return methodMetrics;
+    }
+}
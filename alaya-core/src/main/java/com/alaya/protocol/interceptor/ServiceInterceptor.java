@@ -0,0 +1,39 @@
+package com.alaya.protocol.interceptor;
+
+import com.alaya.protocol.core.Response;
+
+/**
+ * Observes the requests a {@link com.alaya.protocol.Service} sends to its node.
+ *
+ * <p>For every request sent, {@link #beforeSerialize(Exchange)} is called first, then
+ * {@link #afterIO(Exchange)} once a response body is received, and
+ * {@link #afterDeserialize(Exchange, Response, Throwable)} last, whether the request succeeded
+ * or not. Responses served from a cache or shared by coalesced callers aren't sent, so they
+ * aren't intercepted. Each request of a batch is intercepted on its own, with the bytes of
+ * the batch shared evenly between its requests.
+ *
+ * <p>Interceptors are called on the thread sending the request or completing its response,
+ * so they must be thread safe, return quickly and not throw.
+ */
+public interface ServiceInterceptor {
+
+    /**
+     * Called before a request is serialized.
+     */
+    void beforeSerialize(Exchange exchange);
+
+    /**
+     * Called when the body of the response has been received, before it is read.
+     */
+    void afterIO(Exchange exchange);
+
+    /**
+     * Called once the exchange is over.
+     *
+     * @param exchange the exchange
+     * @param response the response, which may hold a JSON-RPC error, or null if the request
+     *                 failed
+     * @param error what made the request fail, or null if it succeeded
+     */
+    void afterDeserialize(Exchange exchange, Response<?> response, Throwable error);
+}
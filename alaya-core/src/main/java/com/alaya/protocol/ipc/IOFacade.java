@@ -0,0 +1,31 @@
+package com.alaya.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Connection to a node over a local inter-process channel.
+ *
+ * <p>Writes may be issued from any thread while another thread is blocked reading.
+ */
+public interface IOFacade {
+
+    /**
+     * Write a JSON-RPC message to the node.
+     *
+     * @param payload the UTF-8 encoded message
+     * @throws IOException if the message could not be written
+     */
+    void write(byte[] payload) throws IOException;
+
+    /**
+     * Read the next JSON-RPC message sent by the node, blocking until one is available.
+     *
+     * @return the UTF-8 encoded message, only valid until the next call to this method, or
+     *     null if the node closed the connection
+     * @throws IOException if the connection could not be read
+     */
+    ByteBuffer read() throws IOException;
+
+    void close() throws IOException;
+}
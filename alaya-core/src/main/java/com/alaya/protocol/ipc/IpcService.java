@@ -0,0 +1,322 @@
+package com.alaya.protocol.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alaya.protocol.Service;
+import com.alaya.utils.Async;
+
+/**
+ * Inter-process communication service implementation of our services API.
+ *
+ * <p>A single connection to the node is kept open and shared by all callers. Requests are
+ * written as soon as they are issued without waiting for the replies to earlier requests, and
+ * a reader thread hands each reply to the caller waiting for its id. Replies are completed on
+ * an executor, not on the reader thread, so that parsing a reply and the callbacks of its
+ * caller, which may well send requests of their own and wait for their replies, don't hold up
+ * the replies behind it. If the connection fails, the requests in flight fail and the next
+ * request opens a new connection. A caller waiting for a reply gives up after
+ * {@link #REQUEST_TIMEOUT} seconds.
+ */
+public abstract class IpcService extends Service {
+
+    private static final Logger log = LoggerFactory.getLogger(IpcService.class);
+
+    // Timeout for JSON-RPC requests
+    static final long REQUEST_TIMEOUT = 60;
+
+    private final Executor replyExecutor;
+    private final long requestTimeoutMillis;
+
+    private Connection connection;
+    private boolean closed;
+
+    /**
+     * Create a service.
+     *
+     * @param includeRawResponses whether to keep the raw JSON of responses
+     * @param replyExecutor the executor completing the replies, and running the callbacks of
+     *                      the callers
+     */
+    public IpcService(boolean includeRawResponses, Executor replyExecutor) {
+        this(includeRawResponses, replyExecutor, TimeUnit.SECONDS.toMillis(REQUEST_TIMEOUT));
+    }
+
+    IpcService(boolean includeRawResponses, Executor replyExecutor, long requestTimeoutMillis) {
+        super(includeRawResponses);
+        this.replyExecutor = replyExecutor;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public IpcService(boolean includeRawResponses) {
+        this(includeRawResponses, Async.executor());
+    }
+
+    public IpcService() {
+        this(false);
+    }
+
+    /**
+     * Open a new connection to the node.
+     *
+     * @return the connection
+     * @throws IOException if the connection could not be opened
+     */
+    protected abstract IOFacade getIO() throws IOException;
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        return performIO(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected CompletableFuture<InputStream> performIOAsync(String payload) {
+        return performIOAsync(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected InputStream performIO(byte[] payload) throws IOException {
+        CompletableFuture<InputStream> reply = performIOAsync(payload);
+        try {
+            return reply.get(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // unregisters the reply, a response arriving later is dropped
+            IOException timeout = new IOException("Timed out waiting for IPC response");
+            reply.completeExceptionally(timeout);
+            throw timeout;
+        } catch (InterruptedException e) {
+            reply.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for IPC response");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    protected CompletableFuture<InputStream> performIOAsync(byte[] payload) {
+        final CompletableFuture<InputStream> reply = new CompletableFuture<InputStream>();
+        try {
+            final List<Long> ids = readIds(payload);
+            final Connection connection = getConnection();
+            reply.whenComplete(new BiConsumer<InputStream, Throwable>() {
+                @Override
+                public void accept(InputStream result, Throwable error) {
+                    // only left registered if the caller cancelled
+                    connection.remove(ids, reply);
+                }
+            });
+            connection.send(payload, ids, reply);
+        } catch (IOException e) {
+            reply.completeExceptionally(e);
+        }
+        return reply;
+    }
+
+    private synchronized Connection getConnection() throws IOException {
+        if (closed) {
+            throw new IOException("IPC service has been closed");
+        }
+        if (connection == null) {
+            connection = new Connection(getIO());
+
+            Thread reader = new Thread(connection, "web3j-ipc-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return connection;
+    }
+
+    private synchronized void connectionFailed(Connection failed) {
+        if (connection == failed) {
+            connection = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Connection connection;
+        synchronized (this) {
+            closed = true;
+            connection = this.connection;
+            this.connection = null;
+        }
+        if (connection != null) {
+            connection.fail(new IOException("IPC service has been closed"));
+        }
+    }
+
+    /**
+     * Read the ids of a JSON-RPC message, or of the elements of a batch.
+     *
+     * <p>Members following the id of a single message are not parsed, nodes write the id ahead
+     * of the result so the bulk of a reply is skipped.
+     */
+    private List<Long> readIds(byte[] message) throws IOException {
+        List<Long> ids = new ArrayList<Long>(1);
+        JsonParser parser = objectMapper.getFactory().createParser(message);
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                readId(parser, ids);
+            } else if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (readId(parser, ids)) {
+                        while (parser.nextToken() != JsonToken.END_OBJECT) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Read the members of an object up to and including its id.
+     *
+     * @return true if the id was found before the end of the object
+     */
+    private static boolean readId(JsonParser parser, List<Long> ids) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+                ids.add(parser.getLongValue());
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private class Connection implements Runnable {
+
+        private final IOFacade io;
+        private final Map<Long, CompletableFuture<InputStream>> replyForId =
+                new ConcurrentHashMap<Long, CompletableFuture<InputStream>>();
+
+        private volatile boolean failed;
+
+        Connection(IOFacade io) {
+            this.io = io;
+        }
+
+        void send(byte[] payload, List<Long> ids, CompletableFuture<InputStream> reply)
+                throws IOException {
+            for (Long id : ids) {
+                replyForId.put(id, reply);
+            }
+            // checked after registering, fail() either sees the reply or has already set the flag
+            if (failed) {
+                throw new IOException("IPC connection was closed");
+            }
+
+            try {
+                synchronized (io) {
+                    io.write(payload);
+                }
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        void remove(List<Long> ids, CompletableFuture<InputStream> reply) {
+            for (Long id : ids) {
+                replyForId.remove(id, reply);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer frame;
+                while ((frame = io.read()) != null) {
+                    byte[] message = new byte[frame.remaining()];
+                    frame.get(message);
+                    dispatch(message);
+                }
+                fail(new IOException("IPC connection was closed by the node"));
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void dispatch(final byte[] message) throws IOException {
+            List<CompletableFuture<InputStream>> replies =
+                    new ArrayList<CompletableFuture<InputStream>>(1);
+            for (Long id : readIds(message)) {
+                CompletableFuture<InputStream> reply = replyForId.remove(id);
+                // the elements of a batch share one reply
+                if (reply != null && !replies.contains(reply)) {
+                    replies.add(reply);
+                }
+            }
+            if (replies.isEmpty()) {
+                log.warn("Discarding IPC message without a matching request: {}",
+                        new String(message, StandardCharsets.UTF_8));
+            }
+
+            for (final CompletableFuture<InputStream> reply : replies) {
+                Runnable completion = new Runnable() {
+                    @Override
+                    public void run() {
+                        reply.complete(new ByteArrayInputStream(message));
+                    }
+                };
+                try {
+                    replyExecutor.execute(completion);
+                } catch (RejectedExecutionException e) {
+                    // the executor is shut down, the caller still gets its reply
+                    completion.run();
+                }
+            }
+        }
+
+        void fail(IOException cause) {
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                failed = true;
+            }
+            connectionFailed(this);
+
+            try {
+                io.close();
+            } catch (IOException e) {
+                log.warn("Failed to close IPC connection", e);
+            }
+            for (CompletableFuture<InputStream> reply : replyForId.values()) {
+                reply.completeExceptionally(cause);
+            }
+            replyForId.clear();
+        }
+    }
+}
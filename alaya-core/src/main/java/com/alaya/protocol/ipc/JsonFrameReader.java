@@ -0,0 +1,147 @@
+package com.alaya.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a stream of concatenated JSON-RPC messages into individual messages.
+ *
+ * <p>Nodes write their replies back to back on an IPC connection without any delimiter, so
+ * message boundaries are found by tracking the nesting depth of objects and arrays outside of
+ * string literals. All structural characters are ASCII and never occur within a multi-byte
+ * UTF-8 sequence, so the stream is scanned byte by byte without decoding it.
+ *
+ * <p>A single buffer is reused for every message. It is only replaced by a larger one when a
+ * message does not fit, and the larger buffer is then kept for subsequent messages.
+ */
+public class JsonFrameReader {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+
+    private ByteBuffer buffer;
+
+    // Start of the message being scanned and position up to which it has been scanned
+    private int start;
+    private int scanned;
+
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    public JsonFrameReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JsonFrameReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Read the next message from the channel, blocking until it has been received in full.
+     *
+     * <p>The returned buffer shares its content with this reader, it is only valid until the
+     * next call to this method.
+     *
+     * @return the next message, or null if the channel reached end of stream between messages
+     * @throws IOException if the channel could not be read, or the stream does not contain
+     *     JSON objects or arrays
+     */
+    public ByteBuffer read() throws IOException {
+        while (true) {
+            int end = scan();
+            if (end >= 0) {
+                ByteBuffer frame = buffer.duplicate();
+                frame.limit(end);
+                frame.position(start);
+                start = end;
+                scanned = end;
+                return frame;
+            }
+
+            if (!fill()) {
+                if (depth > 0 || start < buffer.limit()) {
+                    throw new IOException("Connection closed in the middle of a message");
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Scan the buffered bytes for the end of the current message.
+     *
+     * @return the position after the last byte of the message, or -1 if more input is needed
+     */
+    private int scan() throws IOException {
+        byte[] bytes = buffer.array();
+        int limit = buffer.limit();
+
+        for (int i = scanned; i < limit; i++) {
+            byte b = bytes[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (depth == 0) {
+                // between messages only whitespace is expected
+                if (b == '{' || b == '[') {
+                    start = i;
+                    depth = 1;
+                } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    start = i + 1;
+                } else {
+                    throw new IOException("Unexpected character '" + (char) b
+                            + "' between JSON-RPC messages");
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        scanned = limit;
+        return -1;
+    }
+
+    /**
+     * Read more input into the buffer, discarding the bytes of previous messages first and
+     * growing the buffer if the current message already fills it.
+     *
+     * @return false if the channel reached end of stream
+     */
+    private boolean fill() throws IOException {
+        if (start > 0) {
+            int length = buffer.limit() - start;
+            System.arraycopy(buffer.array(), start, buffer.array(), 0, length);
+            buffer.limit(length);
+            scanned -= start;
+            start = 0;
+        }
+
+        if (buffer.limit() == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            larger.put(buffer.array(), 0, buffer.limit());
+            larger.limit(larger.position());
+            buffer = larger;
+        }
+
+        buffer.position(buffer.limit());
+        buffer.limit(buffer.capacity());
+        int read = channel.read(buffer);
+        buffer.limit(buffer.position());
+        return read >= 0;
+    }
+}
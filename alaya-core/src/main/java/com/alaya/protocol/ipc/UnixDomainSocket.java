@@ -0,0 +1,66 @@
+package com.alaya.protocol.ipc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+/**
+ * Unix domain socket IO implementation for IPC.
+ */
+public class UnixDomainSocket implements IOFacade {
+
+    private final SocketChannel channel;
+    private final JsonFrameReader reader;
+    private final Object readLock = new Object();
+
+    public UnixDomainSocket(String ipcSocketPath) throws IOException {
+        this(ipcSocketPath, JsonFrameReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    public UnixDomainSocket(String ipcSocketPath, int bufferSize) throws IOException {
+        this(UnixSocketChannel.open(new UnixSocketAddress(new File(ipcSocketPath))), bufferSize);
+    }
+
+    UnixDomainSocket(SocketChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.reader = new JsonFrameReader(channel, bufferSize);
+    }
+
+    @Override
+    public void write(byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public ByteBuffer read() throws IOException {
+        synchronized (readLock) {
+            if (!channel.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            return reader.read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // closing the descriptor does not wake up a thread blocked reading from it, and a read
+        // issued after closing could end up on a new socket that reused the descriptor. The
+        // reader is woken up first, the descriptor is closed once it has let go.
+        try {
+            channel.shutdownInput();
+        } catch (IOException e) {
+            // already disconnected
+        }
+        synchronized (readLock) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.alaya.protocol.ipc;
+
+import java.io.IOException;
+
+/**
+ * Unix domain socket implementation of our services API.
+ */
+public class UnixIpcService extends IpcService {
+
+    private final String ipcSocketPath;
+
+    public UnixIpcService(String ipcSocketPath, boolean includeRawResponses) {
+        super(includeRawResponses);
+        this.ipcSocketPath = ipcSocketPath;
+    }
+
+    public UnixIpcService(String ipcSocketPath) {
+        this(ipcSocketPath, false);
+    }
+
+    @Override
+    protected IOFacade getIO() throws IOException {
+        return new UnixDomainSocket(ipcSocketPath);
+    }
+}
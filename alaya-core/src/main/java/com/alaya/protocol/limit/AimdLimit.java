@@ -0,0 +1,79 @@
+package com.alaya.protocol.limit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A concurrency limit following additive increase, multiplicative decrease.
+ *
+ * <p>While requests complete without errors and without taking much longer than the lowest
+ * latency observed for the same kind of request, the limit grows by about one per limit's
+ * worth of requests. A failure, or a latency beyond the tolerance, shrinks it by a constant
+ * ratio. Latencies are only compared within a kind, such as a method, so that cheap and
+ * expensive requests mixed together don't look like an overloaded node. Only requests started after
+ * the last decrease can cause another one, so that a burst of slow responses to requests sent
+ * before the node was relieved cuts the limit once rather than for each of them.
+ *
+ * <p>Not thread safe, {@link LimitedService} synchronizes access to it.
+ */
+class AimdLimit {
+
+    // How much slower than the lowest latency a request can be before the node is overloaded
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    // How fast the lowest latency creeps back up, to follow a node that got slower for good
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    // the lowest latency of each kind of request
+    private final Map<String, Double> baselines = new HashMap<String, Double>();
+    private long lastDecrease;
+
+    AimdLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    int get() {
+        return (int) limit;
+    }
+
+    /**
+     * Adjust the limit to a completed request.
+     *
+     * @param kind the kind of request, whose latencies are compared to each other
+     * @param startNanos when the request was started
+     * @param latencyNanos how long it took
+     * @param failed whether it failed
+     * @param inFlight the number of requests in flight when it was started
+     */
+    void onSample(String kind, long startNanos, long latencyNanos, boolean failed, int inFlight) {
+        Double baseline = baselines.get(kind);
+        if (!failed) {
+            if (baseline == null || latencyNanos < baseline) {
+                baselines.put(kind, (double) latencyNanos);
+            } else {
+                baselines.put(kind, baseline + BASELINE_DRIFT * (latencyNanos - baseline));
+            }
+        }
+
+        boolean overloaded = failed
+                || baseline != null && latencyNanos > baseline * LATENCY_TOLERANCE;
+        if (overloaded) {
+            if (startNanos - lastDecrease >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecrease = System.nanoTime();
+            }
+        } else if (inFlight * 2 >= limit) {
+            // only grow a limit that is being used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.alaya.protocol.limit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import rx.Observable;
+
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.exceptions.RequestRejectedException;
+import com.alaya.protocol.websocket.events.Notification;
+
+/**
+ * Services API implementation limiting the number of requests in flight to another service.
+ *
+ * <p>The limit adapts to the node: it grows while requests complete quickly, and shrinks when
+ * they fail or their latency rises well above the lowest one observed for the same method, a
+ * sign that the node is queueing them. Requests beyond the limit wait for a request in flight
+ * to complete. Requests beyond the maximum number of waiting requests fail right away with a
+ * {@link RequestRejectedException}, so that the client backs off instead of piling up
+ * requests the node can't serve in time.
+ *
+ * <p>A batch counts as one request. Its latency is compared to that of batches of the same
+ * methods and of about the same size. Subscriptions aren't limited.
+ */
+public class LimitedService implements Web3jService {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    public static final int DEFAULT_MAX_LIMIT = 200;
+
+    public static final int DEFAULT_MAX_QUEUED = 1000;
+
+    private final Web3jService web3jService;
+    private final int maxQueued;
+
+    // Guarded by this
+    private final AimdLimit limit;
+    private final Queue<CompletableFuture<Permit>> queue =
+            new ArrayDeque<CompletableFuture<Permit>>();
+    private int inFlight;
+
+    /**
+     * Limit the requests to a service.
+     *
+     * @param web3jService the service the requests are sent with
+     * @param initialLimit the number of requests in flight allowed at first
+     * @param maxLimit the highest the limit can grow to
+     * @param maxQueued the number of requests allowed to wait, those beyond are rejected
+     */
+    public LimitedService(
+            Web3jService web3jService, int initialLimit, int maxLimit, int maxQueued) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException(
+                    "Invalid limits " + initialLimit + " and " + maxLimit);
+        }
+        this.web3jService = web3jService;
+        this.maxQueued = maxQueued;
+        this.limit = new AimdLimit(initialLimit, 1, maxLimit);
+    }
+
+    public LimitedService(Web3jService web3jService) {
+        this(web3jService, DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * The number of requests currently allowed in flight.
+     */
+    public synchronized int getLimit() {
+        return limit.get();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * The number of requests waiting for one in flight to complete.
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public <T extends Response> T send(
+            final Request request, final Class<T> responseType) throws IOException {
+        return sendPermitted(Kind.of(request), new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                return web3jService.send(request, responseType);
+            }
+        });
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            final Request request, final Class<T> responseType) {
+        return sendPermittedAsync(Kind.of(request), new Supplier<CompletableFuture<T>>() {
+            @Override
+            public CompletableFuture<T> get() {
+                return web3jService.sendAsync(request, responseType);
+            }
+        });
+    }
+
+    @Override
+    public BatchResponse sendBatch(final BatchRequest batchRequest) throws IOException {
+        return sendPermitted(Kind.of(batchRequest), new Callable<BatchResponse>() {
+            @Override
+            public BatchResponse call() throws IOException {
+                return web3jService.sendBatch(batchRequest);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(final BatchRequest batchRequest) {
+        return sendPermittedAsync(
+                Kind.of(batchRequest), new Supplier<CompletableFuture<BatchResponse>>() {
+            @Override
+            public CompletableFuture<BatchResponse> get() {
+                return web3jService.sendBatchAsync(batchRequest);
+            }
+        });
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return web3jService.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return web3jService.supportsSubscriptions();
+    }
+
+    @Override
+    public void close() throws IOException {
+        web3jService.close();
+    }
+
+    private <R> R sendPermitted(Kind kind, Callable<R> call) throws IOException {
+        Permit permit = acquire();
+        boolean failed = true;
+        try {
+            R result = call.call();
+            failed = false;
+            return result;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            release(permit, failed, kind);
+        }
+    }
+
+    private <R> CompletableFuture<R> sendPermittedAsync(
+            final Kind kind, final Supplier<CompletableFuture<R>> call) {
+        final CompletableFuture<R> response = new CompletableFuture<R>();
+        acquireAsync().whenComplete(new BiConsumer<Permit, Throwable>() {
+            @Override
+            public void accept(final Permit permit, Throwable error) {
+                if (error != null) {
+                    response.completeExceptionally(error);
+                    return;
+                } else if (response.isDone()) {
+                    // cancelled by the caller while waiting
+                    release(permit, false, null);
+                    return;
+                }
+
+                CompletableFuture<R> sent;
+                try {
+                    sent = call.get();
+                } catch (RuntimeException e) {
+                    release(permit, true, kind);
+                    response.completeExceptionally(e);
+                    return;
+                }
+                sent.whenComplete(new BiConsumer<R, Throwable>() {
+                    @Override
+                    public void accept(R result, Throwable error) {
+                        release(permit, error != null, kind);
+                        if (error != null) {
+                            response.completeExceptionally(error);
+                        } else {
+                            response.complete(result);
+                        }
+                    }
+                });
+            }
+        });
+        return response;
+    }
+
+    private Permit acquire() throws IOException {
+        CompletableFuture<Permit> permit = acquireAsync();
+        try {
+            return permit.get();
+        } catch (InterruptedException e) {
+            if (permit.cancel(false)) {
+                synchronized (this) {
+                    queue.remove(permit);
+                }
+            } else if (!permit.isCompletedExceptionally()) {
+                release(permit.join(), false, null);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request");
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    private CompletableFuture<Permit> acquireAsync() {
+        CompletableFuture<Permit> permit = new CompletableFuture<Permit>();
+        synchronized (this) {
+            if (queue.isEmpty() && inFlight < limit.get()) {
+                permit.complete(new Permit(++inFlight));
+            } else if (queue.size() < maxQueued) {
+                queue.add(permit);
+            } else {
+                permit.completeExceptionally(new RequestRejectedException(
+                        "Too many requests waiting to be sent: " + queue.size()));
+            }
+        }
+        return permit;
+    }
+
+    /**
+     * Give a permit back, and hand permits to the waiting requests the limit now allows.
+     *
+     * @param permit the permit
+     * @param failed whether the request failed
+     * @param kind the kind of request sent, which tells about the load of the node, null if
+     *             it wasn't sent
+     */
+    private void release(Permit permit, boolean failed, Kind kind) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<CompletableFuture<Permit>>();
+        List<Permit> permits = new ArrayList<Permit>();
+        synchronized (this) {
+            inFlight--;
+            if (kind != null) {
+                long latency = System.nanoTime() - permit.startNanos;
+                limit.onSample(kind.key, permit.startNanos, (long) (latency * kind.scale),
+                        failed, permit.inFlight);
+            }
+            while (inFlight < limit.get() && !queue.isEmpty()) {
+                CompletableFuture<Permit> next = queue.poll();
+                if (!next.isDone()) {
+                    granted.add(next);
+                    permits.add(new Permit(++inFlight));
+                }
+            }
+        }
+
+        for (int i = 0; i < granted.size(); i++) {
+            if (!granted.get(i).complete(permits.get(i))) {
+                // cancelled since
+                release(permits.get(i), false, null);
+            }
+        }
+    }
+
+    /**
+     * The kind of a request, whose latency is compared to that of requests of the same kind.
+     */
+    private static final class Kind {
+
+        private final String key;
+        // brings the latency of a batch to that of the size of its bucket
+        private final double scale;
+
+        private Kind(String key, double scale) {
+            this.key = key;
+            this.scale = scale;
+        }
+
+        static Kind of(Request<?, ?> request) {
+            return new Kind(request.getMethod(), 1);
+        }
+
+        /**
+         * Batches are bucketed by their methods and their size rounded down to a power of two.
+         */
+        static Kind of(BatchRequest batchRequest) {
+            Set<String> methods = new TreeSet<String>();
+            for (Request<?, ?> request : batchRequest.getRequests()) {
+                methods.add(request.getMethod());
+            }
+            int size = Math.max(batchRequest.size(), 1);
+            int bucket = Integer.highestOneBit(size);
+            return new Kind(methods + "*" + bucket, (double) bucket / size);
+        }
+    }
+
+    private static class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlight;
+
+        Permit(int inFlight) {
+            this.inFlight = inFlight;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.alaya.protocol.retry;
+
+import java.util.Arrays;
+
+/**
+ * The 95th percentile of the latest latencies of a method, recomputed every few samples.
+ */
+class LatencyTracker {
+
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_INTERVAL = 16;
+    private static final double QUANTILE = 0.95;
+
+    private final long[] samples = new long[SAMPLES];
+    private long count;
+    private long percentile = -1;
+
+    synchronized void record(long latencyNanos) {
+        samples[(int) (count++ % SAMPLES)] = latencyNanos;
+        if (count >= MIN_SAMPLES && (percentile < 0 || count % RECOMPUTE_INTERVAL == 0)) {
+            int size = (int) Math.min(count, SAMPLES);
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            percentile = sorted[(int) Math.ceil(QUANTILE * size) - 1];
+        }
+    }
+
+    /**
+     * The 95th percentile latency in nanoseconds, or -1 if too few latencies are known.
+     */
+    synchronized long percentile() {
+        return percentile;
+    }
+}
@@ -0,0 +1,57 @@
+package com.alaya.protocol.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the extra requests sent by retries and hedges, so that a struggling node isn't
+ * finished off by a storm of retries.
+ *
+ * <p>Every request deposits a fraction of a token, every retry or hedge withdraws a whole one.
+ * Retries thus stay under the given ratio of the requests, except for a small number allowed
+ * every second whatever the traffic, so that a client sending few requests can still retry.
+ */
+public class RetryBudget {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratio;
+    private final int minPerSecond;
+    private final double maxBalance;
+
+    private double balance;
+    private long second = System.nanoTime();
+    private int spentThisSecond;
+
+    /**
+     * Create a budget.
+     *
+     * @param ratio the number of retries allowed per request, 0.1 for one in ten
+     * @param minPerSecond the number of retries allowed every second regardless of the ratio
+     */
+    public RetryBudget(double ratio, int minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        // enough to absorb a burst of failures without saving up for a storm
+        this.maxBalance = Math.max(10, ratio * 1000);
+    }
+
+    synchronized void deposit() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        long now = System.nanoTime();
+        if (now - second >= SECOND) {
+            second = now;
+            spentThisSecond = 0;
+        }
+        if (spentThisSecond < minPerSecond) {
+            spentThisSecond++;
+            return true;
+        } else if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package com.alaya.protocol.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a {@link RetryingService} sends a request: how many attempts it may make, and whether
+ * it sends another one while the previous ones are still in flight.
+ *
+ * <p>A hedged request is sent again when no response has been received within a delay,
+ * either a fixed one or the 95th percentile latency of its method, and the first response
+ * is taken. Hedging trades a few extra requests for a shorter tail latency, it should only
+ * be used for methods without side effects.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Send the request once.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, false, -1);
+
+    private final int maxAttempts;
+    private final boolean hedged;
+    private final long hedgeDelay;
+
+    private RetryPolicy(int maxAttempts, boolean hedged, long hedgeDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        this.maxAttempts = maxAttempts;
+        this.hedged = hedged;
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * Retry a request when it fails.
+     *
+     * @param maxAttempts the number of attempts, including the first one
+     * @return the policy
+     */
+    public static RetryPolicy retry(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, false, -1);
+    }
+
+    /**
+     * Hedge a request after the 95th percentile latency of its method, and retry it when it
+     * fails. Until enough latencies are known, the request is only retried.
+     *
+     * @param maxAttempts the number of attempts, including the first one
+     * @return the policy
+     */
+    public static RetryPolicy hedge(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, true, -1);
+    }
+
+    /**
+     * Hedge a request after a fixed delay, and retry it when it fails.
+     *
+     * @param maxAttempts the number of attempts, including the first one
+     * @param delay the delay before sending the request again
+     * @param unit the unit of the delay
+     * @return the policy
+     */
+    public static RetryPolicy hedge(int maxAttempts, long delay, TimeUnit unit) {
+        return new RetryPolicy(maxAttempts, true, unit.toNanos(delay));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * The delay before hedging in nanoseconds, or -1 if it follows the latency of the method.
+     */
+    public long getHedgeDelay() {
+        return hedgeDelay;
+    }
+}
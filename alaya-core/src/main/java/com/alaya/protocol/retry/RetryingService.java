@@ -0,0 +1,324 @@
+package com.alaya.protocol.retry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import rx.Observable;
+
+import com.alaya.protocol.Service;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+import com.alaya.protocol.websocket.events.Notification;
+
+/**
+ * Services API implementation retrying and hedging reads.
+ *
+ * <p>Every method is sent according to its {@link RetryPolicy}. By default the read only
+ * methods of {@link Service#COALESCED_METHODS} are hedged with up to two attempts, and other
+ * methods are sent once: transactions and filter polls would take effect twice. Attempts
+ * go to the given services in turn, so that a second attempt reaches another node when there
+ * are several.
+ *
+ * <p>Each attempt is a copy of the request with its own id, so a service multiplexing requests
+ * over a connection tells their responses apart. A hedge isn't sent to a {@link Service}
+ * coalescing reads while it has an attempt of the same request in flight, it would only
+ * share the response of that attempt.
+ *
+ * <p>Only failures to get a response are retried, a response holding a JSON-RPC error is
+ * returned as it is. All retries and hedges are drawn from a shared {@link RetryBudget}.
+ * Batches and subscriptions go to the first service as they are.
+ */
+public class RetryingService implements Web3jService {
+
+    public static final RetryPolicy DEFAULT_READ_POLICY = RetryPolicy.hedge(2);
+
+    private final List<Web3jService> services;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService hedgeExecutor;
+
+    private final ConcurrentMap<String, RetryPolicy> policies =
+            new ConcurrentHashMap<String, RetryPolicy>();
+    private final ConcurrentMap<String, LatencyTracker> latencies =
+            new ConcurrentHashMap<String, LatencyTracker>();
+
+    /**
+     * Create a service retrying over the given services.
+     *
+     * @param services the services attempts are sent with, in turn
+     * @param budget the budget of retries and hedges
+     */
+    public RetryingService(List<? extends Web3jService> services, RetryBudget budget) {
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("At least one service is required");
+        }
+        this.services = new ArrayList<Web3jService>(services);
+        this.budget = budget;
+        for (String method : Service.COALESCED_METHODS) {
+            policies.put(method, DEFAULT_READ_POLICY);
+        }
+
+        hedgeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "web3j-retry-hedge");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public RetryingService(Web3jService service) {
+        this(Collections.singletonList(service), new RetryBudget(0.1, 10));
+    }
+
+    /**
+     * Set the policy of a method.
+     *
+     * @param method the JSON-RPC method
+     * @param policy the policy, {@link RetryPolicy#NONE} to send the method once
+     */
+    public void setPolicy(String method, RetryPolicy policy) {
+        policies.put(method, policy);
+    }
+
+    public RetryPolicy getPolicy(String method) {
+        RetryPolicy policy = policies.get(method);
+        return policy != null ? policy : RetryPolicy.NONE;
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        RetryPolicy policy = getPolicy(request.getMethod());
+        if (policy == RetryPolicy.NONE) {
+            return services.get(0).send(request, responseType);
+        }
+
+        CompletableFuture<T> response = sendAsync(request, responseType);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                    "Interrupted while waiting for " + request.getMethod());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        RetryPolicy policy = getPolicy(request.getMethod());
+        if (policy == RetryPolicy.NONE) {
+            return services.get(0).sendAsync(request, responseType);
+        }
+
+        budget.deposit();
+        Call<T> call = new Call<T>(request, responseType, policy);
+        call.attempt();
+        return call.response;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return services.get(0).sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return services.get(0).sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return services.get(0).subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return services.get(0).supportsSubscriptions();
+    }
+
+    @Override
+    public void close() throws IOException {
+        hedgeExecutor.shutdownNow();
+
+        IOException failure = null;
+        for (Web3jService service : services) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private LatencyTracker latencyOf(String method) {
+        LatencyTracker latency = latencies.get(method);
+        if (latency == null) {
+            LatencyTracker created = new LatencyTracker();
+            latency = latencies.putIfAbsent(method, created);
+            if (latency == null) {
+                latency = created;
+            }
+        }
+        return latency;
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof IOException || error instanceof ClientConnectionException;
+    }
+
+    /**
+     * The attempts made to get the response of a request.
+     */
+    private class Call<T extends Response> {
+
+        private final CompletableFuture<T> response = new CompletableFuture<T>();
+
+        private final Request request;
+        private final Class<T> responseType;
+        private final RetryPolicy policy;
+
+        // Guarded by this
+        private int attempts;
+        private int pending;
+        private final List<Web3jService> inFlight = new ArrayList<Web3jService>();
+
+        Call(Request request, Class<T> responseType, RetryPolicy policy) {
+            this.request = request;
+            this.responseType = responseType;
+            this.policy = policy;
+        }
+
+        void attempt() {
+            final int attempt;
+            final Web3jService service;
+            synchronized (this) {
+                if (response.isDone() || attempts >= policy.getMaxAttempts()) {
+                    return;
+                }
+                attempt = attempts++;
+                pending++;
+                service = services.get(attempt % services.size());
+                inFlight.add(service);
+            }
+
+            final long start = System.nanoTime();
+            CompletableFuture<T> sent;
+            try {
+                sent = service.sendAsync(copy(), responseType);
+            } catch (RuntimeException e) {
+                sent = new CompletableFuture<T>();
+                sent.completeExceptionally(e);
+            }
+            sent.whenComplete(new BiConsumer<T, Throwable>() {
+                @Override
+                public void accept(T result, Throwable error) {
+                    completed(service, result, error, System.nanoTime() - start);
+                }
+            });
+
+            if (policy.isHedged() && attempt + 1 < policy.getMaxAttempts()) {
+                scheduleHedge();
+            }
+        }
+
+        private void scheduleHedge() {
+            long delay = policy.getHedgeDelay() >= 0
+                    ? policy.getHedgeDelay() : latencyOf(request.getMethod()).percentile();
+            if (delay < 0 || response.isDone()) {
+                return;
+            }
+            hedgeExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!response.isDone() && !coalesced() && budget.tryWithdraw()) {
+                        attempt();
+                    }
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Whether the next attempt would be coalesced with one in flight by its service.
+         */
+        private synchronized boolean coalesced() {
+            Web3jService service = services.get(attempts % services.size());
+            return service instanceof Service && ((Service) service).isCoalesceReads()
+                    && Service.COALESCED_METHODS.contains(request.getMethod())
+                    && inFlight.contains(service);
+        }
+
+        /**
+         * Copy the request with a new id.
+         */
+        private Request<Object, T> copy() {
+            List<?> params = ((Request<?, ?>) request).getParams();
+            return new Request<Object, T>(request.getMethod(),
+                    params != null ? new ArrayList<Object>(params) : null,
+                    RetryingService.this, responseType);
+        }
+
+        private void completed(Web3jService service, T result, Throwable error, long latency) {
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            synchronized (this) {
+                inFlight.remove(service);
+            }
+
+            if (error == null) {
+                latencyOf(request.getMethod()).record(latency);
+                // the first response wins, the others are dropped
+                response.complete(result);
+                return;
+            }
+
+            boolean retry;
+            synchronized (this) {
+                pending--;
+                if (pending > 0 || response.isDone()) {
+                    // a hedge may still succeed
+                    return;
+                }
+                retry = attempts < policy.getMaxAttempts() && isRetryable(error);
+            }
+            if (retry && budget.tryWithdraw()) {
+                attempt();
+            } else {
+                response.completeExceptionally(error);
+            }
+        }
+    }
+}
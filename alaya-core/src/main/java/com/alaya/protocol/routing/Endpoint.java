@@ -0,0 +1,85 @@
+package com.alaya.protocol.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alaya.protocol.Web3jService;
+
+/**
+ * A node behind a {@link RoutingService} and what has been observed of it so far.
+ */
+class Endpoint {
+
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.2;
+
+    // How much a failure rate of 100% inflates the latency an endpoint is ranked by
+    private static final double ERROR_PENALTY = 10;
+
+    private static final long MIN_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(30);
+
+    final Web3jService service;
+    final AtomicBoolean probing = new AtomicBoolean();
+
+    // the average latency of each kind of request
+    private final Map<String, Double> latencies = new HashMap<String, Double>();
+    private double errorRate;
+    private int consecutiveFailures;
+    private long downUntil;
+    private long head = -1;
+
+    Endpoint(Web3jService service) {
+        this.service = service;
+    }
+
+    /**
+     * Record a successful request, its latency is only averaged with requests of the same kind,
+     * such as the same method.
+     */
+    synchronized void succeeded(String kind, long elapsedNanos) {
+        Double latency = latencies.get(kind);
+        latencies.put(kind, latency == null
+                ? elapsedNanos : latency + ALPHA * (elapsedNanos - latency));
+        errorRate -= ALPHA * errorRate;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Record a failed request, the endpoint is taken out of rotation for a period that doubles
+     * with every consecutive failure.
+     */
+    synchronized void failed(long now) {
+        errorRate += ALPHA * (1 - errorRate);
+        long backoff = MIN_BACKOFF << Math.min(consecutiveFailures, 5);
+        downUntil = now + Math.min(backoff, MAX_BACKOFF);
+        consecutiveFailures++;
+    }
+
+    synchronized boolean isDown(long now) {
+        return consecutiveFailures > 0 && now - downUntil < 0;
+    }
+
+    /**
+     * The expected cost of a request of the given kind, the average latency of that kind
+     * inflated by the failure rate. Endpoints without any samples of the kind yet cost nothing,
+     * so that they are tried.
+     */
+    synchronized double cost(String kind) {
+        Double latency = latencies.get(kind);
+        return latency == null ? 0 : latency * (1 + errorRate * ERROR_PENALTY);
+    }
+
+    synchronized void head(long blockNumber) {
+        head = blockNumber;
+    }
+
+    /**
+     * The last block number reported by the node, or -1 if it is not known yet.
+     */
+    synchronized long head() {
+        return head;
+    }
+}
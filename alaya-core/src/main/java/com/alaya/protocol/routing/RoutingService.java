@@ -0,0 +1,478 @@
+package com.alaya.protocol.routing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+import com.alaya.protocol.websocket.events.Notification;
+
+/**
+ * Services API implementation spreading requests over several nodes.
+ *
+ * <p>Every request goes to the node expected to answer it fastest: nodes are ranked by their
+ * average latency for the same kind of request, penalised by their recent failure rate. A
+ * single request's kind is its method, a batch's kind is its set of methods and its size
+ * rounded down to a power of two. Latencies of different kinds are never compared, so that a
+ * node serving expensive requests doesn't look slower than an idle one only answering polls.
+ * Nodes whose head block lags more than a given number of blocks behind the highest head seen
+ * are only used once the nodes in sync are exhausted. The heads are learnt by polling
+ * platon_blockNumber on every node, the same poll brings failed nodes back into rotation.
+ *
+ * <p>If a node fails to answer, the request is retried on the next node. A node that failed
+ * is skipped for a back off period that grows with every consecutive failure. Requests which
+ * may have taken effect on the failed node, i.e. platon_sendTransaction, are not retried.
+ * Requests relying on state held by one node, such as filters or the accounts a node signs
+ * with, are always sent to the first node of the list that is not failing.
+ */
+public class RoutingService implements Web3jService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingService.class);
+
+    public static final long DEFAULT_PROBE_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    public static final int DEFAULT_MAX_BLOCK_LAG = 3;
+
+    // Sending these twice could execute them twice
+    private static final Set<String> UNSAFE_TO_RETRY = new HashSet<String>(Arrays.asList(
+            "platon_sendTransaction",
+            "personal_sendTransaction"));
+
+    // Filter ids and unlocked accounts are only known to the node they were created on
+    private static final Set<String> NODE_STATEFUL = new HashSet<String>(Arrays.asList(
+            "platon_accounts",
+            "platon_sign",
+            "platon_sendTransaction",
+            "platon_newFilter",
+            "platon_newBlockFilter",
+            "platon_newPendingTransactionFilter",
+            "platon_getFilterChanges",
+            "platon_getFilterLogs",
+            "platon_uninstallFilter",
+            "shh_newFilter",
+            "shh_getFilterChanges",
+            "shh_getMessages",
+            "shh_uninstallFilter"));
+
+    private static final String NODE_STATEFUL_PREFIX = "personal_";
+
+    private final List<Endpoint> endpoints;
+    private final int maxBlockLag;
+    private final ScheduledExecutorService probeExecutor;
+
+    /**
+     * Create a service routing between the given nodes.
+     *
+     * @param services the nodes, stateful requests prefer them in this order
+     * @param probeInterval milliseconds between polls of the nodes' heads, 0 to disable polling
+     * @param maxBlockLag the number of blocks a node may be behind and still be preferred
+     */
+    public RoutingService(
+            List<? extends Web3jService> services, long probeInterval, int maxBlockLag) {
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("At least one service is required");
+        }
+
+        List<Endpoint> endpoints = new ArrayList<Endpoint>(services.size());
+        for (Web3jService service : services) {
+            endpoints.add(new Endpoint(service));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.maxBlockLag = maxBlockLag;
+
+        if (probeInterval > 0) {
+            probeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "web3j-routing-probe");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            probeExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    probe();
+                }
+            }, 0, probeInterval, TimeUnit.MILLISECONDS);
+        } else {
+            probeExecutor = null;
+        }
+    }
+
+    public RoutingService(List<? extends Web3jService> services) {
+        this(services, DEFAULT_PROBE_INTERVAL, DEFAULT_MAX_BLOCK_LAG);
+    }
+
+    @Override
+    public <T extends Response> T send(
+            final Request request, final Class<T> responseType) throws IOException {
+        return execute(new Call<T>() {
+            @Override
+            public T send(Web3jService service) throws IOException {
+                return service.send(request, responseType);
+            }
+
+            @Override
+            public CompletableFuture<T> sendAsync(Web3jService service) {
+                return service.sendAsync(request, responseType);
+            }
+        }, route(request.getMethod(), Collections.singletonList(request.getMethod())));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            final Request request, final Class<T> responseType) {
+        return executeAsync(new Call<T>() {
+            @Override
+            public T send(Web3jService service) throws IOException {
+                return service.send(request, responseType);
+            }
+
+            @Override
+            public CompletableFuture<T> sendAsync(Web3jService service) {
+                return service.sendAsync(request, responseType);
+            }
+        }, route(request.getMethod(), Collections.singletonList(request.getMethod())));
+    }
+
+    @Override
+    public BatchResponse sendBatch(final BatchRequest batchRequest) throws IOException {
+        return execute(new Call<BatchResponse>() {
+            @Override
+            public BatchResponse send(Web3jService service) throws IOException {
+                return service.sendBatch(batchRequest);
+            }
+
+            @Override
+            public CompletableFuture<BatchResponse> sendAsync(Web3jService service) {
+                return service.sendBatchAsync(batchRequest);
+            }
+        }, route(kindOf(batchRequest), methods(batchRequest)));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(final BatchRequest batchRequest) {
+        return executeAsync(new Call<BatchResponse>() {
+            @Override
+            public BatchResponse send(Web3jService service) throws IOException {
+                return service.sendBatch(batchRequest);
+            }
+
+            @Override
+            public CompletableFuture<BatchResponse> sendAsync(Web3jService service) {
+                return service.sendBatchAsync(batchRequest);
+            }
+        }, route(kindOf(batchRequest), methods(batchRequest)));
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        // notifications are tied to the node, pick it like any other stateful request
+        long now = System.nanoTime();
+        Web3jService subscriber = null;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.service.supportsSubscriptions()) {
+                if (!endpoint.isDown(now)) {
+                    return endpoint.service.subscribe(request, unsubscribeMethod, responseType);
+                } else if (subscriber == null) {
+                    subscriber = endpoint.service;
+                }
+            }
+        }
+        if (subscriber == null) {
+            throw new UnsupportedOperationException(
+                    "None of the routed services support subscriptions");
+        }
+        return subscriber.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.service.supportsSubscriptions()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (probeExecutor != null) {
+            probeExecutor.shutdownNow();
+        }
+
+        IOException failure = null;
+        for (Endpoint endpoint : endpoints) {
+            try {
+                endpoint.service.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Poll the head of every node, unless the previous poll of the node is still in flight.
+     */
+    void probe() {
+        for (final Endpoint endpoint : endpoints) {
+            if (!endpoint.probing.compareAndSet(false, true)) {
+                continue;
+            }
+
+            Request<?, PlatonBlockNumber> request = new Request<String, PlatonBlockNumber>(
+                    "platon_blockNumber",
+                    Collections.<String>emptyList(),
+                    endpoint.service,
+                    PlatonBlockNumber.class);
+            executeAsync(new Call<PlatonBlockNumber>() {
+                @Override
+                public PlatonBlockNumber send(Web3jService service) throws IOException {
+                    return service.send(request, PlatonBlockNumber.class);
+                }
+
+                @Override
+                public CompletableFuture<PlatonBlockNumber> sendAsync(Web3jService service) {
+                    return service.sendAsync(request, PlatonBlockNumber.class);
+                }
+            }, new Route(request.getMethod(), Collections.singletonList(endpoint), false))
+                    .whenComplete(
+                    new BiConsumer<PlatonBlockNumber, Throwable>() {
+                        @Override
+                        public void accept(PlatonBlockNumber result, Throwable error) {
+                            endpoint.probing.set(false);
+                            if (error != null) {
+                                log.debug("Probing node failed", error);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Order the nodes to try for a request made of the given methods.
+     */
+    private Route route(String kind, List<String> methods) {
+        boolean retry = true;
+        for (String method : methods) {
+            if (NODE_STATEFUL.contains(method) || method.startsWith(NODE_STATEFUL_PREFIX)) {
+                return new Route(kind, Collections.singletonList(firstUp()), false);
+            }
+            if (UNSAFE_TO_RETRY.contains(method)) {
+                retry = false;
+            }
+        }
+
+        long now = System.nanoTime();
+        long highestHead = -1;
+        for (Endpoint endpoint : endpoints) {
+            highestHead = Math.max(highestHead, endpoint.head());
+        }
+
+        // ranks are taken up front, the sort must not see them change
+        List<Candidate> candidates = new ArrayList<Candidate>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            int tier;
+            if (endpoint.isDown(now)) {
+                tier = 2;
+            } else if (endpoint.head() >= 0 && highestHead - endpoint.head() > maxBlockLag) {
+                tier = 1;
+            } else {
+                tier = 0;
+            }
+            candidates.add(new Candidate(endpoint, tier, endpoint.cost(kind)));
+        }
+        Collections.sort(candidates);
+
+        List<Endpoint> ranked = new ArrayList<Endpoint>(candidates.size());
+        for (Candidate candidate : candidates) {
+            ranked.add(candidate.endpoint);
+        }
+        return new Route(kind, ranked, retry);
+    }
+
+    private Endpoint firstUp() {
+        long now = System.nanoTime();
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isDown(now)) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(0);
+    }
+
+    private <T> T execute(Call<T> call, Route route) throws IOException {
+        IOException failure = null;
+        for (Endpoint endpoint : route.attempts()) {
+            long start = System.nanoTime();
+            try {
+                T result = call.send(endpoint.service);
+                succeeded(endpoint, route.kind, start, result);
+                return result;
+            } catch (IOException e) {
+                endpoint.failed(System.nanoTime());
+                failure = e;
+            } catch (ClientConnectionException e) {
+                endpoint.failed(System.nanoTime());
+                failure = new IOException(e.getMessage(), e);
+            }
+            log.debug("Request to node failed, {}", route.retry ? "failing over" : "giving up",
+                    failure);
+        }
+        throw failure;
+    }
+
+    private <T> CompletableFuture<T> executeAsync(Call<T> call, Route route) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        attempt(call, route.kind, route.attempts(), 0, result);
+        return result;
+    }
+
+    private <T> void attempt(
+            final Call<T> call, final String kind, final List<Endpoint> attempts, final int index,
+            final CompletableFuture<T> result) {
+        final Endpoint endpoint = attempts.get(index);
+        final long start = System.nanoTime();
+
+        CompletableFuture<T> response;
+        try {
+            response = call.sendAsync(endpoint.service);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<T>();
+            response.completeExceptionally(e);
+        }
+
+        response.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T value, Throwable error) {
+                if (error == null) {
+                    succeeded(endpoint, kind, start, value);
+                    result.complete(value);
+                    return;
+                }
+
+                Throwable cause = error instanceof CompletionException
+                        ? error.getCause() : error;
+                if (!(cause instanceof IOException)
+                        && !(cause instanceof ClientConnectionException)) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+
+                endpoint.failed(System.nanoTime());
+                if (index + 1 < attempts.size()) {
+                    log.debug("Request to node failed, failing over", cause);
+                    attempt(call, kind, attempts, index + 1, result);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+            }
+        });
+    }
+
+    private static void succeeded(Endpoint endpoint, String kind, long start, Object result) {
+        endpoint.succeeded(kind, System.nanoTime() - start);
+        if (result instanceof PlatonBlockNumber) {
+            PlatonBlockNumber blockNumber = (PlatonBlockNumber) result;
+            if (!blockNumber.hasError() && blockNumber.getResult() != null) {
+                endpoint.head(blockNumber.getBlockNumber().longValue());
+            }
+        }
+    }
+
+    /**
+     * Batches are ranked by their methods and their size rounded down to a power of two.
+     */
+    private static String kindOf(BatchRequest batchRequest) {
+        Set<String> methods = new TreeSet<String>(methods(batchRequest));
+        return methods + "*" + Integer.highestOneBit(Math.max(batchRequest.size(), 1));
+    }
+
+    private static List<String> methods(BatchRequest batchRequest) {
+        List<String> methods = new ArrayList<String>(batchRequest.getRequests().size());
+        for (Request<?, ?> request : batchRequest.getRequests()) {
+            methods.add(request.getMethod());
+        }
+        return methods;
+    }
+
+    /**
+     * A request or batch, sent the same way to whichever node it is routed to.
+     */
+    private interface Call<T> {
+        T send(Web3jService service) throws IOException;
+
+        CompletableFuture<T> sendAsync(Web3jService service);
+    }
+
+    /**
+     * The nodes to try for a request, in order of preference.
+     */
+    private static class Route {
+
+        final String kind;
+        final List<Endpoint> endpoints;
+        final boolean retry;
+
+        Route(String kind, List<Endpoint> endpoints, boolean retry) {
+            this.kind = kind;
+            this.endpoints = endpoints;
+            this.retry = retry;
+        }
+
+        List<Endpoint> attempts() {
+            return retry ? endpoints : endpoints.subList(0, 1);
+        }
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+
+        final Endpoint endpoint;
+        final int tier;
+        final double cost;
+
+        Candidate(Endpoint endpoint, int tier, double cost) {
+            this.endpoint = endpoint;
+            this.tier = tier;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (tier != other.tier) {
+                return tier < other.tier ? -1 : 1;
+            }
+            return Double.compare(cost, other.cost);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.alaya.protocol.rx;
+
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+
+/**
+ * A change to the canonical chain, as emitted by a {@link ChainTracker}.
+ */
+public class BlockEvent {
+
+    public enum Type {
+        /** The block was added on top of the chain. */
+        APPLY,
+        /** The block was removed from the top of the chain by a reorganisation. */
+        ROLLBACK
+    }
+
+    private final Type type;
+    private final PlatonBlock.Block block;
+
+    public BlockEvent(Type type, PlatonBlock.Block block) {
+        this.type = type;
+        this.block = block;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public PlatonBlock.Block getBlock() {
+        return block;
+    }
+
+    public boolean isRollback() {
+        return type == Type.ROLLBACK;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + block.getNumberRaw() + " " + block.getHash();
+    }
+}
@@ -0,0 +1,261 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Func1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+
+/**
+ * Replays a range of blocks with several requests in flight, for backfilling large ranges.
+ *
+ * <p>Blocks are requested in batches of consecutive numbers, with a bounded number of batches
+ * in flight. Batches completing early are held back until the batches before them complete,
+ * so blocks are still emitted in ascending order, and count against that bound until they are
+ * emitted. No more batches are requested while the subscriber falls behind.
+ *
+ * <p>The counters cover all replays run by this instance.
+ */
+public class BlockReplay {
+
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private final Web3j web3j;
+    private final int batchSize;
+    private final int concurrency;
+
+    private final LongAdder blockCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong startNanos = new AtomicLong();
+
+    public BlockReplay(Web3j web3j) {
+        this(web3j, DEFAULT_BATCH_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a replay.
+     *
+     * @param web3j the client the blocks are requested with
+     * @param batchSize the number of blocks per batch, 1 to send single requests
+     * @param concurrency the number of batches in flight at most
+     */
+    public BlockReplay(Web3j web3j, int batchSize, int concurrency) {
+        if (batchSize < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("Batch size and concurrency must be positive");
+        }
+        this.web3j = web3j;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Create an Observable that emits the blocks of a range in ascending order.
+     *
+     * @param startBlock number of the first block
+     * @param endBlock number of the last block, included
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *                               transaction hashes
+     * @return Observable to emit these blocks
+     */
+    public Observable<PlatonBlock> observable(
+            final BigInteger startBlock, BigInteger endBlock,
+            final boolean fullTransactionObjects) {
+        final BigInteger last = endBlock;
+        return Observable.from(batchStarts(startBlock, endBlock))
+                // each batch is emitted as a whole, so a batch held back takes a single slot of
+                // the buffer of concatMapEager however many blocks it holds
+                .concatMapEager(new Func1<BigInteger, Observable<List<PlatonBlock>>>() {
+                    @Override
+                    public Observable<List<PlatonBlock>> call(BigInteger from) {
+                        BigInteger to = from.add(BigInteger.valueOf(batchSize - 1)).min(last);
+                        return fetch(from, to, fullTransactionObjects);
+                    }
+                }, 1, concurrency)
+                .concatMapIterable(new Func1<List<PlatonBlock>, Iterable<PlatonBlock>>() {
+                    @Override
+                    public Iterable<PlatonBlock> call(List<PlatonBlock> blocks) {
+                        return blocks;
+                    }
+                });
+    }
+
+    /**
+     * The first block number of every batch, computed as batches are requested so the bound on
+     * batches in flight holds.
+     */
+    private Iterable<BigInteger> batchStarts(
+            final BigInteger startBlock, final BigInteger endBlock) {
+        if (startBlock.signum() < 0 || startBlock.compareTo(endBlock) > 0) {
+            throw new IllegalArgumentException("Invalid block range");
+        }
+        return new Iterable<BigInteger>() {
+            @Override
+            public Iterator<BigInteger> iterator() {
+                return new Iterator<BigInteger>() {
+                    private BigInteger next = startBlock;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next.compareTo(endBlock) <= 0;
+                    }
+
+                    @Override
+                    public BigInteger next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        BigInteger current = next;
+                        next = next.add(BigInteger.valueOf(batchSize));
+                        return current;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Create an Observable that requests the blocks of a batch when subscribed to, and emits
+     * them as a single list.
+     */
+    private Observable<List<PlatonBlock>> fetch(
+            final BigInteger from, final BigInteger to, final boolean fullTransactionObjects) {
+        return Observable.create(new Observable.OnSubscribe<List<PlatonBlock>>() {
+            @Override
+            public void call(final Subscriber<? super List<PlatonBlock>> subscriber) {
+                startNanos.compareAndSet(0, System.nanoTime());
+                inFlight.incrementAndGet();
+
+                if (from.equals(to)) {
+                    // a batch of one is sent as is, for nodes not supporting batches
+                    web3j.platonGetBlockByNumber(
+                            new DefaultBlockParameterNumber(from), fullTransactionObjects)
+                            .sendAsync()
+                            .whenComplete(new BiConsumer<PlatonBlock, Throwable>() {
+                                @Override
+                                public void accept(PlatonBlock block, Throwable error) {
+                                    complete(subscriber, Collections.singletonList(block),
+                                            error);
+                                }
+                            });
+                    return;
+                }
+
+                BatchRequest batch = web3j.newBatch();
+                for (BigInteger i = from; i.compareTo(to) <= 0; i = i.add(BigInteger.ONE)) {
+                    batch.add(web3j.platonGetBlockByNumber(
+                            new DefaultBlockParameterNumber(i), fullTransactionObjects));
+                }
+                batch.sendAsync().whenComplete(new BiConsumer<BatchResponse, Throwable>() {
+                    @Override
+                    public void accept(BatchResponse response, Throwable error) {
+                        complete(subscriber, response, error);
+                    }
+                });
+            }
+        });
+    }
+
+    private void complete(
+            Subscriber<? super List<PlatonBlock>> subscriber, BatchResponse response,
+            Throwable error) {
+        List<?> responses = null;
+        if (error == null) {
+            try {
+                responses = response.getResponses();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        complete(subscriber, responses, error);
+    }
+
+    /**
+     * Emit the blocks of a batch received. Runs as a callback of the future of the response,
+     * which would swallow anything thrown, so every failure goes to the subscriber instead.
+     */
+    private void complete(
+            Subscriber<? super List<PlatonBlock>> subscriber, List<?> responses,
+            Throwable error) {
+        inFlight.decrementAndGet();
+        List<PlatonBlock> blocks = null;
+        if (error == null) {
+            try {
+                blocks = new ArrayList<PlatonBlock>(responses.size());
+                for (Object block : responses) {
+                    blocks.add((PlatonBlock) block);
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            subscriber.onError(error);
+            return;
+        }
+
+        batchCount.increment();
+        blockCount.add(blocks.size());
+        if (subscriber.isUnsubscribed()) {
+            return;
+        }
+        try {
+            subscriber.onNext(blocks);
+        } catch (Throwable e) {
+            Exceptions.throwOrReport(e, subscriber, blocks);
+            return;
+        }
+        subscriber.onCompleted();
+    }
+
+    /**
+     * The number of blocks received.
+     */
+    public long getBlockCount() {
+        return blockCount.sum();
+    }
+
+    /**
+     * The number of batches received.
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * The number of batches awaiting their response.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The blocks received per second, since the first batch was sent.
+     */
+    public double getBlocksPerSecond() {
+        long start = startNanos.get();
+        if (start == 0) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed > 0 ? getBlockCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+    }
+}
@@ -0,0 +1,188 @@
+package com.alaya.protocol.rx;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.exceptions.ReorganisationException;
+
+/**
+ * Follows the canonical chain from the blocks seen, turning them into {@link BlockEvent}s.
+ *
+ * <p>A window of the most recent blocks is kept. A block whose parent isn't the top of the
+ * window is linked back to the window by fetching its ancestors by hash. The blocks of the
+ * window above the common ancestor are rolled back, then the new branch is applied. Blocks
+ * may be seen out of order or more than once, blocks missed are fetched the same way.
+ *
+ * <p>The longest branch seen is followed. A block that doesn't end above the top of the
+ * window, such as a sibling of the top seen late, is kept aside without emitting any event,
+ * and only taken over along with a block building on it that does.
+ *
+ * <p>Blocks are only applied once they are buried under a number of confirmations, so a
+ * reorganisation shallower than that doesn't emit any event. Not thread safe, blocks are
+ * expected to be seen one at a time.
+ */
+public class ChainTracker {
+
+    public static final int DEFAULT_WINDOW_SIZE = 128;
+
+    private final Web3j web3j;
+    private final boolean fullTransactionObjects;
+    private final int confirmations;
+    private final int windowSize;
+
+    private final Deque<PlatonBlock.Block> window = new ArrayDeque<PlatonBlock.Block>();
+    private final Set<String> hashes = new HashSet<String>();
+    // blocks seen off the followed branch, by hash
+    private final Map<String, PlatonBlock.Block> sideBlocks =
+            new HashMap<String, PlatonBlock.Block>();
+    // number of the last block applied downstream
+    private long lastApplied = -1;
+
+    public ChainTracker(Web3j web3j, boolean fullTransactionObjects, int confirmations) {
+        this(web3j, fullTransactionObjects, confirmations,
+                Math.max(DEFAULT_WINDOW_SIZE, confirmations + 1));
+    }
+
+    /**
+     * Create a tracker.
+     *
+     * @param web3j the client missing blocks are fetched with
+     * @param fullTransactionObjects if true, fetches blocks with their transactions embedded,
+     *                               otherwise with transaction hashes
+     * @param confirmations the number of blocks on top of a block before it is applied
+     * @param windowSize the number of recent blocks kept, the deepest reorganisation handled
+     */
+    public ChainTracker(
+            Web3j web3j, boolean fullTransactionObjects, int confirmations, int windowSize) {
+        if (confirmations < 0 || windowSize <= confirmations) {
+            throw new IllegalArgumentException(
+                    "The window must hold more blocks than the confirmations");
+        }
+        this.web3j = web3j;
+        this.fullTransactionObjects = fullTransactionObjects;
+        this.confirmations = confirmations;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Track a block seen.
+     *
+     * @param block the block
+     * @return the events the block leads to, rollbacks first
+     * @throws IOException if an ancestor of the block couldn't be fetched
+     * @throws ReorganisationException if the block doesn't link back to the window
+     */
+    public List<BlockEvent> update(PlatonBlock.Block block) throws IOException {
+        if (block == null || hashes.contains(block.getHash())
+                || sideBlocks.containsKey(block.getHash())) {
+            return Collections.emptyList();
+        }
+        long number = block.getNumber().longValue();
+        if (!window.isEmpty() && number <= window.getFirst().getNumber().longValue()) {
+            // older than the window, long since applied or rolled back
+            return Collections.emptyList();
+        }
+        if (!window.isEmpty() && number <= window.getLast().getNumber().longValue()) {
+            // no longer than the branch followed, unless a block builds on it later
+            sideBlocks.put(block.getHash(), block);
+            return Collections.emptyList();
+        }
+
+        List<PlatonBlock.Block> branch = new ArrayList<PlatonBlock.Block>();
+        branch.add(block);
+        PlatonBlock.Block oldest = block;
+        while (!window.isEmpty() && !hashes.contains(oldest.getParentHash())) {
+            if (oldest.getNumber().longValue() <= window.getFirst().getNumber().longValue()) {
+                throw new ReorganisationException("Block " + block.getHash()
+                        + " forks off more than " + windowSize + " blocks deep");
+            }
+            oldest = parent(oldest);
+            branch.add(oldest);
+        }
+
+        List<BlockEvent> events = new ArrayList<BlockEvent>();
+        if (!window.isEmpty()) {
+            rollBack(oldest.getParentHash(), events);
+        } else {
+            lastApplied = number - 1;
+        }
+        for (int i = branch.size() - 1; i >= 0; i--) {
+            window.addLast(branch.get(i));
+            hashes.add(branch.get(i).getHash());
+            sideBlocks.remove(branch.get(i).getHash());
+        }
+        applyConfirmed(events);
+
+        while (window.size() > windowSize) {
+            hashes.remove(window.removeFirst().getHash());
+        }
+        long oldestKept = window.getFirst().getNumber().longValue();
+        Iterator<PlatonBlock.Block> sideBlocks = this.sideBlocks.values().iterator();
+        while (sideBlocks.hasNext()) {
+            if (sideBlocks.next().getNumber().longValue() <= oldestKept) {
+                sideBlocks.remove();
+            }
+        }
+        return events;
+    }
+
+    /**
+     * The parent of a block, from the blocks kept aside if it was seen already.
+     */
+    private PlatonBlock.Block parent(PlatonBlock.Block block) throws IOException {
+        PlatonBlock.Block parent = sideBlocks.get(block.getParentHash());
+        if (parent != null) {
+            return parent;
+        }
+        parent = web3j.platonGetBlockByHash(block.getParentHash(), fullTransactionObjects)
+                .send().getBlock();
+        if (parent == null) {
+            throw new IOException("Block " + block.getParentHash() + " not found");
+        }
+        return parent;
+    }
+
+    /**
+     * Remove the blocks above an ancestor from the window, rolling back those applied.
+     */
+    private void rollBack(String ancestorHash, List<BlockEvent> events) {
+        while (!window.getLast().getHash().equals(ancestorHash)) {
+            PlatonBlock.Block removed = window.removeLast();
+            hashes.remove(removed.getHash());
+            // in case the chain switches back
+            sideBlocks.put(removed.getHash(), removed);
+            long number = removed.getNumber().longValue();
+            if (number <= lastApplied) {
+                events.add(new BlockEvent(BlockEvent.Type.ROLLBACK, removed));
+                lastApplied = number - 1;
+            }
+        }
+    }
+
+    private void applyConfirmed(List<BlockEvent> events) {
+        long confirmed = window.getLast().getNumber().longValue() - confirmations;
+        Iterator<PlatonBlock.Block> blocks = window.iterator();
+        while (blocks.hasNext()) {
+            PlatonBlock.Block block = blocks.next();
+            long number = block.getNumber().longValue();
+            if (number > confirmed) {
+                break;
+            }
+            if (number > lastApplied) {
+                events.add(new BlockEvent(BlockEvent.Type.APPLY, block));
+                lastApplied = number;
+            }
+        }
+    }
+}
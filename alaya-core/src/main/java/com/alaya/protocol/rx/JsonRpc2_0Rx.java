@@ -3,18 +3,27 @@ package com.alaya.protocol.rx;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 
 import com.alaya.protocol.core.DefaultBlockParameter;
 import com.alaya.protocol.core.DefaultBlockParameterName;
 import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.filters.*;
 import com.alaya.protocol.core.methods.request.PlatonFilter;
 import com.alaya.protocol.core.methods.response.Log;
 import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonSubscribe;
 import com.alaya.protocol.core.methods.response.PlatonTransaction;
 import com.alaya.protocol.core.methods.response.Transaction;
+import com.alaya.protocol.websocket.events.LogNotification;
+import com.alaya.protocol.websocket.events.NewHeadsNotification;
+import com.alaya.protocol.websocket.events.Notification;
+import com.alaya.protocol.websocket.events.PendingTransactionNotification;
 import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
@@ -25,44 +34,130 @@ import rx.schedulers.Schedulers;
 import rx.subscriptions.Subscriptions;
 
 import com.alaya.protocol.Web3j;
-import com.alaya.protocol.core.filters.BlockFilter;
+import com.alaya.protocol.Web3jService;
 import com.alaya.protocol.core.filters.Callback;
+import com.alaya.protocol.core.filters.FilterMultiplexer;
 import com.alaya.protocol.core.filters.LogFilter;
 import com.alaya.protocol.core.filters.PendingTransactionFilter;
 import com.alaya.utils.Observables;
 
 /**
  * web3j reactive API implementation.
+ *
+ * <p>If the underlying service supports push subscriptions, new blocks, logs and pending
+ * transactions are received via platon_subscribe instead of by polling filters.
  */
 public class JsonRpc2_0Rx {
 
+    private static final String SUBSCRIBE_METHOD = "platon_subscribe";
+    private static final String UNSUBSCRIBE_METHOD = "platon_unsubscribe";
+
     private final Web3j web3j;
+    private final Web3jService web3jService;
     private final ScheduledExecutorService scheduledExecutorService;
     private final Scheduler scheduler;
+    private final FilterMultiplexer filterMultiplexer;
 
     public JsonRpc2_0Rx(Web3j web3j, ScheduledExecutorService scheduledExecutorService) {
+        this(web3j, null, scheduledExecutorService);
+    }
+
+    public JsonRpc2_0Rx(
+            Web3j web3j, Web3jService web3jService,
+            ScheduledExecutorService scheduledExecutorService) {
         this.web3j = web3j;
+        this.web3jService = web3jService;
         this.scheduledExecutorService = scheduledExecutorService;
         this.scheduler = Schedulers.from(scheduledExecutorService);
+        this.filterMultiplexer = new FilterMultiplexer(web3j, scheduledExecutorService);
+    }
+
+    public Observable<NewHeadsNotification> newHeadsNotifications() {
+        return subscribe(Arrays.<Object>asList("newHeads"), NewHeadsNotification.class);
+    }
+
+    public Observable<LogNotification> logsNotifications(
+            List<String> addresses, List<?> topics) {
+        return subscribe(
+                Arrays.<Object>asList("logs", logsParams(addresses, topics)),
+                LogNotification.class);
+    }
+
+    public Observable<PendingTransactionNotification> newPendingTransactionsNotifications() {
+        return subscribe(
+                Arrays.<Object>asList("newPendingTransactions"),
+                PendingTransactionNotification.class);
+    }
+
+    private <T extends Notification<?>> Observable<T> subscribe(
+            List<Object> params, Class<T> notificationType) {
+        if (web3jService == null) {
+            throw new UnsupportedOperationException("No service available for subscriptions");
+        }
+        return web3jService.subscribe(
+                new Request<Object, PlatonSubscribe>(
+                        SUBSCRIBE_METHOD, params, web3jService, PlatonSubscribe.class),
+                UNSUBSCRIBE_METHOD,
+                notificationType);
+    }
+
+    private static Map<String, Object> logsParams(List<String> addresses, List<?> topics) {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        if (addresses != null && !addresses.isEmpty()) {
+            params.put("address", addresses);
+        }
+        if (topics != null && !topics.isEmpty()) {
+            params.put("topics", topics);
+        }
+        return params;
+    }
+
+    private boolean isPushSupported() {
+        return web3jService != null && web3jService.supportsSubscriptions();
     }
 
     public Observable<String> ethBlockHashObservable(final long pollingInterval) {
+        if (isPushSupported()) {
+            return newHeadsNotifications().map(new Func1<NewHeadsNotification, String>() {
+                @Override
+                public String call(NewHeadsNotification notification) {
+                    return notification.getParams().getResult().getHash();
+                }
+            });
+        }
+
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
             public void call(final Subscriber<? super String> subscriber) {
-                BlockFilter blockFilter = new BlockFilter(
-                        web3j, new Callback<String>() {
-                            @Override
-                            public void onEvent(final String value) {
-                                subscriber.onNext(value);
-                            }
-                        });
-                JsonRpc2_0Rx.this.run(blockFilter, subscriber, pollingInterval);
+                final Callback<String> callback = new Callback<String>() {
+                    @Override
+                    public void onEvent(final String value) {
+                        subscriber.onNext(value);
+                    }
+                };
+                // all subscribers share a single block filter
+                filterMultiplexer.addBlockCallback(callback, pollingInterval);
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        filterMultiplexer.removeBlockCallback(callback);
+                    }
+                }));
             }
         });
     }
 
     public Observable<String> ethPendingTransactionHashObservable(final long pollingInterval) {
+        if (isPushSupported()) {
+            return newPendingTransactionsNotifications().map(
+                    new Func1<PendingTransactionNotification, String>() {
+                        @Override
+                        public String call(PendingTransactionNotification notification) {
+                            return notification.getParams().getResult();
+                        }
+                    });
+        }
+
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
             public void call(final Subscriber<? super String> subscriber) {
@@ -81,22 +176,60 @@ public class JsonRpc2_0Rx {
     public Observable<Log> ethLogObservable(
             final PlatonFilter ethFilter,
             final long pollingInterval) {
+        if (isPushSupported() && isLive(ethFilter)) {
+            return pushedLogObservable(ethFilter);
+        }
+
         return Observable.create(new Observable.OnSubscribe<Log>() {
             @Override
             public void call(final Subscriber<? super Log> subscriber) {
-                LogFilter logFilter = new LogFilter(
-                        web3j, new Callback<Log>() {
-                            @Override
-                            public void onEvent(final Log t) {
-                                subscriber.onNext(t);
-                            }
-                        }, ethFilter);
+                final Callback<Log> callback = new Callback<Log>() {
+                    @Override
+                    public void onEvent(final Log t) {
+                        subscriber.onNext(t);
+                    }
+                };
+
+                if (!isLive(ethFilter)) {
+                    LogFilter logFilter = new LogFilter(web3j, callback, ethFilter);
+                    JsonRpc2_0Rx.this.run(logFilter, subscriber, pollingInterval);
+                    return;
+                }
 
-                JsonRpc2_0Rx.this.run(logFilter, subscriber, pollingInterval);
+                // subscribers to logs of new blocks share a filter
+                filterMultiplexer.addLogCallback(ethFilter, callback, pollingInterval);
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        filterMultiplexer.removeLogCallback(ethFilter, callback);
+                    }
+                }));
             }
         });
     }
 
+    /**
+     * A log subscription only delivers logs of new blocks, so it can only stand in for filters
+     * that don't ask for historic logs.
+     */
+    private static boolean isLive(PlatonFilter ethFilter) {
+        return isLatest(ethFilter.getFromBlock()) && isLatest(ethFilter.getToBlock());
+    }
+
+    private static boolean isLatest(DefaultBlockParameter blockParameter) {
+        return blockParameter == null || blockParameter == DefaultBlockParameterName.LATEST;
+    }
+
+    private Observable<Log> pushedLogObservable(PlatonFilter ethFilter) {
+        return logsNotifications(ethFilter.getAddress(), ethFilter.getTopics())
+                .map(new Func1<LogNotification, Log>() {
+                    @Override
+                    public Log call(LogNotification notification) {
+                        return notification.getParams().getResult();
+                    }
+                });
+    }
+
     private <T> void run(
             final Filter<T> filter,
             Subscriber<? super T> subscriber,
@@ -164,6 +297,40 @@ public class JsonRpc2_0Rx {
                 .subscribeOn(scheduler);
     }
 
+    public Observable<PlatonBlock> replayBlocksObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
+            boolean fullTransactionObjects, int batchSize, int concurrency) {
+        BigInteger startBlockNumber;
+        BigInteger endBlockNumber;
+        try {
+            startBlockNumber = getBlockNumber(startBlock);
+            endBlockNumber = getBlockNumber(endBlock);
+        } catch (IOException e) {
+            return Observable.error(e);
+        }
+
+        return new BlockReplay(web3j, batchSize, concurrency)
+                .observable(startBlockNumber, endBlockNumber, fullTransactionObjects)
+                .subscribeOn(scheduler);
+    }
+
+    public Observable<Log> replayLogsObservable(
+            PlatonFilter ethFilter, DefaultBlockParameter startBlock,
+            DefaultBlockParameter endBlock) {
+        BigInteger startBlockNumber;
+        BigInteger endBlockNumber;
+        try {
+            startBlockNumber = getBlockNumber(startBlock);
+            endBlockNumber = getBlockNumber(endBlock);
+        } catch (IOException e) {
+            return Observable.error(e);
+        }
+
+        return new LogScan(web3j)
+                .observable(ethFilter, startBlockNumber, endBlockNumber)
+                .subscribeOn(scheduler);
+    }
+
     private Observable<PlatonBlock> replayBlocksObservableSync(
             DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
             final boolean fullTransactionObjects) {
@@ -183,9 +350,10 @@ public class JsonRpc2_0Rx {
             Observable.error(e);
         }
 
+        // one block at a time, only fetched once the subscriber requests it
         if (ascending) {
             return Observables.range(startBlockNumber, endBlockNumber)
-                    .flatMap(new Func1<BigInteger, Observable<? extends PlatonBlock>>() {
+                    .concatMap(new Func1<BigInteger, Observable<? extends PlatonBlock>>() {
                         @Override
                         public Observable<? extends PlatonBlock> call(BigInteger i) {
                             return web3j.platonGetBlockByNumber(
@@ -195,7 +363,7 @@ public class JsonRpc2_0Rx {
                     });
         } else {
             return Observables.range(startBlockNumber, endBlockNumber, false)
-                    .flatMap(new Func1<BigInteger, Observable<? extends PlatonBlock>>() {
+                    .concatMap(new Func1<BigInteger, Observable<? extends PlatonBlock>>() {
                         @Override
                         public Observable<? extends PlatonBlock> call(BigInteger i) {
                             return web3j.platonGetBlockByNumber(
@@ -269,6 +437,57 @@ public class JsonRpc2_0Rx {
         }
     }
 
+    public Observable<Log> catchUpToLatestLogsObservable(
+            final PlatonFilter ethFilter, final DefaultBlockParameter startBlock,
+            final long pollingInterval) {
+        final LogBackfill logBackfill = new LogBackfill(web3j);
+        return Observable.defer(new Func0<Observable<Log>>() {
+            @Override
+            public Observable<Log> call() {
+                return catchUpToLatestLogsObservableSync(
+                        ethFilter, startBlock, logBackfill, pollingInterval);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    private Observable<Log> catchUpToLatestLogsObservableSync(
+            final PlatonFilter ethFilter, DefaultBlockParameter startBlock,
+            final LogBackfill logBackfill, final long pollingInterval) {
+
+        BigInteger startBlockNumber;
+        final BigInteger latestBlockNumber;
+        try {
+            startBlockNumber = getBlockNumber(startBlock);
+            latestBlockNumber = getLatestBlockNumber();
+        } catch (IOException e) {
+            return Observable.error(e);
+        }
+
+        if (startBlockNumber.compareTo(latestBlockNumber) > -1) {
+            // the filter delivers the logs from its first block before any new ones
+            return ethLogObservable(
+                    LogBackfill.withRange(
+                            ethFilter,
+                            new DefaultBlockParameterNumber(startBlockNumber),
+                            DefaultBlockParameterName.LATEST),
+                    pollingInterval);
+        } else {
+            return Observable.concat(
+                    logBackfill.observable(ethFilter, startBlockNumber, latestBlockNumber),
+                    Observable.defer(new Func0<Observable<Log>>() {
+                        @Override
+                        public Observable<Log> call() {
+                            return JsonRpc2_0Rx.this.catchUpToLatestLogsObservableSync(
+                                    ethFilter,
+                                    new DefaultBlockParameterNumber(
+                                            latestBlockNumber.add(BigInteger.ONE)),
+                                    logBackfill,
+                                    pollingInterval);
+                        }
+                    }));
+        }
+    }
+
     public Observable<Transaction> catchUpToLatestTransactionObservable(
             DefaultBlockParameter startBlock) {
         return catchUpToLatestBlockObservable(
@@ -302,6 +521,45 @@ public class JsonRpc2_0Rx {
                 });
     }
 
+    public Observable<BlockEvent> blockEventObservable(
+            boolean fullTransactionObjects, int confirmations, long pollingInterval) {
+        return toBlockEvents(
+                blockObservable(fullTransactionObjects, pollingInterval),
+                fullTransactionObjects, confirmations);
+    }
+
+    public Observable<BlockEvent> catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects,
+            int confirmations, long pollingInterval) {
+        return toBlockEvents(
+                catchUpToLatestAndSubscribeToNewBlocksObservable(
+                        startBlock, fullTransactionObjects, pollingInterval),
+                fullTransactionObjects, confirmations);
+    }
+
+    private Observable<BlockEvent> toBlockEvents(
+            final Observable<PlatonBlock> blocks, final boolean fullTransactionObjects,
+            final int confirmations) {
+        // a tracker per subscriber, following the chain as that subscriber sees it
+        return Observable.defer(new Func0<Observable<BlockEvent>>() {
+            @Override
+            public Observable<BlockEvent> call() {
+                final ChainTracker chainTracker =
+                        new ChainTracker(web3j, fullTransactionObjects, confirmations);
+                return blocks.concatMap(new Func1<PlatonBlock, Observable<BlockEvent>>() {
+                    @Override
+                    public Observable<BlockEvent> call(PlatonBlock ethBlock) {
+                        try {
+                            return Observable.from(chainTracker.update(ethBlock.getBlock()));
+                        } catch (IOException e) {
+                            return Observable.error(e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
     private BigInteger getLatestBlockNumber() throws IOException {
         return getBlockNumber(DefaultBlockParameterName.LATEST);
     }
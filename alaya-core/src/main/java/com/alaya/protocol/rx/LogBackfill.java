@@ -0,0 +1,231 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+
+/**
+ * Fetches the logs of a range of blocks with platon_getLogs, in chunks of blocks small enough
+ * for the node to answer.
+ *
+ * <p>The chunk size adapts to the responses. It doubles while chunks come back quickly with
+ * few logs, and halves when they are slow or large. A chunk the node fails to answer is split
+ * in two and each half is requested on its own, only a single block failing fails the
+ * backfill. Several chunks are requested at once, their logs are emitted in block order.
+ *
+ * <p>The counters cover all backfills run by this instance.
+ */
+public class LogBackfill {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int MAX_CHUNK_SIZE = 100000;
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    // chunks beyond either target shrink, chunks within half of both grow
+    static final int TARGET_LOGS = 5000;
+    static final long TARGET_LATENCY = TimeUnit.SECONDS.toNanos(2);
+
+    private final Web3j web3j;
+    private final int concurrency;
+
+    private final AtomicInteger chunkSize;
+    private final LongAdder logCount = new LongAdder();
+    private final LongAdder chunkCount = new LongAdder();
+    private final LongAdder splitCount = new LongAdder();
+
+    public LogBackfill(Web3j web3j) {
+        this(web3j, DEFAULT_CHUNK_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a backfill.
+     *
+     * @param web3j the client the logs are requested with
+     * @param initialChunkSize the number of blocks per request to start with
+     * @param concurrency the number of requests in flight at most
+     */
+    public LogBackfill(Web3j web3j, int initialChunkSize, int concurrency) {
+        if (initialChunkSize < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("Chunk size and concurrency must be positive");
+        }
+        this.web3j = web3j;
+        this.chunkSize = new AtomicInteger(Math.min(initialChunkSize, MAX_CHUNK_SIZE));
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Create an Observable that emits the logs of a range of blocks matching a filter.
+     *
+     * @param ethFilter the filter, its block range is ignored
+     * @param startBlock number of the first block
+     * @param endBlock number of the last block, included
+     * @return Observable to emit these logs in the order they appear on the chain
+     */
+    public Observable<Log> observable(
+            final PlatonFilter ethFilter, BigInteger startBlock, BigInteger endBlock) {
+        return Observable.from(chunks(startBlock, endBlock))
+                .concatMapEager(new Func1<BigInteger[], Observable<List<Log>>>() {
+                    @Override
+                    public Observable<List<Log>> call(BigInteger[] chunk) {
+                        return fetch(ethFilter, chunk[0], chunk[1]);
+                    }
+                }, 1, concurrency)
+                .concatMapIterable(LogRangeRequest.flatten());
+    }
+
+    /**
+     * The first and last block number of every chunk, sized as the chunk is requested.
+     */
+    private Iterable<BigInteger[]> chunks(
+            final BigInteger startBlock, final BigInteger endBlock) {
+        if (startBlock.signum() < 0 || startBlock.compareTo(endBlock) > 0) {
+            throw new IllegalArgumentException("Invalid block range");
+        }
+        return new Iterable<BigInteger[]>() {
+            @Override
+            public Iterator<BigInteger[]> iterator() {
+                return new Iterator<BigInteger[]>() {
+                    private BigInteger next = startBlock;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next.compareTo(endBlock) <= 0;
+                    }
+
+                    @Override
+                    public BigInteger[] next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        BigInteger from = next;
+                        BigInteger to = from.add(BigInteger.valueOf(chunkSize.get() - 1))
+                                .min(endBlock);
+                        next = to.add(BigInteger.ONE);
+                        return new BigInteger[] {from, to};
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Fetch the logs of a chunk, splitting it if the node fails to answer. The logs of a split
+     * chunk are still emitted as a single list.
+     */
+    private Observable<List<Log>> fetch(
+            final PlatonFilter ethFilter, final BigInteger from, final BigInteger to) {
+        return request(ethFilter, from, to)
+                .onErrorResumeNext(new Func1<Throwable, Observable<List<Log>>>() {
+                    @Override
+                    public Observable<List<Log>> call(Throwable throwable) {
+                        if (from.equals(to)) {
+                            return Observable.error(throwable);
+                        }
+                        splitCount.increment();
+                        shrink(to.subtract(from).intValue() + 1);
+
+                        BigInteger middle = from.add(to).shiftRight(1);
+                        return Observable.concat(
+                                fetch(ethFilter, from, middle),
+                                fetch(ethFilter, middle.add(BigInteger.ONE), to))
+                                .concatMapIterable(LogRangeRequest.flatten())
+                                .toList();
+                    }
+                });
+    }
+
+    /**
+     * Request the logs of a chunk, which are only emitted once all of them are received.
+     */
+    private Observable<List<Log>> request(
+            PlatonFilter ethFilter, final BigInteger from, final BigInteger to) {
+        return LogRangeRequest.observable(web3j, ethFilter, from, to,
+                new LogRangeRequest.Listener() {
+                    @Override
+                    public void received(List<Log> logs, long latencyNanos) {
+                        adapt(to.subtract(from).intValue() + 1, logs.size(), latencyNanos);
+                        chunkCount.increment();
+                        logCount.add(logs.size());
+                    }
+                });
+    }
+
+    /**
+     * Adapt the chunk size to a chunk received, as long as it was requested at about the
+     * current size.
+     */
+    private void adapt(int size, int logs, long latency) {
+        if (logs > TARGET_LOGS || latency > TARGET_LATENCY) {
+            shrink(size);
+        } else if (logs < TARGET_LOGS / 2 && latency < TARGET_LATENCY / 2) {
+            int current = chunkSize.get();
+            if (size >= current && current < MAX_CHUNK_SIZE) {
+                chunkSize.compareAndSet(current, Math.min(current * 2, MAX_CHUNK_SIZE));
+            }
+        }
+    }
+
+    private void shrink(int size) {
+        int current = chunkSize.get();
+        // chunks planned before an earlier decrease don't count
+        if (size >= current && current > 1) {
+            chunkSize.compareAndSet(current, Math.max(current / 2, 1));
+        }
+    }
+
+    /**
+     * Copy a filter with another block range.
+     */
+    static PlatonFilter withRange(PlatonFilter ethFilter, BigInteger from, BigInteger to) {
+        return withRange(ethFilter, new DefaultBlockParameterNumber(from),
+                new DefaultBlockParameterNumber(to));
+    }
+
+    static PlatonFilter withRange(
+            PlatonFilter ethFilter, DefaultBlockParameter from, DefaultBlockParameter to) {
+        PlatonFilter copy = new PlatonFilter(from, to, ethFilter.getAddress());
+        copy.getTopics().addAll(ethFilter.getTopics());
+        return copy;
+    }
+
+    /**
+     * The number of blocks currently requested per chunk.
+     */
+    public int getChunkSize() {
+        return chunkSize.get();
+    }
+
+    /**
+     * The number of logs received.
+     */
+    public long getLogCount() {
+        return logCount.sum();
+    }
+
+    /**
+     * The number of chunks received.
+     */
+    public long getChunkCount() {
+        return chunkCount.sum();
+    }
+
+    /**
+     * The number of chunks split after the node failed to answer them.
+     */
+    public long getSplitCount() {
+        return splitCount.sum();
+    }
+}
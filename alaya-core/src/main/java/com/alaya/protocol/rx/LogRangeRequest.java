@@ -0,0 +1,134 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Func1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.filters.FilterException;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonLog;
+
+/**
+ * Requests the logs of a range of blocks with a single platon_getLogs, and emits them as a
+ * single list once all of them are received.
+ *
+ * <p>Emitting the logs of a range as one item keeps the buffers of operators such as
+ * concatMapEager, which hold back the ranges received ahead of the ranges before them, to one
+ * slot per range however many logs it has. The lists are flattened after that operator.
+ */
+final class LogRangeRequest {
+
+    /**
+     * Told about the logs of a range as they are received, before they are emitted.
+     */
+    interface Listener {
+        void received(List<Log> logs, long latencyNanos);
+    }
+
+    private LogRangeRequest() {
+    }
+
+    /**
+     * Create an Observable that requests the logs of a range of blocks when subscribed to.
+     *
+     * @param web3j the client the logs are requested with
+     * @param ethFilter the filter, its block range is ignored
+     * @param from number of the first block
+     * @param to number of the last block, included
+     * @param listener told about the logs received
+     * @return Observable to emit a list of these logs, in the order they appear on the chain
+     */
+    static Observable<List<Log>> observable(
+            final Web3j web3j, final PlatonFilter ethFilter, final BigInteger from,
+            final BigInteger to, final Listener listener) {
+        return Observable.create(new Observable.OnSubscribe<List<Log>>() {
+            @Override
+            public void call(final Subscriber<? super List<Log>> subscriber) {
+                final long start = System.nanoTime();
+                web3j.platonGetLogs(LogBackfill.withRange(ethFilter, from, to)).sendAsync()
+                        .whenComplete(new BiConsumer<PlatonLog, Throwable>() {
+                            @Override
+                            public void accept(PlatonLog ethLog, Throwable error) {
+                                emit(subscriber, ethLog, error, System.nanoTime() - start,
+                                        listener);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Emit the logs received. Runs as a callback of the future of the response, which would
+     * swallow anything thrown, so every failure goes to the subscriber instead.
+     */
+    private static void emit(
+            Subscriber<? super List<Log>> subscriber, PlatonLog ethLog, Throwable error,
+            long latencyNanos, Listener listener) {
+        List<Log> logs = null;
+        if (error == null) {
+            try {
+                if (ethLog.hasError()) {
+                    throw new FilterException(
+                            "Invalid request: " + ethLog.getError().getMessage());
+                }
+                logs = toLogs(ethLog);
+                listener.received(logs, latencyNanos);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            subscriber.onError(error);
+            return;
+        }
+
+        if (subscriber.isUnsubscribed()) {
+            return;
+        }
+        try {
+            subscriber.onNext(logs);
+        } catch (Throwable e) {
+            Exceptions.throwOrReport(e, subscriber, logs);
+            return;
+        }
+        subscriber.onCompleted();
+    }
+
+    /**
+     * Flattens the lists of logs emitted, for {@link Observable#concatMapIterable(Func1)}.
+     */
+    static Func1<List<Log>, Iterable<Log>> flatten() {
+        return new Func1<List<Log>, Iterable<Log>>() {
+            @Override
+            public Iterable<Log> call(List<Log> logs) {
+                return logs;
+            }
+        };
+    }
+
+    static List<Log> toLogs(PlatonLog ethLog) {
+        List<PlatonLog.LogResult> logResults = ethLog.getLogs();
+        if (logResults == null) {
+            return new ArrayList<Log>();
+        }
+
+        List<Log> logs = new ArrayList<Log>(logResults.size());
+        for (PlatonLog.LogResult logResult : logResults) {
+            if (logResult instanceof PlatonLog.LogObject) {
+                logs.add(((PlatonLog.LogObject) logResult).get());
+            } else {
+                throw new FilterException(
+                        "Unexpected result type: " + logResult.get() + " required LogObject");
+            }
+        }
+        return logs;
+    }
+}
@@ -0,0 +1,125 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.filters.FilterException;
+import com.alaya.protocol.core.filters.LogsBloomMatcher;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+
+/**
+ * Scans a range of blocks for the logs matching a filter, only requesting the logs of the
+ * blocks whose logs bloom may contain some.
+ *
+ * <p>Block headers are replayed in batches, and checked against the filter with a
+ * {@link LogsBloomMatcher}. The logs of the candidate blocks are then requested one block at
+ * a time, several at once, and emitted in block order. For filters on contracts emitting few
+ * events, most blocks are skipped without requesting their logs.
+ *
+ * <p>The counters cover all scans run by this instance.
+ */
+public class LogScan {
+
+    private final Web3j web3j;
+    private final BlockReplay blockReplay;
+    private final int concurrency;
+
+    private final LongAdder candidateCount = new LongAdder();
+    private final LongAdder logCount = new LongAdder();
+
+    public LogScan(Web3j web3j) {
+        this(web3j, BlockReplay.DEFAULT_BATCH_SIZE, BlockReplay.DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Create a scan.
+     *
+     * @param web3j the client the blocks and logs are requested with
+     * @param batchSize the number of block headers per batch
+     * @param concurrency the number of batches, and of log requests, in flight at most
+     */
+    public LogScan(Web3j web3j, int batchSize, int concurrency) {
+        this.web3j = web3j;
+        this.blockReplay = new BlockReplay(web3j, batchSize, concurrency);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Create an Observable that emits the logs of a range of blocks matching a filter.
+     *
+     * @param ethFilter the filter, its block range is ignored
+     * @param startBlock number of the first block
+     * @param endBlock number of the last block, included
+     * @return Observable to emit these logs in the order they appear on the chain
+     */
+    public Observable<Log> observable(
+            final PlatonFilter ethFilter, BigInteger startBlock, BigInteger endBlock) {
+        final LogsBloomMatcher matcher = new LogsBloomMatcher(ethFilter);
+        return blockReplay.observable(startBlock, endBlock, false)
+                .filter(new Func1<PlatonBlock, Boolean>() {
+                    @Override
+                    public Boolean call(PlatonBlock block) {
+                        PlatonBlock.Block header = block.getBlock();
+                        if (header == null) {
+                            // thrown in an operator, the scan fails rather than skip the block
+                            throw new FilterException(block.hasError()
+                                    ? "Invalid request: " + block.getError().getMessage()
+                                    : "Block of the scanned range not found");
+                        }
+                        boolean candidate = matcher.matches(header);
+                        if (candidate) {
+                            candidateCount.increment();
+                        }
+                        return candidate;
+                    }
+                })
+                .concatMapEager(new Func1<PlatonBlock, Observable<List<Log>>>() {
+                    @Override
+                    public Observable<List<Log>> call(PlatonBlock block) {
+                        return request(ethFilter, block.getBlock().getNumber());
+                    }
+                }, 1, concurrency)
+                .concatMapIterable(LogRangeRequest.flatten());
+    }
+
+    /**
+     * Request the logs of a block, emitted as a single list.
+     */
+    private Observable<List<Log>> request(PlatonFilter ethFilter, BigInteger number) {
+        return LogRangeRequest.observable(web3j, ethFilter, number, number,
+                new LogRangeRequest.Listener() {
+                    @Override
+                    public void received(List<Log> logs, long latencyNanos) {
+                        logCount.add(logs.size());
+                    }
+                });
+    }
+
+    /**
+     * The number of block headers checked.
+     */
+    public long getBlockCount() {
+        return blockReplay.getBlockCount();
+    }
+
+    /**
+     * The number of blocks whose logs were requested.
+     */
+    public long getCandidateCount() {
+        return candidateCount.sum();
+    }
+
+    /**
+     * The number of logs received.
+     */
+    public long getLogCount() {
+        return logCount.sum();
+    }
+}
@@ -1,10 +1,15 @@
 package com.alaya.protocol.rx;
 
+import java.util.List;
+
 import com.alaya.protocol.core.DefaultBlockParameter;
 import com.alaya.protocol.core.methods.request.PlatonFilter;
 import com.alaya.protocol.core.methods.response.Log;
 import com.alaya.protocol.core.methods.response.PlatonBlock;
 import com.alaya.protocol.core.methods.response.Transaction;
+import com.alaya.protocol.websocket.events.LogNotification;
+import com.alaya.protocol.websocket.events.NewHeadsNotification;
+import com.alaya.protocol.websocket.events.PendingTransactionNotification;
 import rx.Observable;
 
 /**
@@ -91,6 +96,37 @@ public interface Web3jRx {
             DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
             boolean fullTransactionObjects, boolean ascending);
 
+    /**
+     * Create an Observable that emits all blocks from the blockchain contained within the
+     * requested range in ascending order, requesting them in batches with several batches in
+     * flight. Use a {@link BlockReplay} directly to follow its throughput.
+     *
+     * @param startBlock block number to commence with
+     * @param endBlock block number to finish with
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *                               transaction hashes
+     * @param batchSize the number of blocks requested per batch
+     * @param concurrency the number of batches in flight at most
+     * @return Observable to emit these blocks
+     */
+    Observable<PlatonBlock> replayBlocksObservable(
+            DefaultBlockParameter startBlock, DefaultBlockParameter endBlock,
+            boolean fullTransactionObjects, int batchSize, int concurrency);
+
+    /**
+     * Create an Observable that emits the logs matching a filter within the requested range,
+     * only requesting the logs of the blocks whose logs bloom may contain some. Use a
+     * {@link LogScan} directly to follow how many blocks were skipped.
+     *
+     * @param ethFilter filter criteria, its block range is ignored
+     * @param startBlock block number to commence with
+     * @param endBlock block number to finish with
+     * @return Observable to emit these logs in the order they appear on the chain
+     */
+    Observable<Log> replayLogsObservable(
+            PlatonFilter ethFilter, DefaultBlockParameter startBlock,
+            DefaultBlockParameter endBlock);
+
     /**
      * Create an Observable that emits all transactions from the blockchain contained within the
      * requested range.
@@ -166,4 +202,70 @@ public interface Web3jRx {
      */
     Observable<Transaction> catchUpToLatestAndSubscribeToNewTransactionsObservable(
             DefaultBlockParameter startBlock);
+
+    /**
+     * Create an Observable that follows the canonical chain as new blocks are created, emitting
+     * an event for every block applied once buried under the given number of confirmations,
+     * and for every applied block rolled back by a reorganisation.
+     *
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *                               transaction hashes
+     * @param confirmations the number of blocks on top of a block before it is applied
+     * @return Observable to emit these events, rollbacks of the highest blocks first
+     */
+    Observable<BlockEvent> blockEventObservable(
+            boolean fullTransactionObjects, int confirmations);
+
+    /**
+     * As per {@link #blockEventObservable(boolean, int)}, starting from the requested block
+     * number.
+     *
+     * @param startBlock the block number we wish to request from
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *                               transaction hashes
+     * @param confirmations the number of blocks on top of a block before it is applied
+     * @return Observable to emit all requested events and future
+     */
+    Observable<BlockEvent> catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects,
+            int confirmations);
+
+    /**
+     * Creates an Observable that emits all logs matching a filter from the requested block
+     * number onwards. Past logs are fetched with platon_getLogs in chunks adapted to what the
+     * node can answer, once the most current block is reached the Observable continues with
+     * the logs of new blocks.
+     *
+     * @param ethFilter filter criteria, its block range is ignored
+     * @param startBlock the block number we wish to request from
+     * @return Observable to emit all requested logs and future
+     */
+    Observable<Log> catchUpToLatestLogsObservable(
+            PlatonFilter ethFilter, DefaultBlockParameter startBlock);
+
+    /**
+     * Create an Observable of the headers of new blocks, pushed by the node as they are added
+     * to the blockchain. Requires a service supporting subscriptions, i.e. WebSocket.
+     *
+     * @return Observable that emits a notification for every new block header
+     */
+    Observable<NewHeadsNotification> newHeadsNotifications();
+
+    /**
+     * Create an Observable of new logs matching the given criteria, pushed by the node as they
+     * are included in new blocks. Requires a service supporting subscriptions, i.e. WebSocket.
+     *
+     * @param addresses only logs emitted by these contracts, or all logs if empty
+     * @param topics only logs with these topics, or all logs if empty
+     * @return Observable that emits a notification for every matching log
+     */
+    Observable<LogNotification> logsNotifications(List<String> addresses, List<String> topics);
+
+    /**
+     * Create an Observable of the hashes of transactions added to the node's pending state.
+     * Requires a service supporting subscriptions, i.e. WebSocket.
+     *
+     * @return Observable that emits a notification for every new pending transaction
+     */
+    Observable<PendingTransactionNotification> newPendingTransactionsNotifications();
 }
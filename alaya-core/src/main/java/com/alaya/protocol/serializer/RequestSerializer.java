@@ -0,0 +1,91 @@
+package com.alaya.protocol.serializer;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.request.Transaction;
+
+/**
+ * A jackson serializer writing the JSON-RPC envelope of requests directly.
+ *
+ * <p>The params most requests are made of, strings, booleans, block parameters and
+ * transactions, are written without going through bean introspection. Any other param is
+ * serialized as jackson would.
+ */
+public class RequestSerializer extends StdSerializer<Request> {
+
+    public RequestSerializer() {
+        super(Request.class);
+    }
+
+    @Override
+    public void serialize(
+            Request request, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("jsonrpc", request.getJsonrpc());
+        generator.writeStringField("method", request.getMethod());
+
+        generator.writeFieldName("params");
+        List<?> params = request.getParams();
+        if (params == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray();
+            for (Object param : params) {
+                writeParam(param, generator, provider);
+            }
+            generator.writeEndArray();
+        }
+
+        generator.writeNumberField("id", request.getId());
+        generator.writeEndObject();
+    }
+
+    private static void writeParam(
+            Object param, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        if (param == null) {
+            generator.writeNull();
+        } else if (param instanceof String) {
+            generator.writeString((String) param);
+        } else if (param instanceof Boolean) {
+            generator.writeBoolean((Boolean) param);
+        } else if (param instanceof DefaultBlockParameter) {
+            generator.writeString(((DefaultBlockParameter) param).getValue());
+        } else if (param.getClass() == Transaction.class) {
+            writeTransaction((Transaction) param, generator);
+        } else {
+            provider.defaultSerializeValue(param, generator);
+        }
+    }
+
+    /**
+     * Write a transaction as its bean serializer would, leaving out the fields not set.
+     */
+    private static void writeTransaction(Transaction transaction, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartObject();
+        writeOptionalField("from", transaction.getFrom(), generator);
+        writeOptionalField("to", transaction.getTo(), generator);
+        writeOptionalField("gas", transaction.getGas(), generator);
+        writeOptionalField("gasPrice", transaction.getGasPrice(), generator);
+        writeOptionalField("value", transaction.getValue(), generator);
+        writeOptionalField("data", transaction.getData(), generator);
+        writeOptionalField("nonce", transaction.getNonce(), generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeOptionalField(String name, String value, JsonGenerator generator)
+            throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.alaya.protocol.websocket;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A request sent over a WebSocket connection, waiting for its reply.
+ *
+ * @param <T> the type of the reply
+ */
+class WebSocketRequest<T> {
+
+    private final CompletableFuture<T> onReply;
+    private final Class<T> responseType;
+    private volatile ScheduledFuture<?> timeout;
+
+    WebSocketRequest(CompletableFuture<T> onReply, Class<T> responseType) {
+        this.onReply = onReply;
+        this.responseType = responseType;
+    }
+
+    CompletableFuture<T> getOnReply() {
+        return onReply;
+    }
+
+    Class<T> getResponseType() {
+        return responseType;
+    }
+
+    void setTimeout(ScheduledFuture<?> timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Cancel the timeout of the request, once it's no longer waiting for its reply.
+     */
+    void cancelTimeout() {
+        ScheduledFuture<?> timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package com.alaya.protocol.websocket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonSubscribe;
+import com.alaya.protocol.core.methods.response.PlatonUnsubscribe;
+import com.alaya.protocol.websocket.events.Notification;
+import com.alaya.utils.Async;
+
+/**
+ * WebSocket implementation of our services API.
+ *
+ * <p>All requests share one connection and are matched to their replies by id, so any number
+ * of requests can be in flight at once. In addition to request/response calls the service
+ * supports push subscriptions (platon_subscribe). Replies are completed on an executor and
+ * notifications are emitted one at a time, in the order they arrive, on a thread of the service,
+ * neither on the connection's reader thread. Callbacks and subscribers may therefore send requests
+ * and wait for their replies, which only the reader thread can receive. Slow subscribers should
+ * still hand notifications off via {@link Observable#observeOn(rx.Scheduler)}, they hold up the
+ * notifications of every other subscription.
+ *
+ * <p>{@link #connect()} has to be called before the service can be used.
+ */
+public class WebSocketService implements Web3jService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketService.class);
+
+    public static final String DEFAULT_URL = "ws://localhost:8546/";
+
+    // Timeout for JSON-RPC requests
+    static final long REQUEST_TIMEOUT = 60;
+
+    private static final int NORMAL_CLOSURE = 1000;
+
+    private final OkHttpClient httpClient;
+    private final String url;
+    private final ObjectMapper objectMapper;
+    private final boolean includeRawResponses;
+    private final ScheduledThreadPoolExecutor timeoutExecutor;
+    private final Executor replyExecutor;
+    private final ExecutorService notificationExecutor;
+
+    private volatile WebSocket webSocket;
+    private volatile boolean closed;
+
+    // Requests waiting for a reply, batches are registered under the id of each element
+    private final Map<Long, WebSocketRequest<?>> requestForId =
+            new ConcurrentHashMap<Long, WebSocketRequest<?>>();
+    private final Map<Long, WebSocketBatch> batchForId =
+            new ConcurrentHashMap<Long, WebSocketBatch>();
+
+    // Subscriptions waiting for the reply to their subscribe request
+    private final Map<Long, WebSocketSubscription<?>> subscriptionRequestForId =
+            new ConcurrentHashMap<Long, WebSocketSubscription<?>>();
+    // Established subscriptions
+    private final Map<String, WebSocketSubscription<?>> subscriptionForId =
+            new ConcurrentHashMap<String, WebSocketSubscription<?>>();
+
+    /**
+     * Create a service.
+     *
+     * @param url the URL of the node
+     * @param httpClient the client opening the connection
+     * @param includeRawResponses whether to keep the raw JSON of responses
+     * @param replyExecutor the executor completing the replies, and running the callbacks of
+     *                      the callers
+     */
+    public WebSocketService(
+            String url, OkHttpClient httpClient, boolean includeRawResponses,
+            Executor replyExecutor) {
+        this.url = url;
+        this.httpClient = httpClient;
+        this.includeRawResponses = includeRawResponses;
+        this.replyExecutor = replyExecutor;
+        this.objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        this.timeoutExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "web3j-websocket-timeout");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // a timeout cancelled once its reply is received doesn't hold on to it until it's due
+        this.timeoutExecutor.setRemoveOnCancelPolicy(true);
+        this.notificationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "web3j-websocket-notifications");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public WebSocketService(String url, OkHttpClient httpClient, boolean includeRawResponses) {
+        this(url, httpClient, includeRawResponses, Async.executor());
+    }
+
+    public WebSocketService(String url, boolean includeRawResponses) {
+        this(url, new OkHttpClient(), includeRawResponses);
+    }
+
+    public WebSocketService(String url) {
+        this(url, false);
+    }
+
+    public WebSocketService() {
+        this(DEFAULT_URL);
+    }
+
+    /**
+     * Open the WebSocket connection, blocking until it is established.
+     *
+     * @throws ConnectException if the connection could not be established
+     */
+    public void connect() throws ConnectException {
+        final CompletableFuture<Void> opened = new CompletableFuture<Void>();
+        okhttp3.Request request = new okhttp3.Request.Builder().url(url).build();
+        webSocket = httpClient.newWebSocket(request, new Listener(opened));
+
+        try {
+            opened.get(REQUEST_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while connecting to " + url);
+        } catch (ExecutionException | TimeoutException e) {
+            ConnectException connectException =
+                    new ConnectException("Failed to connect to WebSocket " + url);
+            connectException.initCause(e instanceof ExecutionException ? e.getCause() : e);
+            throw connectException;
+        }
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType)
+            throws IOException {
+        return get(sendAsync(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        long requestId = request.getId();
+        WebSocketRequest<T> webSocketRequest = new WebSocketRequest<T>(result, responseType);
+        requestForId.put(requestId, webSocketRequest);
+        webSocketRequest.setTimeout(scheduleRequestTimeout(requestId, result));
+
+        try {
+            sendText(objectMapper.writeValueAsString(request));
+        } catch (IOException e) {
+            requestForId.remove(requestId);
+            webSocketRequest.cancelTimeout();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return get(sendBatchAsync(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        CompletableFuture<BatchResponse> result = new CompletableFuture<BatchResponse>();
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            result.complete(
+                    new BatchResponse(requests, Collections.<Response<?>>emptyList()));
+            return result;
+        }
+
+        WebSocketBatch batch = new WebSocketBatch(requests, result);
+        for (Request<?, ? extends Response<?>> request : requests) {
+            batchForId.put(request.getId(), batch);
+        }
+
+        long batchId = requests.get(0).getId();
+        batch.timeout = scheduleBatchTimeout(batchId, result);
+        try {
+            sendText(objectMapper.writeValueAsString(requests));
+        } catch (IOException e) {
+            removeBatch(batch);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            final Request request, final String unsubscribeMethod, final Class<T> responseType) {
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(Subscriber<? super T> subscriber) {
+                // A fresh request per subscriber, so that every subscription has its own id
+                List<?> params = ((Request<?, ?>) request).getParams();
+                Request<?, PlatonSubscribe> subscribeRequest = new Request<Object, PlatonSubscribe>(
+                        request.getMethod(), new ArrayList<Object>(params),
+                        WebSocketService.this, PlatonSubscribe.class);
+
+                final WebSocketSubscription<T> subscription = new WebSocketSubscription<T>(
+                        subscriber, responseType, unsubscribeMethod);
+                subscriptionRequestForId.put(subscribeRequest.getId(), subscription);
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        unsubscribe(subscription);
+                    }
+                }));
+
+                sendAsync(subscribeRequest, PlatonSubscribe.class).whenComplete(
+                        new BiConsumer<PlatonSubscribe, Throwable>() {
+                            @Override
+                            public void accept(PlatonSubscribe reply, Throwable throwable) {
+                                if (throwable != null) {
+                                    subscription.getSubscriber().onError(throwable);
+                                } else if (reply.hasError()) {
+                                    subscription.getSubscriber().onError(new IOException(
+                                            "Subscription request failed: "
+                                                    + reply.getError().getMessage()));
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (webSocket != null) {
+            webSocket.close(NORMAL_CLOSURE, "Closing");
+        }
+        closeOutstanding(new IOException("WebSocket connection was closed"));
+        timeoutExecutor.shutdownNow();
+        // the subscribers are still told about the notifications already received
+        notificationExecutor.shutdown();
+    }
+
+    private void sendText(String payload) throws IOException {
+        WebSocket socket = webSocket;
+        if (socket == null || closed) {
+            throw new IOException("WebSocket is not connected, call connect() first");
+        }
+        if (!socket.send(payload)) {
+            throw new IOException("WebSocket connection is closing, request was not sent");
+        }
+    }
+
+    private <T> T get(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for reply");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to process request", e.getCause());
+        }
+    }
+
+    private <T> void complete(final CompletableFuture<T> reply, final T response) {
+        execute(replyExecutor, new Runnable() {
+            @Override
+            public void run() {
+                reply.complete(response);
+            }
+        });
+    }
+
+    private void fail(final CompletableFuture<?> reply, final Throwable cause) {
+        execute(replyExecutor, new Runnable() {
+            @Override
+            public void run() {
+                reply.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * Run a task delivering a notification, or ending a subscription, after those before it.
+     */
+    private void deliver(final Runnable task) {
+        execute(notificationExecutor, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    log.error("Failed to deliver notification received over WebSocket", e);
+                }
+            }
+        });
+    }
+
+    private static void execute(Executor executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the executor is shut down, run the task here rather than dropping it
+            task.run();
+        }
+    }
+
+    private ScheduledFuture<?> scheduleRequestTimeout(
+            final long requestId, final CompletableFuture<?> result) {
+        return timeoutExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (requestForId.remove(requestId) != null) {
+                    subscriptionRequestForId.remove(requestId);
+                    result.completeExceptionally(new IOException(
+                            "Request with id " + requestId + " timed out"));
+                }
+            }
+        }, REQUEST_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private ScheduledFuture<?> scheduleBatchTimeout(
+            final long batchId, final CompletableFuture<?> result) {
+        return timeoutExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                WebSocketBatch batch = batchForId.get(batchId);
+                if (batch != null) {
+                    removeBatch(batch);
+                    result.completeExceptionally(new IOException(
+                            "Batch with id " + batchId + " timed out"));
+                }
+            }
+        }, REQUEST_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    private void removeBatch(WebSocketBatch batch) {
+        for (Request<?, ? extends Response<?>> request : batch.requests) {
+            batchForId.remove(request.getId());
+        }
+        batch.cancelTimeout();
+    }
+
+    /**
+     * The number of timeouts scheduled, of requests and batches waiting for their reply.
+     */
+    int getScheduledTimeouts() {
+        return timeoutExecutor.getQueue().size();
+    }
+
+    void onMessage(String message) throws IOException {
+        JsonNode reply = objectMapper.readTree(message);
+
+        if (reply.isArray()) {
+            processBatchReply(reply);
+        } else if (reply.has("id")) {
+            processRequestReply(reply, message);
+        } else if (reply.has("method")) {
+            processNotification(reply, message);
+        } else {
+            throw new IOException("Unknown message type: " + message);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processRequestReply(JsonNode reply, String message) throws IOException {
+        long replyId = reply.get("id").asLong();
+        WebSocketRequest<Object> request = (WebSocketRequest<Object>) requestForId.remove(replyId);
+        if (request == null) {
+            log.warn("Received reply for unknown request id {}", replyId);
+            return;
+        }
+        request.cancelTimeout();
+
+        Object response;
+        try {
+            response = objectMapper.treeToValue(reply, request.getResponseType());
+        } catch (IOException e) {
+            subscriptionRequestForId.remove(replyId);
+            fail(request.getOnReply(), e);
+            return;
+        }
+        if (includeRawResponses) {
+            ((Response<?>) response).setRawResponse(message);
+        }
+
+        WebSocketSubscription<?> subscription = subscriptionRequestForId.remove(replyId);
+        if (subscription != null && response instanceof PlatonSubscribe
+                && !((PlatonSubscribe) response).hasError()) {
+            establishSubscription(subscription, ((PlatonSubscribe) response).getSubscriptionId());
+        }
+
+        complete(request.getOnReply(), response);
+    }
+
+    private void processBatchReply(JsonNode reply) throws IOException {
+        if (reply.size() == 0) {
+            throw new IOException("Received empty batch reply");
+        }
+
+        long replyId = reply.get(0).path("id").asLong();
+        WebSocketBatch batch = batchForId.get(replyId);
+        if (batch == null) {
+            log.warn("Received reply for unknown batch containing id {}", replyId);
+            return;
+        }
+        removeBatch(batch);
+
+        Map<Long, JsonNode> nodesById = new HashMap<Long, JsonNode>(reply.size() * 2);
+        for (JsonNode node : reply) {
+            nodesById.put(node.path("id").asLong(), node);
+        }
+
+        try {
+            List<Response<?>> responses = new ArrayList<Response<?>>(batch.requests.size());
+            for (Request<?, ? extends Response<?>> request : batch.requests) {
+                JsonNode node = nodesById.get(request.getId());
+                if (node == null) {
+                    throw new IOException("No response received for request with id "
+                            + request.getId() + " (" + request.getMethod() + ")");
+                }
+                Response<?> response = objectMapper.treeToValue(node, request.getResponseType());
+                if (includeRawResponses) {
+                    response.setRawResponse(node.toString());
+                }
+                responses.add(response);
+            }
+            complete(batch.onReply, new BatchResponse(batch.requests, responses));
+        } catch (IOException e) {
+            fail(batch.onReply, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processNotification(JsonNode reply, String message) throws IOException {
+        String subscriptionId = reply.path("params").path("subscription").asText();
+        final WebSocketSubscription<Object> subscription =
+                (WebSocketSubscription<Object>) subscriptionForId.get(subscriptionId);
+        if (subscription == null) {
+            log.debug("Received notification for unknown subscription {}", subscriptionId);
+            return;
+        }
+
+        final Object notification =
+                objectMapper.treeToValue(reply, subscription.getResponseType());
+        deliver(new Runnable() {
+            @Override
+            public void run() {
+                if (!subscription.isCancelled()) {
+                    subscription.getSubscriber().onNext(notification);
+                }
+            }
+        });
+    }
+
+    private void establishSubscription(WebSocketSubscription<?> subscription, String id) {
+        subscription.setSubscriptionId(id);
+        subscriptionForId.put(id, subscription);
+
+        // the subscriber may already have gone away while we waited for the reply
+        if (subscription.isCancelled() && subscriptionForId.remove(id, subscription)) {
+            sendUnsubscribe(id, subscription.getUnsubscribeMethod());
+        }
+    }
+
+    private void unsubscribe(WebSocketSubscription<?> subscription) {
+        String id = subscription.getSubscriptionId();
+        // if the subscription isn't established yet, establishSubscription cleans up instead
+        if (id != null && subscriptionForId.remove(id, subscription)) {
+            sendUnsubscribe(id, subscription.getUnsubscribeMethod());
+        }
+    }
+
+    private void sendUnsubscribe(final String subscriptionId, String unsubscribeMethod) {
+        if (closed) {
+            return;
+        }
+        Request<String, PlatonUnsubscribe> request = new Request<String, PlatonUnsubscribe>(
+                unsubscribeMethod, Arrays.asList(subscriptionId),
+                this, PlatonUnsubscribe.class);
+        sendAsync(request, PlatonUnsubscribe.class).whenComplete(
+                new BiConsumer<PlatonUnsubscribe, Throwable>() {
+                    @Override
+                    public void accept(PlatonUnsubscribe reply, Throwable throwable) {
+                        if (throwable != null) {
+                            log.warn("Failed to unsubscribe from {}", subscriptionId, throwable);
+                        }
+                    }
+                });
+    }
+
+    private void closeOutstanding(final IOException cause) {
+        for (WebSocketRequest<?> request : requestForId.values()) {
+            request.cancelTimeout();
+            fail(request.getOnReply(), cause);
+        }
+        requestForId.clear();
+
+        for (WebSocketBatch batch : batchForId.values()) {
+            batch.cancelTimeout();
+            fail(batch.onReply, cause);
+        }
+        batchForId.clear();
+
+        subscriptionRequestForId.clear();
+        for (final WebSocketSubscription<?> subscription : subscriptionForId.values()) {
+            final boolean completed = closed;
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    if (completed) {
+                        subscription.getSubscriber().onCompleted();
+                    } else {
+                        subscription.getSubscriber().onError(cause);
+                    }
+                }
+            });
+        }
+        subscriptionForId.clear();
+    }
+
+    private static class WebSocketBatch {
+        private final List<Request<?, ? extends Response<?>>> requests;
+        private final CompletableFuture<BatchResponse> onReply;
+        private volatile ScheduledFuture<?> timeout;
+
+        WebSocketBatch(
+                List<Request<?, ? extends Response<?>>> requests,
+                CompletableFuture<BatchResponse> onReply) {
+            this.requests = requests;
+            this.onReply = onReply;
+        }
+
+        void cancelTimeout() {
+            ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+
+    private class Listener extends WebSocketListener {
+
+        private final CompletableFuture<Void> opened;
+
+        Listener(CompletableFuture<Void> opened) {
+            this.opened = opened;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, okhttp3.Response response) {
+            log.info("Connected to WebSocket {}", url);
+            opened.complete(null);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            try {
+                WebSocketService.this.onMessage(text);
+            } catch (Throwable e) {
+                // All exceptions must be caught, otherwise the reader thread terminates
+                log.error("Failed to process message received over WebSocket", e);
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(NORMAL_CLOSURE, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            log.info("WebSocket connection to {} closed: {} {}", url, code, reason);
+            closeOutstanding(new IOException("WebSocket connection was closed: " + reason));
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
+            log.error("WebSocket connection to {} failed", url, t);
+            opened.completeExceptionally(t);
+            closeOutstanding(new IOException("WebSocket connection failed", t));
+        }
+    }
+}
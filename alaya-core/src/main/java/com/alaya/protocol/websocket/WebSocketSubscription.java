@@ -0,0 +1,47 @@
+package com.alaya.protocol.websocket;
+
+import rx.Subscriber;
+
+/**
+ * A subscription established over a WebSocket connection.
+ *
+ * @param <T> the type of the notifications
+ */
+class WebSocketSubscription<T> {
+
+    private final Subscriber<? super T> subscriber;
+    private final Class<T> responseType;
+    private final String unsubscribeMethod;
+    private volatile String subscriptionId;
+
+    WebSocketSubscription(
+            Subscriber<? super T> subscriber, Class<T> responseType, String unsubscribeMethod) {
+        this.subscriber = subscriber;
+        this.responseType = responseType;
+        this.unsubscribeMethod = unsubscribeMethod;
+    }
+
+    Subscriber<? super T> getSubscriber() {
+        return subscriber;
+    }
+
+    Class<T> getResponseType() {
+        return responseType;
+    }
+
+    String getUnsubscribeMethod() {
+        return unsubscribeMethod;
+    }
+
+    String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    void setSubscriptionId(String subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    boolean isCancelled() {
+        return subscriber.isUnsubscribed();
+    }
+}
@@ -0,0 +1,9 @@
+package com.alaya.protocol.websocket.events;
+
+import com.alaya.protocol.core.methods.response.Log;
+
+/**
+ * Notification of a logs subscription.
+ */
+public class LogNotification extends Notification<Log> {
+}
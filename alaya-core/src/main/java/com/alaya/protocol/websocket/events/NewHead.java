@@ -0,0 +1,80 @@
+package com.alaya.protocol.websocket.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Block header pushed for a newHeads subscription.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NewHead {
+    private String number;
+    private String hash;
+    private String parentHash;
+    private String nonce;
+    private String sha3Uncles;
+    private String logsBloom;
+    private String transactionsRoot;
+    private String stateRoot;
+    private String receiptsRoot;
+    private String miner;
+    private String extraData;
+    private String gasLimit;
+    private String gasUsed;
+    private String timestamp;
+
+    public String getNumber() {
+        return number;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getParentHash() {
+        return parentHash;
+    }
+
+    public String getNonce() {
+        return nonce;
+    }
+
+    public String getSha3Uncles() {
+        return sha3Uncles;
+    }
+
+    public String getLogsBloom() {
+        return logsBloom;
+    }
+
+    public String getTransactionsRoot() {
+        return transactionsRoot;
+    }
+
+    public String getStateRoot() {
+        return stateRoot;
+    }
+
+    public String getReceiptsRoot() {
+        return receiptsRoot;
+    }
+
+    public String getMiner() {
+        return miner;
+    }
+
+    public String getExtraData() {
+        return extraData;
+    }
+
+    public String getGasLimit() {
+        return gasLimit;
+    }
+
+    public String getGasUsed() {
+        return gasUsed;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,7 @@
+package com.alaya.protocol.websocket.events;
+
+/**
+ * Notification of a newHeads subscription.
+ */
+public class NewHeadsNotification extends Notification<NewHead> {
+}
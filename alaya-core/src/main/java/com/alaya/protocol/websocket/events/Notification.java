@@ -0,0 +1,27 @@
+package com.alaya.protocol.websocket.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A push notification sent by the node for an active subscription.
+ *
+ * @param <T> the type of the value carried by the notification
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Notification<T> {
+    private String jsonrpc;
+    private String method;
+    private NotificationParams<T> params;
+
+    public String getJsonrpc() {
+        return jsonrpc;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public NotificationParams<T> getParams() {
+        return params;
+    }
+}
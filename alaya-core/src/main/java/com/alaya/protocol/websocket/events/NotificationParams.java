@@ -0,0 +1,22 @@
+package com.alaya.protocol.websocket.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The params object of a {@link Notification}.
+ *
+ * @param <T> the type of the result
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NotificationParams<T> {
+    private T result;
+    private String subscription;
+
+    public T getResult() {
+        return result;
+    }
+
+    public String getSubscription() {
+        return subscription;
+    }
+}
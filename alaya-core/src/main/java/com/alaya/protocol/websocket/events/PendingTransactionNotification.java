@@ -0,0 +1,7 @@
+package com.alaya.protocol.websocket.events;
+
+/**
+ * Notification of a newPendingTransactions subscription, carrying the transaction hash.
+ */
+public class PendingTransactionNotification extends Notification<String> {
+}
@@ -4,57 +4,107 @@ import java.io.IOException;
 import java.math.BigInteger;
 
 import com.alaya.crypto.Credentials;
+import com.alaya.crypto.RawTransaction;
 import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.methods.response.PlatonSendTransaction;
 import com.alaya.tx.response.TransactionReceiptProcessor;
 
 /**
  * Simple RawTransactionManager derivative that manages nonces to facilitate multiple transactions
  * per block.
+ *
+ * <p>Nonces are handed out by a {@link NonceManager}, which can be shared by the managers of
+ * several credentials, or of the same credentials.
  */
 public class FastRawTransactionManager extends RawTransactionManager {
 
-    private volatile BigInteger nonce = BigInteger.valueOf(-1);
+    private final NonceManager nonceManager;
 
     public FastRawTransactionManager(Web3j web3j, Credentials credentials, byte chainId) {
         super(web3j, credentials, chainId);
+        this.nonceManager = new NonceManager(web3j);
+    }
+
+    public FastRawTransactionManager(
+            Web3j web3j, Credentials credentials, byte chainId, NonceManager nonceManager) {
+        super(web3j, credentials, chainId);
+        this.nonceManager = nonceManager;
     }
 
     public FastRawTransactionManager(Web3j web3j, Credentials credentials) {
         super(web3j, credentials);
+        this.nonceManager = new NonceManager(web3j);
     }
 
     public FastRawTransactionManager(
             Web3j web3j, Credentials credentials,
             TransactionReceiptProcessor transactionReceiptProcessor) {
         super(web3j, credentials, ChainId.NONE, transactionReceiptProcessor);
+        this.nonceManager = new NonceManager(web3j);
     }
 
     public FastRawTransactionManager(
             Web3j web3j, Credentials credentials, byte chainId,
             TransactionReceiptProcessor transactionReceiptProcessor) {
         super(web3j, credentials, chainId, transactionReceiptProcessor);
+        this.nonceManager = new NonceManager(web3j);
+    }
+
+    @Override
+    protected BigInteger getNonce() throws IOException {
+        return nonceManager.acquire(credentials.getAddress());
     }
 
     @Override
-    protected synchronized BigInteger getNonce() throws IOException {
-        if (nonce.signum() == -1) {
-            // obtain lock
-            nonce = super.getNonce();
-        } else {
-            nonce = nonce.add(BigInteger.ONE);
+    public PlatonSendTransaction sendTransaction(
+            BigInteger gasPrice, BigInteger gasLimit, String to,
+            String data, BigInteger value) throws IOException {
+
+        BigInteger nonce = getNonce();
+
+        RawTransaction rawTransaction = RawTransaction.createTransaction(
+                nonce,
+                gasPrice,
+                gasLimit,
+                to,
+                value,
+                data);
+
+        PlatonSendTransaction ethSendTransaction;
+        try {
+            ethSendTransaction = signAndSend(rawTransaction);
+        } catch (IOException | RuntimeException e) {
+            nonceManager.fail(credentials.getAddress(), nonce);
+            throw e;
         }
-        return nonce;
+        nonceManager.complete(credentials.getAddress(), nonce, ethSendTransaction);
+        return ethSendTransaction;
+    }
+
+    public NonceManager getNonceManager() {
+        return nonceManager;
     }
 
+    /**
+     * The last nonce handed out, -1 if none.
+     */
     public BigInteger getCurrentNonce() {
-        return nonce;
+        BigInteger next = nonceManager.getNextNonce(credentials.getAddress());
+        return next.signum() > 0 ? next.subtract(BigInteger.ONE) : BigInteger.valueOf(-1);
     }
 
-    public synchronized void resetNonce() throws IOException {
-        nonce = super.getNonce();
+    /**
+     * Resync the nonce with the pending transaction count of the account, the next transaction
+     * is sent with that count as its nonce.
+     */
+    public void resetNonce() throws IOException {
+        nonceManager.reset(credentials.getAddress());
     }
 
-    public synchronized void setNonce(BigInteger value) {
-        nonce = value;
+    /**
+     * Set the last nonce handed out, the next transaction is sent with the one after it.
+     */
+    public void setNonce(BigInteger value) {
+        nonceManager.setNextNonce(credentials.getAddress(), value.add(BigInteger.ONE));
     }
 }
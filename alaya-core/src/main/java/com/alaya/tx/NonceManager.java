@@ -0,0 +1,242 @@
+package com.alaya.tx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.DefaultBlockParameterName;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonGetTransactionCount;
+import com.alaya.protocol.core.methods.response.PlatonSendTransaction;
+
+/**
+ * Hands out the nonces of any number of addresses to concurrent senders, without locking.
+ *
+ * <p>Each address has a counter, initialised from its transaction count on first use. Every
+ * nonce handed out must be reported back with {@link #complete} once the transaction is sent,
+ * with {@link #fail} if sending it failed, or with {@link #release} if it wasn't sent. A nonce
+ * the node rejected without using it is handed out again, so no gap is left behind. A "nonce
+ * too low" error, or a failure leaving it unknown whether the node received the transaction,
+ * makes the next nonce requested for the address resync the counter with the pending
+ * transaction count. A pending count below the counter reveals a gap of nonces that never
+ * reached the node: the first nonce missing, and every nonce above it whose transaction failed
+ * to be sent, are handed out again too.
+ *
+ * <p>Senders never wait on each other, a sender resyncing the counter of an address only
+ * delays its own transaction by a request to the node.
+ */
+public class NonceManager {
+
+    private final Web3j web3j;
+    private final ConcurrentMap<String, Account> accounts =
+            new ConcurrentHashMap<String, Account>();
+
+    public NonceManager(Web3j web3j) {
+        this.web3j = web3j;
+    }
+
+    /**
+     * Hand out the next nonce of an address.
+     *
+     * @param address the address sending the transaction
+     * @return the nonce, to be reported back with {@link #complete}, {@link #fail} or
+     *         {@link #release}
+     * @throws IOException if the transaction count of the address can't be retrieved
+     */
+    public BigInteger acquire(String address) throws IOException {
+        Account account = account(address);
+        if (account.next.get() < 0 || account.stale.compareAndSet(true, false)) {
+            try {
+                resync(address, account);
+            } catch (IOException e) {
+                account.stale.set(true);
+                throw e;
+            }
+        }
+
+        Long nonce = account.released.pollFirst();
+        if (nonce != null) {
+            account.outstanding.add(nonce);
+            return BigInteger.valueOf(nonce);
+        }
+        for (;;) {
+            // outstanding before it's taken, so a resync never hands it out again
+            long next = account.next.get();
+            account.outstanding.add(next);
+            if (account.next.compareAndSet(next, next + 1)) {
+                return BigInteger.valueOf(next);
+            }
+            account.outstanding.remove(next);
+        }
+    }
+
+    /**
+     * Report the response of the node to a transaction sent with a nonce handed out.
+     */
+    public void complete(String address, BigInteger nonce, PlatonSendTransaction response) {
+        Account account = account(address);
+        long value = nonce.longValue();
+        account.outstanding.remove(value);
+        if (!response.hasError()) {
+            account.accepted(value);
+        } else if (isNonceUsed(response.getError())) {
+            account.stale.set(true);
+        } else {
+            // the node didn't use the nonce, the next transaction can
+            account.released.add(value);
+        }
+    }
+
+    /**
+     * Report that no transaction was sent with a nonce handed out, it's handed out again.
+     */
+    public void release(String address, BigInteger nonce) {
+        Account account = account(address);
+        account.outstanding.remove(nonce.longValue());
+        account.released.add(nonce.longValue());
+    }
+
+    /**
+     * Report that a transaction with a nonce handed out couldn't be sent, the node may or may
+     * not have received it.
+     */
+    public void fail(String address, BigInteger nonce) {
+        Account account = account(address);
+        account.failed.add(nonce.longValue());
+        account.outstanding.remove(nonce.longValue());
+        account.stale.set(true);
+    }
+
+    /**
+     * Set the next nonce of an address to its pending transaction count, discarding the nonces
+     * waiting to be handed out again.
+     *
+     * @throws IOException if the transaction count of the address can't be retrieved
+     */
+    public void reset(String address) throws IOException {
+        Account account = account(address);
+        account.stale.set(false);
+        account.released.clear();
+        account.failed.clear();
+        account.next.set(transactionCount(address));
+    }
+
+    /**
+     * The next nonce of an address not handed out yet, -1 if it isn't known yet.
+     */
+    public BigInteger getNextNonce(String address) {
+        return BigInteger.valueOf(account(address).next.get());
+    }
+
+    /**
+     * Set the next nonce of an address, discarding the nonces waiting to be handed out again.
+     */
+    public void setNextNonce(String address, BigInteger nonce) {
+        Account account = account(address);
+        account.stale.set(false);
+        account.released.clear();
+        account.failed.clear();
+        account.next.set(nonce.longValue());
+    }
+
+    /**
+     * The highest nonce of an address the node accepted a transaction with, -1 if none.
+     */
+    public BigInteger getHighestAcceptedNonce(String address) {
+        return BigInteger.valueOf(account(address).highestAccepted.get());
+    }
+
+    private Account account(String address) {
+        Account account = accounts.get(address);
+        if (account == null) {
+            Account created = new Account();
+            account = accounts.putIfAbsent(address, created);
+            if (account == null) {
+                account = created;
+            }
+        }
+        return account;
+    }
+
+    private void resync(String address, Account account) throws IOException {
+        // a nonce handed out before the count is requested, and reported back meanwhile, may
+        // reach the node after the count is computed
+        long handedOut = account.next.get();
+        Set<Long> inFlight = new HashSet<Long>(account.outstanding);
+
+        long count = transactionCount(address);
+        // these were used on the chain meanwhile
+        account.released.headSet(count).clear();
+
+        long next;
+        do {
+            next = account.next.get();
+        } while (next < count && !account.next.compareAndSet(next, count));
+
+        if (count < handedOut && !inFlight.contains(count)
+                && !account.outstanding.contains(count)) {
+            // the first nonce missing from the pool never reached the node
+            account.released.add(count);
+        }
+        for (Long nonce : account.failed) {
+            account.failed.remove(nonce);
+            if (nonce >= count && !account.outstanding.contains(nonce)) {
+                // waits behind the gap, if the node received it at all
+                account.released.add(nonce);
+            }
+        }
+    }
+
+    private long transactionCount(String address) throws IOException {
+        PlatonGetTransactionCount ethGetTransactionCount = web3j.platonGetTransactionCount(
+                address, DefaultBlockParameterName.PENDING).send();
+
+        if (ethGetTransactionCount.getTransactionCount().intValue() == 0) {
+            ethGetTransactionCount = web3j.platonGetTransactionCount(
+                    address, DefaultBlockParameterName.LATEST).send();
+        }
+
+        return ethGetTransactionCount.getTransactionCount().longValue();
+    }
+
+    static boolean isNonceUsed(Response.Error error) {
+        if (error == null || error.getMessage() == null) {
+            return false;
+        }
+        String message = error.getMessage().toLowerCase();
+        return message.contains("nonce too low") || message.contains("known transaction")
+                || message.contains("already known")
+                || message.contains("replacement transaction underpriced");
+    }
+
+    /**
+     * The nonces of an address.
+     */
+    private static class Account {
+
+        private final AtomicLong next = new AtomicLong(-1);
+        private final AtomicLong highestAccepted = new AtomicLong(-1);
+        private final AtomicBoolean stale = new AtomicBoolean();
+
+        // handed out and not reported back yet
+        private final ConcurrentSkipListSet<Long> outstanding = new ConcurrentSkipListSet<Long>();
+        // not used by the node, handed out again first
+        private final ConcurrentSkipListSet<Long> released = new ConcurrentSkipListSet<Long>();
+        // failed to be sent since the last resync
+        private final ConcurrentSkipListSet<Long> failed = new ConcurrentSkipListSet<Long>();
+
+        void accepted(long nonce) {
+            long highest;
+            do {
+                highest = highestAccepted.get();
+            } while (nonce > highest && !highestAccepted.compareAndSet(highest, nonce));
+        }
+    }
+}
@@ -14,6 +14,7 @@ import com.alaya.platon.bean.ProgramVersion;
 import com.alaya.protocol.Web3j;
 import com.alaya.protocol.core.DefaultBlockParameterName;
 import com.alaya.protocol.core.RemoteCall;
+import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.methods.request.Transaction;
 import com.alaya.protocol.core.methods.response.Log;
 import com.alaya.protocol.core.methods.response.PlatonCall;
@@ -34,6 +35,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -114,23 +116,47 @@ public abstract class PlatOnContract extends ManagedTransaction {
      * @return {@link List} of values returned by function call
      */
     private List<Type> executeCall(Function function) throws IOException {
+        return decodeCall(createCall(function).send(), function);
+    }
+
+    /**
+     * Execute constant function call without blocking a thread while waiting for the node.
+     *
+     * @param function to call
+     * @return future completed with the values returned by function call
+     */
+    private CompletableFuture<List<Type>> executeCallAsync(Function function) {
+        return createCall(function).sendAsync().thenApply(ethCall -> decodeCall(ethCall, function));
+    }
+
+    private Request<?, PlatonCall> createCall(Function function) {
         String encodedFunction = PlatOnUtil.invokeEncode(function);
-        PlatonCall ethCall = web3j.platonCall(
+        return web3j.platonCall(
                 Transaction.createEthCallTransaction(
                         transactionManager.getFromAddress(), contractAddress, encodedFunction),
-                DefaultBlockParameterName.LATEST)
-                .send();
+                DefaultBlockParameterName.LATEST);
+    }
+
+    private static List<Type> decodeCall(PlatonCall ethCall, Function function) {
         String value = ethCall.getValue();
         return FunctionReturnDecoder.decode(value, function.getOutputParameters());
     }
 
     protected BaseResponse executePatonCall(PlatOnFunction function) throws IOException {
-        PlatonCall ethCall = web3j.platonCall(
+        PlatonCall ethCall = createPlatonCall(function).send();
+        return PlatOnUtil.invokeDecode(ethCall.getValue());
+    }
+
+    protected CompletableFuture<BaseResponse> executePatonCallAsync(PlatOnFunction function) {
+        return createPlatonCall(function).sendAsync()
+                .thenApply(ethCall -> PlatOnUtil.invokeDecode(ethCall.getValue()));
+    }
+
+    private Request<?, PlatonCall> createPlatonCall(PlatOnFunction function) {
+        return web3j.platonCall(
                 Transaction.createEthCallTransaction(
                         transactionManager.getFromAddress(), contractAddress, function.getEncodeData()),
-                DefaultBlockParameterName.LATEST)
-                .send();
-        return PlatOnUtil.invokeDecode(ethCall.getValue());
+                DefaultBlockParameterName.LATEST);
     }
 
     protected BaseResponse executePatonCall(PlatOnFunction function, String contractAddress) throws IOException {
@@ -147,10 +173,19 @@ public abstract class PlatOnContract extends ManagedTransaction {
         return response;
     }
 
-    @SuppressWarnings("unchecked")
     protected <T extends Type> T executeCallSingleValueReturn(
             Function function) throws IOException {
-        List<Type> values = executeCall(function);
+        return singleValue(executeCall(function));
+    }
+
+    protected <T extends Type, R> R executeCallSingleValueReturn(
+            Function function, Class<R> returnType) throws IOException {
+        T result = executeCallSingleValueReturn(function);
+        return convertSingleValue(result, returnType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Type> T singleValue(List<Type> values) {
         if (!values.isEmpty()) {
             return (T) values.get(0);
         } else {
@@ -158,11 +193,8 @@ public abstract class PlatOnContract extends ManagedTransaction {
         }
     }
 
-
     @SuppressWarnings("unchecked")
-    protected <T extends Type, R> R executeCallSingleValueReturn(
-            Function function, Class<R> returnType) throws IOException {
-        T result = executeCallSingleValueReturn(function);
+    private static <T extends Type, R> R convertSingleValue(T result, Class<R> returnType) {
         if (result == null) {
             throw new ContractCallException("Empty value (0x) returned from contract");
         }
@@ -272,26 +304,31 @@ public abstract class PlatOnContract extends ManagedTransaction {
         return code;
     }
 
+    @SuppressWarnings("unchecked")
     protected <T> RemoteCall<BaseResponse<T>> executePlatonRemoteCallSingleValueReturn(PlatOnFunction function) {
         return new RemoteCall<BaseResponse<T>>(new Callable<BaseResponse<T>>() {
             @Override
             public BaseResponse<T> call() throws Exception {
                 return executePatonCall(function);
             }
-        });
+        }, () -> executePatonCallAsync(function).thenApply(response -> (BaseResponse<T>) response));
     }
 
     protected <T extends Type> RemoteCall<T> executeRemoteCallSingleValueReturn(Function function) {
-        return new RemoteCall<>(() -> executeCallSingleValueReturn(function));
+        return new RemoteCall<>(() -> executeCallSingleValueReturn(function),
+                () -> executeCallAsync(function).thenApply(PlatOnContract::<T>singleValue));
     }
 
     protected <T> RemoteCall<T> executeRemoteCallSingleValueReturn(
             Function function, Class<T> returnType) {
-        return new RemoteCall<>(() -> executeCallSingleValueReturn(function, returnType));
+        return new RemoteCall<>(() -> executeCallSingleValueReturn(function, returnType),
+                () -> executeCallAsync(function)
+                        .thenApply(values -> convertSingleValue(singleValue(values), returnType)));
     }
 
     protected RemoteCall<List<Type>> executeRemoteCallMultipleValueReturn(Function function) {
-        return new RemoteCall<>(() -> executeCallMultipleValueReturn(function));
+        return new RemoteCall<>(() -> executeCallMultipleValueReturn(function),
+                () -> executeCallAsync(function));
     }
 
     protected RemoteCall<PlatonSendTransaction> executeRemoteCallPlatonTransaction(PlatOnFunction function, BigInteger weiValue) {
@@ -0,0 +1,324 @@
+package com.alaya.tx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.alaya.crypto.Credentials;
+import com.alaya.crypto.RawTransaction;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.PlatonSendTransaction;
+
+/**
+ * Signs and sends large numbers of transactions from one account, for payouts and other bulk
+ * transfers.
+ *
+ * <p>Transactions are taken in batches. The nonces of a batch are reserved in order from a
+ * {@link NonceManager}, the nonce of each transaction given being replaced. The transactions
+ * are signed in parallel, then sent with a single JSON-RPC batch. The number of transactions
+ * signed or sent but not answered yet is bounded, taking more waits for earlier ones to be
+ * answered.
+ *
+ * <p>Each transaction gets a future of the response of the node. A transaction failing to
+ * sign fails its future and its nonce is handed out again, a batch failing to send fails the
+ * futures of all its transactions. Each nonce of a failed batch is reported as failed, not only
+ * the first, so that none of the nonces after the first is stranded behind the gap the batch
+ * leaves and all of them are handed out again once the nonce manager resyncs.
+ */
+public class TransactionPipeline {
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 500;
+
+    private final Web3j web3j;
+    private final Credentials credentials;
+    private final RawTransactionManager signer;
+    private final NonceManager nonceManager;
+    private final Executor signingExecutor;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    private final Semaphore inFlight;
+    private final LongAdder batchCount = new LongAdder();
+
+    public TransactionPipeline(Web3j web3j, Credentials credentials, long chainId) {
+        this(web3j, credentials, chainId, new NonceManager(web3j), ForkJoinPool.commonPool(),
+                DEFAULT_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param web3j the client the transactions are sent with
+     * @param credentials the credentials of the account sending the transactions
+     * @param chainId the chain id the transactions are signed for
+     * @param nonceManager the nonce manager, shared with anything else sending from the account
+     * @param signingExecutor the executor signing the transactions
+     * @param batchSize the number of transactions per batch, 1 to send single requests
+     * @param maxInFlight the number of transactions signed or sent and not answered yet at
+     *                    most, at least the batch size
+     */
+    public TransactionPipeline(
+            Web3j web3j, Credentials credentials, long chainId, NonceManager nonceManager,
+            Executor signingExecutor, int batchSize, int maxInFlight) {
+        if (batchSize < 1 || maxInFlight < batchSize) {
+            throw new IllegalArgumentException(
+                    "Batch size must be positive and no more than the transactions in flight");
+        }
+        this.web3j = web3j;
+        this.credentials = credentials;
+        this.signer = new RawTransactionManager(web3j, credentials, chainId);
+        this.nonceManager = nonceManager;
+        this.signingExecutor = signingExecutor;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Sign and send a transaction.
+     *
+     * @param transaction the transaction, its nonce is ignored
+     * @return the future response of the node
+     * @throws IOException if the nonce of the transaction can't be reserved
+     * @throws InterruptedException if interrupted while waiting for earlier transactions
+     */
+    public CompletableFuture<PlatonSendTransaction> submit(RawTransaction transaction)
+            throws IOException, InterruptedException {
+        return submitBatch(Collections.singletonList(transaction)).get(0);
+    }
+
+    /**
+     * Sign and send transactions, in batches. Returns once every transaction is taken, which
+     * waits while too many transactions are in flight.
+     *
+     * @param transactions the transactions, their nonces are ignored
+     * @return the future responses of the node, in the order of the transactions
+     * @throws IOException if the nonces of a batch can't be reserved, the batches taken before
+     *                     are still sent
+     * @throws InterruptedException if interrupted while waiting for earlier transactions
+     */
+    public List<CompletableFuture<PlatonSendTransaction>> submit(
+            Iterable<RawTransaction> transactions) throws IOException, InterruptedException {
+        List<CompletableFuture<PlatonSendTransaction>> results =
+                new ArrayList<CompletableFuture<PlatonSendTransaction>>();
+        List<RawTransaction> batch = new ArrayList<RawTransaction>(batchSize);
+        for (RawTransaction transaction : transactions) {
+            batch.add(transaction);
+            if (batch.size() == batchSize) {
+                results.addAll(submitBatch(batch));
+                batch = new ArrayList<RawTransaction>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(submitBatch(batch));
+        }
+        return results;
+    }
+
+    private List<CompletableFuture<PlatonSendTransaction>> submitBatch(
+            List<RawTransaction> transactions) throws IOException, InterruptedException {
+        int size = transactions.size();
+        inFlight.acquire(size);
+
+        // reserved up front, in the order of the transactions
+        List<BigInteger> nonces = new ArrayList<BigInteger>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                nonces.add(nonceManager.acquire(credentials.getAddress()));
+            }
+        } catch (IOException e) {
+            for (BigInteger nonce : nonces) {
+                nonceManager.release(credentials.getAddress(), nonce);
+            }
+            inFlight.release(size);
+            throw e;
+        }
+
+        final List<Pending> batch = new ArrayList<Pending>(size);
+        List<CompletableFuture<PlatonSendTransaction>> results =
+                new ArrayList<CompletableFuture<PlatonSendTransaction>>(size);
+        CompletableFuture<?>[] signed = new CompletableFuture<?>[size];
+        for (int i = 0; i < size; i++) {
+            final RawTransaction transaction = withNonce(transactions.get(i), nonces.get(i));
+            Pending pending = new Pending(nonces.get(i),
+                    CompletableFuture.supplyAsync(new Supplier<String>() {
+                        @Override
+                        public String get() {
+                            return signer.signedTransaction(transaction);
+                        }
+                    }, signingExecutor));
+            batch.add(pending);
+            results.add(pending.result);
+            signed[i] = pending.signed;
+        }
+
+        CompletableFuture.allOf(signed).whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object result, Throwable error) {
+                try {
+                    send(batch);
+                } catch (Throwable e) {
+                    abort(batch, e);
+                }
+            }
+        });
+        return results;
+    }
+
+    private void send(List<Pending> batch) {
+        final List<Pending> sent = new ArrayList<Pending>();
+        List<Request<?, PlatonSendTransaction>> requests =
+                new ArrayList<Request<?, PlatonSendTransaction>>();
+        for (Pending pending : batch) {
+            String signedTransaction;
+            try {
+                signedTransaction = pending.signed.join();
+            } catch (CompletionException e) {
+                // never sent, the nonce can be used by the next transaction
+                if (pending.settle()) {
+                    nonceManager.release(credentials.getAddress(), pending.nonce);
+                    inFlight.release();
+                    pending.result.completeExceptionally(e.getCause());
+                }
+                continue;
+            }
+            requests.add(web3j.platonSendRawTransaction(signedTransaction));
+            sent.add(pending);
+        }
+
+        if (requests.isEmpty()) {
+            return;
+        } else if (requests.size() == 1) {
+            // a batch of one is sent as is, for nodes not supporting batches
+            requests.get(0).sendAsync().whenComplete(
+                    new BiConsumer<PlatonSendTransaction, Throwable>() {
+                        @Override
+                        public void accept(PlatonSendTransaction response, Throwable error) {
+                            try {
+                                complete(sent, Collections.singletonList(response), error);
+                            } catch (Throwable e) {
+                                abort(sent, e);
+                            }
+                        }
+                    });
+            return;
+        }
+
+        BatchRequest batchRequest = web3j.newBatch();
+        for (Request<?, PlatonSendTransaction> request : requests) {
+            batchRequest.add(request);
+        }
+        batchRequest.sendAsync().whenComplete(new BiConsumer<BatchResponse, Throwable>() {
+            @Override
+            public void accept(BatchResponse response, Throwable error) {
+                try {
+                    complete(sent, error == null ? response.getResponses() : null, error);
+                } catch (Throwable e) {
+                    abort(sent, e);
+                }
+            }
+        });
+    }
+
+    private void complete(List<Pending> sent, List<?> responses, Throwable error) {
+        batchCount.increment();
+        if (error == null && responses.size() != sent.size()) {
+            throw new IllegalStateException("Expected " + sent.size() + " responses, received "
+                    + responses.size());
+        }
+        for (int i = 0; i < sent.size(); i++) {
+            Pending pending = sent.get(i);
+            if (error != null) {
+                fail(pending, error);
+            } else if (pending.settle()) {
+                PlatonSendTransaction response = (PlatonSendTransaction) responses.get(i);
+                nonceManager.complete(credentials.getAddress(), pending.nonce, response);
+                inFlight.release();
+                pending.result.complete(response);
+            }
+        }
+    }
+
+    /**
+     * Fail the transactions of a batch not settled yet, after an unexpected error, as if they
+     * may have reached the node.
+     */
+    private void abort(List<Pending> batch, Throwable error) {
+        for (Pending pending : batch) {
+            fail(pending, error);
+        }
+    }
+
+    private void fail(Pending pending, Throwable error) {
+        if (pending.settle()) {
+            nonceManager.fail(credentials.getAddress(), pending.nonce);
+            inFlight.release();
+            pending.result.completeExceptionally(error);
+        }
+    }
+
+    private static RawTransaction withNonce(RawTransaction transaction, BigInteger nonce) {
+        return RawTransaction.createTransaction(
+                nonce,
+                transaction.getGasPrice(),
+                transaction.getGasLimit(),
+                transaction.getTo(),
+                transaction.getValue(),
+                transaction.getData());
+    }
+
+    public NonceManager getNonceManager() {
+        return nonceManager;
+    }
+
+    /**
+     * The number of transactions signed or sent and not answered yet.
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * The number of batches answered or failed.
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * A transaction of a batch, settled once: its permit is released, its nonce reported back
+     * and its future completed.
+     */
+    private static class Pending {
+
+        private final BigInteger nonce;
+        private final CompletableFuture<String> signed;
+        private final CompletableFuture<PlatonSendTransaction> result =
+                new CompletableFuture<PlatonSendTransaction>();
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Pending(BigInteger nonce, CompletableFuture<String> signed) {
+            this.nonce = nonce;
+            this.signed = signed;
+        }
+
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.alaya.utils;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -23,8 +24,29 @@ public class Async {
         }));
     }
 
-    public static <T> Future<T> run(Callable<T> callable) {
-        return executor.submit(callable);
+    public static <T> CompletableFuture<T> run(final Callable<T> callable) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(callable.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The executor running the tasks given to {@link #run}, for completing futures off the
+     * thread that produced their values.
+     *
+     * @return the executor
+     */
+    public static Executor executor() {
+        return executor;
     }
 
     private static int getCpuCount() {
@@ -1,9 +1,10 @@
 package com.alaya.utils;
 
 import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import rx.Observable;
-import rx.Subscriber;
 
 /**
  * Observable utility functions.
@@ -16,7 +17,8 @@ public class Observables {
     }
 
     /**
-     * Simple Observable implementation to emit a range of BigInteger values.
+     * Simple Observable implementation to emit a range of BigInteger values, honouring the
+     * backpressure of its subscriber.
      *
      * @param startValue first value to emit in range
      * @param endValue final value to emit in range
@@ -32,38 +34,32 @@ public class Observables {
                     "Negative start index cannot be greater then end index");
         }
 
-        if (ascending) {
-            return Observable.create(new Observable.OnSubscribe<BigInteger>() {
-                @Override
-                public void call(Subscriber<? super BigInteger> subscriber) {
-                    for (BigInteger i = startValue;
-                        i.compareTo(endValue) < 1
-                                 && !subscriber.isUnsubscribed();
-                        i = i.add(BigInteger.ONE)) {
-                        subscriber.onNext(i);
-                    }
+        // iterables are only consumed as fast as the subscriber requests values
+        return Observable.from(new Iterable<BigInteger>() {
+            @Override
+            public Iterator<BigInteger> iterator() {
+                return new Iterator<BigInteger>() {
+                    private BigInteger next = ascending ? startValue : endValue;
 
-                    if (!subscriber.isUnsubscribed()) {
-                        subscriber.onCompleted();
-                    }
-                }
-            });
-        } else {
-            return Observable.create(new Observable.OnSubscribe<BigInteger>() {
-                @Override
-                public void call(Subscriber<? super BigInteger> subscriber) {
-                    for (BigInteger i = endValue;
-                        i.compareTo(startValue) > -1
-                                 && !subscriber.isUnsubscribed();
-                        i = i.subtract(BigInteger.ONE)) {
-                        subscriber.onNext(i);
+                    @Override
+                    public boolean hasNext() {
+                        return ascending
+                                ? next.compareTo(endValue) < 1
+                                : next.compareTo(startValue) > -1;
                     }
 
-                    if (!subscriber.isUnsubscribed()) {
-                        subscriber.onCompleted();
+                    @Override
+                    public BigInteger next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        BigInteger current = next;
+                        next = ascending
+                                ? next.add(BigInteger.ONE) : next.subtract(BigInteger.ONE);
+                        return current;
                     }
-                }
-            });
-        }
+                };
+            }
+        });
     }
 }
@@ -0,0 +1,284 @@
+package com.alaya.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.cache.LruResponseCache;
+import com.alaya.protocol.core.DefaultBlockParameterName;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGetBalance;
+import com.alaya.protocol.core.methods.response.PlatonGetTransactionReceipt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ServiceTest {
+
+    private static final String BLOCK_HASH =
+            "0xe670ec64341771606e55d6b4ca35a1a6b75ee3d5145a99d05921026d1527331";
+    private static final String TRANSACTION_HASH =
+            "0xb903239f8543d04b5dc1ba6579132b143087c68db1b2168786408fcbce568238";
+
+    private StubService service;
+    private Web3j web3j;
+
+    @Before
+    public void setUp() {
+        service = new StubService();
+        service.setCoalesceReads(true);
+        web3j = Web3jFactory.build(service);
+    }
+
+    @Test
+    public void testCoalescesIdenticalReads() throws Exception {
+        CompletableFuture<PlatonBlockNumber> first = web3j.platonBlockNumber().sendAsync();
+        CompletableFuture<PlatonBlockNumber> second = web3j.platonBlockNumber().sendAsync();
+
+        assertThat(service.calls.size(), is(1));
+        service.reply(0, "\"0x10\"");
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getBlockNumber(), is(BigInteger.valueOf(16)));
+        assertThat(second.get(5, TimeUnit.SECONDS), sameInstance(first.get()));
+    }
+
+    @Test
+    public void testSendJoinsReadInFlight() throws Exception {
+        final CompletableFuture<PlatonBlockNumber> async = web3j.platonBlockNumber().sendAsync();
+        Thread replier = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    service.reply(0, "\"0x10\"");
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        replier.start();
+
+        PlatonBlockNumber blockNumber = web3j.platonBlockNumber().send();
+        replier.join();
+
+        assertThat(blockNumber, sameInstance(async.get()));
+        assertThat(service.calls.size(), is(1));
+    }
+
+    @Test
+    public void testReadsAreSentAgainOnceCompleted() throws Exception {
+        CompletableFuture<PlatonBlockNumber> first = web3j.platonBlockNumber().sendAsync();
+        service.reply(0, "\"0x10\"");
+        first.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<PlatonBlockNumber> second = web3j.platonBlockNumber().sendAsync();
+        service.reply(1, "\"0x11\"");
+
+        assertThat(second.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                is(BigInteger.valueOf(17)));
+    }
+
+    @Test
+    public void testDoesNotCoalesceDifferentParams() {
+        web3j.platonGetBalance("0x01", DefaultBlockParameterName.LATEST).sendAsync();
+        web3j.platonGetBalance("0x02", DefaultBlockParameterName.LATEST).sendAsync();
+        web3j.platonGetBalance("0x01", DefaultBlockParameterName.LATEST).sendAsync();
+
+        assertThat(service.calls.size(), is(2));
+    }
+
+    @Test
+    public void testDoesNotCoalesceWrites() {
+        web3j.platonSendRawTransaction("0xf8").sendAsync();
+        web3j.platonSendRawTransaction("0xf8").sendAsync();
+
+        assertThat(service.calls.size(), is(2));
+    }
+
+    @Test
+    public void testDoesNotCoalesceWhenDisabled() {
+        service.setCoalesceReads(false);
+        web3j.platonBlockNumber().sendAsync();
+        web3j.platonBlockNumber().sendAsync();
+
+        assertThat(service.calls.size(), is(2));
+    }
+
+    @Test
+    public void testCoalescedCallersShareFailure() throws Exception {
+        CompletableFuture<PlatonGetBalance> first =
+                web3j.platonGetBalance("0x01", DefaultBlockParameterName.LATEST).sendAsync();
+        CompletableFuture<PlatonGetBalance> second =
+                web3j.platonGetBalance("0x01", DefaultBlockParameterName.LATEST).sendAsync();
+
+        service.calls.get(0).completeExceptionally(new IOException("connection reset"));
+
+        try {
+            second.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("connection reset"));
+        }
+        assertThat(first.isCompletedExceptionally(), is(true));
+    }
+
+    @Test
+    public void testCancellingCoalescedCallerDoesNotAffectOthers() throws Exception {
+        CompletableFuture<PlatonBlockNumber> first = web3j.platonBlockNumber().sendAsync();
+        CompletableFuture<PlatonBlockNumber> second = web3j.platonBlockNumber().sendAsync();
+
+        first.cancel(false);
+        service.reply(0, "\"0x10\"");
+
+        assertThat(second.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                is(BigInteger.valueOf(16)));
+    }
+
+    @Test
+    public void testCachesBlockByHash() throws Exception {
+        LruResponseCache cache = new LruResponseCache(1024 * 1024);
+        service.setResponseCache(cache, 2);
+
+        Request<?, PlatonBlock> request = web3j.platonGetBlockByHash(BLOCK_HASH, false);
+        CompletableFuture<PlatonBlock> first = request.sendAsync();
+        service.reply(0, block("0x10"));
+        PlatonBlock block = first.get(5, TimeUnit.SECONDS);
+
+        Request<?, PlatonBlock> cachedRequest = web3j.platonGetBlockByHash(BLOCK_HASH, false);
+        PlatonBlock cached = cachedRequest.send();
+        assertThat(service.calls.size(), is(1));
+        assertThat(cached.getBlock(), equalTo(block.getBlock()));
+        assertThat(cached.getId(), is(cachedRequest.getId()));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void testCachesReceiptOnceConfirmed() throws Exception {
+        service.setResponseCache(new LruResponseCache(1024 * 1024), 2);
+        CompletableFuture<PlatonBlockNumber> blockNumber = web3j.platonBlockNumber().sendAsync();
+        service.reply(0, "\"0x10\"");
+        blockNumber.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<PlatonGetTransactionReceipt> receipt =
+                web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        service.reply(1, receipt("0xe"));
+        receipt.get(5, TimeUnit.SECONDS);
+
+        receipt = web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        assertThat(receipt.get(5, TimeUnit.SECONDS).getTransactionReceipt().getBlockNumber(),
+                is(BigInteger.valueOf(14)));
+        assertThat(service.calls.size(), is(2));
+    }
+
+    @Test
+    public void testRefreshesHeadForUnconfirmedReceipt() throws Exception {
+        service.setResponseCache(new LruResponseCache(1024 * 1024), 2);
+
+        CompletableFuture<PlatonGetTransactionReceipt> receipt =
+                web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        service.reply(0, receipt("0xe"));
+        receipt.get(5, TimeUnit.SECONDS);
+
+        // not cached, the head is requested to find out whether it could be
+        assertThat(service.calls.size(), is(2));
+        service.reply(1, "\"0x10\"");
+
+        receipt = web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        service.reply(2, receipt("0xe"));
+        receipt.get(5, TimeUnit.SECONDS);
+
+        web3j.platonGetTransactionReceipt(TRANSACTION_HASH).send();
+        assertThat(service.calls.size(), is(3));
+    }
+
+    @Test
+    public void testDoesNotCacheMissingReceipt() throws Exception {
+        service.setResponseCache(new LruResponseCache(1024 * 1024), 0);
+
+        CompletableFuture<PlatonGetTransactionReceipt> receipt =
+                web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        service.reply(0, "null");
+        receipt.get(5, TimeUnit.SECONDS);
+
+        web3j.platonGetTransactionReceipt(TRANSACTION_HASH).sendAsync();
+        assertThat(service.calls.size(), is(2));
+    }
+
+    @Test
+    public void testDoesNotCacheLatestBlock() throws Exception {
+        service.setResponseCache(new LruResponseCache(1024 * 1024), 0);
+
+        CompletableFuture<PlatonBlock> block = web3j.platonGetBlockByNumber(
+                DefaultBlockParameterName.LATEST, false).sendAsync();
+        service.reply(0, block("0x10"));
+        block.get(5, TimeUnit.SECONDS);
+
+        web3j.platonGetBlockByNumber(DefaultBlockParameterName.LATEST, false).sendAsync();
+        assertThat(service.calls.size(), is(2));
+    }
+
+    private static String block(String number) {
+        return "{\"number\":\"" + number + "\",\"hash\":\"" + BLOCK_HASH
+                + "\",\"transactions\":[],\"uncles\":[]}";
+    }
+
+    private static String receipt(String blockNumber) {
+        return "{\"transactionHash\":\"" + TRANSACTION_HASH + "\",\"blockHash\":\""
+                + BLOCK_HASH + "\",\"blockNumber\":\"" + blockNumber + "\",\"status\":\"0x1\"}";
+    }
+
+    /**
+     * Holds on to every request until the test replies to it.
+     */
+    private static class StubService extends Service {
+
+        private final List<CompletableFuture<InputStream>> calls =
+                new CopyOnWriteArrayList<CompletableFuture<InputStream>>();
+
+        StubService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            try {
+                return performIOAsync(payload).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        protected CompletableFuture<InputStream> performIOAsync(String payload) {
+            CompletableFuture<InputStream> call = new CompletableFuture<InputStream>();
+            calls.add(call);
+            return call;
+        }
+
+        void reply(int call, String result) {
+            String response = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result + "}";
+            calls.get(call).complete(
+                    new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
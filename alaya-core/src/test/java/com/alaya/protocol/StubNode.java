@@ -0,0 +1,223 @@
+package com.alaya.protocol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.websocket.events.Notification;
+
+/**
+ * A node answering every request with its name, or with its head for platon_blockNumber.
+ *
+ * <p>A holding node keeps every request until the test answers it with {@link #reply} or
+ * {@link #fail}, the others answer on the spot, once the delay set has elapsed.
+ */
+public class StubNode implements Web3jService {
+
+    private final String name;
+    private final boolean holding;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    // Guarded by requests
+    private final List<Call> calls = new ArrayList<Call>();
+    private final ConcurrentMap<Integer, CountDownLatch> received =
+            new ConcurrentHashMap<Integer, CountDownLatch>();
+
+    private volatile long delay;
+    private volatile long head;
+    private volatile Exception failure;
+
+    private StubNode(String name, boolean holding) {
+        this.name = name;
+        this.holding = holding;
+    }
+
+    public static StubNode answering(String name) {
+        return new StubNode(name, false);
+    }
+
+    public static StubNode holding(String name) {
+        return new StubNode(name, true);
+    }
+
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    public void setHead(long head) {
+        this.head = head;
+    }
+
+    /**
+     * Fail every request from now on, or none if null.
+     */
+    public void setFailure(Exception failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * The methods of the requests received so far, in order.
+     */
+    public List<String> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<String>(requests);
+        }
+    }
+
+    /**
+     * Wait for a holding node to receive a request.
+     *
+     * @param call the position of the request among those received
+     */
+    public void awaitCall(int call) throws InterruptedException {
+        if (!received(call).await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError(name + " didn't receive request " + call);
+        }
+    }
+
+    /**
+     * Answer a request held by the node.
+     *
+     * @param call the position of the request among those received
+     */
+    public void reply(int call) {
+        Call held = call(call);
+        held.response.complete(answer(held.request, held.responseType));
+    }
+
+    /**
+     * Fail a request held by the node.
+     *
+     * @param call the position of the request among those received
+     */
+    public void fail(int call, Exception failure) {
+        call(call).response.completeExceptionally(failure);
+    }
+
+    @Override
+    public <T extends Response> T send(
+            Request request, Class<T> responseType) throws IOException {
+        if (holding) {
+            throw new UnsupportedOperationException();
+        }
+        requests.add(request.getMethod());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        Exception failure = this.failure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return answer(request, responseType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        if (!holding) {
+            CompletableFuture<T> response = new CompletableFuture<T>();
+            try {
+                response.complete(send(request, responseType));
+            } catch (IOException | RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+            return response;
+        }
+
+        Call call = new Call(request, responseType);
+        int index;
+        synchronized (requests) {
+            index = calls.size();
+            calls.add(call);
+            requests.add(request.getMethod());
+        }
+        received(index).countDown();
+        return (CompletableFuture<T>) (CompletableFuture<?>) call.response;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Notification<?>> Observable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean supportsSubscriptions() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Call call(int call) {
+        synchronized (requests) {
+            return calls.get(call);
+        }
+    }
+
+    private CountDownLatch received(int call) {
+        CountDownLatch latch = received.get(call);
+        if (latch == null) {
+            CountDownLatch created = new CountDownLatch(1);
+            latch = received.putIfAbsent(call, created);
+            if (latch == null) {
+                latch = created;
+            }
+        }
+        return latch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Response> T answer(Request request, Class<T> responseType) {
+        try {
+            T response = responseType.newInstance();
+            response.setResult(request.getMethod().equals("platon_blockNumber")
+                    ? "0x" + Long.toHexString(head) : name);
+            return response;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A request held until the test answers it.
+     */
+    private static class Call {
+
+        private final Request request;
+        private final Class<? extends Response> responseType;
+        private final CompletableFuture<Response> response = new CompletableFuture<Response>();
+
+        Call(Request request, Class<? extends Response> responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.alaya.protocol.cache;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LruResponseCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        LruResponseCache cache = new LruResponseCache(100);
+        byte[] response = new byte[10];
+
+        assertThat(cache.get("a"), nullValue());
+        cache.put("a", response);
+        assertThat(cache.get("a"), is(response));
+
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getWeight(), is(12L));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LruResponseCache cache = new LruResponseCache(36);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        cache.put("c", new byte[10]);
+        cache.get("a");
+
+        cache.put("d", new byte[10]);
+
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.getSize(), is(3));
+        assertThat(cache.getWeight(), is(36L));
+        assertThat(cache.getEvictionCount(), is(1L));
+    }
+
+    @Test
+    public void testReplacingEntryUpdatesWeight() {
+        LruResponseCache cache = new LruResponseCache(100);
+        cache.put("a", new byte[10]);
+        cache.put("a", new byte[20]);
+
+        assertThat(cache.getSize(), is(1));
+        assertThat(cache.getWeight(), is(22L));
+    }
+
+    @Test
+    public void testDoesNotCacheResponseLargerThanCache() {
+        LruResponseCache cache = new LruResponseCache(100);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[100]);
+
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.getSize(), is(1));
+    }
+}
@@ -0,0 +1,186 @@
+package com.alaya.protocol.core;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGasPrice;
+import com.alaya.protocol.core.methods.response.Web3ClientVersion;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+import com.alaya.protocol.http.HttpService;
+
+import static com.alaya.protocol.http.HttpService.JSON_MEDIA_TYPE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BatchRequestTest {
+
+    private BatchInterceptor interceptor;
+    private Web3j web3j;
+
+    @Before
+    public void setUp() {
+        interceptor = new BatchInterceptor();
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .build();
+        web3j = Web3jFactory.build(new HttpService(httpClient));
+    }
+
+    @Test
+    public void testBatchIsSentAsSingleArray() throws Exception {
+        Request<?, Web3ClientVersion> clientVersion = web3j.web3ClientVersion();
+        Request<?, PlatonBlockNumber> blockNumber = web3j.platonBlockNumber();
+
+        interceptor.jsonResponse = "["
+                + response(clientVersion.getId(), "\"Platon/v1.0.0\"") + ","
+                + response(blockNumber.getId(), "\"0x10\"") + "]";
+
+        web3j.newBatch().add(clientVersion).add(blockNumber).send();
+
+        assertThat(interceptor.requestCount, is(1));
+        assertThat(interceptor.requestBody, is("["
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"web3_clientVersion\",\"params\":[],"
+                + "\"id\":" + clientVersion.getId() + "},"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"platon_blockNumber\",\"params\":[],"
+                + "\"id\":" + blockNumber.getId() + "}]"));
+    }
+
+    @Test
+    public void testResponsesAreMatchedById() throws Exception {
+        Request<?, PlatonBlockNumber> blockNumber = web3j.platonBlockNumber();
+        Request<?, PlatonGasPrice> gasPrice = web3j.platonGasPrice();
+
+        // nodes may answer the elements of a batch in any order
+        interceptor.jsonResponse = "["
+                + response(gasPrice.getId(), "\"0x3b9aca00\"") + ","
+                + response(blockNumber.getId(), "\"0x10\"") + "]";
+
+        BatchResponse batchResponse = web3j.newBatch().add(blockNumber).add(gasPrice).send();
+
+        assertThat(batchResponse.getResponses().size(), is(2));
+        assertThat(batchResponse.getResponse(0, PlatonBlockNumber.class).getBlockNumber(),
+                is(BigInteger.valueOf(16)));
+        assertThat(batchResponse.getResponse(1, PlatonGasPrice.class).getGasPrice(),
+                is(BigInteger.valueOf(1000000000)));
+    }
+
+    @Test
+    public void testErrorResponseWithinBatch() throws Exception {
+        Request<?, PlatonBlockNumber> blockNumber = web3j.platonBlockNumber();
+
+        interceptor.jsonResponse = "[{\"jsonrpc\":\"2.0\",\"id\":" + blockNumber.getId()
+                + ",\"error\":{\"code\":-32601,\"message\":\"Method not found\"}}]";
+
+        BatchResponse batchResponse = web3j.newBatch().add(blockNumber).send();
+
+        PlatonBlockNumber response = batchResponse.getResponse(0, PlatonBlockNumber.class);
+        assertTrue(response.hasError());
+        assertThat(response.getError().getCode(), is(-32601));
+    }
+
+    @Test
+    public void testEmptyBatchIsNotSent() throws Exception {
+        BatchResponse batchResponse = web3j.newBatch().send();
+
+        assertTrue(batchResponse.getResponses().isEmpty());
+        assertThat(interceptor.requestCount, is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingResponse() throws Exception {
+        Request<?, PlatonBlockNumber> blockNumber = web3j.platonBlockNumber();
+        Request<?, PlatonGasPrice> gasPrice = web3j.platonGasPrice();
+
+        interceptor.jsonResponse = "[" + response(blockNumber.getId(), "\"0x10\"") + "]";
+
+        web3j.newBatch().add(blockNumber).add(gasPrice).send();
+    }
+
+    @Test(expected = ClientConnectionException.class)
+    public void testBatchRejectedByNode() throws Exception {
+        interceptor.jsonResponse = "{\"jsonrpc\":\"2.0\",\"id\":null,"
+                + "\"error\":{\"code\":-32600,\"message\":\"batch not supported\"}}";
+
+        web3j.newBatch().add(web3j.platonBlockNumber()).send();
+    }
+
+    @Test
+    public void testServiceWithoutBatchesSendsRequestsOneByOne() throws Exception {
+        Web3j web3j = Web3jFactory.build(new SingleRequestService());
+
+        BatchResponse batchResponse = web3j.newBatch()
+                .add(web3j.web3ClientVersion())
+                .add(web3j.platonBlockNumber())
+                .send();
+        assertThat(batchResponse.getResponse(0, Web3ClientVersion.class).getWeb3ClientVersion(),
+                is("web3_clientVersion"));
+
+        batchResponse = web3j.newBatch()
+                .add(web3j.web3ClientVersion())
+                .add(web3j.platonGasPrice())
+                .sendAsync().get(5, TimeUnit.SECONDS);
+        assertThat(batchResponse.getResponses().size(), is(2));
+        assertThat(batchResponse.getResponse(1, PlatonGasPrice.class).getResult(),
+                is("platon_gasPrice"));
+    }
+
+    private static String response(long id, String result) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":" + result + "}";
+    }
+
+    /**
+     * A service implementing nothing but send, answering every request with its method.
+     */
+    private static class SingleRequestService implements Web3jService {
+
+        @Override
+        public <T extends Response> T send(Request request, Class<T> responseType)
+                throws IOException {
+            try {
+                T response = responseType.newInstance();
+                response.setResult(request.getMethod());
+                return response;
+            } catch (ReflectiveOperationException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static class BatchInterceptor implements Interceptor {
+
+        private String jsonResponse;
+        private String requestBody;
+        private int requestCount;
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+            requestCount++;
+
+            Buffer buffer = new Buffer();
+            chain.request().body().writeTo(buffer);
+            requestBody = buffer.readUtf8();
+
+            return new okhttp3.Response.Builder()
+                    .body(ResponseBody.create(JSON_MEDIA_TYPE, jsonResponse))
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_2)
+                    .code(200)
+                    .message("")
+                    .build();
+        }
+    }
+}
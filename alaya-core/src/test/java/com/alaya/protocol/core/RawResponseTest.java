@@ -43,6 +43,17 @@ public class RawResponseTest extends ResponseTester {
         assertThat(ethBlock.getRawResponse(), is(LARGE_RAW_RESPONSE));
     }
 
+    @Test
+    public void testRawResponseIsSlicedFromBody() {
+        configureWeb3Service(true);
+        String rawResponse = "{\"id\":67,\"jsonrpc\":\"2.0\",\"result\":\"\u5e73\u53f0/v1.0\"}";
+        buildResponse("\n  " + rawResponse + "\n");
+
+        Web3ClientVersion web3ClientVersion = deserialiseResponse(Web3ClientVersion.class);
+        assertThat(web3ClientVersion.getWeb3ClientVersion(), is("\u5e73\u53f0/v1.0"));
+        assertThat(web3ClientVersion.getRawResponse(), is(rawResponse));
+    }
+
     @Test
     public void testRawResponseDisabled() {
         configureWeb3Service(false);
@@ -812,6 +812,39 @@ public class ResponseTest extends ResponseTester {
         assertNull(ethTransaction.getTransaction());
     }
 
+    @Test
+    public void testEthTransactionUnknownFieldsAndHexV() {
+        buildResponse(
+                "{\n"
+                        + "  \"result\": {\n"
+                        + "    \"hash\":\"0xc6ef\",\n"
+                        + "    \"blockNumber\":\"0x15df\",\n"
+                        + "    \"chainId\":\"0x1\",\n"
+                        + "    \"accessList\":[{\"address\":\"0x01\",\"storageKeys\":[]}],\n"
+                        + "    \"v\":\"0x1c\"\n"
+                        + "  }\n"
+                        + "}"
+        );
+
+        Transaction transaction =
+                deserialiseResponse(PlatonTransaction.class).getTransaction();
+        assertThat(transaction.getHash(), is("0xc6ef"));
+        assertThat(transaction.getBlockNumber(), is(BigInteger.valueOf(0x15df)));
+        assertThat(transaction.getV(), is(28));
+    }
+
+    @Test
+    public void testTransactionQuantitiesAreDecodedOnce() {
+        Transaction transaction = new Transaction();
+        transaction.setBlockNumber("0x15df");
+
+        BigInteger blockNumber = transaction.getBlockNumber();
+        assertThat(transaction.getBlockNumber(), CoreMatchers.sameInstance(blockNumber));
+
+        transaction.setBlockNumber("0x15e0");
+        assertThat(transaction.getBlockNumber(), is(BigInteger.valueOf(0x15e0)));
+    }
+
     @Test
     public void testeEthGetTransactionReceiptBeforeByzantium() {
         //CHECKSTYLE:OFF
@@ -0,0 +1,305 @@
+package com.alaya.protocol.core.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonLog;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilterMultiplexerTest {
+
+    private static final String BLOCK_HASH =
+            "0x31c2342b1e0b8ffda1507fbffddf213c4b3c1e819ff6a84b943faabb0ebf2403";
+    private static final String ADDRESS = "0x7bc84f6b1b0c0ef1dbcbfb5e3a2f8fa5c3e8a7c1";
+    private static final String OTHER_ADDRESS = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+    private static final String BLOCK_FILTER_ID = "0x10";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    private final List<String> methods = new CopyOnWriteArrayList<String>();
+    private final List<PlatonFilter> installed = new CopyOnWriteArrayList<PlatonFilter>();
+    private final AtomicInteger logFilterIds = new AtomicInteger(0x20);
+
+    private ScheduledExecutorService scheduledExecutorService;
+    private FilterMultiplexer filterMultiplexer;
+
+    // when set, log filters are installed once released
+    private volatile CountDownLatch installing;
+    private volatile CountDownLatch release;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Web3jService web3jService = mock(Web3jService.class);
+        when(web3jService.send(any(Request.class), any(Class.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                methods.add(request.getMethod());
+                if ("platon_newFilter".equals(request.getMethod())) {
+                    installed.add((PlatonFilter) request.getParams().get(0));
+                    if (release != null) {
+                        installing.countDown();
+                        release.await();
+                    }
+                }
+                return objectMapper.readValue(
+                        response(request), (Class<?>) invocation.getArguments()[1]);
+            }
+        });
+
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        Web3j web3j = Web3jFactory.build(web3jService, 1000, scheduledExecutorService);
+        filterMultiplexer = new FilterMultiplexer(web3j, scheduledExecutorService);
+    }
+
+    @After
+    public void tearDown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void testBlockCallbacksShareFilter() throws Exception {
+        CountingCallback<String> first = new CountingCallback<String>();
+        CountingCallback<String> second = new CountingCallback<String>();
+
+        filterMultiplexer.addBlockCallback(first, 10);
+        filterMultiplexer.addBlockCallback(second, 10);
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertThat(count("platon_newBlockFilter"), is(1));
+        assertThat(filterMultiplexer.getFilterCount(), is(1));
+
+        filterMultiplexer.removeBlockCallback(first);
+        assertThat(count("platon_uninstallFilter"), is(0));
+
+        filterMultiplexer.removeBlockCallback(second);
+        assertThat(count("platon_uninstallFilter"), is(1));
+        assertThat(filterMultiplexer.getFilterCount(), is(0));
+    }
+
+    @Test
+    public void testLogCallbacksShareFilterWithSameCriteria() throws Exception {
+        CountingCallback<Log> first = new CountingCallback<Log>();
+        CountingCallback<Log> second = new CountingCallback<Log>();
+
+        filterMultiplexer.addLogCallback(new PlatonFilter().addSingleTopic("0x01"), first, 10);
+        filterMultiplexer.addLogCallback(new PlatonFilter().addSingleTopic("0x01"), second, 10);
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertThat(count("platon_newFilter"), is(1));
+
+        filterMultiplexer.removeLogCallback(new PlatonFilter().addSingleTopic("0x01"), first);
+        assertThat(count("platon_uninstallFilter"), is(0));
+        filterMultiplexer.removeLogCallback(new PlatonFilter().addSingleTopic("0x01"), second);
+        assertThat(count("platon_uninstallFilter"), is(1));
+        assertThat(filterMultiplexer.getFilterCount(), is(0));
+    }
+
+    @Test
+    public void testLogCallbacksWithDifferentCriteriaShareFilter() throws Exception {
+        CollectingCallback byAddress = new CollectingCallback();
+        CollectingCallback byTopic = new CollectingCallback();
+        CollectingCallback byBoth = new CollectingCallback();
+        PlatonFilter addressFilter = new PlatonFilter(null, null, ADDRESS);
+        PlatonFilter topicFilter = new PlatonFilter(null, null, OTHER_ADDRESS)
+                .addSingleTopic("0x02");
+        PlatonFilter bothFilter = new PlatonFilter(null, null, OTHER_ADDRESS)
+                .addSingleTopic("0x01");
+
+        filterMultiplexer.addLogCallback(addressFilter, byAddress, 10);
+        filterMultiplexer.addLogCallback(topicFilter, byTopic, 10);
+        filterMultiplexer.addLogCallback(bothFilter, byBoth, 10);
+        assertTrue(byAddress.await());
+        assertTrue(byTopic.await());
+        assertThat(filterMultiplexer.getFilterCount(), is(1));
+        // installed again once with the second criteria, the third are covered already
+        await("platon_newFilter", 2);
+        await("platon_uninstallFilter", 1);
+
+        // each callback only gets the logs matching its own criteria
+        for (Log log : byAddress.logs) {
+            assertThat(log.getAddress(), is(ADDRESS));
+        }
+        for (Log log : byTopic.logs) {
+            assertThat(log.getAddress(), is(OTHER_ADDRESS));
+            assertThat(log.getTopics().get(0), is("0x02"));
+        }
+        assertTrue(byBoth.logs.isEmpty());
+
+        // the filter was installed again with the union of the criteria, replacing the first
+        PlatonFilter widest = installed.get(1);
+        assertThat(widest.getAddress(), is(Arrays.asList(ADDRESS, OTHER_ADDRESS)));
+        assertThat(widest.getTopics().isEmpty(), is(true));
+
+        filterMultiplexer.removeLogCallback(addressFilter, byAddress);
+        filterMultiplexer.removeLogCallback(topicFilter, byTopic);
+        assertThat(count("platon_uninstallFilter"), is(1));
+        filterMultiplexer.removeLogCallback(bothFilter, byBoth);
+        assertThat(count("platon_uninstallFilter"), is(2));
+        assertThat(filterMultiplexer.getFilterCount(), is(0));
+    }
+
+    @Test
+    public void testMergesCriteria() throws Exception {
+        PlatonFilter merged = FilterMultiplexer.merge(null, new PlatonFilter(null, null, ADDRESS)
+                .addSingleTopic("0x01").addSingleTopic("0x02"));
+        merged = FilterMultiplexer.merge(merged, new PlatonFilter(null, null, OTHER_ADDRESS)
+                .addSingleTopic("0x03"));
+
+        assertThat(merged.getAddress(), is(Arrays.asList(ADDRESS, OTHER_ADDRESS)));
+        // the second criteria allow any topic at the second position
+        assertThat(objectMapper.writeValueAsString(merged.getTopics()),
+                is("[[\"0x01\",\"0x03\"]]"));
+
+        // criteria covered already give the same criteria back
+        PlatonFilter covered = FilterMultiplexer.merge(
+                merged, new PlatonFilter(null, null, ADDRESS).addSingleTopic("0x03"));
+        assertThat(objectMapper.writeValueAsString(covered),
+                is(objectMapper.writeValueAsString(merged)));
+
+        // criteria without addresses allow any address
+        assertThat(FilterMultiplexer.merge(merged, new PlatonFilter()).getAddress(),
+                nullValue());
+    }
+
+    @Test
+    public void testInstallsFiltersWithoutBlockingOthers() throws Exception {
+        installing = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        final CountingCallback<Log> first = new CountingCallback<Log>();
+        final CountingCallback<Log> second = new CountingCallback<Log>();
+        CountingCallback<String> block = new CountingCallback<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final CountingCallback<Log> callback : Arrays.asList(first, second)) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    filterMultiplexer.addLogCallback(
+                            new PlatonFilter().addSingleTopic("0x01"), callback, 10);
+                }
+            });
+        }
+        threads.get(0).start();
+        assertTrue(installing.await(1, TimeUnit.SECONDS));
+        threads.get(1).start();
+
+        filterMultiplexer.addBlockCallback(block, 10);
+        assertTrue(block.await());
+        filterMultiplexer.removeBlockCallback(block);
+        assertThat(count("platon_uninstallFilter"), is(1));
+
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(1000);
+        }
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertThat(count("platon_newFilter"), is(1));
+        assertThat(filterMultiplexer.getFilterCount(), is(1));
+    }
+
+    @Test
+    public void testFailingCallbackDoesNotAffectOthers() throws Exception {
+        CountingCallback<String> callback = new CountingCallback<String>();
+        filterMultiplexer.addBlockCallback(new Callback<String>() {
+            @Override
+            public void onEvent(String value) {
+                throw new IllegalStateException();
+            }
+        }, 10);
+        filterMultiplexer.addBlockCallback(callback, 10);
+
+        assertTrue(callback.await());
+    }
+
+    private void await(String method, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (count(method) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(count(method), is(expected));
+    }
+
+    private int count(String method) {
+        int count = 0;
+        for (String sent : methods) {
+            if (sent.equals(method)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String response(Request<?, ?> request) {
+        String method = request.getMethod();
+        String result;
+        if ("platon_newBlockFilter".equals(method)) {
+            result = "\"" + BLOCK_FILTER_ID + "\"";
+        } else if ("platon_newFilter".equals(method)) {
+            result = "\"0x" + Integer.toHexString(logFilterIds.getAndIncrement()) + "\"";
+        } else if ("platon_blockNumber".equals(method)) {
+            result = "\"0x1\"";
+        } else if ("platon_uninstallFilter".equals(method)) {
+            result = "true";
+        } else if (BLOCK_FILTER_ID.equals(request.getParams().get(0))) {
+            result = "[\"" + BLOCK_HASH + "\"]";
+        } else {
+            result = "[{\"address\":\"" + ADDRESS + "\",\"topics\":[\"0x01\"]},"
+                    + "{\"address\":\"" + OTHER_ADDRESS + "\",\"topics\":[\"0x02\"]}]";
+        }
+        return "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result + "}";
+    }
+
+    private static class CollectingCallback extends CountingCallback<Log> {
+
+        private final List<Log> logs = new CopyOnWriteArrayList<Log>();
+
+        @Override
+        public void onEvent(Log value) {
+            logs.add(value);
+            super.onEvent(value);
+        }
+    }
+
+    private static class CountingCallback<T> implements Callback<T> {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(T value) {
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(1, TimeUnit.SECONDS);
+        }
+    }
+}
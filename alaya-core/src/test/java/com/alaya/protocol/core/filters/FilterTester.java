@@ -23,6 +23,7 @@ import com.alaya.protocol.Web3j;
 import com.alaya.protocol.Web3jFactory;
 import com.alaya.protocol.Web3jService;
 import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
 import com.alaya.protocol.core.methods.response.PlatonFilter;
 import com.alaya.protocol.core.methods.response.PlatonLog;
 import com.alaya.protocol.core.methods.response.PlatonUninstallFilter;
@@ -52,6 +53,15 @@ public abstract class FilterTester {
 
     @SuppressWarnings("unchecked")
     <T> void runTest(PlatonLog ethLog, Observable<T> observable) throws Exception {
+        runTest(ethLog, observable, (List<T>) createExpected(ethLog));
+    }
+
+    /**
+     * Run a filter test expecting only some of the logs reported by the node to be emitted.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void runTest(PlatonLog ethLog, Observable<T> observable, final List<T> expected)
+            throws Exception {
         PlatonFilter ethFilter = objectMapper.readValue(
                 "{\n"
                         + "  \"id\":1,\n"
@@ -59,10 +69,12 @@ public abstract class FilterTester {
                         + "  \"result\": \"0x1\"\n"
                         + "}", PlatonFilter.class);
 
+        PlatonBlockNumber ethBlockNumber = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x1\"}", PlatonBlockNumber.class);
+
         PlatonUninstallFilter ethUninstallFilter = objectMapper.readValue(
                 "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":true}", PlatonUninstallFilter.class);
 
-        final List<T> expected = createExpected(ethLog);
         final Set<T> results = Collections.synchronizedSet(new HashSet<T>());
 
         final CountDownLatch transactionLatch = new CountDownLatch(expected.size());
@@ -73,6 +85,8 @@ public abstract class FilterTester {
                 .thenReturn(ethFilter);
         when(web3jService.send(any(Request.class), eq(PlatonLog.class)))
                 .thenReturn(ethLog);
+        when(web3jService.send(any(Request.class), eq(PlatonBlockNumber.class)))
+                .thenReturn(ethBlockNumber);
         when(web3jService.send(any(Request.class), eq(PlatonUninstallFilter.class)))
                 .thenReturn(ethUninstallFilter);
 
@@ -1,10 +1,36 @@
 package com.alaya.protocol.core.filters;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.Request;
 import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
 import com.alaya.protocol.core.methods.response.PlatonLog;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class LogFilterTest extends FilterTester {
 
     @Test
@@ -12,10 +38,258 @@ public class LogFilterTest extends FilterTester {
 
         PlatonLog ethLog = objectMapper.readValue(
                 //CHECKSTYLE:OFF
-                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[{\"address\":\"0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x45544855534400000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000\",\"logIndex\":\"0x0\",\"removed\":false,\"topics\":[\"0x5a690ecd0cb15c1c1fd6b6f8a32df0d4f56cb41a54fea7e94020f013595de796\",\"0x0000000000000000000000000000000000000000000000000000000000000002\",\"0x0000000000000000000000003f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\",\"0x0000000000000000000000000000000000000000000000000000000000000000\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x0000000000000000000000000000000000000000000000006c93a67534ce4000\",\"logIndex\":\"0x1\",\"removed\":false,\"topics\":[\"0xa9c6cbc4bd352a6940479f6d802a1001550581858b310d7f68f7bea51218cda6\",\"0x4554485553440000000000000000000000000000000000000000000000000000\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x3f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x0000000000000000000000000000000000000000000000006c93a67534ce4000\",\"logIndex\":\"0x2\",\"removed\":false,\"topics\":[\"0xa609f6bd4ad0b4f419ddad4ac9f0d02c2b9295c5e6891469055cf73c2b568fff\",\"0x0000000000000000000000003f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x870283380c7da544d2b16d3434709874e3ed77cb\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x000000000000000000000000000000000000000000000000000000005853a9f4000000000000000000000000000000000000000000000000000000000000004e\",\"logIndex\":\"0x3\",\"removed\":false,\"topics\":[\"0x9de614b5c45179d41912c87ca7f7af67525f50c10b6b9cea79dc2c12b8d693a3\"],\"transactionHash\":\"0xccf367f7c845de706ccf985a187ea168f9df241d4878780f996aa08a303ad910\",\"transactionIndex\":\"0x1\"},{\"address\":\"0x870283380c7da544d2b16d3434709874e3ed77cb\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x000000000000000000000000000000000000000000000000000000005853aa04000000000000000000000000000000000000000000000000000000000000004e\",\"logIndex\":\"0x4\",\"removed\":false,\"topics\":[\"0x9de614b5c45179d41912c87ca7f7af67525f50c10b6b9cea79dc2c12b8d693a3\"],\"transactionHash\":\"0x83d38a70d55279be43cfb6da97256e438b6f72337be1a0919b349244fe633daa\",\"transactionIndex\":\"0x2\"}]}",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[{\"address\":\"0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x45544855534400000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000\",\"logIndex\":\"0x0\",\"removed\":false,\"topics\":[\"0x5a690ecd0cb15c1c1fd6b6f8a32df0d4f56cb41a54fea7e94020f013595de796\",\"0x0000000000000000000000000000000000000000000000000000000000000002\",\"0x0000000000000000000000003f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\",\"0x0000000000000000000000000000000000000000000000000000000000000000\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x0000000000000000000000000000000000000000000000006c93a67534ce4000\",\"logIndex\":\"0x1\",\"removed\":false,\"topics\":[\"0xa9c6cbc4bd352a6940479f6d802a1001550581858b310d7f68f7bea51218cda6\",\"0x4554485553440000000000000000000000000000000000000000000000000000\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x3f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x0000000000000000000000000000000000000000000000006c93a67534ce4000\",\"logIndex\":\"0x2\",\"removed\":false,\"topics\":[\"0xa609f6bd4ad0b4f419ddad4ac9f0d02c2b9295c5e6891469055cf73c2b568fff\",\"0x0000000000000000000000003f37a1c95bbc0aa6bf62e99b30b147e68dee7b43\"],\"transactionHash\":\"0x9d8a4410204140a8fa7f191b0b1d9526822a87d212ade0b6a3cbd20a6e2ed2e9\",\"transactionIndex\":\"0x0\"},{\"address\":\"0x870283380c7da544d2b16d3434709874e3ed77cb\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x000000000000000000000000000000000000000000000000000000005853a9f4000000000000000000000000000000000000000000000000000000000000004e\",\"logIndex\":\"0x3\",\"removed\":false,\"topics\":[\"test\"],\"transactionHash\":\"0xccf367f7c845de706ccf985a187ea168f9df241d4878780f996aa08a303ad910\",\"transactionIndex\":\"0x1\"},{\"address\":\"0x870283380c7da544d2b16d3434709874e3ed77cb\",\"blockHash\":\"0xd263df878c66b8a08c8509a8f33d6758bc3a1ee3c5ab3c9a765ea981ae9d72e3\",\"blockNumber\":\"0x2865a\",\"data\":\"0x000000000000000000000000000000000000000000000000000000005853aa04000000000000000000000000000000000000000000000000000000000000004e\",\"logIndex\":\"0x4\",\"removed\":false,\"topics\":[\"test\"],\"transactionHash\":\"0x83d38a70d55279be43cfb6da97256e438b6f72337be1a0919b349244fe633daa\",\"transactionIndex\":\"0x2\"}]}",
                 //CHECKSTYLE:ON
                 PlatonLog.class);
 
-        runTest(ethLog, web3j.ethLogObservable(new PlatonFilter().addSingleTopic("test")));
+        // the node may report logs beyond the criteria, only the logs of the topic are emitted
+        List<Log> expected = new ArrayList<Log>();
+        for (PlatonLog.LogResult logResult : ethLog.getLogs()) {
+            Log log = (Log) logResult.get();
+            if (log.getTopics().equals(Arrays.asList("test"))) {
+                expected.add(log);
+            }
+        }
+        assertThat(expected.size(), is(2));
+        runTest(ethLog, web3j.ethLogObservable(new PlatonFilter().addSingleTopic("test")),
+                expected);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReinstallsLostFilter() throws Exception {
+        final List<String> methods = new CopyOnWriteArrayList<String>();
+        final List<Object> getLogsParams = new CopyOnWriteArrayList<Object>();
+        final AtomicInteger polls = new AtomicInteger();
+        final AtomicInteger heads = new AtomicInteger(0x10);
+
+        Web3jService web3jService = mock(Web3jService.class);
+        stub(web3jService, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                String method = request.getMethod();
+                methods.add(method);
+
+                String response;
+                if ("platon_blockNumber".equals(method)) {
+                    // the chain moved on by the time the filter is installed again
+                    response = result("\"0x" + Integer.toHexString(heads.getAndAdd(4)) + "\"");
+                } else if ("platon_newFilter".equals(method)) {
+                    response = result("\"0x1\"");
+                } else if ("platon_getFilterChanges".equals(method)
+                        && polls.getAndIncrement() == 0) {
+                    response = "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                            + "\"error\":{\"code\":-32000,\"message\":\"filter not found\"}}";
+                } else if ("platon_uninstallFilter".equals(method)) {
+                    response = result("true");
+                } else if ("platon_getLogs".equals(method)) {
+                    getLogsParams.add(request.getParams().get(0));
+                    response = result("[{\"blockNumber\":\"0x12\",\"logIndex\":\"0x0\"}]");
+                } else {
+                    response = result("[]");
+                }
+                return objectMapper.readValue(response, (Class<?>) invocation.getArguments()[1]);
+            }
+        });
+        Web3j web3j = Web3jFactory.build(web3jService, 1000, scheduledExecutorService);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<BigInteger> blockNumbers = new CopyOnWriteArrayList<BigInteger>();
+        LogFilter logFilter = new LogFilter(web3j, new Callback<Log>() {
+            @Override
+            public void onEvent(Log value) {
+                blockNumbers.add(value.getBlockNumber());
+                latch.countDown();
+            }
+        }, new PlatonFilter().addSingleTopic("test"));
+        logFilter.run(scheduledExecutorService, 100);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        logFilter.cancel();
+
+        assertThat(blockNumbers.get(0), equalTo(BigInteger.valueOf(0x12)));
+        PlatonFilter missed = (PlatonFilter) getLogsParams.get(0);
+        assertThat(missed.getFromBlock().getValue(), is("0x11"));
+        assertThat(missed.getToBlock().getValue(), is("0x14"));
+        assertThat(missed.getTopics().get(0).getValue(), equalTo((Object) "test"));
+        int installs = 0;
+        for (String method : methods) {
+            if ("platon_newFilter".equals(method)) {
+                installs++;
+            }
+        }
+        assertThat(installs, is(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecoversWidenedCriteriaFromTheirFirstBlock() throws Exception {
+        final String address = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+        final String otherAddress = "0x3f37a1c95bbc0aa6bf62e99b30b147e68dee7b43";
+        final List<Object> getLogsParams = new CopyOnWriteArrayList<Object>();
+        final AtomicInteger filterIds = new AtomicInteger(1);
+        final AtomicInteger head = new AtomicInteger(0x10);
+        final AtomicReference<String> uninstalled = new AtomicReference<String>();
+
+        Web3jService web3jService = mock(Web3jService.class);
+        stub(web3jService, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                String method = request.getMethod();
+
+                String response;
+                if ("platon_blockNumber".equals(method)) {
+                    response = result("\"0x" + Integer.toHexString(head.get()) + "\"");
+                } else if ("platon_newFilter".equals(method)) {
+                    response = result("\"0x" + filterIds.getAndIncrement() + "\"");
+                } else if ("platon_getFilterChanges".equals(method)
+                        && request.getParams().get(0).equals("0x1") && head.get() > 0x10) {
+                    // the filter replaced still reports a log of its own criteria
+                    response = result("[" + log(address, "0x42", "0x0") + "]");
+                } else if ("platon_uninstallFilter".equals(method)) {
+                    uninstalled.set((String) request.getParams().get(0));
+                    response = result("true");
+                } else if ("platon_getLogs".equals(method)) {
+                    getLogsParams.add(request.getParams().get(0));
+                    response = result("[" + log(address, "0x42", "0x0") + ","
+                            + log(otherAddress, "0x42", "0x1") + "]");
+                } else {
+                    response = result("[]");
+                }
+                return objectMapper.readValue(response, (Class<?>) invocation.getArguments()[1]);
+            }
+        });
+        Web3j web3j = Web3jFactory.build(web3jService, 1000, scheduledExecutorService);
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<String> delivered = new CopyOnWriteArrayList<String>();
+        LogFilter logFilter = new LogFilter(web3j, new Callback<Log>() {
+            @Override
+            public void onEvent(Log value) {
+                delivered.add(value.getAddress());
+                latch.countDown();
+            }
+        }, new PlatonFilter(null, null, address));
+        logFilter.run(scheduledExecutorService, 100);
+
+        // no log for a long while, then criteria covering another address from the head on
+        head.set(0x44);
+        logFilter.setCriteria(new PlatonFilter(null, null, Arrays.asList(address, otherAddress)),
+                BigInteger.valueOf(0x41));
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        logFilter.cancel();
+
+        // the log reported by the filter replaced isn't delivered again by the recovery, which
+        // starts from the first block of the new criteria rather than the last log delivered
+        assertThat(delivered, equalTo(Arrays.asList(address, otherAddress)));
+        assertThat(uninstalled.get(), is("0x1"));
+        assertThat(getLogsParams.size(), is(1));
+        PlatonFilter missed = (PlatonFilter) getLogsParams.get(0);
+        assertThat(missed.getFromBlock().getValue(), is("0x41"));
+        assertThat(missed.getToBlock().getValue(), is("0x44"));
+        assertThat(missed.getAddress(), equalTo(Arrays.asList(address, otherAddress)));
+    }
+
+    @Test
+    public void testRecoversWithoutDuplicates() throws Exception {
+        final List<String> methods = new CopyOnWriteArrayList<String>();
+        final List<Object> getLogsParams = new CopyOnWriteArrayList<Object>();
+        final AtomicInteger polls = new AtomicInteger();
+        final AtomicInteger heads = new AtomicInteger(0x10);
+
+        Web3jService web3jService = mock(Web3jService.class);
+        stub(web3jService, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                String method = request.getMethod();
+                methods.add(method);
+
+                String response;
+                if ("platon_blockNumber".equals(method)) {
+                    response = result("\"0x" + Integer.toHexString(heads.getAndAdd(4)) + "\"");
+                } else if ("platon_newFilter".equals(method)) {
+                    response = result("\"0x1\"");
+                } else if ("platon_getFilterChanges".equals(method)) {
+                    int poll = polls.getAndIncrement();
+                    if (poll == 2) {
+                        response = "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                                + "\"error\":{\"code\":-32000,\"message\":\"filter not found\"}}";
+                    } else if (poll == 3) {
+                        // the new filter reports a block recovered already
+                        response = result("[{\"blockNumber\":\"0x13\",\"logIndex\":\"0x0\"},"
+                                + "{\"blockNumber\":\"0x15\",\"logIndex\":\"0x0\"}]");
+                    } else {
+                        response = result("[]");
+                    }
+                } else if ("platon_uninstallFilter".equals(method)) {
+                    response = result("true");
+                } else if ("platon_getLogs".equals(method)) {
+                    getLogsParams.add(request.getParams().get(0));
+                    response = result("[{\"blockNumber\":\"0x13\",\"logIndex\":\"0x0\"}]");
+                } else {
+                    response = result("[]");
+                }
+                return objectMapper.readValue(response, (Class<?>) invocation.getArguments()[1]);
+            }
+        });
+        Web3j web3j = Web3jFactory.build(web3jService, 1000, scheduledExecutorService);
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<BigInteger> blockNumbers = new CopyOnWriteArrayList<BigInteger>();
+        LogFilter logFilter = new LogFilter(web3j, new Callback<Log>() {
+            @Override
+            public void onEvent(Log value) {
+                blockNumbers.add(value.getBlockNumber());
+                latch.countDown();
+            }
+        }, new PlatonFilter().addSingleTopic("test"));
+        logFilter.run(scheduledExecutorService, 100);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        logFilter.cancel();
+
+        assertThat(blockNumbers, equalTo(Arrays.asList(
+                BigInteger.valueOf(0x13), BigInteger.valueOf(0x15))));
+        PlatonFilter missed = (PlatonFilter) getLogsParams.get(0);
+        assertThat(missed.getFromBlock().getValue(), is("0x11"));
+        assertThat(missed.getToBlock().getValue(), is("0x14"));
+        // read when the filter is installed and when it's recovered, not by the empty polls
+        int headReads = 0;
+        for (String method : methods) {
+            if ("platon_blockNumber".equals(method)) {
+                headReads++;
+            }
+        }
+        assertThat(headReads, is(2));
+    }
+
+    /**
+     * Answer the requests sent to a mocked service, whether they are sent synchronously or
+     * not.
+     */
+    @SuppressWarnings("unchecked")
+    private static void stub(Web3jService web3jService, final Answer<Object> answer)
+            throws Exception {
+        when(web3jService.send(any(Request.class), any(Class.class))).thenAnswer(answer);
+        when(web3jService.sendAsync(any(Request.class), any(Class.class))).thenAnswer(
+                new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        return CompletableFuture.completedFuture(answer.answer(invocation));
+                    }
+                });
+    }
+
+    private static String log(String address, String blockNumber, String logIndex) {
+        return "{\"address\":\"" + address + "\",\"blockNumber\":\"" + blockNumber + "\","
+                + "\"logIndex\":\"" + logIndex + "\"}";
+    }
+
+    private static String result(String result) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result + "}";
     }
 }
@@ -0,0 +1,74 @@
+package com.alaya.protocol.core.filters;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.alaya.crypto.addressconvert.bech32.Bech32Util;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogMatcherTest {
+
+    private static final String ADDRESS = "0x7bc84f6b1b0c0ef1dbcbfb5e3a2f8fa5c3e8a7c1";
+    private static final String OTHER_ADDRESS = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+    private static final String TOPIC =
+            "0x5a690ecd0cb15c1c1fd6b6f8a32df0d4f56cb41a54fea7e94020f013595de796";
+    private static final String OTHER_TOPIC =
+            "0xa9c6cbc4bd352a6940479f6d802a1001550581858b310d7f68f7bea51218cda6";
+
+    private final Log log = log(ADDRESS, "0x10", TOPIC, OTHER_TOPIC);
+
+    @Test
+    public void testMatchesAddressAndTopics() {
+        assertTrue(matches(new PlatonFilter()));
+        assertTrue(matches(new PlatonFilter(null, null, ADDRESS)));
+        assertTrue(matches(new PlatonFilter(null, null, ADDRESS).addSingleTopic(TOPIC)));
+        assertTrue(matches(new PlatonFilter().addNullTopic().addSingleTopic(OTHER_TOPIC)));
+        assertTrue(matches(new PlatonFilter(null, null, Arrays.asList(OTHER_ADDRESS, ADDRESS))
+                .addOptionalTopics(OTHER_TOPIC, TOPIC)));
+    }
+
+    @Test
+    public void testRejectsOtherAddressOrTopics() {
+        assertFalse(matches(new PlatonFilter(null, null, OTHER_ADDRESS)));
+        assertFalse(matches(new PlatonFilter().addSingleTopic(OTHER_TOPIC)));
+        assertFalse(matches(new PlatonFilter().addOptionalTopics(OTHER_TOPIC)));
+        // the log has no third topic
+        assertFalse(matches(new PlatonFilter()
+                .addSingleTopic(TOPIC).addNullTopic().addSingleTopic(TOPIC)));
+    }
+
+    @Test
+    public void testMatchesBech32Address() {
+        assertTrue(matches(new PlatonFilter(
+                null, null, Bech32Util.addressEncode(Bech32Util.HRP_ATP, ADDRESS))));
+        assertTrue(new LogMatcher(new PlatonFilter(null, null, ADDRESS)).matches(log(
+                Bech32Util.addressEncode(Bech32Util.HRP_ATP, ADDRESS), "0x10", TOPIC)));
+    }
+
+    @Test
+    public void testRejectsLogsAfterLastBlock() {
+        assertTrue(matches(new PlatonFilter(null,
+                new DefaultBlockParameterNumber(BigInteger.valueOf(0x10)), ADDRESS)));
+        assertFalse(matches(new PlatonFilter(null,
+                new DefaultBlockParameterNumber(BigInteger.valueOf(0xf)), ADDRESS)));
+    }
+
+    private boolean matches(PlatonFilter ethFilter) {
+        return new LogMatcher(ethFilter).matches(log);
+    }
+
+    private static Log log(String address, String blockNumber, String... topics) {
+        Log log = new Log();
+        log.setAddress(address);
+        log.setBlockNumber(blockNumber);
+        log.setTopics(Arrays.asList(topics));
+        return log;
+    }
+}
@@ -0,0 +1,90 @@
+package com.alaya.protocol.core.filters;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.alaya.crypto.Hash;
+import com.alaya.crypto.addressconvert.bech32.Bech32Util;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.utils.Numeric;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogsBloomMatcherTest {
+
+    private static final String ADDRESS = "0x7bc84f6b1b0c0ef1dbcbfb5e3a2f8fa5c3e8a7c1";
+    private static final String OTHER_ADDRESS = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+    private static final String TOPIC =
+            "0x5a690ecd0cb15c1c1fd6b6f8a32df0d4f56cb41a54fea7e94020f013595de796";
+    private static final String OTHER_TOPIC =
+            "0xa9c6cbc4bd352a6940479f6d802a1001550581858b310d7f68f7bea51218cda6";
+
+    private final String logsBloom = bloom(ADDRESS, TOPIC);
+
+    @Test
+    public void testMatchesAddressAndTopic() {
+        assertTrue(matches(new PlatonFilter(null, null, ADDRESS)));
+        assertTrue(matches(new PlatonFilter(null, null, ADDRESS).addSingleTopic(TOPIC)));
+        assertTrue(matches(new PlatonFilter().addSingleTopic(TOPIC)));
+        assertTrue(matches(new PlatonFilter()));
+    }
+
+    @Test
+    public void testRejectsMissingAddressOrTopic() {
+        assertFalse(matches(new PlatonFilter(null, null, OTHER_ADDRESS)));
+        assertFalse(matches(new PlatonFilter(null, null, ADDRESS).addSingleTopic(OTHER_TOPIC)));
+        assertFalse(matches(new PlatonFilter().addNullTopic().addSingleTopic(OTHER_TOPIC)));
+        assertFalse(matches(new PlatonFilter(null, null, ADDRESS)
+                .addSingleTopic(TOPIC).addSingleTopic(OTHER_TOPIC)));
+    }
+
+    @Test
+    public void testMatchesAnyOfAlternatives() {
+        assertTrue(matches(new PlatonFilter(
+                null, null, Arrays.asList(OTHER_ADDRESS, ADDRESS))));
+        assertTrue(matches(new PlatonFilter().addOptionalTopics(OTHER_TOPIC, TOPIC)));
+        assertTrue(matches(new PlatonFilter().addNullTopic().addOptionalTopics(OTHER_TOPIC, null)));
+        assertFalse(matches(new PlatonFilter().addOptionalTopics(OTHER_TOPIC)));
+    }
+
+    @Test
+    public void testMatchesBech32Address() {
+        String address = Bech32Util.addressEncode(Bech32Util.HRP_ATP, ADDRESS);
+        assertTrue(matches(new PlatonFilter(null, null, address)));
+        assertFalse(matches(new PlatonFilter(
+                null, null, Bech32Util.addressEncode(Bech32Util.HRP_ATP, OTHER_ADDRESS))));
+    }
+
+    @Test
+    public void testMatchesBlockWithoutBloom() {
+        LogsBloomMatcher matcher = new LogsBloomMatcher(new PlatonFilter(null, null, ADDRESS));
+        assertTrue(matcher.matches(new PlatonBlock.Block()));
+        assertTrue(matcher.matches("0x"));
+
+        PlatonBlock.Block block = new PlatonBlock.Block();
+        block.setLogsBloom(bloom());
+        assertFalse(matcher.matches(block));
+    }
+
+    private boolean matches(PlatonFilter ethFilter) {
+        return new LogsBloomMatcher(ethFilter).matches(logsBloom);
+    }
+
+    /**
+     * The bloom of the given addresses and topics, as the node computes it.
+     */
+    static String bloom(String... items) {
+        BigInteger bloom = BigInteger.ZERO;
+        for (String item : items) {
+            byte[] hash = Hash.sha3(Numeric.hexStringToByteArray(item));
+            for (int i = 0; i < 6; i += 2) {
+                bloom = bloom.setBit(((hash[i] & 0xff) << 8 | hash[i + 1] & 0xff) % 2048);
+            }
+        }
+        return Numeric.toHexStringWithPrefixZeroPadded(bloom, 512);
+    }
+}
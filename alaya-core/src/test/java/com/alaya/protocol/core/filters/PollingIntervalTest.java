@@ -0,0 +1,69 @@
+package com.alaya.protocol.core.filters;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PollingIntervalTest {
+
+    @Test
+    public void testFollowsFasterBlocks() {
+        // polled every 2 seconds at first, blocks come every second
+        long delay = pollForMinutes(new PollingInterval(2000), 1000);
+
+        assertTrue("delay " + delay, delay >= 800 && delay <= 1200);
+    }
+
+    @Test
+    public void testFollowsSlowerBlocks() {
+        // polled every second at first, blocks come every 3 seconds
+        long delay = pollForMinutes(new PollingInterval(1000), 3000);
+
+        assertTrue("delay " + delay, delay >= 2400 && delay <= 3600);
+    }
+
+    @Test
+    public void testPollsSoonWhenChangeIsLate() {
+        PollingInterval pollingInterval = new PollingInterval(2000);
+        pollingInterval.next(1, 0);
+
+        assertThat(pollingInterval.next(0, 2000), is(500L));
+    }
+
+    @Test
+    public void testBacksOffWhenIdle() {
+        PollingInterval pollingInterval = new PollingInterval(2000);
+
+        assertThat(pollingInterval.next(0, 0), is(4000L));
+        assertThat(pollingInterval.next(0, 4000), is(8000L));
+        assertThat(pollingInterval.next(0, 12000), is(16000L));
+        // capped
+        assertThat(pollingInterval.next(0, 28000), is(16000L));
+
+        assertThat(pollingInterval.next(1, 44000), is(2000L));
+    }
+
+    /**
+     * Poll a chain producing a block every block time, each poll made after the delay returned
+     * by the one before.
+     *
+     * @return the delay after the last poll returning changes
+     */
+    private static long pollForMinutes(PollingInterval pollingInterval, long blockTime) {
+        long now = 0;
+        long delay = pollingInterval.next(0, now);
+        long lastDelay = delay;
+        while (now < 10 * 60 * 1000) {
+            long previous = now;
+            now += delay;
+            int changes = (int) (now / blockTime - previous / blockTime);
+            delay = pollingInterval.next(changes, now);
+            if (changes > 0) {
+                lastDelay = delay;
+            }
+        }
+        return lastDelay;
+    }
+}
@@ -1,10 +1,30 @@
 package com.alaya.protocol.http;
 
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.Test;
 
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class HttpServiceTest {
     
@@ -35,5 +55,99 @@ public class HttpServiceTest {
         assertTrue(httpService.getHeaders().get(headerName1).equals(headerValue1));
         assertTrue(httpService.getHeaders().get(headerName2).equals(headerValue2));
     }
-    
+
+    @Test
+    public void testSendAsyncIsEnqueued() throws Exception {
+        final String[] threadName = new String[1];
+        Web3j web3j = Web3jFactory.build(new HttpService(client(new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                threadName[0] = Thread.currentThread().getName();
+                return response(chain, 200,
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x10\"}");
+            }
+        })));
+
+        CompletableFuture<PlatonBlockNumber> future = web3j.platonBlockNumber().sendAsync();
+
+        assertThat(future.get(5, TimeUnit.SECONDS).getBlockNumber(), is(BigInteger.valueOf(16)));
+        // performed by the client's dispatcher rather than a thread waiting on a blocking call
+        assertTrue(threadName[0].startsWith("OkHttp"));
+    }
+
+    @Test
+    public void testSendAsyncFailure() throws Exception {
+        Web3j web3j = Web3jFactory.build(new HttpService(client(new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                return response(chain, 500, "");
+            }
+        })));
+
+        try {
+            web3j.platonBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ClientConnectionException);
+        }
+    }
+
+    @Test
+    public void testBuilder() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x10\"}"));
+        server.start();
+        try {
+            HttpService service = HttpService.builder()
+                    .url(server.url("/").toString())
+                    .header("X-Api-Key", "secret")
+                    .connectionPool(4, 1, TimeUnit.MINUTES)
+                    .maxRequests(64, 64)
+                    .readTimeout(5, TimeUnit.SECONDS)
+                    .build();
+            PlatonBlockNumber blockNumber = Web3jFactory.build(service)
+                    .platonBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+
+            assertThat(blockNumber.getBlockNumber(), is(BigInteger.valueOf(16)));
+            RecordedRequest request = server.takeRequest();
+            assertThat(request.getHeader("X-Api-Key"), is("secret"));
+            assertThat(request.getHeader("Accept-Encoding"), is("gzip"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testBuilderWithoutCompression() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x10\"}"));
+        server.start();
+        try {
+            HttpService service = HttpService.builder()
+                    .url(server.url("/").toString())
+                    .compression(false)
+                    .build();
+            Web3jFactory.build(service).platonBlockNumber().send();
+
+            assertThat(server.takeRequest().getHeader("Accept-Encoding"), is("identity"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static OkHttpClient client(Interceptor interceptor) {
+        return new OkHttpClient.Builder().addInterceptor(interceptor).build();
+    }
+
+    private static okhttp3.Response response(Interceptor.Chain chain, int code, String body) {
+        return new okhttp3.Response.Builder()
+                .body(ResponseBody.create(HttpService.JSON_MEDIA_TYPE, body))
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("")
+                .build();
+    }
 }
@@ -0,0 +1,252 @@
+package com.alaya.protocol.ingest;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
+import rx.functions.Action1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.DefaultBlockParameterName;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.exceptions.ReorganisationException;
+import com.alaya.protocol.rx.BlockEvent;
+import com.alaya.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockIngesterTest {
+
+    private final List<BlockEvent> handled = new ArrayList<BlockEvent>();
+    private final List<Throwable> errors = new ArrayList<Throwable>();
+
+    private Web3j web3j;
+    private InMemoryCheckpointStore checkpointStore;
+
+    @Before
+    public void setUp() {
+        web3j = mock(Web3j.class);
+        checkpointStore = new InMemoryCheckpointStore();
+    }
+
+    @Test
+    public void testCheckpointsHandledEvents() {
+        events(apply(1, "a1", "a0"), apply(2, "a2", "a1"));
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), null);
+
+        assertThat(handled.size(), is(2));
+        assertThat(checkpointStore.saved, equalTo(Arrays.asList(
+                new Checkpoint(BigInteger.valueOf(1), "a1"),
+                new Checkpoint(BigInteger.valueOf(2), "a2"))));
+    }
+
+    @Test
+    public void testCheckpointsParentOfRollback() {
+        events(new BlockEvent(BlockEvent.Type.ROLLBACK, block(2, "a2", "a1")));
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), null);
+
+        assertThat(checkpointStore.saved, equalTo(Arrays.asList(
+                new Checkpoint(BigInteger.valueOf(1), "a1"))));
+    }
+
+    @Test
+    public void testResumesAfterCheckpoint() throws Exception {
+        checkpointStore.saved.add(new Checkpoint(BigInteger.valueOf(1), "a1"));
+        chain(block(1, "a1", "a0"));
+        events(apply(2, "a2", "a1"));
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), null);
+
+        ArgumentCaptor<DefaultBlockParameter> startBlock =
+                ArgumentCaptor.forClass(DefaultBlockParameter.class);
+        verify(web3j).catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+                startBlock.capture(), anyBoolean(), anyInt());
+        assertThat(startBlock.getValue().getValue(), is("0x2"));
+        assertThat(handled.size(), is(1));
+        assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRollsBackCheckpointReorganised() throws Exception {
+        checkpointStore.saved.add(new Checkpoint(BigInteger.valueOf(3), "a3"));
+        chain(block(1, "a1", "a0"), block(2, "b2", "a1"), block(3, "b3", "b2"));
+        orphans(block(3, "a3", "a2"), block(2, "a2", "a1"));
+        events(apply(2, "b2", "a1"), apply(3, "b3", "b2"));
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), null);
+
+        ArgumentCaptor<DefaultBlockParameter> startBlock =
+                ArgumentCaptor.forClass(DefaultBlockParameter.class);
+        verify(web3j).catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+                startBlock.capture(), anyBoolean(), anyInt());
+        assertThat(startBlock.getValue().getValue(), is("0x2"));
+        assertThat(handled.toString(), is(
+                "[ROLLBACK 0x3 a3, ROLLBACK 0x2 a2, APPLY 0x2 b2, APPLY 0x3 b3]"));
+        assertThat(checkpointStore.saved.subList(1, 3), equalTo(Arrays.asList(
+                new Checkpoint(BigInteger.valueOf(2), "a2"),
+                new Checkpoint(BigInteger.valueOf(1), "a1"))));
+        assertThat(checkpointStore.load(), equalTo(new Checkpoint(BigInteger.valueOf(3), "b3")));
+        assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailsIfBranchOfCheckpointUnknown() throws Exception {
+        checkpointStore.saved.add(new Checkpoint(BigInteger.valueOf(1), "a1"));
+        chain(block(1, "b1", "a0"));
+        orphans();
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), null);
+
+        assertThat(errors.get(0), instanceOf(ReorganisationException.class));
+    }
+
+    @Test
+    public void testDoesNotCheckpointFailedEvent() {
+        events(apply(1, "a1", "a0"), apply(2, "a2", "a1"));
+
+        ingest(new BlockIngester(web3j, checkpointStore, 0), "a2");
+
+        assertThat(checkpointStore.saved, equalTo(Arrays.asList(
+                new Checkpoint(BigInteger.valueOf(1), "a1"))));
+        assertThat(errors.get(0).getMessage(), is("handler failed"));
+    }
+
+    @Test
+    public void testCheckpointsLastEventOnceStopped() {
+        events(apply(1, "a1", "a0"), apply(2, "a2", "a1"), apply(3, "a3", "a2"));
+
+        ingest(new BlockIngester(web3j, checkpointStore, true, 0, 2), null);
+
+        assertThat(checkpointStore.saved, equalTo(Arrays.asList(
+                new Checkpoint(BigInteger.valueOf(2), "a2"),
+                new Checkpoint(BigInteger.valueOf(3), "a3"))));
+    }
+
+    private void ingest(BlockIngester blockIngester, final String failingHash) {
+        blockIngester.ingest(DefaultBlockParameterName.EARLIEST, new BlockHandler() {
+            @Override
+            public void handle(BlockEvent event) throws Exception {
+                if (event.getBlock().getHash().equals(failingHash)) {
+                    throw new IOException("handler failed");
+                }
+                handled.add(event);
+            }
+        }).subscribe(new Action1<BlockEvent>() {
+            @Override
+            public void call(BlockEvent event) {
+            }
+        }, new Action1<Throwable>() {
+            @Override
+            public void call(Throwable throwable) {
+                errors.add(throwable);
+            }
+        });
+    }
+
+    private void events(BlockEvent... events) {
+        when(web3j.catchUpToLatestAndSubscribeToNewBlockEventsObservable(
+                any(DefaultBlockParameter.class), anyBoolean(), anyInt()))
+                .thenReturn(Observable.from(events));
+    }
+
+    /**
+     * The blocks of the chain, by number.
+     */
+    private void chain(PlatonBlock.Block... blocks) throws IOException {
+        final Map<String, Request<?, PlatonBlock>> requests =
+                new HashMap<String, Request<?, PlatonBlock>>();
+        for (PlatonBlock.Block block : blocks) {
+            requests.put(block.getNumberRaw(), request(block));
+        }
+        final Request<?, PlatonBlock> missing = request(null);
+        when(web3j.platonGetBlockByNumber(any(DefaultBlockParameter.class), anyBoolean()))
+                .thenAnswer(new Answer<Request<?, PlatonBlock>>() {
+                    @Override
+                    public Request<?, PlatonBlock> answer(InvocationOnMock invocation) {
+                        String number =
+                                ((DefaultBlockParameter) invocation.getArguments()[0]).getValue();
+                        return requests.containsKey(number) ? requests.get(number) : missing;
+                    }
+                });
+    }
+
+    /**
+     * The blocks the node still knows by hash, though they are no longer part of the chain.
+     */
+    private void orphans(PlatonBlock.Block... blocks) throws IOException {
+        final Map<String, Request<?, PlatonBlock>> requests =
+                new HashMap<String, Request<?, PlatonBlock>>();
+        for (PlatonBlock.Block block : blocks) {
+            requests.put(block.getHash(), request(block));
+        }
+        final Request<?, PlatonBlock> missing = request(null);
+        when(web3j.platonGetBlockByHash(anyString(), anyBoolean()))
+                .thenAnswer(new Answer<Request<?, PlatonBlock>>() {
+                    @Override
+                    public Request<?, PlatonBlock> answer(InvocationOnMock invocation) {
+                        String hash = (String) invocation.getArguments()[0];
+                        return requests.containsKey(hash) ? requests.get(hash) : missing;
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Request<?, PlatonBlock> request(PlatonBlock.Block block) throws IOException {
+        PlatonBlock ethBlock = new PlatonBlock();
+        ethBlock.setResult(block);
+        Request<?, PlatonBlock> request = mock(Request.class);
+        when(request.send()).thenReturn(ethBlock);
+        return request;
+    }
+
+    private static BlockEvent apply(int number, String hash, String parentHash) {
+        return new BlockEvent(BlockEvent.Type.APPLY, block(number, hash, parentHash));
+    }
+
+    private static PlatonBlock.Block block(int number, String hash, String parentHash) {
+        PlatonBlock.Block block = new PlatonBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHash(hash);
+        block.setParentHash(parentHash);
+        return block;
+    }
+
+    private static class InMemoryCheckpointStore implements CheckpointStore {
+
+        private final List<Checkpoint> saved = new ArrayList<Checkpoint>();
+
+        @Override
+        public Checkpoint load() {
+            return saved.isEmpty() ? null : saved.get(saved.size() - 1);
+        }
+
+        @Override
+        public void save(Checkpoint checkpoint) {
+            saved.add(checkpoint);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.alaya.protocol.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FileCheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private FileCheckpointStore checkpointStore;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "checkpoint");
+        checkpointStore = new FileCheckpointStore(file);
+    }
+
+    @Test
+    public void testLoadsNothingBeforeSaved() throws Exception {
+        assertThat(checkpointStore.load(), nullValue());
+    }
+
+    @Test
+    public void testSavesCheckpoint() throws Exception {
+        checkpointStore.save(new Checkpoint(BigInteger.valueOf(16), "0xa1"));
+        checkpointStore.save(new Checkpoint(BigInteger.valueOf(17), "0xa2"));
+
+        assertThat(new FileCheckpointStore(file).load(),
+                is(new Checkpoint(BigInteger.valueOf(17), "0xa2")));
+        assertThat(folder.getRoot().list().length, is(1));
+    }
+
+    @Test
+    public void testFailsOnInvalidCheckpoint() throws Exception {
+        Files.write(file.toPath(), "0xa2".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            checkpointStore.load();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("Invalid checkpoint"), is(true));
+        }
+    }
+}
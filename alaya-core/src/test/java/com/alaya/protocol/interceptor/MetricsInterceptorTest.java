@@ -0,0 +1,201 @@
+package com.alaya.protocol.interceptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.Service;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGasPrice;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsInterceptorTest {
+
+    private static final String BLOCK_NUMBER =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x10\"}";
+
+    private StubService service;
+    private MetricsInterceptor metrics;
+    private Web3j web3j;
+
+    @Before
+    public void setUp() {
+        service = new StubService();
+        metrics = new MetricsInterceptor();
+        service.addInterceptor(metrics);
+        web3j = Web3jFactory.build(service);
+    }
+
+    @Test
+    public void testRecordsRequestsPerMethod() throws Exception {
+        service.response = BLOCK_NUMBER;
+        web3j.platonBlockNumber().send();
+        web3j.platonBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+
+        MethodMetrics blockNumber = metrics.getMetrics("platon_blockNumber");
+        assertThat(blockNumber.getCount(), is(2L));
+        assertThat(blockNumber.getFailureCount(), is(0L));
+        assertThat(blockNumber.getInFlight(), is(0));
+        assertThat(blockNumber.getResponseBytes(), is(2L * BLOCK_NUMBER.length()));
+        assertTrue(blockNumber.getRequestBytes() > 0);
+        assertTrue(blockNumber.getLatencyPercentile(0.5) > 0);
+        assertThat(metrics.getMetrics("platon_gasPrice"), nullValue());
+    }
+
+    @Test
+    public void testRecordsErrorCodes() throws Exception {
+        service.response = "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                + "\"error\":{\"code\":-32601,\"message\":\"method not found\"}}";
+        web3j.platonBlockNumber().send();
+
+        MethodMetrics blockNumber = metrics.getMetrics("platon_blockNumber");
+        assertThat(blockNumber.getErrorCounts(),
+                is(Collections.singletonMap(-32601, 1L)));
+        assertThat(blockNumber.getFailureCount(), is(0L));
+    }
+
+    @Test
+    public void testRecordsFailures() throws Exception {
+        service.failure = new IOException("connection refused");
+        try {
+            web3j.platonBlockNumber().send();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            web3j.platonBlockNumber().sendAsync().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            // expected
+        }
+
+        MethodMetrics blockNumber = metrics.getMetrics("platon_blockNumber");
+        assertThat(blockNumber.getCount(), is(2L));
+        assertThat(blockNumber.getFailureCount(), is(2L));
+        assertThat(blockNumber.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testRecordsEachRequestOfBatch() throws Exception {
+        Request<?, PlatonBlockNumber> blockNumberRequest = web3j.platonBlockNumber();
+        Request<?, PlatonGasPrice> gasPriceRequest = web3j.platonGasPrice();
+        service.response = "[{\"jsonrpc\":\"2.0\",\"id\":" + blockNumberRequest.getId()
+                + ",\"result\":\"0x10\"},{\"jsonrpc\":\"2.0\",\"id\":"
+                + gasPriceRequest.getId() + ",\"result\":\"0x20\"}]";
+        web3j.newBatch().add(blockNumberRequest).add(gasPriceRequest).send();
+        web3j.newBatch().add(blockNumberRequest).add(gasPriceRequest)
+                .sendAsync().get(5, TimeUnit.SECONDS);
+
+        MethodMetrics blockNumber = metrics.getMetrics("platon_blockNumber");
+        MethodMetrics gasPrice = metrics.getMetrics("platon_gasPrice");
+        assertThat(blockNumber.getCount(), is(2L));
+        assertThat(gasPrice.getCount(), is(2L));
+        assertThat(blockNumber.getInFlight() + gasPrice.getInFlight(), is(0));
+        assertThat(blockNumber.getFailureCount() + gasPrice.getFailureCount(), is(0L));
+        // the bytes of the batches are shared between their requests
+        assertThat(blockNumber.getResponseBytes() + gasPrice.getResponseBytes(),
+                is(2L * service.response.length()));
+        assertTrue(Math.abs(blockNumber.getResponseBytes() - gasPrice.getResponseBytes()) <= 2);
+        assertTrue(blockNumber.getRequestBytes() > 0);
+        assertTrue(gasPrice.getRequestBytes() > 0);
+
+        service.failure = new IOException("connection refused");
+        try {
+            web3j.newBatch().add(blockNumberRequest).add(gasPriceRequest).send();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertThat(blockNumber.getFailureCount(), is(1L));
+        assertThat(gasPrice.getFailureCount(), is(1L));
+    }
+
+    @Test
+    public void testCallsInterceptorsInOrder() throws Exception {
+        final List<String> calls = new ArrayList<String>();
+        service.addInterceptor(new ServiceInterceptor() {
+            @Override
+            public void beforeSerialize(Exchange exchange) {
+                calls.add("beforeSerialize " + exchange.getRequestLength());
+            }
+
+            @Override
+            public void afterIO(Exchange exchange) {
+                calls.add("afterIO " + (exchange.getRequestLength() > 0));
+            }
+
+            @Override
+            public void afterDeserialize(
+                    Exchange exchange, Response<?> response, Throwable error) {
+                calls.add("afterDeserialize " + exchange.getResponseLength());
+            }
+        });
+        service.response = BLOCK_NUMBER;
+        web3j.platonBlockNumber().send();
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("beforeSerialize -1");
+        expected.add("afterIO true");
+        expected.add("afterDeserialize " + BLOCK_NUMBER.length());
+        assertThat(calls, is(expected));
+    }
+
+    @Test
+    public void testLatencyPercentiles() {
+        MethodMetrics methodMetrics = new MethodMetrics();
+        for (int i = 0; i < 99; i++) {
+            methodMetrics.started();
+            methodMetrics.completed(TimeUnit.MICROSECONDS.toNanos(100), 0, 0);
+        }
+        methodMetrics.started();
+        methodMetrics.completed(TimeUnit.MILLISECONDS.toNanos(100), 0, 0);
+
+        assertThat(methodMetrics.getLatencyPercentile(0.5),
+                is(TimeUnit.MICROSECONDS.toNanos(128)));
+        assertThat(methodMetrics.getLatencyPercentile(0.99),
+                is(TimeUnit.MICROSECONDS.toNanos(128)));
+        assertThat(methodMetrics.getLatencyPercentile(1),
+                is(TimeUnit.MICROSECONDS.toNanos(131072)));
+    }
+
+    private static class StubService extends Service {
+
+        private volatile String response;
+        private volatile IOException failure;
+
+        StubService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.alaya.protocol.ipc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jnr.unixsocket.UnixSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGasPrice;
+import com.alaya.protocol.core.methods.response.Web3ClientVersion;
+import com.alaya.utils.Async;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class IpcServiceTest {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private StubIpcService ipcService;
+    private Web3j web3j;
+
+    @Before
+    public void setUp() {
+        ipcService = new StubIpcService();
+        web3j = Web3jFactory.build(ipcService);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ipcService.close();
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        Future<Web3ClientVersion> future = web3j.web3ClientVersion().sendAsync();
+
+        JsonNode request = ipcService.nodeReads();
+        assertThat(request.get("method").asText(), is("web3_clientVersion"));
+        ipcService.nodeWrites(
+                reply(request, "\"Platon/v1.0.0/linux-amd64/go1.11\""));
+
+        assertThat(future.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(),
+                is("Platon/v1.0.0/linux-amd64/go1.11"));
+    }
+
+    @Test
+    public void testRequestsArePipelined() throws Exception {
+        Future<PlatonBlockNumber> blockNumber = web3j.platonBlockNumber().sendAsync();
+        Future<PlatonGasPrice> gasPrice = web3j.platonGasPrice().sendAsync();
+
+        // both requests are written before either is answered, replies come back reversed
+        JsonNode first = ipcService.nodeReads();
+        JsonNode second = ipcService.nodeReads();
+        ipcService.nodeWrites(reply(second, "\"0x20\"") + reply(first, "\"0x10\""));
+
+        if (first.get("method").asText().equals("platon_blockNumber")) {
+            assertThat(blockNumber.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                    is(BigInteger.valueOf(16)));
+            assertThat(gasPrice.get(5, TimeUnit.SECONDS).getGasPrice(),
+                    is(BigInteger.valueOf(32)));
+        } else {
+            assertThat(blockNumber.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                    is(BigInteger.valueOf(32)));
+            assertThat(gasPrice.get(5, TimeUnit.SECONDS).getGasPrice(),
+                    is(BigInteger.valueOf(16)));
+        }
+        assertThat(ipcService.connections, is(1));
+    }
+
+    @Test
+    public void testCallbackMaySendOnSameService() throws Exception {
+        CompletableFuture<Web3ClientVersion> future = web3j.platonBlockNumber().sendAsync()
+                .thenApply(new Function<PlatonBlockNumber, Web3ClientVersion>() {
+                    @Override
+                    public Web3ClientVersion apply(PlatonBlockNumber blockNumber) {
+                        try {
+                            return web3j.web3ClientVersion().send();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+
+        ipcService.nodeWrites(reply(ipcService.nodeReads(), "\"0x10\""));
+        // read while the callback of the first reply waits for it
+        ipcService.nodeWrites(reply(ipcService.nodeReads(), "\"Platon\""));
+
+        assertThat(future.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("Platon"));
+    }
+
+    @Test
+    public void testSendBatch() throws Exception {
+        Future<BatchResponse> future = web3j.newBatch()
+                .add(web3j.platonBlockNumber())
+                .add(web3j.platonGasPrice())
+                .sendAsync();
+
+        JsonNode batch = ipcService.nodeReads();
+        ipcService.nodeWrites("[" + reply(batch.get(1), "\"0x20\"") + ","
+                + reply(batch.get(0), "\"0x10\"") + "]");
+
+        BatchResponse batchResponse = future.get(5, TimeUnit.SECONDS);
+        assertThat(batchResponse.getResponse(0, PlatonBlockNumber.class).getBlockNumber(),
+                is(BigInteger.valueOf(16)));
+        assertThat(batchResponse.getResponse(1, PlatonGasPrice.class).getGasPrice(),
+                is(BigInteger.valueOf(32)));
+    }
+
+    @Test
+    public void testReconnectsAfterNodeClosesConnection() throws Exception {
+        Future<PlatonBlockNumber> future = web3j.platonBlockNumber().sendAsync();
+        ipcService.nodeReads();
+        ipcService.node.close();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof IOException, is(true));
+        }
+
+        future = web3j.platonBlockNumber().sendAsync();
+        ipcService.nodeWrites(reply(ipcService.nodeReads(), "\"0x10\""));
+
+        assertThat(future.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                is(BigInteger.valueOf(16)));
+        assertThat(ipcService.connections, is(2));
+    }
+
+    @Test
+    public void testTimesOutWithoutReply() throws Exception {
+        ipcService.close();
+        ipcService = new StubIpcService(200);
+        web3j = Web3jFactory.build(ipcService);
+
+        try {
+            web3j.platonBlockNumber().send();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Timed out waiting for IPC response"));
+        }
+
+        // the late reply is discarded, the connection still serves the next request
+        JsonNode late = ipcService.nodeReads();
+        Future<PlatonBlockNumber> future = web3j.platonBlockNumber().sendAsync();
+        JsonNode next = ipcService.nodeReads();
+        ipcService.nodeWrites(reply(late, "\"0x10\"") + reply(next, "\"0x20\""));
+
+        assertThat(future.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                is(BigInteger.valueOf(32)));
+        assertThat(ipcService.connections, is(1));
+    }
+
+    private static String reply(JsonNode request, String result) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id").asLong()
+                + ",\"result\":" + result + "}";
+    }
+
+    /**
+     * Connects over a socket pair, the test plays the node on the other end.
+     */
+    private class StubIpcService extends IpcService {
+
+        private final Object lock = new Object();
+
+        private volatile UnixSocketChannel node;
+        private volatile JsonFrameReader nodeReader;
+        private volatile int connections;
+
+        StubIpcService() {
+            this(TimeUnit.SECONDS.toMillis(REQUEST_TIMEOUT));
+        }
+
+        StubIpcService(long requestTimeoutMillis) {
+            super(false, Async.executor(), requestTimeoutMillis);
+        }
+
+        @Override
+        protected IOFacade getIO() throws IOException {
+            UnixSocketChannel[] channels = UnixSocketChannel.pair();
+            synchronized (lock) {
+                node = channels[1];
+                nodeReader = new JsonFrameReader(node);
+                connections++;
+                lock.notifyAll();
+            }
+            return new UnixDomainSocket(channels[0], 16);
+        }
+
+        JsonNode nodeReads() throws Exception {
+            JsonFrameReader reader;
+            synchronized (lock) {
+                while (connections == 0 || !node.isOpen()) {
+                    lock.wait(5000);
+                }
+                reader = nodeReader;
+            }
+            ByteBuffer request = reader.read();
+            return objectMapper.readTree(StandardCharsets.UTF_8.decode(request).toString());
+        }
+
+        void nodeWrites(String data) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                node.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.alaya.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import jnr.unixsocket.UnixSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class UnixDomainSocketTest {
+
+    private UnixSocketChannel node;
+    private UnixDomainSocket unixDomainSocket;
+
+    @Before
+    public void setUp() throws IOException {
+        UnixSocketChannel[] channels = UnixSocketChannel.pair();
+        node = channels[1];
+        // small enough for the tests to span several reads
+        unixDomainSocket = new UnixDomainSocket(channels[0], 16);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        unixDomainSocket.close();
+        node.close();
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        unixDomainSocket.write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        node.read(buffer);
+        buffer.flip();
+        assertThat(StandardCharsets.UTF_8.decode(buffer).toString(), is("{\"id\":1}"));
+    }
+
+    @Test
+    public void testReadConcatenatedMessages() throws IOException {
+        nodeWrites("{\"id\":1,\"result\":\"0x1\"}\n{\"id\":2}[{\"id\":3},{\"id\":4}]");
+
+        assertThat(read(), is("{\"id\":1,\"result\":\"0x1\"}"));
+        assertThat(read(), is("{\"id\":2}"));
+        assertThat(read(), is("[{\"id\":3},{\"id\":4}]"));
+    }
+
+    @Test
+    public void testReadMessageSpanningWrites() throws Exception {
+        nodeWrites("{\"id\":1,\"res");
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    nodeWrites("ult\":{\"number\":\"0x1\"}}");
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        writer.start();
+
+        assertThat(read(), is("{\"id\":1,\"result\":{\"number\":\"0x1\"}}"));
+        writer.join();
+    }
+
+    @Test
+    public void testReadIgnoresBracketsInStrings() throws IOException {
+        String message = "{\"id\":1,\"result\":\"}]\\\"{[\\\\\"}";
+        nodeWrites(message + "{\"id\":2}");
+
+        assertThat(read(), is(message));
+        assertThat(read(), is("{\"id\":2}"));
+    }
+
+    @Test
+    public void testReadMessageLargerThanBuffer() throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            data.append("ab");
+        }
+        String message = "{\"id\":1,\"result\":\"" + data + "\"}";
+        nodeWrites(message + "{\"id\":2}");
+
+        assertThat(read(), is(message));
+        assertThat(read(), is("{\"id\":2}"));
+    }
+
+    @Test
+    public void testReadMultiByteCharacters() throws IOException {
+        nodeWrites("{\"id\":1,\"result\":\"\u4e2d\u6587{\"}");
+
+        assertThat(read(), is("{\"id\":1,\"result\":\"\u4e2d\u6587{\"}"));
+    }
+
+    @Test
+    public void testReadEndOfStream() throws IOException {
+        nodeWrites("{\"id\":1}\n");
+        node.close();
+
+        assertThat(read(), is("{\"id\":1}"));
+        assertThat(unixDomainSocket.read(), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadEndOfStreamWithinMessage() throws IOException {
+        nodeWrites("{\"id\":1,");
+        node.close();
+
+        unixDomainSocket.read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidContent() throws IOException {
+        nodeWrites("HTTP/1.1 400 Bad Request");
+
+        unixDomainSocket.read();
+    }
+
+    private void nodeWrites(String data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            node.write(buffer);
+        }
+    }
+
+    private String read() throws IOException {
+        return StandardCharsets.UTF_8.decode(unixDomainSocket.read()).toString();
+    }
+}
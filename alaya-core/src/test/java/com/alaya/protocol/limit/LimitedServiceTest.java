@@ -0,0 +1,166 @@
+package com.alaya.protocol.limit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.StubNode;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.Web3ClientVersion;
+import com.alaya.protocol.exceptions.RequestRejectedException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LimitedServiceTest {
+
+    private StubNode node;
+    private LimitedService limitedService;
+
+    @Before
+    public void setUp() {
+        node = StubNode.holding("node");
+        limitedService = new LimitedService(node, 2, 10, 2);
+    }
+
+    @Test
+    public void testQueuesRequestsBeyondLimit() throws Exception {
+        List<CompletableFuture<Web3ClientVersion>> responses =
+                new ArrayList<CompletableFuture<Web3ClientVersion>>();
+        for (int i = 0; i < 4; i++) {
+            responses.add(sendAsync());
+        }
+
+        assertThat(node.getRequests().size(), is(2));
+        assertThat(limitedService.getInFlight(), is(2));
+        assertThat(limitedService.getQueued(), is(2));
+
+        node.reply(0);
+        assertThat(node.getRequests().size(), is(3));
+        node.reply(1);
+        node.reply(2);
+        node.reply(3);
+
+        for (CompletableFuture<Web3ClientVersion> response : responses) {
+            assertThat(response.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("node"));
+        }
+        assertThat(limitedService.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testRejectsRequestsBeyondQueue() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            sendAsync();
+        }
+
+        try {
+            sendAsync().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RequestRejectedException.class));
+        }
+        assertThat(node.getRequests().size(), is(2));
+    }
+
+    @Test
+    public void testCancelledRequestIsNotSent() throws Exception {
+        sendAsync();
+        sendAsync();
+        CompletableFuture<Web3ClientVersion> cancelled = sendAsync();
+        CompletableFuture<Web3ClientVersion> waiting = sendAsync();
+
+        cancelled.cancel(false);
+        node.reply(0);
+
+        assertThat(node.getRequests().size(), is(3));
+        node.reply(2);
+        assertThat(waiting.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("node"));
+    }
+
+    @Test
+    public void testLimitShrinksOnFailures() throws Exception {
+        limitedService = new LimitedService(node, 10, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Web3ClientVersion> response = sendAsync();
+            node.fail(node.getRequests().size() - 1, new IOException("connection reset"));
+            try {
+                response.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause().getMessage(), is("connection reset"));
+            }
+        }
+
+        assertTrue(limitedService.getLimit() < 10);
+        assertThat(limitedService.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testLimitGrowsWhileUsed() throws Exception {
+        AimdLimit limit = new AimdLimit(2, 1, 10);
+        for (int i = 0; i < 10; i++) {
+            limit.onSample("platon_call", System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(10), false, 2);
+        }
+        assertTrue(limit.get() > 2);
+
+        int grown = limit.get();
+        for (int i = 0; i < 10; i++) {
+            limit.onSample("platon_call", System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(10), false, 1);
+        }
+        assertThat(limit.get(), is(grown));
+    }
+
+    @Test
+    public void testLatencyIncreaseShrinksLimitOnce() throws Exception {
+        AimdLimit limit = new AimdLimit(10, 1, 10);
+        long start = System.nanoTime();
+        limit.onSample("platon_call", start, TimeUnit.MILLISECONDS.toNanos(10), false, 10);
+
+        // slow requests sent before the first decrease only shrink the limit once
+        for (int i = 0; i < 3; i++) {
+            limit.onSample("platon_call", start, TimeUnit.MILLISECONDS.toNanos(100), false, 10);
+        }
+        assertThat(limit.get(), is(9));
+
+        limit.onSample("platon_call", System.nanoTime(),
+                TimeUnit.MILLISECONDS.toNanos(100), false, 10);
+        assertThat(limit.get(), is(8));
+    }
+
+    @Test
+    public void testMixedLatenciesDoNotShrinkLimit() throws Exception {
+        AimdLimit limit = new AimdLimit(10, 1, 20);
+        for (int i = 0; i < 50; i++) {
+            // cheap reads alongside full blocks, on a healthy node
+            limit.onSample("platon_blockNumber", System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(1), false, 10);
+            limit.onSample("[platon_getBlockByNumber]*32", System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(40), false, 10);
+        }
+        assertTrue(limit.get() >= 10);
+
+        // the blocks slowing down still tells the node is overloaded
+        int grown = limit.get();
+        limit.onSample("[platon_getBlockByNumber]*32", System.nanoTime(),
+                TimeUnit.MILLISECONDS.toNanos(200), false, 10);
+        assertTrue(limit.get() < grown);
+    }
+
+    private CompletableFuture<Web3ClientVersion> sendAsync() {
+        return new Request<String, Web3ClientVersion>(
+                "web3_clientVersion", Collections.<String>emptyList(), limitedService,
+                Web3ClientVersion.class).sendAsync();
+    }
+}
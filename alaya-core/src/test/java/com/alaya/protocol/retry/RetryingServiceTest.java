@@ -0,0 +1,265 @@
+package com.alaya.protocol.retry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.Service;
+import com.alaya.protocol.StubNode;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.Web3ClientVersion;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryingServiceTest {
+
+    private StubNode first;
+    private StubNode second;
+    private RetryingService retryingService;
+
+    @Before
+    public void setUp() {
+        first = StubNode.holding("first");
+        second = StubNode.holding("second");
+        retryingService = new RetryingService(
+                Arrays.asList(first, second), new RetryBudget(0.1, 10));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        retryingService.close();
+    }
+
+    @Test
+    public void testRetriesFailedRead() throws Exception {
+        retryingService.setPolicy("web3_clientVersion", RetryPolicy.retry(3));
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+
+        first.fail(0, new IOException("connection reset"));
+        second.reply(0);
+
+        assertThat(response.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("second"));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        retryingService.setPolicy("web3_clientVersion", RetryPolicy.retry(2));
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+
+        first.fail(0, new IOException("first down"));
+        second.fail(0, new IOException("second down"));
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("second down"));
+        }
+        assertThat(first.getRequests().size(), is(1));
+    }
+
+    @Test
+    public void testHedgesSlowRead() throws Exception {
+        retryingService.setPolicy("web3_clientVersion",
+                RetryPolicy.hedge(2, 10, TimeUnit.MILLISECONDS));
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+
+        second.awaitCall(0);
+        second.reply(0);
+        assertThat(response.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("second"));
+
+        // the slower response is dropped
+        first.reply(0);
+        assertThat(response.get().getWeb3ClientVersion(), is("second"));
+    }
+
+    @Test
+    public void testHedgesAfterPercentileLatency() throws Exception {
+        retryingService.setPolicy("web3_clientVersion", RetryPolicy.hedge(2));
+        for (int i = 0; i < 20; i++) {
+            CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+            first.reply(i);
+            response.get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(second.getRequests().isEmpty());
+
+        sendAsync("web3_clientVersion");
+        second.awaitCall(0);
+    }
+
+    @Test
+    public void testDoesNotRetryWrites() throws Exception {
+        CompletableFuture<Web3ClientVersion> response = sendAsync("platon_sendRawTransaction");
+        first.fail(0, new IOException("read timed out"));
+
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("read timed out"));
+        }
+        assertTrue(second.getRequests().isEmpty());
+    }
+
+    @Test
+    public void testBudgetBoundsRetries() throws Exception {
+        retryingService.close();
+        retryingService = new RetryingService(
+                Arrays.asList(first, second), new RetryBudget(0, 1));
+        retryingService.setPolicy("web3_clientVersion", RetryPolicy.retry(2));
+
+        sendAsync("web3_clientVersion");
+        first.fail(0, new IOException("connection reset"));
+        assertThat(second.getRequests().size(), is(1));
+
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+        first.fail(1, new IOException("connection reset"));
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(second.getRequests().size(), is(1));
+        }
+    }
+
+    @Test
+    public void testHedgesOverSingleMultiplexedService() throws Exception {
+        MultiplexedService service = new MultiplexedService();
+        retryingService.close();
+        retryingService = new RetryingService(service);
+        retryingService.setPolicy("web3_clientVersion",
+                RetryPolicy.hedge(2, 10, TimeUnit.MILLISECONDS));
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+
+        service.awaitRequests(2);
+        assertThat(service.ids.get(0), not(service.ids.get(1)));
+
+        // both attempts fail with the connection
+        service.disconnect(new IOException("connection closed"));
+        try {
+            response.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("connection closed"));
+        }
+    }
+
+    @Test
+    public void testDoesNotHedgeIntoCoalescedRead() throws Exception {
+        HoldingService service = new HoldingService();
+        service.setCoalesceReads(true);
+        retryingService.close();
+        retryingService = new RetryingService(service);
+        retryingService.setPolicy("web3_clientVersion",
+                RetryPolicy.hedge(2, 10, TimeUnit.MILLISECONDS));
+        CompletableFuture<Web3ClientVersion> response = sendAsync("web3_clientVersion");
+
+        Thread.sleep(100);
+        assertThat(service.calls.size(), is(1));
+
+        service.reply(0, "\"node\"");
+        assertThat(response.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("node"));
+    }
+
+    private CompletableFuture<Web3ClientVersion> sendAsync(String method) {
+        return new Request<String, Web3ClientVersion>(
+                method, Collections.<String>emptyList(), retryingService,
+                Web3ClientVersion.class).sendAsync();
+    }
+
+    /**
+     * Keeps the requests in flight by id, as a WebSocket connection does.
+     */
+    private static class MultiplexedService implements Web3jService {
+
+        private final ConcurrentMap<Long, CompletableFuture<?>> requests =
+                new ConcurrentHashMap<Long, CompletableFuture<?>>();
+        private final List<Long> ids = new CopyOnWriteArrayList<Long>();
+
+        @Override
+        public <T extends Response> T send(Request request, Class<T> responseType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Response> CompletableFuture<T> sendAsync(
+                Request request, Class<T> responseType) {
+            CompletableFuture<T> response = new CompletableFuture<T>();
+            requests.put(request.getId(), response);
+            ids.add(request.getId());
+            return response;
+        }
+
+        void awaitRequests(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (ids.size() < count) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new AssertionError("Received " + ids.size() + " requests");
+                }
+                Thread.sleep(10);
+            }
+        }
+
+        void disconnect(IOException failure) {
+            for (CompletableFuture<?> response : requests.values()) {
+                response.completeExceptionally(failure);
+            }
+            requests.clear();
+        }
+    }
+
+    /**
+     * Holds on to every request until the test replies to it.
+     */
+    private static class HoldingService extends Service {
+
+        private final List<CompletableFuture<InputStream>> calls =
+                new CopyOnWriteArrayList<CompletableFuture<InputStream>>();
+
+        HoldingService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected CompletableFuture<InputStream> performIOAsync(String payload) {
+            CompletableFuture<InputStream> call = new CompletableFuture<InputStream>();
+            calls.add(call);
+            return call;
+        }
+
+        void reply(int call, String result) {
+            String response = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result + "}";
+            calls.get(call).complete(
+                    new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.alaya.protocol.routing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alaya.protocol.StubNode;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.Web3ClientVersion;
+import com.alaya.protocol.exceptions.ClientConnectionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RoutingServiceTest {
+
+    private StubNode first;
+    private StubNode second;
+    private RoutingService routingService;
+
+    @Before
+    public void setUp() {
+        first = StubNode.answering("first");
+        second = StubNode.answering("second");
+        routingService = new RoutingService(Arrays.asList(first, second), 0, 3);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        routingService.close();
+    }
+
+    @Test
+    public void testRoutesToFastestNode() throws Exception {
+        first.setDelay(50);
+
+        // the first request samples the first node, the second node has no samples yet
+        assertThat(send("web3_clientVersion"), is("first"));
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("web3_clientVersion"), is("second"));
+        }
+        assertThat(first.getRequests().size(), is(1));
+    }
+
+    @Test
+    public void testComparesLatenciesOfSameMethod() throws Exception {
+        // an expensive request on the first node doesn't make its cheap requests look slow
+        first.setDelay(100);
+        assertThat(send("platon_getLogs"), is("first"));
+
+        first.setDelay(0);
+        second.setDelay(20);
+        assertThat(send("web3_clientVersion"), is("first"));
+        // the second node has no samples of the method yet
+        assertThat(send("web3_clientVersion"), is("second"));
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("web3_clientVersion"), is("first"));
+        }
+    }
+
+    @Test
+    public void testFailsOverToNextNode() throws Exception {
+        first.setFailure(new IOException("connection refused"));
+
+        assertThat(send("web3_clientVersion"), is("second"));
+        // the failed node is not tried again until its back off expires
+        assertThat(send("web3_clientVersion"), is("second"));
+        assertThat(first.getRequests().size(), is(1));
+    }
+
+    @Test
+    public void testFailsOverOnInvalidResponse() throws Exception {
+        first.setFailure(new ClientConnectionException("Invalid response received: 502"));
+
+        assertThat(send("web3_clientVersion"), is("second"));
+    }
+
+    @Test
+    public void testSendAsyncFailsOver() throws Exception {
+        first.setFailure(new IOException("connection refused"));
+
+        CompletableFuture<Web3ClientVersion> response =
+                request("web3_clientVersion").sendAsync();
+        assertThat(response.get(5, TimeUnit.SECONDS).getWeb3ClientVersion(), is("second"));
+    }
+
+    @Test
+    public void testFailsWhenAllNodesFail() throws Exception {
+        first.setFailure(new IOException("first down"));
+        second.setFailure(new IOException("second down"));
+
+        try {
+            send("web3_clientVersion");
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("second down"));
+        }
+    }
+
+    @Test
+    public void testAvoidsLaggingNode() throws Exception {
+        first.setHead(100);
+        second.setHead(110);
+        routingService.probe();
+
+        assertThat(send("web3_clientVersion"), is("second"));
+
+        first.setHead(109);
+        second.setDelay(50);
+        routingService.probe();
+
+        assertThat(send("web3_clientVersion"), is("first"));
+    }
+
+    @Test
+    public void testProbeBringsFailedNodeBack() throws Exception {
+        first.setFailure(new IOException("connection refused"));
+        send("web3_clientVersion");
+
+        first.setFailure(null);
+        routingService.probe();
+
+        assertThat(send("platon_newBlockFilter"), is("first"));
+    }
+
+    @Test
+    public void testDoesNotRetryTransactionSubmission() throws Exception {
+        first.setFailure(new IOException("read timed out"));
+
+        try {
+            send("platon_sendTransaction");
+            fail();
+        } catch (IOException e) {
+            assertThat(second.getRequests().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void testFilterRequestsStickToFirstNode() throws Exception {
+        first.setDelay(50);
+        send("web3_clientVersion");
+
+        assertThat(send("platon_newBlockFilter"), is("first"));
+        assertThat(send("platon_getFilterChanges"), is("first"));
+    }
+
+    @Test
+    public void testNodeSignedRequestsStickToFirstNode() throws Exception {
+        first.setDelay(50);
+        send("web3_clientVersion");
+
+        assertThat(send("platon_accounts"), is("first"));
+        assertThat(send("platon_sign"), is("first"));
+        assertThat(send("platon_sendTransaction"), is("first"));
+    }
+
+    private String send(String method) throws IOException {
+        return request(method).send().getWeb3ClientVersion();
+    }
+
+    private Request<?, Web3ClientVersion> request(String method) {
+        return new Request<String, Web3ClientVersion>(
+                method, Collections.<String>emptyList(), routingService,
+                Web3ClientVersion.class);
+    }
+}
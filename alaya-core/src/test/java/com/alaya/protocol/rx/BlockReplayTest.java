@@ -0,0 +1,188 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.functions.Action1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlockReplayTest {
+
+    private final List<BatchRequest> batches = new CopyOnWriteArrayList<BatchRequest>();
+    private final List<CompletableFuture<BatchResponse>> responses =
+            new CopyOnWriteArrayList<CompletableFuture<BatchResponse>>();
+
+    private Web3j web3j;
+
+    @Before
+    public void setUp() {
+        Web3jService web3jService = mock(Web3jService.class);
+        when(web3jService.sendBatchAsync(any(BatchRequest.class))).thenAnswer(
+                new Answer<CompletableFuture<BatchResponse>>() {
+                    @Override
+                    public CompletableFuture<BatchResponse> answer(InvocationOnMock invocation) {
+                        batches.add((BatchRequest) invocation.getArguments()[0]);
+                        CompletableFuture<BatchResponse> response =
+                                new CompletableFuture<BatchResponse>();
+                        responses.add(response);
+                        return response;
+                    }
+                });
+        web3j = Web3jFactory.build(
+                web3jService, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @Test
+    public void testEmitsBlocksInOrder() {
+        BlockReplay blockReplay = new BlockReplay(web3j, 2, 2);
+        final List<BigInteger> results = new CopyOnWriteArrayList<BigInteger>();
+        blockReplay.observable(BigInteger.ZERO, BigInteger.valueOf(5), false)
+                .subscribe(new Action1<PlatonBlock>() {
+                    @Override
+                    public void call(PlatonBlock block) {
+                        results.add(block.getBlock().getNumber());
+                    }
+                });
+
+        // no more than two batches in flight
+        assertThat(batches.size(), is(2));
+        assertThat(blockReplay.getInFlight(), is(2));
+
+        // held back until the first batch completes
+        reply(1);
+        assertThat(results.isEmpty(), is(true));
+        assertThat(batches.size(), is(2));
+
+        reply(0);
+        assertThat(results, equalTo(numbers(0, 1, 2, 3)));
+        assertThat(batches.size(), is(3));
+
+        reply(2);
+        assertThat(results, equalTo(numbers(0, 1, 2, 3, 4, 5)));
+        assertThat(blockReplay.getBlockCount(), is(6L));
+        assertThat(blockReplay.getBatchCount(), is(3L));
+        assertThat(blockReplay.getInFlight(), is(0));
+    }
+
+    @Test
+    public void testHoldsBackBatchesLargerThanConcurrency() {
+        BlockReplay blockReplay = new BlockReplay(web3j, 3, 2);
+        final List<BigInteger> results = new CopyOnWriteArrayList<BigInteger>();
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        blockReplay.observable(BigInteger.ZERO, BigInteger.valueOf(8), false)
+                .subscribe(new Action1<PlatonBlock>() {
+                    @Override
+                    public void call(PlatonBlock block) {
+                        results.add(block.getBlock().getNumber());
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        // three blocks held back, more than the number of batches in flight
+        reply(1);
+        assertThat(results.isEmpty(), is(true));
+        assertThat(errors.isEmpty(), is(true));
+
+        reply(0);
+        assertThat(results, equalTo(numbers(0, 1, 2, 3, 4, 5)));
+        reply(2);
+        assertThat(results, equalTo(numbers(0, 1, 2, 3, 4, 5, 6, 7, 8)));
+        assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailsOnFailedBatch() {
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        new BlockReplay(web3j, 2, 2).observable(BigInteger.ZERO, BigInteger.valueOf(3), false)
+                .subscribe(new Action1<PlatonBlock>() {
+                    @Override
+                    public void call(PlatonBlock block) {
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        responses.get(0).completeExceptionally(new IllegalStateException("connection reset"));
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0).getMessage(), is("connection reset"));
+    }
+
+    @Test
+    public void testFailsOnUnexpectedResponse() {
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        new BlockReplay(web3j, 2, 2).observable(BigInteger.ZERO, BigInteger.valueOf(3), false)
+                .subscribe(new Action1<PlatonBlock>() {
+                    @Override
+                    public void call(PlatonBlock block) {
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        // not a block, failing the replay rather than leaving it hanging
+        List<Request<?, ? extends Response<?>>> requests = batches.get(0).getRequests();
+        PlatonBlockNumber blockNumber = new PlatonBlockNumber();
+        blockNumber.setResult("0x1");
+        responses.get(0).complete(new BatchResponse(
+                requests, Arrays.<Response<?>>asList(blockNumber, blockNumber)));
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0), instanceOf(ClassCastException.class));
+    }
+
+    private void reply(int batch) {
+        List<Request<?, ? extends Response<?>>> requests = batches.get(batch).getRequests();
+        List<PlatonBlock> blocks = new ArrayList<PlatonBlock>();
+        for (Request<?, ?> request : requests) {
+            PlatonBlock.Block block = new PlatonBlock.Block();
+            block.setNumber((String) request.getParams().get(0));
+            PlatonBlock platonBlock = new PlatonBlock();
+            platonBlock.setResult(block);
+            blocks.add(platonBlock);
+        }
+        responses.get(batch).complete(new BatchResponse(requests, blocks));
+    }
+
+    private static List<BigInteger> numbers(int... numbers) {
+        List<BigInteger> result = new ArrayList<BigInteger>();
+        for (int number : numbers) {
+            result.add(BigInteger.valueOf(number));
+        }
+        return result;
+    }
+}
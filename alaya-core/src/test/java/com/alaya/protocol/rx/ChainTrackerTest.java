@@ -0,0 +1,165 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.exceptions.ReorganisationException;
+import com.alaya.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChainTrackerTest {
+
+    // the blocks the node knows of, by hash
+    private final Map<String, PlatonBlock.Block> blocks = new HashMap<String, PlatonBlock.Block>();
+
+    private Web3j web3j;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Web3jService web3jService = mock(Web3jService.class);
+        when(web3jService.send(any(Request.class), eq(PlatonBlock.class))).thenAnswer(
+                new Answer<PlatonBlock>() {
+                    @Override
+                    public PlatonBlock answer(InvocationOnMock invocation) {
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        PlatonBlock ethBlock = new PlatonBlock();
+                        ethBlock.setResult(blocks.get(request.getParams().get(0)));
+                        return ethBlock;
+                    }
+                });
+        web3j = Web3jFactory.build(
+                web3jService, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @Test
+    public void testAppliesChain() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 0);
+
+        assertThat(events(chainTracker.update(block(1, "a1", "a0"))), equalTo("+a1"));
+        assertThat(events(chainTracker.update(block(2, "a2", "a1"))), equalTo("+a2"));
+        // seen again
+        assertThat(events(chainTracker.update(block(2, "a2", "a1"))), equalTo(""));
+    }
+
+    @Test
+    public void testAppliesOnceConfirmed() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 2);
+
+        assertThat(events(chainTracker.update(block(1, "a1", "a0"))), equalTo(""));
+        assertThat(events(chainTracker.update(block(2, "a2", "a1"))), equalTo(""));
+        assertThat(events(chainTracker.update(block(3, "a3", "a2"))), equalTo("+a1"));
+        assertThat(events(chainTracker.update(block(4, "a4", "a3"))), equalTo("+a2"));
+    }
+
+    @Test
+    public void testFetchesMissedBlocks() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 0);
+        chainTracker.update(block(1, "a1", "a0"));
+        block(2, "a2", "a1");
+
+        assertThat(events(chainTracker.update(block(3, "a3", "a2"))), equalTo("+a2 +a3"));
+    }
+
+    @Test
+    public void testRollsBackReorganisation() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 0);
+        chainTracker.update(block(1, "a1", "a0"));
+        chainTracker.update(block(2, "a2", "a1"));
+        chainTracker.update(block(3, "a3", "a2"));
+        block(2, "b2", "a1");
+        block(3, "b3", "b2");
+
+        assertThat(events(chainTracker.update(block(4, "b4", "b3"))),
+                equalTo("-a3 -a2 +b2 +b3 +b4"));
+        assertThat(events(chainTracker.update(block(5, "b5", "b4"))), equalTo("+b5"));
+    }
+
+    @Test
+    public void testKeepsLateSiblingAside() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 0);
+        chainTracker.update(block(1, "a1", "a0"));
+        chainTracker.update(block(2, "a2", "a1"));
+        chainTracker.update(block(3, "a3", "a2"));
+
+        // no longer than the branch followed
+        assertThat(events(chainTracker.update(block(3, "b3", "a2"))), equalTo(""));
+        assertThat(events(chainTracker.update(block(2, "c2", "a1"))), equalTo(""));
+        assertThat(events(chainTracker.update(block(4, "a4", "a3"))), equalTo("+a4"));
+        assertThat(events(chainTracker.update(block(4, "b4", "b3"))), equalTo(""));
+
+        // until it grows past it
+        assertThat(events(chainTracker.update(block(5, "b5", "b4"))),
+                equalTo("-a4 -a3 +b3 +b4 +b5"));
+        assertThat(events(chainTracker.update(block(5, "a5", "a4"))), equalTo(""));
+    }
+
+    @Test
+    public void testIgnoresReorganisationShallowerThanConfirmations() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 2);
+        chainTracker.update(block(1, "a1", "a0"));
+        chainTracker.update(block(2, "a2", "a1"));
+        chainTracker.update(block(3, "a3", "a2"));
+        chainTracker.update(block(4, "a4", "a3"));
+
+        assertThat(events(chainTracker.update(block(4, "b4", "a3"))), equalTo(""));
+        assertThat(events(chainTracker.update(block(5, "b5", "b4"))), equalTo("+a3"));
+    }
+
+    @Test
+    public void testFailsOnReorganisationDeeperThanWindow() throws Exception {
+        ChainTracker chainTracker = new ChainTracker(web3j, false, 0, 2);
+        chainTracker.update(block(1, "a1", "a0"));
+        chainTracker.update(block(2, "a2", "a1"));
+        chainTracker.update(block(3, "a3", "a2"));
+        block(2, "b2", "a1");
+        block(3, "b3", "b2");
+
+        try {
+            chainTracker.update(block(4, "b4", "b3"));
+            fail();
+        } catch (ReorganisationException e) {
+            // a1 has left the window
+        }
+    }
+
+    private PlatonBlock.Block block(int number, String hash, String parentHash) {
+        PlatonBlock.Block block = new PlatonBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHash(hash);
+        block.setParentHash(parentHash);
+        blocks.put(hash, block);
+        return block;
+    }
+
+    private static String events(List<BlockEvent> events) {
+        StringBuilder builder = new StringBuilder();
+        for (BlockEvent event : events) {
+            builder.append(builder.length() > 0 ? " " : "")
+                    .append(event.isRollback() ? "-" : "+")
+                    .append(event.getBlock().getHash());
+        }
+        return builder.toString();
+    }
+}
@@ -4,6 +4,8 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -17,6 +19,7 @@ import rx.Observable;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.observers.TestSubscriber;
 
 import com.alaya.protocol.ObjectMapperFactory;
 import com.alaya.protocol.Web3j;
@@ -24,7 +27,9 @@ import com.alaya.protocol.Web3jFactory;
 import com.alaya.protocol.Web3jService;
 import com.alaya.protocol.core.DefaultBlockParameterNumber;
 import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.response.Log;
 import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
 import com.alaya.protocol.core.methods.response.PlatonFilter;
 import com.alaya.protocol.core.methods.response.PlatonLog;
 import com.alaya.protocol.core.methods.response.PlatonUninstallFilter;
@@ -35,7 +40,9 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class JsonRpc2_0RxTest {
@@ -103,6 +110,26 @@ public class JsonRpc2_0RxTest {
         assertTrue(subscription.isUnsubscribed());
     }
 
+    @Test
+    public void testReplayBlocksObservableHonoursBackpressure() throws Exception {
+        when(web3jService.send(any(Request.class), eq(PlatonBlock.class)))
+                .thenReturn(createBlock(0), createBlock(1), createBlock(2), createBlock(3));
+
+        TestSubscriber<PlatonBlock> subscriber = new TestSubscriber<PlatonBlock>(1);
+        web3j.replayBlocksObservable(
+                new DefaultBlockParameterNumber(BigInteger.ZERO),
+                new DefaultBlockParameterNumber(BigInteger.valueOf(1000000)),
+                false)
+                .subscribe(subscriber);
+
+        subscriber.awaitValueCount(1, 1, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        subscriber.assertValueCount(1);
+        // no more than the blocks prefetched are requested from the node
+        verify(web3jService, atMost(3)).send(any(Request.class), eq(PlatonBlock.class));
+        subscriber.unsubscribe();
+    }
+
     @Test
     public void testReplayBlocksDescendingObservable() throws Exception {
 
@@ -234,6 +261,58 @@ public class JsonRpc2_0RxTest {
         assertTrue(subscription.isUnsubscribed());
     }
 
+    @Test
+    public void testCatchUpToLatestLogsObservable() throws Exception {
+        when(web3jService.send(any(Request.class), eq(PlatonBlock.class)))
+                .thenReturn(createBlock(3));
+        when(web3jService.sendAsync(any(Request.class), eq(PlatonLog.class)))
+                .thenReturn(CompletableFuture.completedFuture(createLogs(0, 1, 2, 3)));
+
+        PlatonFilter ethFilter = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x1\"}", PlatonFilter.class);
+        when(web3jService.send(any(Request.class), eq(PlatonFilter.class)))
+                .thenReturn(ethFilter);
+        when(web3jService.send(any(Request.class), eq(PlatonBlockNumber.class)))
+                .thenReturn(objectMapper.readValue(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x3\"}",
+                        PlatonBlockNumber.class));
+        // the logs of the live filter, from the block after the most current one
+        when(web3jService.send(any(Request.class), eq(PlatonLog.class)))
+                .thenReturn(createLogs(4), createLogs());
+        PlatonUninstallFilter ethUninstallFilter = objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":true}", PlatonUninstallFilter.class);
+        when(web3jService.send(any(Request.class), eq(PlatonUninstallFilter.class)))
+                .thenReturn(ethUninstallFilter);
+
+        Observable<Log> observable = web3j.catchUpToLatestLogsObservable(
+                new com.alaya.protocol.core.methods.request.PlatonFilter(),
+                new DefaultBlockParameterNumber(BigInteger.ZERO));
+
+        final CountDownLatch logLatch = new CountDownLatch(5);
+        final List<BigInteger> results = new CopyOnWriteArrayList<BigInteger>();
+        Subscription subscription = observable.subscribe(
+                new Action1<Log>() {
+                    @Override
+                    public void call(Log result) {
+                        results.add(result.getBlockNumber());
+                        logLatch.countDown();
+                    }
+                },
+                new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        fail(throwable.getMessage());
+                    }
+                });
+
+        logLatch.await(1, TimeUnit.SECONDS);
+        assertThat(results, equalTo(Arrays.asList(
+                BigInteger.valueOf(0), BigInteger.valueOf(1), BigInteger.valueOf(2),
+                BigInteger.valueOf(3), BigInteger.valueOf(4))));
+
+        subscription.unsubscribe();
+    }
+
     private PlatonBlock createBlock(int number) {
         PlatonBlock ethBlock = new PlatonBlock();
         PlatonBlock.Block block = new PlatonBlock.Block();
@@ -242,4 +321,16 @@ public class JsonRpc2_0RxTest {
         ethBlock.setResult(block);
         return ethBlock;
     }
+
+    private PlatonLog createLogs(int... blockNumbers) {
+        List<PlatonLog.LogResult> logs = new ArrayList<PlatonLog.LogResult>();
+        for (int blockNumber : blockNumbers) {
+            PlatonLog.LogObject log = new PlatonLog.LogObject();
+            log.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+            logs.add(log);
+        }
+        PlatonLog ethLog = new PlatonLog();
+        ethLog.setResult(logs);
+        return ethLog;
+    }
 }
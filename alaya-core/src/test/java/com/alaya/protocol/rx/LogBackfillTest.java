@@ -0,0 +1,272 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.filters.FilterException;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonLog;
+import com.alaya.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LogBackfillTest {
+
+    private static final String ADDRESS = "0x7bc84f6b1b0c0ef1dbcbfb5e3a2f8fa5c3e8a7c1";
+
+    private final List<int[]> requests = new ArrayList<int[]>();
+
+    // the node fails to answer requests spanning more blocks than this
+    private int maxBlocks = Integer.MAX_VALUE;
+    // the node answers with hashes rather than log objects
+    private boolean hashes;
+    // the answers are held back until the test sends them
+    private boolean held;
+    private final List<Runnable> answers = new CopyOnWriteArrayList<Runnable>();
+
+    private Web3j web3j;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Web3jService web3jService = mock(Web3jService.class);
+        when(web3jService.sendAsync(any(Request.class), eq(PlatonLog.class))).thenAnswer(
+                new Answer<CompletableFuture<PlatonLog>>() {
+                    @Override
+                    public CompletableFuture<PlatonLog> answer(InvocationOnMock invocation) {
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        final PlatonLog ethLog =
+                                getLogs((PlatonFilter) request.getParams().get(0));
+                        if (!held) {
+                            return CompletableFuture.completedFuture(ethLog);
+                        }
+                        final CompletableFuture<PlatonLog> answer =
+                                new CompletableFuture<PlatonLog>();
+                        answers.add(new Runnable() {
+                            @Override
+                            public void run() {
+                                answer.complete(ethLog);
+                            }
+                        });
+                        return answer;
+                    }
+                });
+        web3j = Web3jFactory.build(
+                web3jService, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @Test
+    public void testEmitsLogsInOrder() {
+        LogBackfill logBackfill = new LogBackfill(web3j, 10, 3);
+        List<BigInteger> results = collect(logBackfill, 5, 104);
+
+        assertThat(results, equalTo(range(5, 104)));
+        assertThat(logBackfill.getLogCount(), is(100L));
+        // few logs, quickly answered
+        assertTrue(logBackfill.getChunkSize() > 10);
+        assertThat(requests.get(0)[0], is(5));
+        assertThat(requests.get(0)[1], is(14));
+    }
+
+    @Test
+    public void testEmitsLogsOfChunksAnsweredOutOfOrder() throws Exception {
+        held = true;
+        final List<BigInteger> results = new CopyOnWriteArrayList<BigInteger>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        new LogBackfill(web3j, 10, 3).observable(
+                new PlatonFilter(), BigInteger.ZERO, BigInteger.valueOf(29))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                        results.add(log.getBlockNumber());
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                    }
+                }, new Action0() {
+                    @Override
+                    public void call() {
+                        completed.countDown();
+                    }
+                });
+
+        // ten logs per chunk, more than the number of chunks in flight, answered from the
+        // last chunk to the first on another thread
+        assertThat(answers.size(), is(3));
+        ExecutorService node = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = answers.size() - 1; i >= 0; i--) {
+                node.submit(answers.get(i)).get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            node.shutdown();
+        }
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertThat(results, equalTo(range(0, 29)));
+    }
+
+    @Test
+    public void testSplitsChunksNodeFailsToAnswer() {
+        maxBlocks = 8;
+        LogBackfill logBackfill = new LogBackfill(web3j, 30, 1);
+        List<BigInteger> results = collect(logBackfill, 0, 59);
+
+        assertThat(results, equalTo(range(0, 59)));
+        assertTrue(logBackfill.getSplitCount() > 0);
+        assertTrue(logBackfill.getChunkSize() < 30);
+        for (int[] request : requests) {
+            assertTrue(request[1] - request[0] + 1 <= 30);
+        }
+    }
+
+    @Test
+    public void testFailsOnceSingleBlockFails() {
+        maxBlocks = 0;
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        new LogBackfill(web3j, 4, 1).observable(
+                new PlatonFilter(), BigInteger.ZERO, BigInteger.valueOf(3))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0).getMessage(), is("Invalid request: query timeout exceeded"));
+    }
+
+    @Test
+    public void testFailsOnUnexpectedResult() {
+        hashes = true;
+        List<Throwable> errors = errors(new LogBackfill(web3j, 4, 1), false);
+
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0), instanceOf(FilterException.class));
+    }
+
+    @Test
+    public void testFailsOnSubscriberError() {
+        List<Throwable> errors = errors(new LogBackfill(web3j, 4, 1), true);
+
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0).getMessage(), is("subscriber failed"));
+    }
+
+    /**
+     * Subscribe without the protection of a safe subscriber, as operators do.
+     */
+    private List<Throwable> errors(LogBackfill logBackfill, final boolean failOnNext) {
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        logBackfill.observable(new PlatonFilter(), BigInteger.ZERO, BigInteger.valueOf(7))
+                .unsafeSubscribe(new Subscriber<Log>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+
+                    @Override
+                    public void onNext(Log log) {
+                        if (failOnNext) {
+                            throw new IllegalStateException("subscriber failed");
+                        }
+                    }
+                });
+        return errors;
+    }
+
+    private List<BigInteger> collect(LogBackfill logBackfill, int from, int to) {
+        final List<BigInteger> results = new ArrayList<BigInteger>();
+        logBackfill.observable(
+                new PlatonFilter(null, null, ADDRESS).addSingleTopic("0x01"),
+                BigInteger.valueOf(from), BigInteger.valueOf(to))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                        results.add(log.getBlockNumber());
+                    }
+                });
+        return results;
+    }
+
+    /**
+     * A log per block of the range.
+     */
+    private PlatonLog getLogs(PlatonFilter ethFilter) {
+        int from = blockNumber(ethFilter.getFromBlock());
+        int to = blockNumber(ethFilter.getToBlock());
+        requests.add(new int[] {from, to});
+
+        PlatonLog ethLog = new PlatonLog();
+        if (to - from + 1 > maxBlocks) {
+            ethLog.setError(new Response.Error(-32000, "query timeout exceeded"));
+            return ethLog;
+        }
+
+        List<PlatonLog.LogResult> logs = new ArrayList<PlatonLog.LogResult>();
+        for (int i = from; i <= to; i++) {
+            if (hashes) {
+                logs.add(new PlatonLog.Hash("0x" + Integer.toHexString(i)));
+                continue;
+            }
+            PlatonLog.LogObject log = new PlatonLog.LogObject();
+            log.setAddress(ADDRESS);
+            log.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(i)));
+            logs.add(log);
+        }
+        ethLog.setResult(logs);
+        return ethLog;
+    }
+
+    private static int blockNumber(Object blockParameter) {
+        return ((DefaultBlockParameterNumber) blockParameter).getBlockNumber().intValue();
+    }
+
+    private static List<BigInteger> range(int from, int to) {
+        List<BigInteger> result = new ArrayList<BigInteger>();
+        for (int i = from; i <= to; i++) {
+            result.add(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+}
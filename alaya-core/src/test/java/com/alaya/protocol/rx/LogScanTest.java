@@ -0,0 +1,267 @@
+package com.alaya.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.functions.Action0;
+import rx.functions.Action1;
+
+import com.alaya.crypto.Hash;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.filters.FilterException;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.response.Log;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonLog;
+import com.alaya.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LogScanTest {
+
+    private static final String ADDRESS = "0x7bc84f6b1b0c0ef1dbcbfb5e3a2f8fa5c3e8a7c1";
+    private static final String OTHER_ADDRESS = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+
+    // the blocks holding logs of the address, the others hold logs of another address
+    private static final List<Integer> EVENT_BLOCKS = Arrays.asList(3, 7);
+
+    private final List<Integer> logRequests = new CopyOnWriteArrayList<Integer>();
+
+    // the node answers with hashes rather than log objects
+    private boolean hashes;
+    // the block the node doesn't know, -1 if none
+    private int missingBlock = -1;
+    // the number of logs of the address in each of its blocks
+    private int logsPerBlock = 1;
+    // the answers to log requests are held back until the test sends them
+    private boolean held;
+    private final List<Runnable> answers = new CopyOnWriteArrayList<Runnable>();
+
+    private Web3j web3j;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Web3jService web3jService = mock(Web3jService.class);
+        when(web3jService.sendAsync(any(Request.class), eq(PlatonBlock.class))).thenAnswer(
+                new Answer<CompletableFuture<PlatonBlock>>() {
+                    @Override
+                    public CompletableFuture<PlatonBlock> answer(InvocationOnMock invocation) {
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        int number = Numeric.decodeQuantity(
+                                (String) request.getParams().get(0)).intValue();
+                        return CompletableFuture.completedFuture(number == missingBlock
+                                ? new PlatonBlock() : createBlock(number));
+                    }
+                });
+        when(web3jService.sendAsync(any(Request.class), eq(PlatonLog.class))).thenAnswer(
+                new Answer<CompletableFuture<PlatonLog>>() {
+                    @Override
+                    public CompletableFuture<PlatonLog> answer(InvocationOnMock invocation) {
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        PlatonFilter ethFilter = (PlatonFilter) request.getParams().get(0);
+                        int blockNumber = ((DefaultBlockParameterNumber) ethFilter.getFromBlock())
+                                .getBlockNumber().intValue();
+                        logRequests.add(blockNumber);
+                        final PlatonLog ethLog = hashes
+                                ? createHashes(blockNumber) : createLogs(blockNumber);
+                        if (!held) {
+                            return CompletableFuture.completedFuture(ethLog);
+                        }
+                        final CompletableFuture<PlatonLog> answer =
+                                new CompletableFuture<PlatonLog>();
+                        answers.add(new Runnable() {
+                            @Override
+                            public void run() {
+                                answer.complete(ethLog);
+                            }
+                        });
+                        return answer;
+                    }
+                });
+        web3j = Web3jFactory.build(
+                web3jService, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @Test
+    public void testOnlyRequestsLogsOfCandidateBlocks() {
+        LogScan logScan = new LogScan(web3j, 1, 2);
+        final List<BigInteger> results = new ArrayList<BigInteger>();
+        logScan.observable(new PlatonFilter(null, null, ADDRESS), BigInteger.ZERO,
+                BigInteger.valueOf(9))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                        results.add(log.getBlockNumber());
+                    }
+                });
+
+        assertThat(results, equalTo(Arrays.asList(BigInteger.valueOf(3), BigInteger.valueOf(7))));
+        assertThat(logRequests, equalTo(EVENT_BLOCKS));
+        assertThat(logScan.getBlockCount(), is(10L));
+        assertThat(logScan.getCandidateCount(), is(2L));
+        assertThat(logScan.getLogCount(), is(2L));
+    }
+
+    @Test
+    public void testRequestsLogsOfEveryCandidate() {
+        LogScan logScan = new LogScan(web3j, 1, 1);
+        logScan.observable(new PlatonFilter(null, null, OTHER_ADDRESS), BigInteger.ZERO,
+                BigInteger.valueOf(2))
+                .subscribe();
+
+        // every block holds logs of the other address
+        assertThat(logScan.getCandidateCount(), is(3L));
+        assertThat(logRequests, equalTo(Arrays.asList(0, 1, 2)));
+    }
+
+    @Test
+    public void testEmitsLogsOfBlocksAnsweredOutOfOrder() throws Exception {
+        held = true;
+        logsPerBlock = 3;
+        final List<Integer> results = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        new LogScan(web3j, 1, 2).observable(new PlatonFilter(null, null, ADDRESS),
+                BigInteger.ZERO, BigInteger.valueOf(9))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                        results.add(log.getBlockNumber().intValue());
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                    }
+                }, new Action0() {
+                    @Override
+                    public void call() {
+                        completed.countDown();
+                    }
+                });
+
+        // more logs per block than blocks in flight, the later block answered first on
+        // another thread
+        assertThat(answers.size(), is(2));
+        ExecutorService node = Executors.newSingleThreadExecutor();
+        try {
+            node.submit(answers.get(1)).get(5, TimeUnit.SECONDS);
+            node.submit(answers.get(0)).get(5, TimeUnit.SECONDS);
+        } finally {
+            node.shutdown();
+        }
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertThat(results, equalTo(Arrays.asList(3, 3, 3, 7, 7, 7)));
+    }
+
+    @Test
+    public void testFailsOnUnexpectedResult() {
+        hashes = true;
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        new LogScan(web3j, 1, 2).observable(new PlatonFilter(null, null, ADDRESS),
+                BigInteger.ZERO, BigInteger.valueOf(9))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0), instanceOf(FilterException.class));
+    }
+
+    @Test
+    public void testFailsOnMissingBlock() {
+        missingBlock = 5;
+        final List<Integer> results = new ArrayList<Integer>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        new LogScan(web3j, 1, 1).observable(new PlatonFilter(null, null, ADDRESS),
+                BigInteger.ZERO, BigInteger.valueOf(9))
+                .subscribe(new Action1<Log>() {
+                    @Override
+                    public void call(Log log) {
+                        results.add(log.getBlockNumber().intValue());
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+
+        assertThat(results, equalTo(Arrays.asList(3)));
+        assertThat(errors.size(), is(1));
+        assertThat(errors.get(0), instanceOf(FilterException.class));
+    }
+
+    private static PlatonBlock createBlock(int number) {
+        PlatonBlock.Block block = new PlatonBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setLogsBloom(EVENT_BLOCKS.contains(number)
+                ? bloom(ADDRESS, OTHER_ADDRESS) : bloom(OTHER_ADDRESS));
+        PlatonBlock ethBlock = new PlatonBlock();
+        ethBlock.setResult(block);
+        return ethBlock;
+    }
+
+    private PlatonLog createLogs(int blockNumber) {
+        List<PlatonLog.LogResult> logs = new ArrayList<PlatonLog.LogResult>();
+        for (int i = 0; i < logsPerBlock; i++) {
+            PlatonLog.LogObject log = new PlatonLog.LogObject();
+            log.setAddress(ADDRESS);
+            log.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+            logs.add(log);
+        }
+        PlatonLog ethLog = new PlatonLog();
+        ethLog.setResult(logs);
+        return ethLog;
+    }
+
+    private static PlatonLog createHashes(int blockNumber) {
+        List<PlatonLog.LogResult> hashes = new ArrayList<PlatonLog.LogResult>();
+        hashes.add(new PlatonLog.Hash("0x" + Integer.toHexString(blockNumber)));
+        PlatonLog ethLog = new PlatonLog();
+        ethLog.setResult(hashes);
+        return ethLog;
+    }
+
+    private static String bloom(String... addresses) {
+        BigInteger bloom = BigInteger.ZERO;
+        for (String address : addresses) {
+            byte[] hash = Hash.sha3(Numeric.hexStringToByteArray(address));
+            for (int i = 0; i < 6; i += 2) {
+                bloom = bloom.setBit(((hash[i] & 0xff) << 8 | hash[i + 1] & 0xff) % 2048);
+            }
+        }
+        return Numeric.toHexStringWithPrefixZeroPadded(bloom, 512);
+    }
+}
@@ -0,0 +1,53 @@
+package com.alaya.protocol.serializer;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.core.DefaultBlockParameterName;
+import com.alaya.protocol.core.DefaultBlockParameterNumber;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.methods.request.PlatonFilter;
+import com.alaya.protocol.core.methods.request.Transaction;
+import com.alaya.protocol.core.methods.response.PlatonLog;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RequestSerializerTest {
+
+    // serializes requests as beans, as they were before
+    private final ObjectMapper beanMapper = new ObjectMapper();
+
+    @Test
+    public void testMatchesBeanSerialization() throws Exception {
+        assertSameAsBean(Arrays.<Object>asList(
+                "0x01", DefaultBlockParameterName.LATEST, true));
+        assertSameAsBean(Arrays.<Object>asList(
+                new DefaultBlockParameterNumber(BigInteger.valueOf(232)), false));
+        assertSameAsBean(Arrays.<Object>asList(
+                Transaction.createEthCallTransaction("0x01", "0x02", "0x1234"),
+                DefaultBlockParameterName.PENDING));
+        assertSameAsBean(Arrays.<Object>asList(new Transaction(
+                "0x01", BigInteger.ONE, BigInteger.TEN, BigInteger.valueOf(21000), "0x02",
+                BigInteger.valueOf(100), null)));
+        assertSameAsBean(Collections.<Object>singletonList(new PlatonFilter(
+                DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST, "0x03")
+                .addSingleTopic("0x04")));
+        assertSameAsBean(Collections.<Object>singletonList(null));
+        assertSameAsBean(Collections.emptyList());
+        assertSameAsBean(null);
+    }
+
+    private void assertSameAsBean(List<Object> params) throws Exception {
+        Request<Object, PlatonLog> request = new Request<Object, PlatonLog>(
+                "platon_test", params, null, PlatonLog.class);
+        assertThat(ObjectMapperFactory.getObjectMapper().writeValueAsString(request),
+                is(beanMapper.writeValueAsString(request)));
+    }
+}
@@ -0,0 +1,296 @@
+package com.alaya.protocol.websocket;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Subscription;
+import rx.functions.Action1;
+
+import com.alaya.protocol.ObjectMapperFactory;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.methods.response.PlatonBlock;
+import com.alaya.protocol.core.methods.response.PlatonBlockNumber;
+import com.alaya.protocol.core.methods.response.PlatonGasPrice;
+import com.alaya.protocol.websocket.events.NewHeadsNotification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class WebSocketServiceTest {
+
+    private static final String SUBSCRIPTION_ID = "0xcd0c3e8af590364c09d0fa6a1210faf5";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private MockWebServer server;
+    private StubNode node;
+    private WebSocketService service;
+    private Web3j web3j;
+
+    @Before
+    public void setUp() throws Exception {
+        node = new StubNode();
+        server = new MockWebServer();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(node));
+        server.start();
+
+        service = new WebSocketService(server.url("/").toString().replace("http", "ws"));
+        service.connect();
+        web3j = Web3jFactory.build(service, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.close();
+        // let the close handshake finish, shutting down with the server side still writing
+        // can leave the connection of the next test stalled
+        node.closed.await(5, TimeUnit.SECONDS);
+        server.shutdown();
+    }
+
+    @Test
+    public void testSendRequest() throws Exception {
+        PlatonBlockNumber blockNumber = web3j.platonBlockNumber().send();
+
+        assertThat(blockNumber.getBlockNumber(), is(BigInteger.valueOf(16)));
+    }
+
+    @Test
+    public void testConcurrentRequestsShareConnection() throws Exception {
+        List<Future<PlatonBlockNumber>> futures =
+                new ArrayList<Future<PlatonBlockNumber>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(web3j.platonBlockNumber().sendAsync());
+        }
+
+        for (Future<PlatonBlockNumber> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS).getBlockNumber(),
+                    is(BigInteger.valueOf(16)));
+        }
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void testSendBatch() throws Exception {
+        BatchResponse batchResponse = web3j.newBatch()
+                .add(web3j.platonBlockNumber())
+                .add(web3j.platonGasPrice())
+                .send();
+
+        assertThat(batchResponse.getResponse(0, PlatonBlockNumber.class).getBlockNumber(),
+                is(BigInteger.valueOf(16)));
+        assertThat(batchResponse.getResponse(1, PlatonGasPrice.class).getGasPrice(),
+                is(BigInteger.valueOf(16)));
+    }
+
+    @Test
+    public void testRepliesCancelTimeouts() throws Exception {
+        web3j.platonBlockNumber().send();
+        web3j.newBatch()
+                .add(web3j.platonBlockNumber())
+                .add(web3j.platonGasPrice())
+                .send();
+
+        assertThat(service.getScheduledTimeouts(), is(0));
+    }
+
+    @Test
+    public void testNewHeadsSubscription() throws Exception {
+        final BlockingQueue<NewHeadsNotification> notifications =
+                new LinkedBlockingQueue<NewHeadsNotification>();
+        Subscription subscription = web3j.newHeadsNotifications().subscribe(
+                new Action1<NewHeadsNotification>() {
+                    @Override
+                    public void call(NewHeadsNotification notification) {
+                        notifications.add(notification);
+                    }
+                });
+
+        assertTrue(node.subscribed.await(5, TimeUnit.SECONDS));
+        node.pushNewHead("0x1", "0xaa");
+        node.pushNewHead("0x2", "0xbb");
+
+        NewHeadsNotification first = notifications.poll(5, TimeUnit.SECONDS);
+        assertThat(first.getParams().getSubscription(), is(SUBSCRIPTION_ID));
+        assertThat(first.getParams().getResult().getHash(), is("0xaa"));
+        assertThat(notifications.poll(5, TimeUnit.SECONDS).getParams().getResult().getNumber(),
+                is("0x2"));
+
+        subscription.unsubscribe();
+        assertTrue(node.unsubscribed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBlockHashObservableIsPushDriven() throws Exception {
+        final BlockingQueue<String> blockHashes = new LinkedBlockingQueue<String>();
+        Subscription subscription = web3j.ethBlockHashObservable().subscribe(
+                new Action1<String>() {
+                    @Override
+                    public void call(String blockHash) {
+                        blockHashes.add(blockHash);
+                    }
+                });
+
+        assertTrue(node.subscribed.await(5, TimeUnit.SECONDS));
+        node.pushNewHead("0x1", "0xaa");
+
+        assertThat(blockHashes.poll(5, TimeUnit.SECONDS), is("0xaa"));
+        assertThat(node.methods.contains("platon_newBlockFilter"), is(false));
+        subscription.unsubscribe();
+    }
+
+    @Test
+    public void testBlockObservableFetchesPushedBlocks() throws Exception {
+        final BlockingQueue<PlatonBlock.Block> blocks =
+                new LinkedBlockingQueue<PlatonBlock.Block>();
+        // each block is fetched from within the subscriber of its notification
+        Subscription subscription = web3j.blockObservable(false).subscribe(
+                new Action1<PlatonBlock>() {
+                    @Override
+                    public void call(PlatonBlock block) {
+                        blocks.add(block.getBlock());
+                    }
+                });
+
+        assertTrue(node.subscribed.await(5, TimeUnit.SECONDS));
+        node.pushNewHead("0x1", "0xaa");
+        node.pushNewHead("0x2", "0xbb");
+
+        PlatonBlock.Block first = blocks.poll(5, TimeUnit.SECONDS);
+        assertThat(first.getHash(), is("0xaa"));
+        assertThat(first.getNumber(), is(BigInteger.ONE));
+        assertThat(blocks.poll(5, TimeUnit.SECONDS).getHash(), is("0xbb"));
+        assertThat(node.methods.contains("platon_getBlockByHash"), is(true));
+        subscription.unsubscribe();
+    }
+
+    @Test(expected = IOException.class)
+    public void testPendingRequestFailsWhenConnectionCloses() throws Exception {
+        node.silent = true;
+        Future<PlatonBlockNumber> future =
+                web3j.platonBlockNumber().sendAsync();
+        assertTrue(node.received.await(5, TimeUnit.SECONDS));
+
+        server.shutdown();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Stand-in for a node's WebSocket endpoint.
+     */
+    private class StubNode extends WebSocketListener {
+
+        private final List<String> methods =
+                Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch unsubscribed = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private volatile WebSocket webSocket;
+        private volatile boolean silent;
+
+        @Override
+        public void onOpen(WebSocket webSocket, okhttp3.Response response) {
+            this.webSocket = webSocket;
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            received.countDown();
+            if (silent) {
+                return;
+            }
+
+            try {
+                JsonNode request = objectMapper.readTree(text);
+                if (request.isArray()) {
+                    StringBuilder reply = new StringBuilder("[");
+                    for (int i = request.size() - 1; i >= 0; i--) {
+                        reply.append(reply(request.get(i)));
+                        reply.append(i > 0 ? "," : "]");
+                    }
+                    webSocket.send(reply.toString());
+                } else {
+                    webSocket.send(reply(request));
+                    if ("platon_subscribe".equals(request.get("method").asText())) {
+                        subscribed.countDown();
+                    } else if ("platon_unsubscribe".equals(request.get("method").asText())) {
+                        unsubscribed.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private String reply(JsonNode request) {
+            String method = request.get("method").asText();
+            methods.add(method);
+
+            String result;
+            if ("platon_subscribe".equals(method)) {
+                result = "\"" + SUBSCRIPTION_ID + "\"";
+            } else if ("platon_unsubscribe".equals(method)) {
+                result = "true";
+            } else if ("platon_getBlockByHash".equals(method)) {
+                String hash = request.get("params").get(0).asText();
+                result = "{\"number\":\"" + (hash.equals("0xaa") ? "0x1" : "0x2") + "\","
+                        + "\"hash\":\"" + hash + "\",\"parentHash\":\"0x00\","
+                        + "\"transactions\":[]}";
+            } else {
+                result = "\"0x10\"";
+            }
+            return "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id").asLong()
+                    + ",\"result\":" + result + "}";
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            closed.countDown();
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
+            closed.countDown();
+        }
+
+        void pushNewHead(String number, String hash) {
+            webSocket.send("{\"jsonrpc\":\"2.0\",\"method\":\"platon_subscription\","
+                    + "\"params\":{\"subscription\":\"" + SUBSCRIPTION_ID + "\","
+                    + "\"result\":{\"number\":\"" + number + "\",\"hash\":\"" + hash + "\","
+                    + "\"parentHash\":\"0x00\"}}}");
+        }
+    }
+}
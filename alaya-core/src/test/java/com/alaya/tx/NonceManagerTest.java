@@ -0,0 +1,199 @@
+package com.alaya.tx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.core.DefaultBlockParameter;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonGetTransactionCount;
+import com.alaya.protocol.core.methods.response.PlatonSendTransaction;
+import com.alaya.utils.Numeric;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NonceManagerTest {
+
+    private static final String ADDRESS = "0x3d6cb163f7c72d20b0fcd6baae5889329d138a4a";
+    private static final String OTHER_ADDRESS = "0x2a98c5f40bfa3dee83431103c535f6fae9a8ad38";
+
+    // the pending transaction count of every address
+    private final AtomicLong pendingCount = new AtomicLong(5);
+    // the nonces received by the node, waiting on lower ones
+    private final Set<Long> queued = new HashSet<Long>();
+    private final AtomicInteger countRequests = new AtomicInteger();
+
+    private NonceManager nonceManager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        final Request<?, PlatonGetTransactionCount> request = mock(Request.class);
+        when(request.send()).thenAnswer(new Answer<PlatonGetTransactionCount>() {
+            @Override
+            public PlatonGetTransactionCount answer(InvocationOnMock invocation) {
+                countRequests.incrementAndGet();
+                PlatonGetTransactionCount ethGetTransactionCount = new PlatonGetTransactionCount();
+                ethGetTransactionCount.setResult(
+                        Numeric.encodeQuantity(BigInteger.valueOf(pendingCount.get())));
+                return ethGetTransactionCount;
+            }
+        });
+
+        Web3j web3j = mock(Web3j.class);
+        when(web3j.platonGetTransactionCount(anyString(), any(DefaultBlockParameter.class)))
+                .thenReturn((Request) request);
+        nonceManager = new NonceManager(web3j);
+    }
+
+    @Test
+    public void testHandsOutConsecutiveNonces() throws Exception {
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(5)));
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(6)));
+        assertThat(nonceManager.acquire(OTHER_ADDRESS), is(BigInteger.valueOf(5)));
+        assertThat(nonceManager.getNextNonce(ADDRESS), is(BigInteger.valueOf(7)));
+        assertThat(countRequests.get(), is(2));
+    }
+
+    @Test
+    public void testHandsOutUniqueNoncesConcurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<BigInteger>> futures = new ArrayList<Future<BigInteger>>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executorService.submit(new Callable<BigInteger>() {
+                @Override
+                public BigInteger call() throws IOException {
+                    BigInteger nonce = nonceManager.acquire(ADDRESS);
+                    receive(nonce);
+                    nonceManager.complete(ADDRESS, nonce, accepted());
+                    return nonce;
+                }
+            }));
+        }
+
+        Set<BigInteger> nonces = new HashSet<BigInteger>();
+        for (Future<BigInteger> future : futures) {
+            nonces.add(future.get());
+        }
+        executorService.shutdown();
+
+        Set<BigInteger> expected = new HashSet<BigInteger>();
+        for (int i = 5; i < 205; i++) {
+            expected.add(BigInteger.valueOf(i));
+        }
+        assertThat(nonces, equalTo(expected));
+        assertThat(nonceManager.getHighestAcceptedNonce(ADDRESS), is(BigInteger.valueOf(204)));
+    }
+
+    @Test
+    public void testReusesNonceRejectedWithoutUse() throws Exception {
+        BigInteger nonce = nonceManager.acquire(ADDRESS);
+        nonceManager.complete(ADDRESS, nonce, rejected("insufficient funds for gas * price"));
+
+        assertThat(nonceManager.acquire(ADDRESS), is(nonce));
+        assertThat(nonceManager.acquire(ADDRESS), is(nonce.add(BigInteger.ONE)));
+    }
+
+    @Test
+    public void testResyncsOnNonceTooLow() throws Exception {
+        BigInteger nonce = nonceManager.acquire(ADDRESS);
+        // another sender used the same account meanwhile
+        pendingCount.set(9);
+        nonceManager.complete(ADDRESS, nonce, rejected("nonce too low"));
+
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(9)));
+        assertThat(countRequests.get(), is(2));
+    }
+
+    @Test
+    public void testFillsGapLeftByFailedSend() throws Exception {
+        BigInteger lost = nonceManager.acquire(ADDRESS);
+        BigInteger sent = nonceManager.acquire(ADDRESS);
+        nonceManager.complete(ADDRESS, sent, accepted());
+        // the node never received the first transaction, the second one waits on it
+        nonceManager.fail(ADDRESS, lost);
+
+        assertThat(nonceManager.acquire(ADDRESS), is(lost));
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(7)));
+    }
+
+    @Test
+    public void testFillsGapLeftByConsecutiveFailedSends() throws Exception {
+        BigInteger first = nonceManager.acquire(ADDRESS);
+        BigInteger second = nonceManager.acquire(ADDRESS);
+        BigInteger third = nonceManager.acquire(ADDRESS);
+        // none of them reached the node
+        nonceManager.fail(ADDRESS, first);
+        nonceManager.fail(ADDRESS, second);
+        nonceManager.fail(ADDRESS, third);
+
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(5)));
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(6)));
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(7)));
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(8)));
+    }
+
+    @Test
+    public void testKeepsNonceReceivedDespiteFailedSend() throws Exception {
+        BigInteger nonce = nonceManager.acquire(ADDRESS);
+        // the node received the transaction, but the response was lost
+        pendingCount.set(6);
+        nonceManager.fail(ADDRESS, nonce);
+
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(6)));
+    }
+
+    @Test
+    public void testResetsNonce() throws Exception {
+        nonceManager.acquire(ADDRESS);
+        nonceManager.acquire(ADDRESS);
+        pendingCount.set(3);
+        nonceManager.reset(ADDRESS);
+
+        assertThat(nonceManager.acquire(ADDRESS), is(BigInteger.valueOf(3)));
+    }
+
+    /**
+     * Pass a transaction to the node, the pending count covers it once no nonce is missing.
+     */
+    private synchronized void receive(BigInteger nonce) {
+        queued.add(nonce.longValue());
+        while (queued.remove(pendingCount.get())) {
+            pendingCount.incrementAndGet();
+        }
+    }
+
+    private static PlatonSendTransaction accepted() {
+        PlatonSendTransaction ethSendTransaction = new PlatonSendTransaction();
+        ethSendTransaction.setResult("0xHASH");
+        return ethSendTransaction;
+    }
+
+    private static PlatonSendTransaction rejected(String message) {
+        PlatonSendTransaction ethSendTransaction = new PlatonSendTransaction();
+        ethSendTransaction.setError(new Response.Error(-32000, message));
+        return ethSendTransaction;
+    }
+}
@@ -0,0 +1,269 @@
+package com.alaya.tx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.alaya.crypto.RawTransaction;
+import com.alaya.crypto.TransactionDecoder;
+import com.alaya.crypto.WalletApplication;
+import com.alaya.crypto.addressconvert.AddressManager;
+import com.alaya.crypto.addressconvert.bech32.AddressBehavior;
+import com.alaya.crypto.addressconvert.bech32.Bech32Util;
+import com.alaya.protocol.Web3j;
+import com.alaya.protocol.Web3jFactory;
+import com.alaya.protocol.Web3jService;
+import com.alaya.protocol.core.BatchRequest;
+import com.alaya.protocol.core.BatchResponse;
+import com.alaya.protocol.core.Request;
+import com.alaya.protocol.core.Response;
+import com.alaya.protocol.core.methods.response.PlatonGetTransactionCount;
+import com.alaya.protocol.core.methods.response.PlatonSendTransaction;
+import com.alaya.protocol.platon.SampleKeys;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransactionPipelineTest {
+
+    private static final String ADDRESS = "0x3d6cb163f7c72d20b0fcd6baae5889329d138a4a";
+    private static final String TO = Bech32Util.addressEncode(Bech32Util.HRP_ATX, ADDRESS);
+
+    // signs on the submitting thread
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final List<BatchRequest> batches = new CopyOnWriteArrayList<BatchRequest>();
+    private final List<CompletableFuture<BatchResponse>> responses =
+            new CopyOnWriteArrayList<CompletableFuture<BatchResponse>>();
+    private final List<Request<?, ?>> singles = new CopyOnWriteArrayList<Request<?, ?>>();
+
+    private Web3j web3j;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        WalletApplication.init(WalletApplication.TESTNET, AddressManager.ADDRESS_TYPE_BECH32,
+                AddressBehavior.CHANNLE_ALAYA);
+
+        Web3jService web3jService = mock(Web3jService.class);
+        PlatonGetTransactionCount ethGetTransactionCount = new PlatonGetTransactionCount();
+        ethGetTransactionCount.setResult("0x7");
+        when(web3jService.send(any(Request.class), eq(PlatonGetTransactionCount.class)))
+                .thenReturn(ethGetTransactionCount);
+        when(web3jService.sendBatchAsync(any(BatchRequest.class))).thenAnswer(
+                new Answer<CompletableFuture<BatchResponse>>() {
+                    @Override
+                    public CompletableFuture<BatchResponse> answer(InvocationOnMock invocation) {
+                        CompletableFuture<BatchResponse> response =
+                                new CompletableFuture<BatchResponse>();
+                        // batches may be sent concurrently, each is kept with its response
+                        synchronized (batches) {
+                            responses.add(response);
+                            batches.add((BatchRequest) invocation.getArguments()[0]);
+                        }
+                        return response;
+                    }
+                });
+        when(web3jService.sendAsync(any(Request.class), eq(PlatonSendTransaction.class)))
+                .thenAnswer(new Answer<CompletableFuture<PlatonSendTransaction>>() {
+                    @Override
+                    public CompletableFuture<PlatonSendTransaction> answer(
+                            InvocationOnMock invocation) {
+                        Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                        singles.add(request);
+                        return CompletableFuture.completedFuture(
+                                accepted((String) request.getParams().get(0)));
+                    }
+                });
+        web3j = Web3jFactory.build(
+                web3jService, 1000, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @Test
+    public void testSendsBatchesWithConsecutiveNonces() throws Exception {
+        TransactionPipeline pipeline = new TransactionPipeline(web3j, SampleKeys.CREDENTIALS,
+                ChainId.NONE, new NonceManager(web3j), ForkJoinPool.commonPool(), 4, 8);
+        List<CompletableFuture<PlatonSendTransaction>> results =
+                pipeline.submit(transfers(6));
+
+        waitForBatches(2);
+        // signed concurrently, either batch may be sent first
+        assertThat(batches.get(0).size() + batches.get(1).size(), is(6));
+        assertThat(Math.max(batches.get(0).size(), batches.get(1).size()), is(4));
+        assertThat(pipeline.getInFlight(), is(6));
+
+        answer(0);
+        answer(1);
+        List<BigInteger> nonces = new ArrayList<BigInteger>();
+        for (CompletableFuture<PlatonSendTransaction> result : results) {
+            String transactionHash = result.get(1, TimeUnit.SECONDS).getTransactionHash();
+            RawTransaction transaction = TransactionDecoder.decode(transactionHash);
+            nonces.add(transaction.getNonce());
+            assertThat(transaction.getTo(), is(TO));
+        }
+        assertThat(nonces, equalTo(numbers(7, 8, 9, 10, 11, 12)));
+        assertThat(pipeline.getInFlight(), is(0));
+        assertThat(pipeline.getBatchCount(), is(2L));
+        assertThat(pipeline.getNonceManager().getHighestAcceptedNonce(
+                SampleKeys.CREDENTIALS.getAddress()), is(BigInteger.valueOf(12)));
+    }
+
+    @Test
+    public void testSendsSingleTransactionAsIs() throws Exception {
+        TransactionPipeline pipeline = new TransactionPipeline(web3j, SampleKeys.CREDENTIALS,
+                ChainId.NONE, new NonceManager(web3j), DIRECT, 4, 8);
+        PlatonSendTransaction response =
+                pipeline.submit(transfers(1).get(0)).get(1, TimeUnit.SECONDS);
+
+        assertThat(TransactionDecoder.decode(response.getTransactionHash()).getNonce(),
+                is(BigInteger.valueOf(7)));
+        assertThat(singles.size(), is(1));
+        assertThat(batches.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailsTransactionsOfFailedBatch() throws Exception {
+        NonceManager nonceManager = new NonceManager(web3j);
+        TransactionPipeline pipeline = new TransactionPipeline(web3j, SampleKeys.CREDENTIALS,
+                ChainId.NONE, nonceManager, DIRECT, 4, 8);
+        List<CompletableFuture<PlatonSendTransaction>> results =
+                pipeline.submit(transfers(3));
+
+        responses.get(0).completeExceptionally(new IOException("connection reset"));
+        for (CompletableFuture<PlatonSendTransaction> result : results) {
+            try {
+                result.get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IOException.class));
+            }
+        }
+        assertThat(pipeline.getInFlight(), is(0));
+        // it's unknown whether the node received them, the nonce is resynced and none of the
+        // nonces of the batch is left behind
+        String address = SampleKeys.CREDENTIALS.getAddress();
+        assertThat(nonceManager.acquire(address), is(BigInteger.valueOf(7)));
+        assertThat(nonceManager.acquire(address), is(BigInteger.valueOf(8)));
+        assertThat(nonceManager.acquire(address), is(BigInteger.valueOf(9)));
+        assertThat(nonceManager.acquire(address), is(BigInteger.valueOf(10)));
+    }
+
+    @Test
+    public void testFailsTransactionsOfUnreadableBatchResponse() throws Exception {
+        NonceManager nonceManager = new NonceManager(web3j);
+        TransactionPipeline pipeline = new TransactionPipeline(web3j, SampleKeys.CREDENTIALS,
+                ChainId.NONE, nonceManager, DIRECT, 4, 8);
+        List<CompletableFuture<PlatonSendTransaction>> results =
+                pipeline.submit(transfers(3));
+
+        // as read from an empty body
+        responses.get(0).complete(null);
+        for (CompletableFuture<PlatonSendTransaction> result : results) {
+            try {
+                result.get(1, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(NullPointerException.class));
+            }
+        }
+        assertThat(pipeline.getInFlight(), is(0));
+        assertThat(nonceManager.acquire(SampleKeys.CREDENTIALS.getAddress()),
+                is(BigInteger.valueOf(7)));
+    }
+
+    @Test
+    public void testReusesNoncesOfUnsignedTransactions() throws Exception {
+        NonceManager nonceManager = new NonceManager(web3j);
+        TransactionPipeline pipeline = new TransactionPipeline(web3j, SampleKeys.CREDENTIALS,
+                ChainId.NONE, nonceManager, DIRECT, 4, 8);
+        List<RawTransaction> transactions = transfers(2);
+        // no gas limit to encode
+        transactions.add(RawTransaction.createEtherTransaction(
+                BigInteger.ZERO, BigInteger.ONE, null, TO, BigInteger.ONE));
+        List<CompletableFuture<PlatonSendTransaction>> results = pipeline.submit(transactions);
+
+        assertThat(batches.get(0).size(), is(2));
+        try {
+            results.get(2).get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(pipeline.getInFlight(), is(2));
+        }
+        assertThat(nonceManager.acquire(SampleKeys.CREDENTIALS.getAddress()),
+                is(BigInteger.valueOf(9)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBatchLargerThanInFlight() {
+        new TransactionPipeline(web3j, SampleKeys.CREDENTIALS, ChainId.NONE,
+                new NonceManager(web3j), DIRECT, 10, 5);
+    }
+
+    private void waitForBatches(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && batches.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(batches.size(), is(count));
+    }
+
+    /**
+     * Answer a batch, with the signed transactions standing in for their hashes.
+     */
+    private void answer(int batch) {
+        List<Response<?>> sent = new ArrayList<Response<?>>();
+        for (Request<?, ?> request : batches.get(batch).getRequests()) {
+            sent.add(accepted((String) request.getParams().get(0)));
+        }
+        responses.get(batch).complete(
+                new BatchResponse(batches.get(batch).getRequests(), sent));
+    }
+
+    private static PlatonSendTransaction accepted(String signedTransaction) {
+        PlatonSendTransaction ethSendTransaction = new PlatonSendTransaction();
+        ethSendTransaction.setResult(signedTransaction);
+        return ethSendTransaction;
+    }
+
+    private static List<RawTransaction> transfers(int count) {
+        List<RawTransaction> transactions = new ArrayList<RawTransaction>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(RawTransaction.createEtherTransaction(
+                    BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(21000),
+                    TO, BigInteger.valueOf(i + 1)));
+        }
+        return transactions;
+    }
+
+    private static List<BigInteger> numbers(int... numbers) {
+        List<BigInteger> result = new ArrayList<BigInteger>();
+        for (int number : numbers) {
+            result.add(BigInteger.valueOf(number));
+        }
+        return result;
+    }
+}
@@ -11,6 +11,7 @@ import rx.Observable;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
+import rx.observers.TestSubscriber;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -49,6 +50,19 @@ public class ObservablesTests {
         runRangeTest(observable, expected);
     }
 
+    @Test
+    public void testRangeObservableHonoursBackpressure() {
+        TestSubscriber<BigInteger> subscriber = new TestSubscriber<BigInteger>(2);
+        Observables.range(BigInteger.ZERO, BigInteger.valueOf(Long.MAX_VALUE))
+                .subscribe(subscriber);
+
+        subscriber.assertValues(BigInteger.ZERO, BigInteger.ONE);
+        subscriber.requestMore(1);
+        subscriber.assertValueCount(3);
+        subscriber.assertNotCompleted();
+        subscriber.unsubscribe();
+    }
+
     private void runRangeTest(
             Observable<BigInteger> observable, List<BigInteger> expected)
             throws InterruptedException {